@@ -0,0 +1,119 @@
+package org.radargun.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.radargun.service.ChmCache;
+import org.radargun.stages.cache.generators.KeyGenerator;
+import org.radargun.stages.cache.generators.ValueGenerator;
+import org.radargun.stages.cache.test.BasicOperationsTestStage;
+import org.radargun.stages.helpers.CacheSelector;
+import org.radargun.stages.test.OperationLogic;
+import org.radargun.stages.test.OperationSelector;
+import org.radargun.stages.test.Stressor;
+import org.radargun.stats.BasicStatistics;
+import org.radargun.traits.BasicOperations;
+
+/**
+ * Executes the whole request path of {@link BasicOperationsTestStage} (operation selection, key selection,
+ * stressor and statistics) against {@link ChmCache}.
+ *
+ * Keys and values are prepared upfront, so that run with <code>-prof gc</code> shows the allocation
+ * of the driver itself: with <code>recycleRequests=true</code> the <code>gc.alloc.rate.norm</code>
+ * should be zero bytes per operation in steady state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BasicOperationsBenchmark {
+   @Param({"false", "true"})
+   public boolean recycleRequests;
+
+   @Param({"1024"})
+   public int numKeys;
+
+   private BenchmarkStage stage;
+   private OperationLogic logic;
+   private OperationSelector operationSelector;
+   private Random random;
+
+   @Setup
+   public void setup() {
+      ChmCache cache = new ChmCache("benchmark");
+      stage = new BenchmarkStage(cache, numKeys);
+      stage.recycleRequests = recycleRequests;
+      for (int i = 0; i < numKeys; ++i) {
+         cache.put(stage.keys[i], stage.value);
+      }
+      logic = stage.getLogic();
+      operationSelector = stage.operationSelector();
+      Stressor.recording(stage, logic, new BasicStatistics());
+      random = ThreadLocalRandom.current();
+   }
+
+   @Benchmark
+   public void request() throws OperationLogic.RequestException {
+      logic.run(operationSelector.next(random));
+   }
+
+   private static class BenchmarkStage extends BasicOperationsTestStage {
+      private final Object[] keys;
+      private final byte[] value = new byte[1000];
+
+      BenchmarkStage(ChmCache cache, int numKeys) {
+         keys = new Object[numKeys];
+         for (int i = 0; i < numKeys; ++i) {
+            keys[i] = "key" + i;
+         }
+         basicOperations = new BasicOperations() {
+            @Override
+            public <K, V> Cache<K, V> getCache(String cacheName) {
+               return cache;
+            }
+         };
+         cacheSelector = new CacheSelector.UseCache("benchmark");
+         keySelectorFactory = (stage, random, globalThreadId, threadId) -> () -> random.nextInt(numKeys);
+         keyGenerator = new KeyGenerator() {
+            @Override
+            public Object generateKey(long keyIndex) {
+               return keys[(int) keyIndex];
+            }
+         };
+         valueGenerator = new ValueGenerator() {
+            @Override
+            public Object generateValue(Object key, int size, Random random) {
+               return value;
+            }
+
+            @Override
+            public int sizeOf(Object value) {
+               return ((byte[]) value).length;
+            }
+
+            @Override
+            public boolean checkValue(Object value, Object key, int expectedSize) {
+               return true;
+            }
+         };
+      }
+
+      OperationSelector operationSelector() {
+         return createOperationSelector();
+      }
+   }
+}
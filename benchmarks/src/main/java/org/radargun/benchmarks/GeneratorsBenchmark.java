@@ -0,0 +1,68 @@
+package org.radargun.benchmarks;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.radargun.config.PropertyHelper;
+import org.radargun.stages.cache.generators.ByteArrayValueGenerator;
+import org.radargun.stages.cache.generators.StringKeyGenerator;
+
+/**
+ * Cost of generating keys with {@link StringKeyGenerator} and values with {@link ByteArrayValueGenerator}.
+ *
+ * Empty <code>format</code> uses the generator's built-in formatting, other values are passed
+ * to the generator's <code>format</code> property.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorsBenchmark {
+   @Benchmark
+   public Object generateKey(KeyState state) {
+      return state.keyGenerator.generateKey(state.keyIndex++);
+   }
+
+   @Benchmark
+   public byte[] generateArray(ValueState state) {
+      Random random = ThreadLocalRandom.current();
+      return ByteArrayValueGenerator.generateArray(state.valueSize, random);
+   }
+
+   @State(Scope.Thread)
+   public static class KeyState {
+      @Param({"", "key_%016X"})
+      public String format;
+
+      private StringKeyGenerator keyGenerator;
+      private long keyIndex;
+
+      @Setup
+      public void setup() {
+         keyGenerator = new StringKeyGenerator();
+         if (!format.isEmpty()) {
+            PropertyHelper.setProperties(keyGenerator, Collections.singletonMap("format", format), false, false);
+         }
+      }
+   }
+
+   @State(Scope.Thread)
+   public static class ValueState {
+      @Param({"100", "1000", "10000"})
+      public int valueSize;
+   }
+}
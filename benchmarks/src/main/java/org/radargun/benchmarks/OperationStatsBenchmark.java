@@ -0,0 +1,68 @@
+package org.radargun.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.radargun.stats.BasicOperationStats;
+import org.radargun.stats.HistogramOperationStats;
+import org.radargun.stats.Request;
+import org.radargun.utils.TimeService;
+
+/**
+ * Cost of recording single request into {@link BasicOperationStats} and {@link HistogramOperationStats}.
+ *
+ * Requests are completed upfront with durations spread between 1 microsecond and 10 milliseconds
+ * (log-uniformly), so that the histogram does not hit the same bucket all the time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OperationStatsBenchmark {
+   private static final int REQUESTS = 4096;
+
+   private final Request[] requests = new Request[REQUESTS];
+   private BasicOperationStats basicStats;
+   private HistogramOperationStats histogramStats;
+   private int index;
+
+   @Setup
+   public void setup() {
+      Random random = new Random(0);
+      long now = TimeService.nanoTime();
+      for (int i = 0; i < REQUESTS; ++i) {
+         long duration = (long) Math.pow(10, 3 + 4 * random.nextDouble());
+         requests[i] = new Request(null, now - duration);
+         requests[i].responseCompleted(random.nextInt(100) != 0);
+      }
+      basicStats = new BasicOperationStats();
+      histogramStats = new HistogramOperationStats();
+      histogramStats.init();
+   }
+
+   @Benchmark
+   public void basicRecord() {
+      basicStats.record(nextRequest());
+   }
+
+   @Benchmark
+   public void histogramRecord() {
+      histogramStats.record(nextRequest());
+   }
+
+   private Request nextRequest() {
+      return requests[index++ & (REQUESTS - 1)];
+   }
+}
@@ -0,0 +1,62 @@
+package org.radargun.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.radargun.Operation;
+import org.radargun.stages.test.RatioOperationSelector;
+import org.radargun.stages.test.SchedulingSelector;
+import org.radargun.traits.BasicOperations;
+
+/**
+ * Cost of picking the next operation by {@link RatioOperationSelector} and {@link SchedulingSelector}.
+ *
+ * The scheduling selector is configured with a frequency that is never exhausted, so the benchmark
+ * measures the bookkeeping rather than waiting for the next slot. The selector is shared by all
+ * benchmark threads as it is in the stage; run with <code>-t</code> to see the effect of contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectorBenchmark {
+   private RatioOperationSelector ratioSelector;
+   private SchedulingSelector<Operation> schedulingSelector;
+
+   @Setup
+   public void setup() {
+      ratioSelector = (RatioOperationSelector) new RatioOperationSelector.Builder()
+         .add(BasicOperations.GET, 4)
+         .add(BasicOperations.PUT, 1)
+         .add(BasicOperations.REMOVE, 1)
+         .build();
+      schedulingSelector = new SchedulingSelector.Builder<>(Operation.class)
+         .add(BasicOperations.GET, Integer.MAX_VALUE, 1)
+         .add(BasicOperations.PUT, Integer.MAX_VALUE, 1)
+         .build();
+   }
+
+   @Benchmark
+   public Operation ratioNext() {
+      Random random = ThreadLocalRandom.current();
+      return ratioSelector.next(random);
+   }
+
+   @Benchmark
+   public Operation schedulingNext() throws InterruptedException {
+      return schedulingSelector.next();
+   }
+}
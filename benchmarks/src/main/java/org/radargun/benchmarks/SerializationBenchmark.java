@@ -0,0 +1,86 @@
+package org.radargun.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.radargun.Operation;
+import org.radargun.SerializationHelper;
+import org.radargun.stats.BasicOperationStats;
+import org.radargun.stats.BasicStatistics;
+import org.radargun.stats.HistogramOperationStats;
+import org.radargun.stats.OperationStats;
+import org.radargun.stats.Request;
+import org.radargun.traits.BasicOperations;
+import org.radargun.utils.TimeService;
+
+/**
+ * Cost of {@link SerializationHelper} on the statistics slaves send to master at the end of each test.
+ *
+ * The buffer is reused across invocations as it is in the remote connections.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+   private static final Operation[] OPERATIONS = { BasicOperations.GET, BasicOperations.PUT, BasicOperations.REMOVE };
+
+   @Param({"basic", "histogram"})
+   public String operationStats;
+
+   private BasicStatistics statistics;
+   private ByteBuffer buffer = ByteBuffer.allocate(1024);
+   private byte[] serialized;
+
+   @Setup
+   public void setup() throws IOException {
+      OperationStats prototype;
+      if ("histogram".equals(operationStats)) {
+         HistogramOperationStats histogramStats = new HistogramOperationStats();
+         histogramStats.init();
+         prototype = histogramStats;
+      } else {
+         prototype = new BasicOperationStats();
+      }
+      statistics = new BasicStatistics(prototype);
+      statistics.begin();
+      Random random = new Random(0);
+      for (int i = 0; i < 100000; ++i) {
+         long duration = (long) Math.pow(10, 3 + 4 * random.nextDouble());
+         Request request = new Request(statistics, TimeService.nanoTime() - duration);
+         request.succeeded(OPERATIONS[random.nextInt(OPERATIONS.length)]);
+      }
+      statistics.end();
+      ByteBuffer data = SerializationHelper.serializeObject(statistics, ByteBuffer.allocate(1024));
+      serialized = new byte[data.position()];
+      data.flip();
+      data.get(serialized);
+   }
+
+   @Benchmark
+   public ByteBuffer serialize() throws IOException {
+      buffer.clear();
+      buffer = SerializationHelper.serializeObjectWithLength(statistics, buffer);
+      return buffer;
+   }
+
+   @Benchmark
+   public Object deserialize() throws IOException {
+      return SerializationHelper.deserialize(serialized, 0, serialized.length);
+   }
+}
@@ -47,6 +47,22 @@ public interface DistStage extends Stage, Serializable {
     */
    StageResult processAckOnMaster(List<DistStageAck> acks);
 
+   /**
+    * Called on master when a slave sends {@link DistStageProgress} during {@link #executeOnSlave()}.
+    * Progress messages from one slave are delivered in order, and before its ack.
+    * @param progress
+    */
+   default void processProgressOnMaster(DistStageProgress progress) {
+   }
+
+   /**
+    * Called on master instead of {@link #processAckOnMaster(List)} when the communication
+    * with slaves has failed during the stage, e.g. because some slave has crashed.
+    * The stage can store partial results received as {@link DistStageProgress}.
+    */
+   default void processFailureOnMaster() {
+   }
+
    //TODO: remove the call from stages
 
    /**
@@ -0,0 +1,22 @@
+package org.radargun;
+
+import java.io.Serializable;
+
+import org.radargun.state.SlaveState;
+
+/**
+ * Message sent from slave to the master while the stage is still executing on the slave.
+ * The master passes it to {@link DistStage#processProgressOnMaster(DistStageProgress)}
+ * of currently executed stage.
+ */
+public class DistStageProgress implements Serializable {
+   private final int slaveIndex;
+
+   public DistStageProgress(SlaveState slaveState) {
+      slaveIndex = slaveState.getSlaveIndex();
+   }
+
+   public int getSlaveIndex() {
+      return slaveIndex;
+   }
+}
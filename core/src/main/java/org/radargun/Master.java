@@ -33,6 +33,14 @@ import org.radargun.utils.Utils;
  */
 public class Master {
 
+   /**
+    * When set to true, slaves start JVMs for the next scenario while the current scenario is running,
+    * so that the restart is reduced to a handover to an already started and loaded JVM.
+    */
+   public static final String PRESTART_SLAVES_PROPERTY = "radargun.prestartSlaves";
+   private static final boolean PRESTART_SLAVES = Boolean.getBoolean(PRESTART_SLAVES_PROPERTY);
+   private static final String RESTART = "Restart";
+
    private static Log log = LogFactory.getLog(Master.class);
 
    private final MasterConfig masterConfig;
@@ -68,27 +76,40 @@ public class Master {
          }
 
          long benchmarkStart = TimeService.currentTimeMillis();
-         for (Configuration configuration : masterConfig.getConfigurations()) {
+         List<Configuration> configurations = masterConfig.getConfigurations();
+         List<Cluster> clusters = masterConfig.getClusters();
+         for (int configurationIndex = 0; configurationIndex < configurations.size(); ++configurationIndex) {
+            Configuration configuration = configurations.get(configurationIndex);
             log.info("Started benchmarking configuration '" + configuration.name + "'");
             state.setConfigName(configuration.name);
             for (MasterListener listener : state.getListeners()) {
                listener.beforeConfiguration();
             }
             long configStart = TimeService.currentTimeMillis();
-            for (Cluster cluster : masterConfig.getClusters()) {
+            for (int clusterIndex = 0; clusterIndex < clusters.size(); ++clusterIndex) {
+               Cluster cluster = clusters.get(clusterIndex);
                int clusterSize = cluster.getSize();
                log.info("Starting scenario on " + cluster);
                connection.sendCluster(cluster);
                connection.sendSlaveAddresses();
                connection.sendConfiguration(configuration);
                // here we should restart, therefore, we have to send it again
-               connection.restartSlaves(clusterSize);
+               long restartStart = TimeService.currentTimeMillis();
+               int prestarted = connection.restartSlaves(clusterSize);
+               long restartEnd = TimeService.currentTimeMillis();
+               log.info(String.format("Restarted %d slaves (%d pre-started) in %s", clusterSize, prestarted,
+                  Utils.getMillisDurationString(restartEnd - restartStart)));
                connection.sendCluster(cluster);
                connection.sendSlaveAddresses();
                connection.sendConfiguration(configuration);
+               if (PRESTART_SLAVES) {
+                  prepareNextRestart(configurationIndex, clusterIndex, clusterSize);
+               }
                connection.sendScenario(masterConfig.getScenario(), clusterSize);
                state.setCluster(cluster);
                state.setReport(new Report(configuration, cluster));
+               state.getTimeline().addEvent(RESTART, new Timeline.IntervalEvent(restartStart,
+                  prestarted > 0 ? String.format("Restart (%d pre-started)", prestarted) : "Restart", restartEnd - restartStart));
                for (MasterListener listener : state.getListeners()) {
                   listener.beforeCluster();
                }
@@ -157,6 +178,27 @@ public class Master {
       }
    }
 
+   /**
+    * Sends the configuration and cluster of the scenario following the given one to the slaves. Slaves
+    * not taking part in the current scenario are idle and prepare for the next one, too.
+    */
+   private void prepareNextRestart(int configurationIndex, int clusterIndex, int clusterSize) throws IOException {
+      List<Configuration> configurations = masterConfig.getConfigurations();
+      List<Cluster> clusters = masterConfig.getClusters();
+      Configuration nextConfiguration;
+      Cluster nextCluster;
+      if (clusterIndex + 1 < clusters.size()) {
+         nextConfiguration = configurations.get(configurationIndex);
+         nextCluster = clusters.get(clusterIndex + 1);
+      } else if (configurationIndex + 1 < configurations.size()) {
+         nextConfiguration = configurations.get(configurationIndex + 1);
+         nextCluster = clusters.get(0);
+      } else {
+         return;
+      }
+      connection.prepareRestart(nextConfiguration, nextCluster, Math.max(clusterSize, nextCluster.getSize()));
+   }
+
    private int executeStage(Configuration configuration, Cluster cluster, int stageId) {
       Stage stage = masterConfig.getScenario().getStage(stageId, state, getCurrentExtras(masterConfig, configuration, cluster), state.getReport());
       InitHelper.init(stage);
@@ -260,11 +302,25 @@ public class Master {
          return StageResult.EXIT;
       }
       List<DistStageAck> responses = null;
+      connection.setProgressHandler(progress -> {
+         try {
+            stage.processProgressOnMaster(progress);
+         } catch (Exception e) {
+            log.error("Processing progress on master failed", e);
+         }
+      });
       try {
          responses = connection.runStage(stageId, masterData, numSlaves);
       } catch (IOException e) {
          log.error("Error when communicating to slaves");
+         try {
+            stage.processFailureOnMaster();
+         } catch (Exception e2) {
+            log.error("Processing failure on master failed", e2);
+         }
          return StageResult.EXIT;
+      } finally {
+         connection.setProgressHandler(null);
       }
       if (responses.size() > 1) {
          Collections.sort(responses, new Comparator<DistStageAck>() {
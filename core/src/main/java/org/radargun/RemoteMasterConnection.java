@@ -11,6 +11,7 @@ import java.util.UUID;
 import org.radargun.logging.Log;
 import org.radargun.logging.LogFactory;
 import org.radargun.utils.ArgsHolder;
+import org.radargun.utils.ByteBufferPool;
 
 /**
  * Abstracts connection to the master node from slave side.
@@ -18,12 +19,14 @@ import org.radargun.utils.ArgsHolder;
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
  */
 public class RemoteMasterConnection {
+   private static final long MAX_POOLED_BUFFERS_BYTES = 16 * 1024 * 1024;
    private static Log log = LogFactory.getLog(RemoteMasterConnection.class);
 
    private String masterHost;
    private int masterPort;
    private SocketChannel socketChannel;
    private ByteBuffer buffer;
+   private ByteBufferPool bufferPool = new ByteBufferPool(MAX_POOLED_BUFFERS_BYTES);
 
    public RemoteMasterConnection(String masterHost, int masterPort) {
       this.masterHost = masterHost;
@@ -133,29 +136,35 @@ public class RemoteMasterConnection {
       int objectSize = readInt();
       log.trace("Expecting object with size " + objectSize);
       if (objectSize == 0) return null;
-      if (objectSize > buffer.capacity()) {
-         buffer = ByteBuffer.allocate(objectSize);
-      } else {
-         buffer.clear();
-      }
-      buffer.limit(objectSize);
-      while (buffer.hasRemaining()) {
-         int read = socketChannel.read(buffer);
-         log.trace("Read " + read + " bytes");
-         if (read < 0) {
-            throw new IOException("Cannot read from socket!");
+      // large objects (scenario, configuration) are read into pooled direct buffer and decoded from there
+      ByteBuffer readBuffer = objectSize > buffer.capacity() ? bufferPool.acquire(objectSize) : buffer;
+      try {
+         readBuffer.clear();
+         readBuffer.limit(objectSize);
+         while (readBuffer.hasRemaining()) {
+            int read = socketChannel.read(readBuffer);
+            log.trace("Read " + read + " bytes");
+            if (read < 0) {
+               throw new IOException("Cannot read from socket!");
+            }
+         }
+         readBuffer.flip();
+         return SerializationHelper.deserialize(readBuffer);
+      } finally {
+         if (readBuffer != buffer) {
+            bufferPool.release(readBuffer);
          }
       }
-      return SerializationHelper.deserialize(buffer.array(), 0, objectSize);
    }
 
    /**
-    * Send any serializable object to the master node.
+    * Send any serializable object to the master node. Can be called from other threads
+    * than the one receiving objects, e.g. when sending progress of executed stage.
     * @param obj
     * @param nextUuid UUID of the next generation of slaves, or null if this slave will continue
     * @throws IOException
     */
-   public void sendObject(Serializable obj, UUID nextUuid) throws IOException {
+   public synchronized void sendObject(Serializable obj, UUID nextUuid) throws IOException {
       buffer.clear();
       buffer = SerializationHelper.serializeObjectWithLength(obj, buffer);
       if (nextUuid == null) {
@@ -17,6 +17,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.radargun.config.Cluster;
 import org.radargun.config.Configuration;
@@ -24,6 +25,7 @@ import org.radargun.config.Scenario;
 import org.radargun.logging.Log;
 import org.radargun.logging.LogFactory;
 import org.radargun.reporting.Timeline;
+import org.radargun.utils.ByteBufferPool;
 import org.radargun.utils.SlaveConnectionInfo;
 import org.radargun.utils.TimeService;
 
@@ -41,6 +43,7 @@ public class RemoteSlaveConnection {
    private static final int EXPECTED_SIZE_BYTES = 4;
    private static final int DEFAULT_WRITE_BUFF_CAPACITY = 1024;
    private static final int DEFAULT_READ_BUFF_CAPACITY = 1024;
+   private static final long MAX_POOLED_READ_BUFFERS_BYTES = 64 * 1024 * 1024;
 
    public static final int DEFAULT_PORT = 2103;
 
@@ -51,11 +54,14 @@ public class RemoteSlaveConnection {
    private ByteBuffer mcastBuffer;
    private Map<SocketChannel, ByteBuffer> writeBufferMap = new HashMap<SocketChannel, ByteBuffer>();
    private Map<SocketChannel, ByteBuffer> readBufferMap = new HashMap<SocketChannel, ByteBuffer>();
+   // large responses (statistics) are read into pooled direct buffers instead of keeping them per slave
+   private ByteBufferPool readBufferPool = new ByteBufferPool(MAX_POOLED_READ_BUFFERS_BYTES);
    private List<Object> responses = new ArrayList<Object>();
    private Selector communicationSelector;
    private Selector discoverySelector;
    private Map<SocketChannel, Integer> channel2Index = new HashMap<>();
    private int reconnections = 0;
+   private Consumer<DistStageProgress> progressHandler;
 
    private String host;
    private int port;
@@ -297,38 +303,56 @@ public class RemoteSlaveConnection {
       ByteBuffer byteBuffer = readBufferMap.get(socketChannel);
       int value = socketChannel.read(byteBuffer);
 
-      if (byteBuffer.position() >= EXPECTED_SIZE_BYTES) {
+      // single read can contain several frames, e.g. progress followed by the ack
+      while (byteBuffer != null && byteBuffer.position() >= EXPECTED_SIZE_BYTES) {
          int expectedSize = byteBuffer.getInt(0);
-         if ((expectedSize + EXPECTED_SIZE_BYTES + UUID_BYTES) > byteBuffer.capacity()) {
-            ByteBuffer replacer = ByteBuffer.allocate(expectedSize + EXPECTED_SIZE_BYTES + UUID_BYTES);
-            replacer.put(byteBuffer.array(), 0, byteBuffer.position());
+         int frameSize = expectedSize + EXPECTED_SIZE_BYTES + UUID_BYTES;
+         if (frameSize > byteBuffer.capacity()) {
+            ByteBuffer replacer = readBufferPool.acquire(frameSize);
+            byteBuffer.flip();
+            replacer.put(byteBuffer);
             readBufferMap.put(socketChannel, replacer);
             if (log.isTraceEnabled())
                log.trace("Expected size(" + expectedSize + ")" + " is > ByteBuffer's capacity(" +
                   byteBuffer.capacity() + ")" + ".Replacing " + byteBuffer + " with " + replacer);
+            if (byteBuffer.isDirect()) {
+               readBufferPool.release(byteBuffer);
+            }
             byteBuffer = replacer;
          }
          if (log.isTraceEnabled())
             log.trace("Expected size: " + expectedSize + ". byteBuffer.position() == " + byteBuffer.position());
-         if (byteBuffer.position() >= expectedSize + EXPECTED_SIZE_BYTES + UUID_BYTES) {
-            log.trace("Received response from " + socketChannel.getRemoteAddress());
-            Object response = SerializationHelper.deserialize(byteBuffer.array(), EXPECTED_SIZE_BYTES, expectedSize);
-            long uuidMsb = byteBuffer.getLong(EXPECTED_SIZE_BYTES + expectedSize);
-            long uuidLsb = byteBuffer.getLong(EXPECTED_SIZE_BYTES + expectedSize + 8);
-            if (uuidMsb != 0 && uuidLsb != 0) {
-               // we should expect reconnection
-               int index = channel2Index.get(socketChannel);
-               UUID uuid = new UUID(uuidMsb, uuidLsb);
-               log.tracef("Slave %d (%s) is going to restart with UUID %s", index, socketChannel.getRemoteAddress(), uuid);
-               SlaveRecord record = slaves[index];
-               record.uuid = uuid;
-               record.channel.close();
-               record.channel = null;
-               channel2Index.remove(socketChannel);
-               readBufferMap.remove(socketChannel);
-               reconnections++;
+         if (byteBuffer.position() < frameSize) {
+            break;
+         }
+         log.trace("Received response from " + socketChannel.getRemoteAddress());
+         ByteBuffer serialized = byteBuffer.duplicate();
+         serialized.limit(EXPECTED_SIZE_BYTES + expectedSize).position(EXPECTED_SIZE_BYTES);
+         Object response = SerializationHelper.deserialize(serialized);
+         long uuidMsb = byteBuffer.getLong(EXPECTED_SIZE_BYTES + expectedSize);
+         long uuidLsb = byteBuffer.getLong(EXPECTED_SIZE_BYTES + expectedSize + 8);
+         if (uuidMsb != 0 && uuidLsb != 0) {
+            // we should expect reconnection
+            int index = channel2Index.get(socketChannel);
+            UUID uuid = new UUID(uuidMsb, uuidLsb);
+            log.tracef("Slave %d (%s) is going to restart with UUID %s", index, socketChannel.getRemoteAddress(), uuid);
+            SlaveRecord record = slaves[index];
+            record.uuid = uuid;
+            record.channel.close();
+            record.channel = null;
+            channel2Index.remove(socketChannel);
+            readBufferMap.remove(socketChannel);
+            reconnections++;
+            if (byteBuffer.isDirect()) {
+               readBufferPool.release(byteBuffer);
             }
-            byteBuffer.clear();
+            byteBuffer = null;
+         } else {
+            byteBuffer = consumeFrame(socketChannel, byteBuffer, frameSize);
+         }
+         if (response instanceof DistStageProgress) {
+            handleProgress((DistStageProgress) response);
+         } else {
             responses.add(response);
          }
       }
@@ -351,6 +375,41 @@ public class RemoteSlaveConnection {
       }
    }
 
+   /**
+    * Moves bytes following the frame to the beginning of the buffer. Pooled buffer is returned
+    * to the pool when the rest fits into a default heap buffer.
+    *
+    * @return Buffer used for further reads from the channel.
+    */
+   private ByteBuffer consumeFrame(SocketChannel socketChannel, ByteBuffer byteBuffer, int frameSize) {
+      byteBuffer.flip().position(frameSize);
+      if (byteBuffer.isDirect() && byteBuffer.remaining() <= DEFAULT_READ_BUFF_CAPACITY) {
+         ByteBuffer heapBuffer = ByteBuffer.allocate(DEFAULT_READ_BUFF_CAPACITY);
+         heapBuffer.put(byteBuffer);
+         readBufferPool.release(byteBuffer);
+         readBufferMap.put(socketChannel, heapBuffer);
+         return heapBuffer;
+      }
+      byteBuffer.compact();
+      return byteBuffer;
+   }
+
+   private void handleProgress(DistStageProgress progress) {
+      if (progressHandler == null) {
+         log.debugf("Ignoring progress from slave %d, no stage is executed", progress.getSlaveIndex());
+      } else {
+         progressHandler.accept(progress);
+      }
+   }
+
+   /**
+    * Sets handler of progress messages sent by the slaves during stage execution.
+    * @param progressHandler
+    */
+   public void setProgressHandler(Consumer<DistStageProgress> progressHandler) {
+      this.progressHandler = progressHandler;
+   }
+
    public void release() {
       if (mcastBuffer != null) {
          try {
@@ -393,10 +452,28 @@ public class RemoteSlaveConnection {
       }
    }
 
-   public void restartSlaves(int numSlaves) throws IOException {
+   /**
+    * @return Number of slaves that handed over to a pre-started JVM.
+    */
+   public int restartSlaves(int numSlaves) throws IOException {
       responses.clear();
       mcastObject(new Restart(), numSlaves);
       flushBuffers(numSlaves);
+      int prestarted = 0;
+      for (Object response : responses) {
+         if (Boolean.TRUE.equals(response)) {
+            prestarted++;
+         }
+      }
+      return prestarted;
+   }
+
+   /**
+    * Lets the slaves start JVMs for the next scenario in advance.
+    */
+   public void prepareRestart(Configuration configuration, Cluster cluster, int numSlaves) throws IOException {
+      mcastObject(new PrepareRestart(configuration, cluster), numSlaves);
+      flushBuffers(0);
    }
 
    private void startServerSocket() throws IOException {
@@ -446,4 +523,14 @@ public class RemoteSlaveConnection {
    }
 
    public static class Restart implements Serializable {}
+
+   public static class PrepareRestart implements Serializable {
+      public final Configuration configuration;
+      public final Cluster cluster;
+
+      public PrepareRestart(Configuration configuration, Cluster cluster) {
+         this.configuration = configuration;
+         this.cluster = cluster;
+      }
+   }
 }
@@ -2,19 +2,29 @@ package org.radargun;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Helper class holding serialization logic.
  *
+ * When system property {@value #COMPRESSION_PROPERTY} is set to true, the serialized form is compressed
+ * using zlib. Deserialization detects the compression from the first byte (zlib header starts with 0x78
+ * while Java serialization stream starts with 0xAC), so nodes with different settings can communicate.
+ *
  * @author Mircea Markus &lt;Mircea.Markus@jboss.com&gt;
  */
 public final class SerializationHelper {
+   public static final String COMPRESSION_PROPERTY = "radargun.compression";
    private static final int MIN_REMAINING = 32;
+   private static final int ZLIB_HEADER = 0x78;
+   private static final boolean COMPRESSION = Boolean.getBoolean(COMPRESSION_PROPERTY);
 
    private SerializationHelper() {}
 
@@ -31,10 +41,12 @@ public final class SerializationHelper {
     * @throws IOException
     */
    public static ByteBuffer serializeObject(Serializable serializable, ByteBuffer buffer) throws IOException {
-      try (ByteBufferOutputStream out = new ByteBufferOutputStream(buffer); ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      ByteBufferOutputStream out = new ByteBufferOutputStream(buffer);
+      try (ObjectOutputStream oos = new ObjectOutputStream(wrap(out))) {
          oos.writeObject(serializable);
-         return out.getBuffer();
       }
+      // the compressed stream is complete only after close
+      return out.getBuffer();
    }
 
    /**
@@ -56,12 +68,13 @@ public final class SerializationHelper {
       }
       int sizePosition = buffer.position();
       buffer.position(sizePosition + 4);
-      try (ByteBufferOutputStream out = new ByteBufferOutputStream(buffer); ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      ByteBufferOutputStream out = new ByteBufferOutputStream(buffer);
+      try (ObjectOutputStream oos = new ObjectOutputStream(wrap(out))) {
          oos.writeObject(serializable);
-         buffer = out.getBuffer();
-         buffer.putInt(sizePosition, buffer.position() - sizePosition - 4);
-         return buffer;
       }
+      buffer = out.getBuffer();
+      buffer.putInt(sizePosition, buffer.position() - sizePosition - 4);
+      return buffer;
    }
 
    /**
@@ -87,13 +100,35 @@ public final class SerializationHelper {
     * @throws IOException
     */
    public static Object deserialize(byte[] serializedData, int startPos, int length) throws IOException {
-      try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serializedData, startPos, length))) {
+      boolean compressed = length > 0 && (serializedData[startPos] & 0xFF) == ZLIB_HEADER;
+      return deserialize(new ByteArrayInputStream(serializedData, startPos, length), compressed);
+   }
+
+   /**
+    * Deserialize object from the remaining bytes of given buffer, without copying them to a heap array
+    * (the buffer can be direct). Position of the buffer is not modified.
+    *
+    * @param buffer
+    * @return
+    * @throws IOException
+    */
+   public static Object deserialize(ByteBuffer buffer) throws IOException {
+      boolean compressed = buffer.hasRemaining() && (buffer.get(buffer.position()) & 0xFF) == ZLIB_HEADER;
+      return deserialize(new ByteBufferInputStream(buffer.duplicate()), compressed);
+   }
+
+   private static Object deserialize(InputStream in, boolean compressed) throws IOException {
+      try (ObjectInputStream ois = new ObjectInputStream(compressed ? new InflaterInputStream(in) : in)) {
          return ois.readObject();
       } catch (ClassNotFoundException e) {
          throw new IllegalStateException("Unmarshalling exception", e);
       }
    }
 
+   private static OutputStream wrap(OutputStream out) {
+      return COMPRESSION ? new DeflaterOutputStream(out) : out;
+   }
+
    private static ByteBuffer grow(ByteBuffer buffer, int minCapacityIncrease) {
       ByteBuffer tmp = ByteBuffer.allocate(Math.max(buffer.capacity() << 1, buffer.capacity() + minCapacityIncrease));
       buffer.flip();
@@ -133,4 +168,34 @@ public final class SerializationHelper {
          return buffer;
       }
    }
+
+   private static class ByteBufferInputStream extends InputStream {
+      private final ByteBuffer buffer;
+
+      private ByteBufferInputStream(ByteBuffer buffer) {
+         this.buffer = buffer;
+      }
+
+      @Override
+      public int read() throws IOException {
+         return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+         if (len == 0) {
+            return 0;
+         } else if (!buffer.hasRemaining()) {
+            return -1;
+         }
+         len = Math.min(len, buffer.remaining());
+         buffer.get(b, off, len);
+         return len;
+      }
+
+      @Override
+      public int available() throws IOException {
+         return buffer.remaining();
+      }
+   }
 }
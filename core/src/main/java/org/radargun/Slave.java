@@ -1,6 +1,7 @@
 package org.radargun;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.InetAddress;
 import java.util.HashMap;
 import java.util.Map;
@@ -26,6 +27,8 @@ import org.radargun.utils.Utils;
  */
 public class Slave extends SlaveBase {
    private RemoteMasterConnection connection;
+   // next generation of this slave started in advance
+   private RestartHelper.StandbySlave standby;
 
    public Slave(RemoteMasterConnection connection) {
       this.connection = connection;
@@ -41,6 +44,13 @@ public class Slave extends SlaveBase {
       state.setMaxClusterSize(connection.receiveSlaveCount());
       log.info("Received slave count " + state.getMaxClusterSize());
       state.setLocalAddress(address);
+      state.setProgressSender(progress -> {
+         try {
+            connection.sendObject(progress, null);
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+      });
       while (true) {
          Object object = connection.receiveObject();
          log.trace("Received " + object);
@@ -48,19 +58,13 @@ public class Slave extends SlaveBase {
             log.info("Master shutdown!");
             break;
          } else if (object instanceof RemoteSlaveConnection.Restart) {
-            UUID nextUuid = UUID.randomUUID();
-            // At this point, slaveIndex == -1 so get index from state
-            Configuration.Setup setup = configuration.getSetup(cluster.getGroup(state.getSlaveIndex()).name);
-            VmArgs vmArgs = new VmArgs();
-            PropertyHelper.setPropertiesFromDefinitions(vmArgs, setup.getVmArgs(), getCurrentExtras(configuration, cluster));
-            HashMap<String, String> envs = new HashMap<>();
-            for (Map.Entry<String, Definition> entry : setup.getEnvironment().entrySet()) {
-               envs.put(entry.getKey(), Evaluator.parseString(entry.getValue().toString()));
-            }
-            RestartHelper.spawnSlave(state.getSlaveIndex(), nextUuid, setup.plugin, vmArgs, envs);
-            connection.sendObject(null, nextUuid);
+            UUID nextUuid = restart();
+            // the pre-started slave is kept only when it takes over
+            connection.sendObject(standby != null, nextUuid);
             connection.release();
             ShutDownHook.exit(0);
+         } else if (object instanceof RemoteSlaveConnection.PrepareRestart) {
+            prepareRestart((RemoteSlaveConnection.PrepareRestart) object);
          } else if (object instanceof Scenario) {
             scenario = (Scenario) object;
             ScenarioRunner runner = new ScenarioRunner();
@@ -81,15 +85,99 @@ public class Slave extends SlaveBase {
             state.setSlaveAddresses((RemoteSlaveConnection.SlaveAddresses) object);
          }
       }
+      destroyStandby();
       ShutDownHook.exit(0);
    }
 
+   /**
+    * Starts the next generation of this slave, unless the pre-started one matches current setup.
+    *
+    * @return UUID of the next generation.
+    */
+   UUID restart() throws IOException {
+      // At this point, slaveIndex == -1 so get index from state
+      Configuration.Setup setup = configuration.getSetup(cluster.getGroup(state.getSlaveIndex()).name);
+      VmArgs vmArgs = getVmArgs(setup, configuration, cluster);
+      HashMap<String, String> envs = getEnvironment(setup);
+      if (standby != null && standby.matches(setup.plugin, vmArgs, envs)) {
+         log.info("Handing over to pre-started slave " + standby.getUuid());
+         return standby.getUuid();
+      }
+      destroyStandby();
+      UUID nextUuid = UUID.randomUUID();
+      spawnSlave(nextUuid, setup.plugin, vmArgs, envs);
+      return nextUuid;
+   }
+
+   /**
+    * Starts the JVM for the next scenario while this one is running, so that the restart is only a handover.
+    */
+   void prepareRestart(RemoteSlaveConnection.PrepareRestart prepareRestart) throws IOException {
+      Configuration nextConfiguration = prepareRestart.configuration;
+      Cluster nextCluster = prepareRestart.cluster;
+      if (state.getSlaveIndex() >= nextCluster.getSize()) {
+         return;
+      }
+      Configuration.Setup setup = nextConfiguration.getSetup(nextCluster.getGroup(state.getSlaveIndex()).name);
+      VmArgs vmArgs = getVmArgs(setup, nextConfiguration, nextCluster);
+      HashMap<String, String> envs = getEnvironment(setup);
+      if (standby != null && standby.matches(setup.plugin, vmArgs, envs)) {
+         return;
+      }
+      destroyStandby();
+      standby = spawnStandbySlave(setup.plugin, vmArgs, envs);
+      log.info("Pre-started slave " + standby.getUuid() + " for configuration " + nextConfiguration.name + " on " + nextCluster);
+   }
+
+   protected void spawnSlave(UUID nextUuid, String plugin, VmArgs vmArgs, HashMap<String, String> envs) throws IOException {
+      RestartHelper.spawnSlave(state.getSlaveIndex(), nextUuid, plugin, vmArgs, envs);
+   }
+
+   protected RestartHelper.StandbySlave spawnStandbySlave(String plugin, VmArgs vmArgs, Map<String, String> envs) throws IOException {
+      return RestartHelper.spawnStandbySlave(state.getSlaveIndex(), plugin, vmArgs, envs);
+   }
+
+   RestartHelper.StandbySlave getStandby() {
+      return standby;
+   }
+
+   void destroyStandby() {
+      if (standby != null) {
+         log.info("Destroying pre-started slave " + standby.getUuid());
+         standby.destroy();
+         standby = null;
+      }
+   }
+
+   private VmArgs getVmArgs(Configuration.Setup setup, Configuration configuration, Cluster cluster) {
+      VmArgs vmArgs = new VmArgs();
+      PropertyHelper.setPropertiesFromDefinitions(vmArgs, setup.getVmArgs(), getCurrentExtras(configuration, cluster));
+      return vmArgs;
+   }
+
+   private HashMap<String, String> getEnvironment(Configuration.Setup setup) {
+      HashMap<String, String> envs = new HashMap<>();
+      for (Map.Entry<String, Definition> entry : setup.getEnvironment().entrySet()) {
+         envs.put(entry.getKey(), Evaluator.parseString(entry.getValue().toString()));
+      }
+      return envs;
+   }
+
    public static void main(String[] args) {
       ArgsHolder.init(args, ArgsHolder.ArgType.SLAVE);
       RestartHelper.init();
       if (ArgsHolder.getMasterHost() == null) {
          ArgsHolder.printUsageAndExit(ArgsHolder.ArgType.SLAVE);
       }
+      if (ArgsHolder.getAwaitLock() != null) {
+         try {
+            RestartHelper.awaitPredecessor(ArgsHolder.getAwaitLock());
+         } catch (IOException e) {
+            System.err.println("Failed to wait for previous slave");
+            e.printStackTrace();
+            ShutDownHook.exit(127);
+         }
+      }
       Slave slave = new Slave(new RemoteMasterConnection(ArgsHolder.getMasterHost(), ArgsHolder.getMasterPort()));
       try {
          slave.run(ArgsHolder.getSlaveIndex());
@@ -0,0 +1,297 @@
+package org.radargun.reporting;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+import org.radargun.state.MasterListener;
+import org.radargun.state.MasterState;
+import org.radargun.stats.Statistics;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.stats.representation.OperationThroughput;
+import org.radargun.stats.representation.Percentile;
+
+/**
+ * Live view of the running tests on master, exposed through HTTP in Prometheus text format
+ * (<code>/metrics</code>) and JSON (<code>/metrics.json</code>). Test statistics are updated from
+ * the statistics uploaded by slaves during the test, monitor values come from master timeline
+ * and from the slave monitors' values sent along with the statistics.
+ */
+public class LiveMetrics implements MasterListener {
+   public static final String LIVE_METRICS = LiveMetrics.class.getName();
+   private static final Log log = LogFactory.getLog(LiveMetrics.class);
+   private static final String MASTER = "master";
+   private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+   private final MasterState masterState;
+   private final List<Double> percentiles;
+   // test name -> slave index -> statistics
+   private final Map<String, Map<Integer, Statistics>> testStatistics = new LinkedHashMap<>();
+   private final Map<String, Map<String, Number>> monitorValues = new TreeMap<>();
+   private HttpServer server;
+
+   public LiveMetrics(MasterState masterState, List<Double> percentiles) {
+      this.masterState = masterState;
+      this.percentiles = percentiles;
+   }
+
+   /**
+    * @return Instance registered in master state or null if the live metrics are not enabled.
+    */
+   public static LiveMetrics getInstance(MasterState masterState) {
+      return (LiveMetrics) masterState.get(LIVE_METRICS);
+   }
+
+   public synchronized void start(String host, int port) throws IOException {
+      if (server != null) {
+         return;
+      }
+      server = HttpServer.create(new InetSocketAddress(host, port), 0);
+      server.createContext("/metrics", exchange -> respond(exchange, "text/plain; version=0.0.4", this::toPrometheus));
+      server.createContext("/metrics.json", exchange -> respond(exchange, "application/json", this::toJson));
+      server.start();
+      masterState.put(LIVE_METRICS, this);
+      masterState.addListener(this);
+      log.infof("Live metrics available at http://%s:%d/metrics", host, server.getAddress().getPort());
+   }
+
+   public synchronized void stop() {
+      if (server != null) {
+         server.stop(0);
+         server = null;
+      }
+      masterState.remove(LIVE_METRICS);
+      masterState.removeListener(this);
+   }
+
+   @Override
+   public void afterConfiguration() {
+      stop();
+   }
+
+   /**
+    * Removes statistics of previous execution of the test.
+    */
+   public synchronized void resetTest(String testName) {
+      testStatistics.remove(testName);
+   }
+
+   /**
+    * Sets statistics of given slave; the statistics must not be modified after this call.
+    */
+   public synchronized void updateStatistics(String testName, int slaveIndex, Statistics statistics) {
+      testStatistics.computeIfAbsent(testName, name -> new TreeMap<>()).put(slaveIndex, statistics);
+   }
+
+   public synchronized void updateMonitorValues(int slaveIndex, Map<String, Number> values) {
+      monitorValues.put("slave" + slaveIndex, values);
+   }
+
+   private void respond(HttpExchange exchange, String contentType, Supplier<String> content) throws IOException {
+      try {
+         byte[] bytes = content.get().getBytes(StandardCharsets.UTF_8);
+         exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+         exchange.sendResponseHeaders(200, bytes.length);
+         try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+         }
+      } catch (RuntimeException e) {
+         log.error("Failed to render live metrics", e);
+         exchange.sendResponseHeaders(500, -1);
+      } finally {
+         exchange.close();
+      }
+   }
+
+   private synchronized List<OperationMetrics> collectOperations() {
+      List<OperationMetrics> operations = new ArrayList<>();
+      for (Map.Entry<String, Map<Integer, Statistics>> test : testStatistics.entrySet()) {
+         Statistics aggregated = test.getValue().values().stream().reduce(null, Statistics.MERGE);
+         if (aggregated == null) {
+            continue;
+         }
+         long duration = TimeUnit.MILLISECONDS.toNanos(aggregated.getEnd() - aggregated.getBegin());
+         for (String operation : aggregated.getOperations()) {
+            DefaultOutcome outcome = aggregated.getRepresentation(operation, DefaultOutcome.class);
+            if (outcome == null || outcome.requests == 0) {
+               continue;
+            }
+            OperationThroughput throughput = duration > 0 ?
+               aggregated.getRepresentation(operation, OperationThroughput.class, duration) : null;
+            Map<Double, Double> operationPercentiles = new LinkedHashMap<>();
+            for (double percentile : percentiles) {
+               Percentile p = aggregated.getRepresentation(operation, Percentile.class, percentile);
+               if (p != null) {
+                  operationPercentiles.put(percentile, p.responseTimeMax);
+               }
+            }
+            operations.add(new OperationMetrics(test.getKey(), operation, outcome, throughput, operationPercentiles));
+         }
+      }
+      return operations;
+   }
+
+   private synchronized Map<String, Map<String, Number>> collectMonitorValues() {
+      Map<String, Map<String, Number>> values = new TreeMap<>(monitorValues);
+      if (masterState.getReport() != null) {
+         values.put(MASTER, masterState.getTimeline().getLastValues());
+      }
+      return values;
+   }
+
+   String toPrometheus() {
+      List<OperationMetrics> operations = collectOperations();
+      StringBuilder sb = new StringBuilder();
+      sb.append("# TYPE radargun_requests_total counter\n");
+      for (OperationMetrics om : operations) {
+         sample(sb, "radargun_requests_total", om.labels(), om.outcome.requests);
+      }
+      sb.append("# TYPE radargun_errors_total counter\n");
+      for (OperationMetrics om : operations) {
+         sample(sb, "radargun_errors_total", om.labels(), om.outcome.errors);
+      }
+      sb.append("# TYPE radargun_throughput_requests_per_second gauge\n");
+      for (OperationMetrics om : operations) {
+         if (om.throughput != null) {
+            sample(sb, "radargun_throughput_requests_per_second", om.labels(), om.throughput.gross);
+         }
+      }
+      sb.append("# TYPE radargun_response_time_seconds summary\n");
+      for (OperationMetrics om : operations) {
+         for (Map.Entry<Double, Double> percentile : om.percentiles.entrySet()) {
+            String labels = om.labels() + ",quantile=\"" + format(percentile.getKey() / 100) + "\"";
+            sample(sb, "radargun_response_time_seconds", labels, percentile.getValue() / NANOS_PER_SECOND);
+         }
+         sample(sb, "radargun_response_time_seconds_sum", om.labels(),
+            om.outcome.responseTimeMean * om.outcome.requests / NANOS_PER_SECOND);
+         sample(sb, "radargun_response_time_seconds_count", om.labels(), om.outcome.requests);
+      }
+      sb.append("# TYPE radargun_response_time_max_seconds gauge\n");
+      for (OperationMetrics om : operations) {
+         sample(sb, "radargun_response_time_max_seconds", om.labels(), om.outcome.responseTimeMax / NANOS_PER_SECOND);
+      }
+      sb.append("# TYPE radargun_monitor gauge\n");
+      for (Map.Entry<String, Map<String, Number>> node : collectMonitorValues().entrySet()) {
+         for (Map.Entry<String, Number> value : node.getValue().entrySet()) {
+            String labels = "node=\"" + escape(node.getKey()) + "\",name=\"" + escape(value.getKey()) + "\"";
+            sample(sb, "radargun_monitor", labels, value.getValue().doubleValue());
+         }
+      }
+      return sb.toString();
+   }
+
+   String toJson() {
+      StringBuilder sb = new StringBuilder("{\"tests\":{");
+      String currentTest = null;
+      for (OperationMetrics om : collectOperations()) {
+         if (!om.test.equals(currentTest)) {
+            if (currentTest != null) {
+               sb.append("}},");
+            }
+            currentTest = om.test;
+            sb.append(quote(om.test)).append(":{\"operations\":{");
+         } else {
+            sb.append(',');
+         }
+         sb.append(quote(om.operation)).append(":{\"requests\":").append(om.outcome.requests)
+            .append(",\"errors\":").append(om.outcome.errors)
+            .append(",\"throughput\":").append(om.throughput == null ? "null" : jsonNumber(om.throughput.gross))
+            .append(",\"responseTimeMean\":").append(jsonNumber(om.outcome.responseTimeMean))
+            .append(",\"responseTimeMax\":").append(om.outcome.responseTimeMax)
+            .append(",\"percentiles\":{");
+         boolean first = true;
+         for (Map.Entry<Double, Double> percentile : om.percentiles.entrySet()) {
+            if (!first) sb.append(',');
+            first = false;
+            sb.append(quote(format(percentile.getKey()))).append(':').append(jsonNumber(percentile.getValue()));
+         }
+         sb.append("}}");
+      }
+      if (currentTest != null) {
+         sb.append("}}");
+      }
+      sb.append("},\"monitors\":{");
+      boolean firstNode = true;
+      for (Map.Entry<String, Map<String, Number>> node : collectMonitorValues().entrySet()) {
+         if (!firstNode) sb.append(',');
+         firstNode = false;
+         sb.append(quote(node.getKey())).append(":{");
+         boolean first = true;
+         for (Map.Entry<String, Number> value : node.getValue().entrySet()) {
+            if (!first) sb.append(',');
+            first = false;
+            sb.append(quote(value.getKey())).append(':').append(jsonNumber(value.getValue().doubleValue()));
+         }
+         sb.append('}');
+      }
+      return sb.append("}}").toString();
+   }
+
+   private static void sample(StringBuilder sb, String name, String labels, double value) {
+      sb.append(name).append('{').append(labels).append("} ");
+      if (Double.isNaN(value)) {
+         sb.append("NaN");
+      } else if (Double.isInfinite(value)) {
+         sb.append(value > 0 ? "+Inf" : "-Inf");
+      } else {
+         sb.append(format(value));
+      }
+      sb.append('\n');
+   }
+
+   /**
+    * JSON does not allow NaN or infinite numbers, these are represented as null.
+    */
+   private static String jsonNumber(double value) {
+      return Double.isNaN(value) || Double.isInfinite(value) ? "null" : format(value);
+   }
+
+   private static String format(double value) {
+      if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+         return String.valueOf((long) value);
+      }
+      return String.format(Locale.ENGLISH, "%.6g", value);
+   }
+
+   private static String escape(String value) {
+      return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+   }
+
+   private static String quote(String value) {
+      return "\"" + escape(value) + "\"";
+   }
+
+   private static class OperationMetrics {
+      private final String test;
+      private final String operation;
+      private final DefaultOutcome outcome;
+      private final OperationThroughput throughput;
+      private final Map<Double, Double> percentiles;
+
+      private OperationMetrics(String test, String operation, DefaultOutcome outcome,
+                               OperationThroughput throughput, Map<Double, Double> percentiles) {
+         this.test = test;
+         this.operation = operation;
+         this.outcome = outcome;
+         this.throughput = throughput;
+         this.percentiles = percentiles;
+      }
+
+      private String labels() {
+         return "test=\"" + escape(test) + "\",operation=\"" + escape(operation) + "\"";
+      }
+   }
+}
@@ -179,6 +179,20 @@ public class Report implements Comparable<Report>, Serializable {
          ti.addStatistics(slaveIndex, stats);
       }
 
+      /**
+       * Set statistics from given slave for given iteration, when these do not correspond to the threads
+       * (e.g. statistics from the threads were merged).
+       * @param iteration
+       * @param slaveIndex
+       * @param stats
+       * @param threads Number of threads that produced the statistics
+       */
+      public void addStatistics(int iteration, int slaveIndex, List<Statistics> stats, int threads) {
+         ensureIterations(iteration + 1);
+         TestIteration ti = iterations.get(iteration);
+         ti.addStatistics(slaveIndex, stats, threads);
+      }
+
       /**
        * Add the result to given iteration. Each iteration can contain only one result with the same name.
        * @param iteration
@@ -217,6 +231,8 @@ public class Report implements Comparable<Report>, Serializable {
       /* Slave index - Statistics from threads */
       private Map<Integer, List<Statistics>> statistics = new HashMap<>();
       private Map<String, TestResult> results = new TreeMap<>();
+      /* Slave index - Number of threads */
+      private Map<Integer, Integer> slaveThreads = new HashMap<>();
       private int threadCount;
 
       public TestIteration(Test test, int id) {
@@ -230,8 +246,19 @@ public class Report implements Comparable<Report>, Serializable {
        * @param slaveStats
        */
       public void addStatistics(int slaveIndex, List<Statistics> slaveStats) {
+         addStatistics(slaveIndex, slaveStats, slaveStats.size());
+      }
+
+      /**
+       * Add statistics for given slave.
+       * @param slaveIndex
+       * @param slaveStats
+       * @param threads Number of threads that produced the statistics
+       */
+      public void addStatistics(int slaveIndex, List<Statistics> slaveStats, int threads) {
          statistics.put(slaveIndex, slaveStats);
-         threadCount += slaveStats.size();
+         Integer previous = slaveThreads.put(slaveIndex, threads);
+         threadCount += threads - (previous == null ? 0 : previous);
       }
 
       /**
@@ -259,6 +286,11 @@ public class Report implements Comparable<Report>, Serializable {
          return threadCount;
       }
 
+      public int getThreadCount(int slaveIndex) {
+         Integer threads = slaveThreads.get(slaveIndex);
+         return threads == null ? 0 : threads;
+      }
+
       public Map<String, TestResult> getResults() {
          return results == null ? null : Collections.unmodifiableMap(results);
       }
@@ -1,12 +1,17 @@
 package org.radargun.reporting;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
+import org.radargun.utils.CompactEncoding;
 import org.radargun.utils.TimeService;
 
 /**
@@ -15,12 +20,17 @@ import org.radargun.utils.TimeService;
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
  */
 public class Timeline implements Serializable, Comparable<Timeline> {
+   private static final int SERIAL_VERSION = 1;
+   private static final byte TYPE_INTEGER = 0;
+   private static final byte TYPE_LONG = 1;
+   private static final byte TYPE_DOUBLE = 2;
+   private static final byte TYPE_OTHER = 3;
 
    public final int slaveIndex;
    /* Events plotted on all charts as marker events. */
    private Map<String, List<MarkerEvent>> events = new HashMap<>();
-   /* Values plotted in separate charts */
-   private Map<Category, List<Value>> values = new HashMap<>();
+   /* Values plotted in separate charts, serialized in compact form */
+   private transient Map<Category, List<Value>> values = new HashMap<>();
    private long firstTimestamp = Long.MAX_VALUE;
    private long lastTimestamp = Long.MIN_VALUE;
 
@@ -52,6 +62,71 @@ public class Timeline implements Serializable, Comparable<Timeline> {
       return values.keySet().stream().anyMatch(e -> e.getType().equals(type));
    }
 
+   private synchronized void writeObject(ObjectOutputStream s) throws IOException {
+      s.defaultWriteObject();
+      s.writeByte(SERIAL_VERSION);
+      CompactEncoding.writeVarInt(s, values.size());
+      for (Map.Entry<Category, List<Value>> entry : values.entrySet()) {
+         s.writeObject(entry.getKey());
+         CompactEncoding.writeVarInt(s, entry.getValue().size());
+         // values are mostly added in order, so timestamp differences are small
+         long previousTimestamp = 0;
+         for (Value value : entry.getValue()) {
+            CompactEncoding.writeSignedVarLong(s, value.timestamp - previousTimestamp);
+            previousTimestamp = value.timestamp;
+            if (value.value instanceof Integer) {
+               s.writeByte(TYPE_INTEGER);
+               CompactEncoding.writeSignedVarLong(s, value.value.intValue());
+            } else if (value.value instanceof Long) {
+               s.writeByte(TYPE_LONG);
+               CompactEncoding.writeSignedVarLong(s, value.value.longValue());
+            } else if (value.value instanceof Double) {
+               s.writeByte(TYPE_DOUBLE);
+               s.writeDouble(value.value.doubleValue());
+            } else {
+               s.writeByte(TYPE_OTHER);
+               s.writeObject(value.value);
+            }
+         }
+      }
+   }
+
+   private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+      s.defaultReadObject();
+      CompactEncoding.checkVersion(s, SERIAL_VERSION, Timeline.class);
+      int numCategories = CompactEncoding.readVarInt(s);
+      values = new HashMap<>(numCategories);
+      for (int i = 0; i < numCategories; ++i) {
+         Category category = (Category) s.readObject();
+         int numValues = CompactEncoding.readVarInt(s);
+         List<Value> list = new ArrayList<>(numValues);
+         long timestamp = 0;
+         for (int j = 0; j < numValues; ++j) {
+            timestamp += CompactEncoding.readSignedVarLong(s);
+            byte type = s.readByte();
+            Number number;
+            switch (type) {
+               case TYPE_INTEGER:
+                  number = (int) CompactEncoding.readSignedVarLong(s);
+                  break;
+               case TYPE_LONG:
+                  number = CompactEncoding.readSignedVarLong(s);
+                  break;
+               case TYPE_DOUBLE:
+                  number = s.readDouble();
+                  break;
+               case TYPE_OTHER:
+                  number = (Number) s.readObject();
+                  break;
+               default:
+                  throw new IOException("Unknown value type " + type);
+            }
+            list.add(new Value(timestamp, number));
+         }
+         values.put(category, list);
+      }
+   }
+
    public static class Category implements Serializable, Comparable<Category> {
       private final String name;
       private final Type type;
@@ -135,6 +210,20 @@ public class Timeline implements Serializable, Comparable<Timeline> {
       return values.get(category);
    }
 
+   /**
+    * @return The most recent value in each category, keyed by category name.
+    */
+   public synchronized Map<String, Number> getLastValues() {
+      Map<String, Number> lastValues = new TreeMap<>();
+      for (Map.Entry<Category, List<Value>> entry : values.entrySet()) {
+         List<Value> categoryValues = entry.getValue();
+         if (!categoryValues.isEmpty()) {
+            lastValues.put(entry.getKey().getName(), categoryValues.get(categoryValues.size() - 1).value);
+         }
+      }
+      return lastValues;
+   }
+
    public long getFirstTimestamp() {
       return firstTimestamp;
    }
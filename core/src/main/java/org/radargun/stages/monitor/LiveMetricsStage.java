@@ -0,0 +1,39 @@
+package org.radargun.stages.monitor;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.radargun.StageResult;
+import org.radargun.config.Property;
+import org.radargun.config.Stage;
+import org.radargun.reporting.LiveMetrics;
+import org.radargun.stages.AbstractMasterStage;
+
+/**
+ * Starts HTTP endpoint on master with live results of running tests and values of monitors.
+ * The tests must upload statistics during the execution (see 'statistics-upload-period'),
+ * slave monitors' values are sent along with the statistics.
+ */
+@Stage(doc = "Starts HTTP endpoint on master exposing live results of tests (with 'statistics-upload-period' set) " +
+   "and monitor values in Prometheus text format (/metrics) and JSON (/metrics.json). " +
+   "The endpoint is stopped after the configuration is benchmarked.")
+public class LiveMetricsStage extends AbstractMasterStage {
+   @Property(doc = "Address the endpoint should bind to. Default is localhost.")
+   private String host = "localhost";
+
+   @Property(doc = "Port of the endpoint. Default is 9404.")
+   private int port = 9404;
+
+   @Property(doc = "Percentiles of response times that should be exposed, if the statistics provide them. " +
+      "Default is 50, 90, 99, 99.9.")
+   private List<Double> percentiles = Arrays.asList(50d, 90d, 99d, 99.9d);
+
+   @Override
+   public StageResult execute() throws Exception {
+      LiveMetrics liveMetrics = LiveMetrics.getInstance(masterState);
+      if (liveMetrics == null) {
+         new LiveMetrics(masterState, percentiles).start(host, port);
+      }
+      return StageResult.SUCCESS;
+   }
+}
@@ -0,0 +1,143 @@
+package org.radargun.stages.test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.radargun.utils.TimeService;
+
+/**
+ * Central source of request arrivals for open-model tests: the arrival times depend only on the target
+ * rate and not on how fast the requests are executed. Stressor threads act as a worker pool, each
+ * claiming the next arrival when it is ready to execute a request. When all stressors are busy, the
+ * arrivals queue up and the requests are executed late, which shows up in the response times
+ * measured from the intended arrival time.
+ *
+ * The rate can linearly increase from initial to target rate during the ramp, or follow a piecewise
+ * linear profile (e.g. defined by {@link WorkloadPhase workload phases}); arrivals are spread
+ * evenly or as a Poisson process (exponentially distributed inter-arrival times).
+ */
+public class ArrivalScheduler {
+   private final Process process;
+   // rate is piecewise linear: segment i starts at segmentStart[i] with segmentRate[i]
+   // and changes by segmentAcceleration[i]; the last segment has constant rate
+   private final double[] segmentStart;
+   private final double[] segmentRate;
+   private final double[] segmentAcceleration;
+   // expected number of arrivals before start of each segment
+   private final double[] segmentArrivals;
+   private final Random random = new Random();
+
+   private long startTime = Long.MIN_VALUE;
+   private double arrivals = 0;
+   private int segment = 0;
+
+   /**
+    * @param process Distribution of arrivals
+    * @param initialRate Arrival rate at the beginning of the ramp, in arrivals per second
+    * @param rate Target arrival rate, in arrivals per second
+    * @param rampDuration Duration of the ramp from initial to target rate, in milliseconds
+    */
+   public ArrivalScheduler(Process process, double initialRate, double rate, long rampDuration) {
+      this(process, new long[] {0, rampDuration}, new double[] {initialRate, rate});
+   }
+
+   /**
+    * Arrival rate changes linearly between given points and stays at the last rate after the last point.
+    * Two points with the same time make a step change of the rate.
+    *
+    * @param process Distribution of arrivals
+    * @param times Times of the points since the first arrival, in milliseconds, in non-decreasing order
+    * @param rates Arrival rates at the points, in arrivals per second
+    */
+   public ArrivalScheduler(Process process, long[] times, double[] rates) {
+      if (times.length == 0 || times.length != rates.length) throw new IllegalArgumentException("Rate points don't match");
+      if (rates[rates.length - 1] <= 0) throw new IllegalArgumentException("Rate must be positive: " + rates[rates.length - 1]);
+      this.process = process;
+      int segments = 0;
+      double[] start = new double[times.length];
+      double[] rate = new double[times.length];
+      double[] acceleration = new double[times.length];
+      double[] arrivals = new double[times.length];
+      for (int i = 0; i < times.length; ++i) {
+         if (rates[i] < 0) throw new IllegalArgumentException("Rate must not be negative: " + rates[i]);
+         if (i > 0 && times[i] < times[i - 1]) throw new IllegalArgumentException("Rate points are not ordered");
+         // all computation is done in nanoseconds
+         double pointTime = TimeUnit.MILLISECONDS.toNanos(times[i]);
+         double pointRate = rates[i] / TimeUnit.SECONDS.toNanos(1);
+         if (segments > 0) {
+            int previous = segments - 1;
+            double duration = pointTime - start[previous];
+            if (duration == 0) {
+               // step change replaces the empty segment
+               segments--;
+            } else {
+               acceleration[previous] = (pointRate - rate[previous]) / duration;
+               arrivals[segments] = arrivals[previous] + (rate[previous] + pointRate) * duration / 2;
+            }
+         }
+         start[segments] = pointTime;
+         rate[segments] = pointRate;
+         acceleration[segments] = 0;
+         segments++;
+      }
+      this.segmentStart = Arrays.copyOf(start, segments);
+      this.segmentRate = Arrays.copyOf(rate, segments);
+      this.segmentAcceleration = Arrays.copyOf(acceleration, segments);
+      this.segmentArrivals = Arrays.copyOf(arrivals, segments);
+   }
+
+   /**
+    * Claims next arrival. The first call sets the time of the first arrival.
+    *
+    * @return Intended time of the arrival, in {@link TimeService#nanoTime()} units.
+    */
+   public synchronized long next() {
+      if (startTime == Long.MIN_VALUE) {
+         startTime = TimeService.nanoTime();
+         return startTime;
+      }
+      switch (process) {
+         case FIXED:
+            arrivals += 1;
+            break;
+         case POISSON:
+            arrivals -= Math.log(1 - random.nextDouble());
+            break;
+         default:
+            throw new IllegalStateException();
+      }
+      return startTime + (long) timeOf(arrivals);
+   }
+
+   /**
+    * Inverse of the expected number of arrivals since start.
+    * With Poisson process, this turns unit-rate process into one with the ramped rate.
+    * The number of arrivals never decreases, so the current segment is only moved forward.
+    */
+   private double timeOf(double arrivals) {
+      while (segment + 1 < segmentStart.length && arrivals >= segmentArrivals[segment + 1]) {
+         segment++;
+      }
+      double initialRate = segmentRate[segment];
+      double acceleration = segmentAcceleration[segment];
+      double segmentArrivals = arrivals - this.segmentArrivals[segment];
+      if (acceleration == 0) {
+         return segmentStart[segment] + segmentArrivals / initialRate;
+      }
+      // solve acceleration * t^2 / 2 + initialRate * t = arrivals
+      return segmentStart[segment]
+         + (Math.sqrt(initialRate * initialRate + 2 * acceleration * segmentArrivals) - initialRate) / acceleration;
+   }
+
+   public enum Process {
+      /**
+       * Arrivals are evenly spaced.
+       */
+      FIXED,
+      /**
+       * Inter-arrival times are exponentially distributed.
+       */
+      POISSON
+   }
+}
@@ -0,0 +1,113 @@
+package org.radargun.stages.test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Path;
+import org.radargun.config.PropertyHelper;
+import org.radargun.logging.Log;
+import org.radargun.reporting.Report;
+import org.radargun.state.MasterState;
+import org.radargun.stats.Statistics;
+import org.radargun.stats.representation.MeanAndDev;
+
+/**
+ * Overheads measured by {@link CalibrationStage}, kept in master state for each configuration
+ * of statistics. Tests using the same statistics are checked against the overhead.
+ */
+final class CalibrationOverheads {
+   private static final String KEY = CalibrationOverheads.class.getName();
+
+   private final Map<String, Overhead> overheads = new HashMap<>();
+
+   private CalibrationOverheads() {}
+
+   static CalibrationOverheads get(MasterState masterState) {
+      CalibrationOverheads overheads = (CalibrationOverheads) masterState.get(KEY);
+      if (overheads == null) {
+         overheads = new CalibrationOverheads();
+         masterState.put(KEY, overheads);
+      }
+      return overheads;
+   }
+
+   /**
+    * @param statisticsPrototype Statistics used by the calibration.
+    * @param mean Mean overhead per request in nanoseconds.
+    * @param maxRatio Fraction of mean response time above which the overhead is reported.
+    */
+   void put(Statistics statisticsPrototype, double mean, double maxRatio) {
+      overheads.put(describe(statisticsPrototype), new Overhead(mean, maxRatio));
+   }
+
+   void remove(Statistics statisticsPrototype) {
+      overheads.remove(describe(statisticsPrototype));
+   }
+
+   /**
+    * @return Operations (with the overhead as percentage of their mean response time) where the overhead
+    *         exceeds configured fraction of mean response time.
+    */
+   List<String> findDominated(Statistics statisticsPrototype, Statistics aggregated) {
+      Overhead overhead = overheads.get(describe(statisticsPrototype));
+      List<String> dominated = new ArrayList<>();
+      if (overhead == null || overhead.maxRatio <= 0 || aggregated == null) return dominated;
+      for (String operation : aggregated.getOperations()) {
+         MeanAndDev meanAndDev = aggregated.getRepresentation(operation, MeanAndDev.class);
+         if (meanAndDev != null && meanAndDev.mean > 0 && overhead.mean > overhead.maxRatio * meanAndDev.mean) {
+            dominated.add(String.format("%s (%.0f %%)", operation, 100 * overhead.mean / meanAndDev.mean));
+         }
+      }
+      return dominated;
+   }
+
+   /**
+    * Adds a suspicious result to the test if the overhead measured for the same statistics
+    * exceeds configured fraction of the mean response time of any operation.
+    */
+   void check(Statistics statisticsPrototype, Statistics aggregated, Report.Test test, int iteration, Log log) {
+      List<String> dominated = findDominated(statisticsPrototype, aggregated);
+      if (dominated.isEmpty()) return;
+      log.warnf("Overhead of %.1f ns per request is significant in these operations: %s",
+         overheads.get(describe(statisticsPrototype)).mean, dominated);
+      if (test != null) {
+         test.addResult(iteration, new Report.TestResult("Overhead dominated operations", new HashMap<>(),
+            String.join(", ", dominated), true));
+      }
+   }
+
+   /**
+    * Description of the statistics and their configuration that does not depend on the recorded data.
+    */
+   static String describe(Object element) {
+      StringBuilder sb = new StringBuilder(PropertyHelper.getDefinitionElementName(element.getClass())).append(" {");
+      for (Map.Entry<String, Path> property : PropertyHelper.getProperties(element.getClass(), false, false, false).entrySet()) {
+         Object value;
+         try {
+            value = property.getValue().get(element);
+         } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+         }
+         sb.append(' ').append(property.getKey()).append('=');
+         if (value != null && value.getClass().isAnnotationPresent(DefinitionElement.class)) {
+            sb.append(describe(value));
+         } else {
+            sb.append(value);
+         }
+      }
+      return sb.append(" }").toString();
+   }
+
+   private static class Overhead {
+      private final double mean;
+      private final double maxRatio;
+
+      Overhead(double mean, double maxRatio) {
+         this.mean = mean;
+         this.maxRatio = maxRatio;
+      }
+   }
+}
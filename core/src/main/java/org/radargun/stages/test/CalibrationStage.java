@@ -0,0 +1,150 @@
+package org.radargun.stages.test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.radargun.DistStageAck;
+import org.radargun.Operation;
+import org.radargun.StageResult;
+import org.radargun.config.Init;
+import org.radargun.config.Property;
+import org.radargun.config.Stage;
+import org.radargun.reporting.Report;
+import org.radargun.stats.Statistics;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.stats.representation.MeanAndDev;
+import org.radargun.stats.representation.Percentile;
+
+/**
+ * Runs the complete stressor pipeline (operation selection, request tracking and recording
+ * into configured statistics) with an invocation that does nothing. The overhead RadarGun adds
+ * to each request is the time the threads spent in the stressor loop divided by the number
+ * of completed requests; the response times recorded cover only part of it.
+ */
+@Stage(doc = "Measures the overhead of RadarGun itself by executing requests that do nothing. " +
+   "The overhead is stored in the report and subsequent tests using the same statistics " +
+   "flag operations whose mean response time is comparable to the overhead.")
+public class CalibrationStage extends TestStage {
+   public static final Operation NO_OP = Operation.register("Calibration.NoOp");
+
+   @Property(doc = "Tests using the same statistics flag operations where the overhead exceeds this fraction " +
+      "of the mean response time. Use 0 to disable the check. Default is 0.1.")
+   protected double maxOverheadRatio = 0.1;
+
+   @Property(doc = "Percentile of the recorded overhead included in the report, if supported by the statistics. Default is 99.")
+   protected double percentile = 99;
+
+   @Init
+   public void checkCalibration() {
+      if (maxOverheadRatio < 0 || maxOverheadRatio >= 1) {
+         throw new IllegalStateException("Max overhead ratio must be within [0, 1)");
+      }
+      if (percentile < 0 || percentile > 100) {
+         throw new IllegalStateException("Percentile must be within [0, 100]");
+      }
+   }
+
+   @Override
+   public StageResult processAckOnMaster(List<DistStageAck> acks) {
+      // do not compare the calibration with previous calibration of the same statistics
+      CalibrationOverheads.get(masterState).remove(statisticsPrototype);
+      return super.processAckOnMaster(acks);
+   }
+
+   @Override
+   protected StageResult processStatistics(Map<Integer, List<Statistics>> slaveStatistics, Statistics aggregated, Report.Test test) {
+      // the whole loop of each thread is the overhead, not only the time between starting and recording the request
+      long totalThreadTime = 0, totalRequests = 0;
+      Map<Integer, Report.SlaveResult> slaveResults = new HashMap<>();
+      Map<Integer, Report.SlaveResult> recordedResults = new HashMap<>();
+      for (Map.Entry<Integer, List<Statistics>> entry : slaveStatistics.entrySet()) {
+         List<Statistics> threads = entry.getValue();
+         long begin = Long.MAX_VALUE, end = Long.MIN_VALUE, requests = 0;
+         for (Statistics statistics : threads) {
+            DefaultOutcome outcome = statistics.getRepresentation(NO_OP.name, DefaultOutcome.class);
+            if (outcome == null) continue;
+            begin = Math.min(begin, statistics.getBegin());
+            end = Math.max(end, statistics.getEnd());
+            requests += outcome.requests;
+         }
+         if (requests == 0 || end <= begin) continue;
+         long threadTime = TimeUnit.MILLISECONDS.toNanos(end - begin) * threads.size();
+         totalThreadTime += threadTime;
+         totalRequests += requests;
+         slaveResults.put(entry.getKey(), new Report.SlaveResult(formatOverhead((double) threadTime / requests), false));
+         Statistics merged = threads.stream().reduce(null, Statistics.MERGE);
+         recordedResults.put(entry.getKey(), new Report.SlaveResult(formatRecorded(merged), false));
+      }
+      if (totalRequests == 0) {
+         log.error("No requests were completed, cannot calibrate.");
+         return errorResult();
+      }
+      double overhead = (double) totalThreadTime / totalRequests;
+      CalibrationOverheads.get(masterState).put(statisticsPrototype, overhead, maxOverheadRatio);
+      log.infof("Overhead with %s is %.1f ns per request", CalibrationOverheads.describe(statisticsPrototype), overhead);
+
+      if (test != null) {
+         test.addResult(getTestIteration(), new Report.TestResult("Overhead", slaveResults, formatOverhead(overhead), false));
+         test.addResult(getTestIteration(), new Report.TestResult("Recorded overhead", recordedResults,
+            formatRecorded(aggregated), false));
+      }
+      return StageResult.SUCCESS;
+   }
+
+   private static String formatOverhead(double overhead) {
+      return String.format("%.1f ns", overhead);
+   }
+
+   /**
+    * Time between starting and recording the request, as recorded in the statistics.
+    */
+   private String formatRecorded(Statistics statistics) {
+      MeanAndDev meanAndDev = statistics == null ? null : statistics.getRepresentation(NO_OP.name, MeanAndDev.class);
+      if (meanAndDev == null) return "";
+      StringBuilder sb = new StringBuilder(String.format("%.1f +/- %.1f ns", meanAndDev.mean, meanAndDev.dev));
+      Percentile p = statistics.getRepresentation(NO_OP.name, Percentile.class, percentile);
+      if (p != null) {
+         sb.append(String.format(", %s%% %.0f ns", percentile, p.responseTimeMax));
+      }
+      return sb.toString();
+   }
+
+   @Override
+   public OperationLogic getLogic() {
+      return new Logic();
+   }
+
+   private static class NoOpInvocation implements Invocation<Object> {
+      @Override
+      public Object invoke() {
+         return null;
+      }
+
+      @Override
+      public Operation operation() {
+         return NO_OP;
+      }
+
+      @Override
+      public Operation txOperation() {
+         return NO_OP;
+      }
+   }
+
+   protected class Logic extends OperationLogic {
+      private final NoOpInvocation invocation = new NoOpInvocation();
+
+      @Override
+      public void init(Stressor stressor) {
+         super.init(stressor);
+         stressor.setUseTransactions(false);
+      }
+
+      @Override
+      public void run(Operation operation) throws RequestException {
+         stressor.makeRequest(invocation);
+      }
+   }
+}
@@ -5,6 +5,8 @@ import org.radargun.Operation;
 /**
  * Represent an operation that the {@link Stressor}
  * should execute and record its duration.
+ * Asynchronous operations return {@link java.util.concurrent.CompletionStage}
+ * and are executed through {@link Stressor#makeAsyncRequest(Invocation)}.
  *
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
  */
@@ -2,15 +2,21 @@ package org.radargun.stages.test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Random;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.radargun.DistStageAck;
+import org.radargun.StageResult;
 import org.radargun.config.Property;
 import org.radargun.config.Stage;
 import org.radargun.stages.AbstractDistStage;
+import org.radargun.state.SlaveState;
 import org.radargun.utils.TimeConverter;
+import org.radargun.utils.TimeService;
+import org.radargun.utils.Utils;
 
 /**
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
@@ -36,6 +42,8 @@ public abstract class LoadStage extends AbstractDistStage {
 
    protected AtomicLong entryCounter = new AtomicLong(0);
    protected AtomicLong sizeSum = new AtomicLong(0);
+   protected long loadStartNanos;
+   protected long loadDurationNanos;
 
    protected void logLoaded(long entries, long size, boolean remove) {
       long prevEntryCount, currentEntryCount;
@@ -46,12 +54,19 @@ public abstract class LoadStage extends AbstractDistStage {
       // just for logs - don't worry about those two not in sync
       long totalSize = sizeSum.addAndGet(size);
       if (prevEntryCount / logPeriod < currentEntryCount / logPeriod) {
-         log.infof("This node %s %d entries (~%d bytes)",
-            remove ? "removed" : "loaded", currentEntryCount, totalSize);
+         long duration = TimeService.nanoTime() - loadStartNanos;
+         log.infof("This node %s %d entries (~%d bytes), %s",
+            remove ? "removed" : "loaded", currentEntryCount, totalSize, formatThroughput(currentEntryCount, totalSize, duration));
       }
    }
 
+   protected static String formatThroughput(long entries, long bytes, long durationNanos) {
+      double seconds = Math.max(durationNanos, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+      return String.format(Locale.ENGLISH, "%.0f entries/s, %.2f MB/s", entries / seconds, bytes / seconds / (1024 * 1024));
+   }
+
    protected List<Loader> startLoaders() {
+      loadStartNanos = TimeService.nanoTime();
       int threadBase = getExecutingSlaveIndex() * numThreads;
       List<Loader> loaders = new ArrayList<>();
       for (int i = 0; i < numThreads; ++i) {
@@ -77,7 +92,28 @@ public abstract class LoadStage extends AbstractDistStage {
          return errorResponse("Loader failed with exception", e);
       }
       destroy();
-      return successfulResponse();
+      return new LoadAck(slaveState, entryCounter.get(), sizeSum.get(), loadDurationNanos);
+   }
+
+   @Override
+   public StageResult processAckOnMaster(List<DistStageAck> acks) {
+      StageResult result = super.processAckOnMaster(acks);
+      if (result.isError()) {
+         return result;
+      }
+      long entries = 0;
+      long bytes = 0;
+      long duration = 0;
+      for (LoadAck ack : instancesOf(acks, LoadAck.class)) {
+         entries += ack.entries;
+         bytes += ack.bytes;
+         duration = Math.max(duration, ack.durationNanos);
+      }
+      if (entries > 0) {
+         log.infof("Cluster processed %d entries (~%d bytes) in %s, %s", entries, bytes,
+            Utils.getNanosDurationString(duration), formatThroughput(entries, bytes, duration));
+      }
+      return result;
    }
 
    /**
@@ -101,6 +137,9 @@ public abstract class LoadStage extends AbstractDistStage {
             throw loader.getException();
          }
       }
+      loadDurationNanos = TimeService.nanoTime() - loadStartNanos;
+      log.infof("This node processed %d entries (~%d bytes) in %s, %s", entryCounter.get(), sizeSum.get(),
+         Utils.getNanosDurationString(loadDurationNanos), formatThroughput(entryCounter.get(), sizeSum.get(), loadDurationNanos));
    }
 
    protected abstract class Loader extends Thread {
@@ -132,4 +171,17 @@ public abstract class LoadStage extends AbstractDistStage {
 
       protected abstract boolean loadDataUnit();
    }
+
+   protected static class LoadAck extends DistStageAck {
+      private final long entries;
+      private final long bytes;
+      private final long durationNanos;
+
+      protected LoadAck(SlaveState slaveState, long entries, long bytes, long durationNanos) {
+         super(slaveState);
+         this.entries = entries;
+         this.bytes = bytes;
+         this.durationNanos = durationNanos;
+      }
+   }
 }
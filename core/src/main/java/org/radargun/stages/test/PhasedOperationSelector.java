@@ -0,0 +1,30 @@
+package org.radargun.stages.test;
+
+import java.util.Random;
+
+import org.radargun.Operation;
+
+/**
+ * Delegates to operation selector of the current {@link WorkloadPhase phase}.
+ */
+public class PhasedOperationSelector implements OperationSelector {
+   private final WorkloadSchedule schedule;
+   private final OperationSelector[] selectors;
+
+   public PhasedOperationSelector(WorkloadSchedule schedule, OperationSelector[] selectors) {
+      this.schedule = schedule;
+      this.selectors = selectors;
+   }
+
+   @Override
+   public void start() {
+      for (OperationSelector selector : selectors) {
+         selector.start();
+      }
+   }
+
+   @Override
+   public Operation next(Random random) {
+      return selectors[schedule.select(random)].next(random);
+   }
+}
@@ -0,0 +1,119 @@
+package org.radargun.stages.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.radargun.DistStageProgress;
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+import org.radargun.state.SlaveState;
+import org.radargun.stats.Statistics;
+import org.radargun.utils.Utils;
+
+/**
+ * Periodically collects statistics the stressors have recorded since the previous upload
+ * and sends them to the master. The stressors reset their statistics after handing them over,
+ * so the slave does not keep all the results until the end of the test and the master holds
+ * partial results in case the slave fails. Current values of monitors are sent along with the statistics.
+ */
+class StatisticsUploader {
+   private static final Log log = LogFactory.getLog(StatisticsUploader.class);
+
+   private final SlaveState slaveState;
+   private final List<Stressor> stressors;
+   private final boolean mergeThreadStats;
+   private final long period;
+   private final ScheduledExecutorService executor;
+   // intervals that could not be sent, one per stressor
+   private final List<Statistics> pending;
+
+   StatisticsUploader(SlaveState slaveState, List<Stressor> stressors, boolean mergeThreadStats, long period) {
+      this.slaveState = slaveState;
+      this.stressors = stressors;
+      this.mergeThreadStats = mergeThreadStats;
+      this.period = period;
+      this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+         Thread thread = new Thread(r, "StatisticsUploader");
+         thread.setDaemon(true);
+         return thread;
+      });
+      this.pending = new ArrayList<>(Collections.nCopies(stressors.size(), null));
+   }
+
+   void start() {
+      // intervals requested in one period are uploaded in the next one
+      executor.scheduleAtFixedRate(() -> upload(true), period, period, TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * Stops periodic uploads and sends intervals that were already handed over. Intervals that cannot
+    * be sent are merged back to statistics of finished stressors, to be sent in the stage ack.
+    */
+   void stop() {
+      Utils.shutdownAndWait(executor);
+      upload(false);
+      for (int i = 0; i < stressors.size(); ++i) {
+         Statistics unsent = pending.get(i);
+         Stressor stressor = stressors.get(i);
+         if (unsent != null && !stressor.isAlive() && stressor.getStats() != null) {
+            stressor.getStats().merge(unsent);
+            pending.set(i, null);
+         }
+      }
+   }
+
+   private void upload(boolean requestNext) {
+      boolean empty = true;
+      for (int i = 0; i < stressors.size(); ++i) {
+         Stressor stressor = stressors.get(i);
+         Statistics interval = stressor.pollIntervals();
+         if (requestNext) {
+            stressor.requestInterval();
+         }
+         if (interval != null) {
+            pending.set(i, Statistics.MERGE.apply(pending.get(i), interval));
+            empty = false;
+         } else if (pending.get(i) != null) {
+            empty = false;
+         }
+      }
+      if (empty) {
+         return;
+      }
+      List<Statistics> statistics;
+      if (mergeThreadStats) {
+         statistics = Collections.singletonList(pending.stream().reduce(null, Statistics.MERGE));
+      } else {
+         statistics = new ArrayList<>(pending);
+      }
+      try {
+         Map<String, Number> monitorValues = slaveState.getTimeline() == null ?
+            Collections.emptyMap() : slaveState.getTimeline().getLastValues();
+         if (slaveState.sendProgress(new StatisticsUpload(slaveState, statistics, monitorValues))) {
+            Collections.fill(pending, null);
+         }
+      } catch (Exception e) {
+         log.warn("Failed to upload statistics, will retry", e);
+      }
+   }
+
+   /**
+    * Statistics recorded since the previous upload. The list is either indexed by stressor
+    * (with nulls for stressors without any new results) or contains single merged statistics.
+    */
+   static class StatisticsUpload extends DistStageProgress {
+      final List<Statistics> statistics;
+      final Map<String, Number> monitorValues;
+
+      StatisticsUpload(SlaveState slaveState, List<Statistics> statistics, Map<String, Number> monitorValues) {
+         super(slaveState);
+         this.statistics = statistics;
+         this.monitorValues = monitorValues;
+      }
+   }
+}
@@ -0,0 +1,153 @@
+package org.radargun.stages.test;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides when the warm-up of a test is over. Stressors {@linkplain #record(long) record} response times
+ * of the operations executed before the test is started; the stage {@linkplain #sample(long) samples}
+ * them in windows of fixed length. The system is considered steady when the coefficient of variation
+ * (standard deviation divided by mean) of both throughput and mean response time over the last few windows
+ * is below the threshold, and JIT compiler has spent only small fraction of each of these windows compiling.
+ */
+class SteadyStateDetector {
+   private final CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+   private final boolean compilationMonitored = compilation != null && compilation.isCompilationTimeMonitoringSupported();
+   private final LongAdder requests = new LongAdder();
+   private final LongAdder responseTimes = new LongAdder();
+   private final Deque<Window> windows = new ArrayDeque<>();
+   private final int numWindows;
+   private final double maxCoefficientOfVariation;
+   private final double maxCompilationRatio;
+   private long windowStart;
+   private long compilationTime;
+
+   /**
+    * @param numWindows Number of consecutive windows that must be stable.
+    * @param maxCoefficientOfVariation Maximum coefficient of variation of throughput and mean response time.
+    * @param maxCompilationRatio Maximum fraction of window spent by JIT compilation.
+    */
+   SteadyStateDetector(int numWindows, double maxCoefficientOfVariation, double maxCompilationRatio) {
+      this.numWindows = numWindows;
+      this.maxCoefficientOfVariation = maxCoefficientOfVariation;
+      this.maxCompilationRatio = maxCompilationRatio;
+   }
+
+   /**
+    * Starts the first window.
+    *
+    * @param now Current time in nanoseconds.
+    */
+   void start(long now) {
+      requests.reset();
+      responseTimes.reset();
+      windows.clear();
+      windowStart = now;
+      compilationTime = getCompilationTime();
+   }
+
+   /**
+    * Called by stressors concurrently.
+    *
+    * @param responseTime Duration of the operation in nanoseconds.
+    */
+   void record(long responseTime) {
+      requests.increment();
+      responseTimes.add(responseTime);
+   }
+
+   /**
+    * Closes current window and starts a new one.
+    *
+    * @param now Current time in nanoseconds.
+    * @return True if the last windows are steady.
+    */
+   boolean sample(long now) {
+      long count = requests.sumThenReset();
+      long responseTimeSum = responseTimes.sumThenReset();
+      long currentCompilationTime = getCompilationTime();
+      long length = now - windowStart;
+      if (length <= 0) {
+         return false;
+      }
+      double compilationRatio = (double) TimeUnit.MILLISECONDS.toNanos(currentCompilationTime - compilationTime) / length;
+      windows.addLast(new Window(count * (double) TimeUnit.SECONDS.toNanos(1) / length,
+         count == 0 ? 0 : (double) responseTimeSum / count, compilationRatio));
+      while (windows.size() > numWindows) {
+         windows.removeFirst();
+      }
+      windowStart = now;
+      compilationTime = currentCompilationTime;
+      return isSteady();
+   }
+
+   private boolean isSteady() {
+      if (windows.size() < numWindows) {
+         return false;
+      }
+      double[] throughputs = new double[windows.size()];
+      double[] meanResponseTimes = new double[windows.size()];
+      int i = 0;
+      for (Window window : windows) {
+         if (window.throughput == 0 || window.compilationRatio > maxCompilationRatio) {
+            return false;
+         }
+         throughputs[i] = window.throughput;
+         meanResponseTimes[i] = window.meanResponseTime;
+         ++i;
+      }
+      return coefficientOfVariation(throughputs) <= maxCoefficientOfVariation
+         && coefficientOfVariation(meanResponseTimes) <= maxCoefficientOfVariation;
+   }
+
+   /**
+    * @return Description of the last windows for logging.
+    */
+   String describe() {
+      double[] throughputs = windows.stream().mapToDouble(w -> w.throughput).toArray();
+      double[] meanResponseTimes = windows.stream().mapToDouble(w -> w.meanResponseTime).toArray();
+      double compilationRatio = windows.stream().mapToDouble(w -> w.compilationRatio).max().orElse(0);
+      return String.format("throughput CoV %.3f, response time CoV %.3f, JIT compilation %.1f %%%s",
+         coefficientOfVariation(throughputs), coefficientOfVariation(meanResponseTimes), compilationRatio * 100,
+         compilationMonitored ? "" : " (not monitored)");
+   }
+
+   private long getCompilationTime() {
+      return compilationMonitored ? compilation.getTotalCompilationTime() : 0;
+   }
+
+   static double coefficientOfVariation(double[] values) {
+      if (values.length < 2) {
+         return 0;
+      }
+      double sum = 0;
+      for (double value : values) {
+         sum += value;
+      }
+      double mean = sum / values.length;
+      if (mean == 0) {
+         return 0;
+      }
+      double squares = 0;
+      for (double value : values) {
+         squares += (value - mean) * (value - mean);
+      }
+      return Math.sqrt(squares / (values.length - 1)) / mean;
+   }
+
+   private static class Window {
+      private final double throughput;
+      private final double meanResponseTime;
+      private final double compilationRatio;
+
+      private Window(double throughput, double meanResponseTime, double compilationRatio) {
+         this.throughput = throughput;
+         this.meanResponseTime = meanResponseTime;
+         this.compilationRatio = compilationRatio;
+      }
+   }
+}
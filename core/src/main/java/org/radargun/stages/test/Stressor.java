@@ -1,7 +1,12 @@
 package org.radargun.stages.test;
 
+import java.util.Queue;
 import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.LockSupport;
@@ -21,6 +26,10 @@ import org.radargun.utils.TimeService;
  * execute logic's {@link OperationLogic#run(org.radargun.Operation) run} method until
  * the {@link Completion#moreToRun()} returns false.
  *
+ * Logics can also issue asynchronous requests through {@link #makeAsyncRequest(Invocation)};
+ * up to {@link TestStage#maxInFlightRequests} of them are kept in flight. The responses
+ * are recorded by the stressor thread itself, as the statistics are not thread-safe.
+ *
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
  */
 public class Stressor extends Thread {
@@ -44,11 +53,32 @@ public class Stressor extends Thread {
    private boolean started = false;
    private CountDownLatch threadCountDown;
 
+   // asynchronous requests
+   private final int maxInFlightRequests;
+   private final BlockingQueue<AsyncResponse> asyncResponses = new LinkedBlockingQueue<>();
+   private int inFlightRequests = 0;
+
+   // recycled request tracking objects
+   private final boolean recycleRequests;
+   private Request recycledRequest;
+   private RequestSet recycledRequestSet;
+
    // uniform rate limiter
    final long uniformRateLimiterOpsPerNano;
    long uniformRateLimiterOpIndex = 0;
    long uniformRateLimiterStart = Long.MIN_VALUE;
 
+   // open workload model
+   private final ArrivalScheduler arrivalScheduler;
+   private final ArrivalScheduler warmUpArrivalScheduler;
+
+   // samples operations executed during warm-up
+   private final SteadyStateDetector steadyStateDetector;
+
+   // statistics of intervals handed over for upload to master
+   private volatile boolean intervalRequested = false;
+   private final Queue<Statistics> intervals = new ConcurrentLinkedQueue<>();
+
    final boolean reportLatencyAsServiceTime;
 
    public Stressor(TestStage stage, OperationLogic logic, int globalThreadIndex, int threadIndex, CountDownLatch threadCountDown) {
@@ -64,7 +94,33 @@ public class Stressor extends Thread {
       this.threadCountDown = threadCountDown;
       this.thinkTime = stage.thinkTime;
       this.uniformRateLimiterOpsPerNano = TimeUnit.MILLISECONDS.toNanos(stage.cycleTime);
+      this.arrivalScheduler = stage.getArrivalScheduler();
+      this.warmUpArrivalScheduler = stage.getWarmUpArrivalScheduler();
       this.reportLatencyAsServiceTime = stage.reportLatencyAsServiceTime;
+      this.maxInFlightRequests = stage.maxInFlightRequests;
+      this.recycleRequests = stage.recycleRequests;
+      this.steadyStateDetector = stage.getSteadyStateDetector();
+   }
+
+   /**
+    * Creates stressor that records requests made through its methods into given statistics
+    * without running the stressor thread. Meant for benchmarks and tests that drive the logic directly.
+    */
+   public static Stressor recording(TestStage stage, OperationLogic logic, Statistics statistics) {
+      Stressor stressor = new Stressor(stage, logic, 0, 0, new CountDownLatch(1));
+      logic.init(stressor);
+      stressor.setStatistics(statistics);
+      statistics.begin();
+      stressor.started = true;
+      return stressor;
+   }
+
+   private void setStatistics(Statistics stats) {
+      this.stats = stats;
+      if (recycleRequests) {
+         recycledRequest = stats.startRequest();
+         recycledRequestSet = stats.requestSet();
+      }
    }
 
    private boolean recording() {
@@ -75,7 +131,7 @@ public class Stressor extends Thread {
    public void run() {
       try {
          logic.init(this);
-         stats = stage.createStatistics();
+         setStatistics(stage.createStatistics());
 
          runInternal();
 
@@ -111,7 +167,21 @@ public class Stressor extends Thread {
                }
                Operation operation = operationSelector.next(random);
                try {
-                  logic.run(operation);
+                  if (steadyStateDetector != null) {
+                     long start;
+                     if (warmUpArrivalScheduler != null) {
+                        // open-model warm-up runs at the target rate, response time includes the queueing
+                        long intendedTime = warmUpArrivalScheduler.next();
+                        waitUntil(intendedTime);
+                        start = reportLatencyAsServiceTime ? TimeService.nanoTime() : intendedTime;
+                     } else {
+                        start = TimeService.nanoTime();
+                     }
+                     logic.run(operation);
+                     steadyStateDetector.record(TimeService.nanoTime() - start);
+                  } else {
+                     logic.run(operation);
+                  }
                   if (thinkTime > 0)
                     sleep(thinkTime);
                } catch (OperationLogic.RequestException e) {
@@ -143,6 +213,16 @@ public class Stressor extends Thread {
             }
             i++;
             completion.logProgress(i);
+            if (intervalRequested) {
+               takeInterval();
+            }
+         }
+         try {
+            // responses to requests sent in the recorded phase are still recorded
+            awaitAsyncResponses(0);
+         } catch (InterruptedException e) {
+            log.trace("Stressor interrupted.", e);
+            interrupt();
          }
          this.started = false;
       } finally {
@@ -166,7 +246,7 @@ public class Stressor extends Thread {
             ongoingTx = stage.transactional.getTransaction();
             logic.transactionStarted();
             if (recording()) {
-               requests = stats.requestSet();
+               requests = recycledRequestSet != null ? recycledRequestSet.restart() : stats.requestSet();
             }
             Request beginRequest = startTransaction();
             if (requests != null && beginRequest != null) {
@@ -180,7 +260,7 @@ public class Stressor extends Thread {
 
       T result = null;
       Exception exception = null;
-      Request request = nextRequest();
+      Request request = nextRequest(true);
       Operation operation = null;
       try {
          result = invocation.invoke();
@@ -216,6 +296,74 @@ public class Stressor extends Thread {
       return result;
    }
 
+   /**
+    * Sends the request and returns immediately; the response is recorded when the returned stage
+    * completes. If there are already {@link TestStage#maxInFlightRequests} requests in flight,
+    * blocks until some of them complete.
+    */
+   public <T> void makeAsyncRequest(Invocation<CompletionStage<T>> invocation) throws OperationLogic.RequestException {
+      if (useTransactions) {
+         throw new IllegalStateException("Asynchronous requests cannot be executed within transactions.");
+      }
+      try {
+         awaitAsyncResponses(maxInFlightRequests - 1);
+      } catch (InterruptedException e) {
+         log.trace("Stressor interrupted.", e);
+         interrupt();
+         throw new OperationLogic.RequestException(e);
+      }
+      // requests in flight cannot be recycled
+      Request request = nextRequest(false);
+      CompletionStage<T> stage;
+      try {
+         stage = invocation.invoke();
+      } catch (Exception e) {
+         failed(request, invocation.operation());
+         log.warn("Error in request", e);
+         throw new OperationLogic.RequestException(e);
+      }
+      if (request != null) {
+         request.requestCompleted();
+      }
+      inFlightRequests++;
+      stage.whenComplete((result, throwable) -> {
+         if (request != null) {
+            request.responseCompleted(throwable == null);
+         }
+         Blackhole.consume(result);
+         asyncResponses.add(new AsyncResponse(request, invocation.operation(), throwable));
+      });
+      handleAsyncResponses();
+   }
+
+   private void awaitAsyncResponses(int maxInFlight) throws InterruptedException {
+      handleAsyncResponses();
+      while (inFlightRequests > maxInFlight) {
+         handleAsyncResponse(asyncResponses.take());
+      }
+   }
+
+   private void handleAsyncResponses() {
+      AsyncResponse response;
+      while ((response = asyncResponses.poll()) != null) {
+         handleAsyncResponse(response);
+      }
+   }
+
+   private void handleAsyncResponse(AsyncResponse response) {
+      inFlightRequests--;
+      if (response.throwable != null) {
+         log.warn("Error in request", response.throwable);
+      }
+      if (response.request != null) {
+         if (recording()) {
+            response.request.finished(response.operation);
+         } else {
+            response.request.discard();
+         }
+      }
+   }
+
    public <T> void succeeded(Request request, Operation operation) {
       if (request != null) {
          if (recording()) {
@@ -249,7 +397,7 @@ public class Stressor extends Thread {
     * For the tx cache the values in BasicOperations.Get must be the same as Transactional.Duration
     */
    private void endTransactionAndRegisterStats(Operation noTxOperation) {
-      Request commitRequest = recording() ? stats.startRequest() : null;
+      Request commitRequest = recording() ? startRequest(TimeService.nanoTime(), true) : null;
       try {
          if (stage.commitTransactions) {
             ongoingTx.commit();
@@ -300,6 +448,41 @@ public class Stressor extends Thread {
       return stats;
    }
 
+   /**
+    * Asks the stressor to hand over statistics recorded since the previous interval. The stressor
+    * does that after finishing current operation, the statistics are then available through
+    * {@link #pollIntervals()}.
+    */
+   public void requestInterval() {
+      intervalRequested = true;
+   }
+
+   /**
+    * @return Statistics of all intervals handed over since the last call merged together, or null.
+    */
+   public Statistics pollIntervals() {
+      Statistics merged = null;
+      Statistics interval;
+      while ((interval = intervals.poll()) != null) {
+         if (merged == null) {
+            merged = interval;
+         } else {
+            merged.merge(interval);
+         }
+      }
+      return merged;
+   }
+
+   private void takeInterval() {
+      intervalRequested = false;
+      // requests still in flight will be recorded into the next interval
+      stats.harvest();
+      Statistics interval = stats.copy();
+      interval.end();
+      stats.reset();
+      intervals.add(interval);
+   }
+
    public OperationLogic getLogic() {
       return logic;
    }
@@ -313,7 +496,7 @@ public class Stressor extends Thread {
    }
 
    private Request startTransaction() throws TransactionException {
-      Request request = recording() ? stats.startRequest() : null;
+      Request request = recording() ? startRequest(TimeService.nanoTime(), true) : null;
       try {
          ongoingTx.begin();
          if (request != null) {
@@ -329,6 +512,18 @@ public class Stressor extends Thread {
       }
    }
 
+   private static class AsyncResponse {
+      private final Request request;
+      private final Operation operation;
+      private final Throwable throwable;
+
+      private AsyncResponse(Request request, Operation operation, Throwable throwable) {
+         this.request = request;
+         this.operation = operation;
+         this.throwable = throwable;
+      }
+   }
+
    private class TransactionException extends Exception {
       private final Request request;
 
@@ -342,19 +537,36 @@ public class Stressor extends Thread {
       }
    }
 
-   private Request nextRequest() {
+   private Request nextRequest(boolean recycle) {
       Request request = null;
       if (recording()) {
-         if (uniformRateLimiterOpsPerNano > 0) {
+         if (arrivalScheduler != null) {
+            long intendedTime = arrivalScheduler.next();
+            waitUntil(intendedTime);
+            request = startRequest(reportLatencyAsServiceTime ? TimeService.nanoTime() : intendedTime, recycle);
+         } else if (uniformRateLimiterOpsPerNano > 0) {
             long intendedTime = uniformRateLimiterStart + (uniformRateLimiterOpIndex++) * uniformRateLimiterOpsPerNano;
             long now;
             while ((now = System.nanoTime()) < intendedTime)
                LockSupport.parkNanos(intendedTime - now);
-            request = stats.startRequest(reportLatencyAsServiceTime ? System.nanoTime() : intendedTime);
+            request = startRequest(reportLatencyAsServiceTime ? System.nanoTime() : intendedTime, recycle);
          } else {
-            request = stats.startRequest();
+            request = startRequest(TimeService.nanoTime(), recycle);
          }
       }
       return request;
    }
+
+   private static void waitUntil(long intendedTime) {
+      long now;
+      while ((now = TimeService.nanoTime()) < intendedTime)
+         LockSupport.parkNanos(intendedTime - now);
+   }
+
+   private Request startRequest(long requestStartTime, boolean recycle) {
+      if (recycle && recycledRequest != null) {
+         return recycledRequest.restart(requestStartTime);
+      }
+      return stats.startRequest(requestStartTime);
+   }
 }
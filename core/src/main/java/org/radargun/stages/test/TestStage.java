@@ -2,6 +2,7 @@ package org.radargun.stages.test;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -10,13 +11,16 @@ import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.radargun.DistStageAck;
+import org.radargun.DistStageProgress;
 import org.radargun.Operation;
 import org.radargun.StageResult;
 import org.radargun.Version;
 import org.radargun.config.Init;
 import org.radargun.config.Property;
 import org.radargun.config.Stage;
+import org.radargun.reporting.LiveMetrics;
 import org.radargun.reporting.Report;
+import org.radargun.reporting.Timeline;
 import org.radargun.state.SlaveState;
 import org.radargun.stats.Statistics;
 import org.radargun.traits.InjectTrait;
@@ -32,6 +36,7 @@ import org.radargun.utils.Utils;
 public abstract class TestStage extends BaseTestStage {
    public static final String NAMESPACE = "urn:radargun:stages:cache:" + Version.SCHEMA_VERSION;
    public static final String DEPRECATED_NAMESPACE = "urn:radargun:stages:legacy:" + Version.SCHEMA_VERSION;
+   public static final String WARM_UP = "Warm-up";
 
    @Property(doc = "The number of threads executing on each node. You have to set either this or 'total-threads'. No default.")
    public int numThreadsPerNode = 0;
@@ -73,11 +78,78 @@ public abstract class TestStage extends BaseTestStage {
    @Property(doc = "Enable this property in order to show the difference between latency and service.")
    protected boolean reportLatencyAsServiceTime;
 
+   @Property(doc = "Maximum number of asynchronous requests each stressor thread keeps in flight. " +
+      "Applies only to logics issuing asynchronous requests. Default is 1.")
+   public int maxInFlightRequests = 1;
+
+   @Property(doc = "Use single request tracking object per stressor thread instead of allocating one for each request. " +
+      "The statistics implementation must not keep references to the requests. Default is false.")
+   public boolean recycleRequests = false;
+
+   @Property(doc = "Total rate of requests across the cluster, in requests per second. When set, the test uses open " +
+      "workload model: requests arrive with this rate regardless of the response times and stressor threads " +
+      "execute them as they become available. Response time is measured from the intended arrival. " +
+      "Default is 0 (each thread executes requests one after another).")
+   public double arrivalRate = 0;
+
+   @Property(doc = "Distribution of request arrivals in open model. Options are FIXED (evenly spaced) and " +
+      "POISSON (exponentially distributed inter-arrival times). Default is FIXED.")
+   public ArrivalScheduler.Process arrivalProcess = ArrivalScheduler.Process.FIXED;
+
+   @Property(doc = "Total arrival rate at the beginning of the test; the rate increases linearly " +
+      "to 'arrival-rate' during 'arrival-ramp-duration'. Default is 0.")
+   public double initialArrivalRate = 0;
+
+   @Property(doc = "Duration of the linear increase of arrival rate. Default is 0 (no ramp).", converter = TimeConverter.class)
+   public long arrivalRampDuration = 0;
+
+   @Property(doc = "Period of uploading statistics recorded since the previous upload to the master during the test. " +
+      "Stressors reset their statistics after each upload, which bounds memory used by the statistics on slaves, " +
+      "and the master keeps partial results if a slave fails. Cannot be used with statistics that keep " +
+      "their own time intervals (periodic, recorder or common statistics). " +
+      "Default is 0 (statistics are sent only when the test finishes).", converter = TimeConverter.class)
+   public long statisticsUploadPeriod = 0;
+
+   @Property(doc = "Phases of the test with different workload settings (e.g. operation mix or arrival rate), " +
+      "following each other from the beginning of the measured part of the test. Default is no phases " +
+      "(the settings are the same for the whole test).", complexConverter = WorkloadPhase.ListConverter.class)
+   public List<WorkloadPhase> phases = Collections.emptyList();
+
+   @Property(doc = "Maximum duration of the warm-up. When set, stressors execute operations without recording them " +
+      "until throughput and response times become steady and JIT compilation calms down, or until this time " +
+      "elapses. In open-model tests the warm-up requests arrive at the same rate as during the test. " +
+      "Ramp-up, if set, follows the warm-up. Default is 0 (no warm-up).", converter = TimeConverter.class)
+   public long maxWarmUp = 0;
+
+   @Property(doc = "Length of the window in which throughput and response times are sampled during warm-up. " +
+      "Default is 1 second.", converter = TimeConverter.class)
+   public long warmUpWindow = 1000;
+
+   @Property(doc = "Number of consecutive windows that have to be steady to end the warm-up. Default is 5.")
+   public int warmUpWindows = 5;
+
+   @Property(doc = "Maximum coefficient of variation (standard deviation divided by mean) of throughput and mean " +
+      "response time over the windows considered steady. Default is 0.05.")
+   public double warmUpMaxVariation = 0.05;
+
+   @Property(doc = "Maximum fraction of each window that may be spent by JIT compilation for the window to be " +
+      "considered steady. Ignored if the JVM does not monitor compilation time. Default is 0.01.")
+   public double warmUpMaxCompilation = 0.01;
+
    @InjectTrait
    protected Transactional transactional;
 
    private Completion completion;
    private OperationSelector operationSelector;
+   private ArrivalScheduler arrivalScheduler;
+   // paces requests during warm-up, the test starts with fresh schedule when the warm-up ends
+   private ArrivalScheduler warmUpArrivalScheduler;
+   private WorkloadSchedule workloadSchedule;
+   private SteadyStateDetector steadyStateDetector;
+   // duration of the warm-up in milliseconds, -1 if there was none
+   private long warmUpDuration = -1;
+   // on master, statistics uploaded by the slaves during the test
+   private final Map<Integer, List<Statistics>> uploadedStatistics = new HashMap<>();
 
    protected volatile boolean started = false;
    protected volatile boolean finished = false;
@@ -97,7 +169,28 @@ public abstract class TestStage extends BaseTestStage {
          throw new IllegalStateException("You have to set only one ot total-threads, num-threads-per-node");
       if (totalThreads < 0 || numThreadsPerNode < 0) throw new IllegalStateException("Number of threads can't be < 0");
       if (cycleTime > 0 && thinkTime > 0) throw new IllegalStateException("We cannot mix cycleTime and thinkTime");
-      if (reportLatencyAsServiceTime && cycleTime == 0) throw new IllegalStateException("Report Latency as Service Time can be enabled when cycleTime > 0");
+      if (maxInFlightRequests <= 0) throw new IllegalStateException("Max in-flight requests must be > 0");
+      if (arrivalRate < 0 || initialArrivalRate < 0) throw new IllegalStateException("Arrival rate can't be < 0");
+      boolean openModel = arrivalRate > 0 || phases.stream().anyMatch(phase -> phase.getArrivalRate() != null);
+      if (openModel && (cycleTime > 0 || thinkTime > 0 || synchronousRequests))
+         throw new IllegalStateException("Arrival rate cannot be combined with cycleTime, thinkTime or synchronousRequests");
+      if (!openModel && (initialArrivalRate > 0 || arrivalRampDuration > 0))
+         throw new IllegalStateException("Arrival ramp requires arrival rate to be set");
+      if (arrivalRate == 0 && openModel && phases.stream().anyMatch(phase -> phase.getArrivalRate() == null))
+         throw new IllegalStateException("All phases must set arrival rate when the stage does not set it");
+      if (!phases.isEmpty() && arrivalRampDuration > 0)
+         throw new IllegalStateException("Arrival ramp cannot be combined with phases, use ramp of the first phase");
+      for (int i = 0; i < phases.size() - 1; ++i) {
+         if (phases.get(i).getDuration() <= 0) throw new IllegalStateException("Only the last phase can omit duration");
+      }
+      if (reportLatencyAsServiceTime && cycleTime == 0 && !openModel)
+         throw new IllegalStateException("Report Latency as Service Time can be enabled when cycleTime > 0 or arrivalRate > 0");
+      if (statisticsUploadPeriod < 0) throw new IllegalStateException("Statistics upload period can't be < 0");
+      if (statisticsUploadPeriod > 0 && statisticsPrototype.isPeriodic())
+         throw new IllegalStateException("Statistics upload cannot be used with periodic statistics");
+      if (maxWarmUp < 0) throw new IllegalStateException("Max warm-up can't be < 0");
+      if (maxWarmUp > 0 && (warmUpWindow <= 0 || warmUpWindows < 2))
+         throw new IllegalStateException("Warm-up window must be > 0 and there must be at least 2 warm-up windows");
    }
 
    public DistStageAck executeOnSlave() {
@@ -110,10 +203,28 @@ public abstract class TestStage extends BaseTestStage {
          long startNanos = TimeService.nanoTime();
          log.info("Starting test " + testName);
          stressorsManager = setUpAndStartStressors();
-         waitForStressorsToFinish(stressorsManager);
+         StatisticsUploader uploader = null;
+         if (statisticsUploadPeriod > 0) {
+            uploader = new StatisticsUploader(slaveState, stressorsManager.getStressors(), mergeThreadStats, statisticsUploadPeriod);
+            uploader.start();
+         }
+         try {
+            waitForStressorsToFinish(stressorsManager);
+         } finally {
+            if (uploader != null) {
+               uploader.stop();
+            }
+            if (workloadSchedule != null) {
+               workloadSchedule.stop();
+            }
+         }
          destroy();
          log.info("Finished test. Test duration is: " + Utils.getNanosDurationString(TimeService.nanoTime() - startNanos));
-         return newStatisticsAck(stressorsManager.getStressors());
+         DistStageAck ack = newStatisticsAck(stressorsManager.getStressors());
+         if (ack instanceof StatisticsAck) {
+            ((StatisticsAck) ack).setWarmUpDuration(warmUpDuration);
+         }
+         return ack;
       } catch (Exception e) {
          return errorResponse("Exception while initializing the test", e);
       }
@@ -132,18 +243,39 @@ public abstract class TestStage extends BaseTestStage {
    }
 
    public StageResult processAckOnMaster(List<DistStageAck> acks) {
-      return processAckOnMaster(acks, testName);
+      return processAckOnMaster(acks, getResultsTestName());
+   }
+
+   /**
+    * @return Name of the test the results of this stage (including live metrics) are reported to.
+    */
+   protected String getResultsTestName() {
+      return testName;
    }
 
    protected StageResult processAckOnMaster(List<DistStageAck> acks, String testNameOverride) {
       StageResult result = super.processAckOnMaster(acks);
-      if (result.isError()) return result;
+      if (result.isError()) {
+         storeUploadedStatistics(testNameOverride);
+         return result;
+      }
 
       Report.Test test = getTest(amendTest, testNameOverride);
       testIteration = test == null ? 0 : test.getIterations().size();
       // we cannot use aggregated = createStatistics() since with PeriodicStatistics the merge would fail
       List<StatisticsAck> statisticsAcks = instancesOf(acks, StatisticsAck.class);
-      Statistics aggregated = statisticsAcks.stream().flatMap(ack -> ack.statistics.stream()).reduce(null, Statistics.MERGE);
+      Map<Integer, List<Statistics>> slaveStatistics = new HashMap<>();
+      for (StatisticsAck ack : statisticsAcks) {
+         if (ack.statistics != null) {
+            slaveStatistics.put(ack.getSlaveIndex(), withUploadedStatistics(ack.getSlaveIndex(), ack.statistics));
+         }
+      }
+      Statistics aggregated = slaveStatistics.values().stream().flatMap(List::stream).reduce(null, Statistics.MERGE);
+      LiveMetrics liveMetrics = LiveMetrics.getInstance(masterState);
+      if (liveMetrics != null) {
+         slaveStatistics.forEach((slaveIndex, statistics) ->
+            liveMetrics.updateStatistics(testNameOverride, slaveIndex, mergeCopy(statistics)));
+      }
       for (StatisticsAck ack : statisticsAcks) {
          if (ack.statistics != null) {
             if (test != null) {
@@ -155,12 +287,18 @@ public abstract class TestStage extends BaseTestStage {
                if (test.getGroupOperationsMap() == null) {
                   test.setGroupOperationsMap(ack.getGroupOperationsMap());
                }
-               test.addStatistics(testIteration, ack.getSlaveIndex(), ack.statistics);
+               test.addStatistics(testIteration, ack.getSlaveIndex(), slaveStatistics.get(ack.getSlaveIndex()));
             }
          } else {
             log.trace("No statistics received from slave: " + ack.getSlaveIndex());
          }
       }
+      CalibrationOverheads.get(masterState).check(statisticsPrototype, aggregated, test, testIteration, log);
+      addWarmUpResult(test, statisticsAcks);
+      StageResult statisticsResult = processStatistics(slaveStatistics, aggregated, test);
+      if (statisticsResult.isError()) {
+         return statisticsResult;
+      }
       if (checkRepeatCondition(aggregated)) {
          return StageResult.SUCCESS;
       } else {
@@ -168,6 +306,115 @@ public abstract class TestStage extends BaseTestStage {
       }
    }
 
+   /**
+    * To be overridden in inheritors processing the statistics of all slaves, including the statistics
+    * uploaded during the test.
+    *
+    * @param slaveStatistics Statistics of each thread, by slave index.
+    * @param aggregated Statistics merged from all slaves, or null.
+    * @param test Test in the report, or null.
+    */
+   protected StageResult processStatistics(Map<Integer, List<Statistics>> slaveStatistics, Statistics aggregated, Report.Test test) {
+      return StageResult.SUCCESS;
+   }
+
+   private void addWarmUpResult(Report.Test test, List<StatisticsAck> statisticsAcks) {
+      Map<Integer, Report.SlaveResult> slaveResults = new HashMap<>();
+      long longest = -1;
+      for (StatisticsAck ack : statisticsAcks) {
+         if (ack.getWarmUpDuration() >= 0) {
+            slaveResults.put(ack.getSlaveIndex(), new Report.SlaveResult(Utils.getMillisDurationString(ack.getWarmUpDuration()),
+               ack.getWarmUpDuration() >= maxWarmUp));
+            longest = Math.max(longest, ack.getWarmUpDuration());
+         }
+      }
+      if (test == null || slaveResults.isEmpty()) {
+         return;
+      }
+      // the slaves start recording independently, the longest warm-up is when all of them are recording
+      test.addResult(getTestIteration(), new Report.TestResult("Warm-up", slaveResults,
+         Utils.getMillisDurationString(longest), longest >= maxWarmUp));
+   }
+
+   @Override
+   public void processProgressOnMaster(DistStageProgress progress) {
+      if (!(progress instanceof StatisticsUploader.StatisticsUpload)) {
+         return;
+      }
+      StatisticsUploader.StatisticsUpload upload = (StatisticsUploader.StatisticsUpload) progress;
+      List<Statistics> uploaded = upload.statistics;
+      LiveMetrics liveMetrics = LiveMetrics.getInstance(masterState);
+      if (liveMetrics != null && uploadedStatistics.isEmpty()) {
+         liveMetrics.resetTest(getResultsTestName());
+      }
+      List<Statistics> merged = uploadedStatistics.computeIfAbsent(progress.getSlaveIndex(), index -> new ArrayList<>());
+      for (int i = 0; i < uploaded.size(); ++i) {
+         Statistics interval = uploaded.get(i);
+         if (i >= merged.size()) {
+            merged.add(interval);
+         } else if (merged.get(i) == null) {
+            merged.set(i, interval);
+         } else if (interval != null) {
+            merged.get(i).merge(interval);
+         }
+      }
+      if (liveMetrics != null) {
+         liveMetrics.updateStatistics(getResultsTestName(), progress.getSlaveIndex(), mergeCopy(merged));
+         liveMetrics.updateMonitorValues(progress.getSlaveIndex(), upload.monitorValues);
+      }
+      if (log.isDebugEnabled()) {
+         Statistics total = merged.stream().reduce(null, Statistics.MERGE);
+         log.debugf("Received statistics from slave %d, %d ms of test %s recorded so far", progress.getSlaveIndex(),
+            total == null ? 0 : total.getEnd() - total.getBegin(), getResultsTestName());
+      }
+   }
+
+   @Override
+   public void processFailureOnMaster() {
+      storeUploadedStatistics(getResultsTestName());
+   }
+
+   /**
+    * Stores the statistics uploaded during the test as results of the slaves that have not
+    * sent the final statistics.
+    */
+   private void storeUploadedStatistics(String testNameOverride) {
+      if (uploadedStatistics.isEmpty()) {
+         return;
+      }
+      Report.Test test = getTest(true, testNameOverride);
+      if (test == null) {
+         return;
+      }
+      int iteration = test.getIterations().size();
+      for (Integer slaveIndex : new ArrayList<>(uploadedStatistics.keySet())) {
+         log.warnf("Storing partial statistics of test %s uploaded by slave %d", testNameOverride, slaveIndex);
+         test.addStatistics(iteration, slaveIndex, withUploadedStatistics(slaveIndex, Collections.emptyList()));
+      }
+   }
+
+   private static Statistics mergeCopy(List<Statistics> statistics) {
+      Statistics merged = statistics.stream().reduce(null, Statistics.MERGE);
+      // single instance is returned as is by the reduction
+      return merged == null ? null : merged.copy();
+   }
+
+   private List<Statistics> withUploadedStatistics(int slaveIndex, List<Statistics> statistics) {
+      List<Statistics> uploaded = uploadedStatistics.remove(slaveIndex);
+      if (uploaded == null) {
+         return statistics;
+      }
+      List<Statistics> merged = new ArrayList<>(Math.max(uploaded.size(), statistics.size()));
+      for (int i = 0; i < Math.max(uploaded.size(), statistics.size()); ++i) {
+         Statistics s = Statistics.MERGE.apply(i < uploaded.size() ? uploaded.get(i) : null,
+            i < statistics.size() ? statistics.get(i) : null);
+         if (s != null) {
+            merged.add(s);
+         }
+      }
+      return merged;
+   }
+
    protected StressorsManager setUpAndStartStressors() {
       long startTime = TimeService.currentTimeMillis();
       completion = createCompletion();
@@ -182,9 +429,20 @@ public abstract class TestStage extends BaseTestStage {
             finishCountDown.countDown();
          }
       });
-      operationSelector = wrapOperationSelector(createOperationSelector());
+      workloadSchedule = phases.isEmpty() ? null : new WorkloadSchedule(phases);
+      operationSelector = wrapOperationSelector(createPhasedOperationSelector());
+      arrivalScheduler = createArrivalScheduler();
+
+      steadyStateDetector = maxWarmUp > 0 ? new SteadyStateDetector(warmUpWindows, warmUpMaxVariation, warmUpMaxCompilation) : null;
+      warmUpArrivalScheduler = steadyStateDetector != null ? createArrivalScheduler() : null;
 
       List<Stressor> stressors = startStressors();
+      if (steadyStateDetector != null) {
+         warmUp();
+      }
+      if (workloadSchedule != null) {
+         workloadSchedule.start(slaveState.getTimeline());
+      }
       started = true;
 
       if (rampUp > 0) {
@@ -197,6 +455,41 @@ public abstract class TestStage extends BaseTestStage {
       return new StressorsManager(stressors, startTime, finishCountDown);
    }
 
+   /**
+    * Lets the stressors execute operations until the steady state is detected or max warm-up elapses.
+    */
+   private void warmUp() {
+      long startTime = TimeService.currentTimeMillis();
+      long start = TimeService.nanoTime();
+      long maxWarmUpNanos = TimeUnit.MILLISECONDS.toNanos(maxWarmUp);
+      long windowNanos = TimeUnit.MILLISECONDS.toNanos(warmUpWindow);
+      steadyStateDetector.start(start);
+      boolean steady = false;
+      long now = start;
+      for (long windowEnd = start + windowNanos; !steady && !terminated && now - start < maxWarmUpNanos; windowEnd += windowNanos) {
+         windowEnd = Math.min(windowEnd, start + maxWarmUpNanos);
+         while ((now = TimeService.nanoTime()) < windowEnd) {
+            try {
+               TimeUnit.NANOSECONDS.sleep(windowEnd - now);
+            } catch (InterruptedException e) {
+               throw new IllegalStateException("Interrupted during warm-up.", e);
+            }
+         }
+         steady = steadyStateDetector.sample(now);
+      }
+      warmUpDuration = TimeUnit.NANOSECONDS.toMillis(now - start);
+      if (steady) {
+         log.infof("Steady state reached after %s of warm-up: %s", Utils.getMillisDurationString(warmUpDuration),
+            steadyStateDetector.describe());
+      } else if (!terminated) {
+         log.warnf("Steady state not reached within %s of warm-up: %s", Utils.getMillisDurationString(warmUpDuration),
+            steadyStateDetector.describe());
+      }
+      if (slaveState.getTimeline() != null) {
+         slaveState.getTimeline().addEvent(WARM_UP, new Timeline.IntervalEvent(startTime, testName + " warm-up", warmUpDuration));
+      }
+   }
+
    protected void waitForStressorsToFinish(StressorsManager manager) {
       try {
          if (timeout > 0) {
@@ -242,10 +535,40 @@ public abstract class TestStage extends BaseTestStage {
       }
    }
 
+   protected ArrivalScheduler createArrivalScheduler() {
+      int numSlaves = getExecutingSlaves().size();
+      if (workloadSchedule != null && (arrivalRate > 0 || phases.stream().anyMatch(phase -> phase.getArrivalRate() != null))) {
+         return workloadSchedule.createArrivalScheduler(arrivalProcess, initialArrivalRate, arrivalRate, numSlaves);
+      }
+      if (arrivalRate <= 0) {
+         return null;
+      }
+      return new ArrivalScheduler(arrivalProcess, initialArrivalRate / numSlaves, arrivalRate / numSlaves, arrivalRampDuration);
+   }
+
+   private OperationSelector createPhasedOperationSelector() {
+      OperationSelector operationSelector = createOperationSelector();
+      if (workloadSchedule == null) {
+         return operationSelector;
+      }
+      OperationSelector[] phaseSelectors = workloadSchedule.perPhase(this::createOperationSelector, operationSelector,
+         new OperationSelector[workloadSchedule.size()]);
+      return phaseSelectors == null ? operationSelector : new PhasedOperationSelector(workloadSchedule, phaseSelectors);
+   }
+
    protected OperationSelector createOperationSelector() {
       return OperationSelector.DUMMY;
    }
 
+   /**
+    * To be overridden in inheritors that allow to change the operation mix in phases.
+    *
+    * @return Operation selector for given phase, or null if the phase uses the stage's selector.
+    */
+   protected OperationSelector createOperationSelector(WorkloadPhase phase) {
+      return null;
+   }
+
    protected OperationSelector wrapOperationSelector(OperationSelector operationSelector) {
       if (synchronousRequests) {
          operationSelector = new SynchronousOperationSelector(operationSelector);
@@ -332,6 +655,10 @@ public abstract class TestStage extends BaseTestStage {
       return statisticsPrototype.copy();
    }
 
+   SteadyStateDetector getSteadyStateDetector() {
+      return steadyStateDetector;
+   }
+
    public boolean isStarted() {
       return started;
    }
@@ -357,6 +684,21 @@ public abstract class TestStage extends BaseTestStage {
       return operationSelector;
    }
 
+   public ArrivalScheduler getArrivalScheduler() {
+      return arrivalScheduler;
+   }
+
+   ArrivalScheduler getWarmUpArrivalScheduler() {
+      return warmUpArrivalScheduler;
+   }
+
+   /**
+    * @return Schedule of the workload phases, or null if the test does not use phases.
+    */
+   public WorkloadSchedule getWorkloadSchedule() {
+      return workloadSchedule;
+   }
+
    public boolean useTransactions(String resourceName) {
       return useTransactions.use(transactional, resourceName, transactionSize);
    }
@@ -399,6 +741,7 @@ public abstract class TestStage extends BaseTestStage {
    protected static class StatisticsAck extends DistStageAck {
       public final List<Statistics> statistics;
       private final Map<String, Set<Operation>> groupOperationsMap;
+      private long warmUpDuration = -1;
 
       public StatisticsAck(SlaveState slaveState, List<Statistics> statistics, Map<String, Set<Operation>> groupOperationsMap) {
          super(slaveState);
@@ -408,5 +751,13 @@ public abstract class TestStage extends BaseTestStage {
       public Map<String, Set<Operation>> getGroupOperationsMap() {
          return groupOperationsMap;
       }
+
+      public long getWarmUpDuration() {
+         return warmUpDuration;
+      }
+
+      public void setWarmUpDuration(long warmUpDuration) {
+         this.warmUpDuration = warmUpDuration;
+      }
    }
 }
@@ -0,0 +1,262 @@
+package org.radargun.stages.test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.radargun.DistStageAck;
+import org.radargun.StageResult;
+import org.radargun.config.Init;
+import org.radargun.config.Property;
+import org.radargun.config.Stage;
+import org.radargun.reporting.Report;
+import org.radargun.stages.AbstractDistStage;
+import org.radargun.stats.Statistics;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.stats.representation.OperationThroughput;
+import org.radargun.stats.representation.Percentile;
+import org.radargun.utils.NanoTimeConverter;
+import org.radargun.utils.Utils;
+
+/**
+ * Searches for the maximum rate that the system sustains within given response time and error limits.
+ *
+ * The stage is expected to be the last one in a repeat that runs an open-model test (with 'arrival-rate'
+ * set to the rate property) and amends its results to the same test. After each test, the stage checks
+ * whether the limits were met and stores the next rate into the property. Until the first failure,
+ * the rate grows geometrically, then the interval between the highest passing and lowest failing rate
+ * is bisected. When the interval is narrow enough, the repeat is exited and the property holds
+ * the maximum sustainable rate.
+ */
+@Stage(doc = "Searches for the maximum sustainable rate with respect to response time percentile and error ratio. " +
+   "Should be placed in a repeat after test with 'arrival-rate' set through the rate property.")
+public class ThroughputSearchStage extends AbstractDistStage {
+   @Property(doc = "Name of the test whose last iteration should be evaluated.", optional = false)
+   protected String testName;
+
+   @Property(doc = "Operation that should be evaluated (e.g. BasicOperations.Get).", optional = false)
+   protected String operation;
+
+   @Property(doc = "Name of the property holding the rate used in the test.", optional = false)
+   protected String rateProperty;
+
+   @Property(doc = "Rate used in the first test. The property should default to this value " +
+      "(e.g. arrival-rate=\"${rate:1000}\").", optional = false)
+   protected double initialRate;
+
+   @Property(doc = "Maximum rate that should be tested. Default is unlimited.")
+   protected double maxRate = Double.POSITIVE_INFINITY;
+
+   @Property(doc = "Factor by which the rate is increased until the limits are exceeded for the first time. Default is 2.")
+   protected double growthFactor = 2;
+
+   @Property(doc = "The search ends when the difference between highest passing and lowest failing rate " +
+      "is less than this fraction of the rate. Default is 0.05.")
+   protected double precision = 0.05;
+
+   @Property(doc = "Percentile of response times that should be checked. Default is 99.")
+   protected double percentile = 99;
+
+   @Property(doc = "Maximum response time at given percentile.", optional = false, converter = NanoTimeConverter.class)
+   protected long maxResponseTime;
+
+   @Property(doc = "Maximum ratio of failed requests. Default is 0.001.")
+   protected double maxErrorRatio = 0.001;
+
+   private boolean finished;
+
+   @Init
+   public void check() {
+      if (initialRate <= 0) throw new IllegalArgumentException("Initial rate must be positive");
+      if (maxRate < initialRate) throw new IllegalArgumentException("Max rate must be >= initial rate");
+      if (growthFactor <= 1) throw new IllegalArgumentException("Growth factor must be > 1");
+      if (precision <= 0 || precision >= 1) throw new IllegalArgumentException("Precision must be within (0, 1)");
+      if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("Percentile must be within [0, 100]");
+   }
+
+   @Override
+   public Map<String, Object> createMasterData() {
+      Report.Test test = masterState.getReport().getTest(testName);
+      if (test == null || test.getIterations().isEmpty()) {
+         throw new IllegalArgumentException("No test '" + testName + "' found.");
+      }
+      String stateKey = ThroughputSearchStage.class.getName() + "." + testName;
+      Search search = (Search) masterState.get(stateKey);
+      if (search == null) {
+         search = new Search(initialRate);
+         masterState.put(stateKey, search);
+      }
+      int iteration = test.getIterations().size() - 1;
+      Point point = evaluate(test.getIterations().get(iteration), search.rate);
+      search.points.add(point);
+      addResults(test, iteration, point, percentile);
+
+      double nextRate = nextRate(search, point.passed);
+      if (Double.isNaN(nextRate)) {
+         finished = true;
+         masterState.remove(stateKey);
+         Point knee = findKnee(search.points);
+         log.infof("Maximum sustainable rate is %.0f reqs/s, knee is at %s", search.passing, knee);
+         test.addResult(iteration, new Report.TestResult("Maximum sustainable rate [reqs/s]", Collections.emptyMap(),
+            format(search.passing), search.passing == 0));
+         if (knee != null) {
+            test.addResult(iteration, new Report.TestResult("Knee rate [reqs/s]", Collections.emptyMap(),
+               format(knee.rate), false));
+         }
+         nextRate = search.passing;
+      } else {
+         log.infof("Rate %.0f reqs/s %s the limits, next rate is %.0f reqs/s", search.rate,
+            point.passed ? "meets" : "exceeds", nextRate);
+         search.rate = nextRate;
+      }
+      masterState.put(rateProperty, nextRate);
+      return Collections.singletonMap(rateProperty, nextRate);
+   }
+
+   /**
+    * Stores the point as numeric results of the iteration, so that the reporters can plot the curve
+    * with iterations ordered by the rate. The iteration value is set to the target rate unless
+    * the test already uses an iteration property.
+    */
+   static void addResults(Report.Test test, int iteration, Point point, double percentile) {
+      test.addResult(iteration, new Report.TestResult("Target rate [reqs/s]", Collections.emptyMap(),
+         format(point.rate), false));
+      test.addResult(iteration, new Report.TestResult("Throughput [reqs/s]", Collections.emptyMap(),
+         format(point.throughput), false));
+      test.addResult(iteration, new Report.TestResult(String.format("Response time at %s %% [ms]", percentile),
+         Collections.emptyMap(), String.format(Locale.ENGLISH, "%.3f", point.responseTime / 1_000_000), !point.passed));
+      test.addResult(iteration, new Report.TestResult("Error ratio", Collections.emptyMap(),
+         String.format(Locale.ENGLISH, "%.6f", point.errorRatio), !point.passed));
+      if (test.getIterations().get(iteration).getValue() == null) {
+         test.setIterationValue(iteration, format(point.rate));
+      }
+   }
+
+   private static String format(double rate) {
+      return String.format(Locale.ENGLISH, "%.0f", rate);
+   }
+
+   /**
+    * @return Next rate to test or NaN if the search is complete.
+    */
+   private double nextRate(Search search, boolean passed) {
+      if (passed) {
+         search.passing = Math.max(search.passing, search.rate);
+      } else {
+         search.failing = Math.min(search.failing, search.rate);
+      }
+      if (search.failing == Double.POSITIVE_INFINITY) {
+         return search.passing >= maxRate ? Double.NaN : Math.min(maxRate, search.passing * growthFactor);
+      }
+      if (search.failing - search.passing <= precision * search.failing) {
+         return Double.NaN;
+      }
+      if (search.passing == 0 && search.failing < precision * initialRate) {
+         log.warnf("Limits are exceeded even with %.1f reqs/s", search.failing);
+         return Double.NaN;
+      }
+      return (search.passing + search.failing) / 2;
+   }
+
+   private Point evaluate(Report.TestIteration iteration, double rate) {
+      Statistics aggregated = iteration.getStatistics().stream().flatMap(e -> e.getValue().stream())
+         .reduce(null, Statistics.MERGE);
+      if (aggregated == null) {
+         throw new IllegalStateException("No statistics in test " + testName);
+      }
+      Percentile p = aggregated.getRepresentation(operation, Percentile.class, percentile);
+      if (p == null) {
+         throw new IllegalStateException("Statistics do not provide percentiles (use histogram operation stats)");
+      }
+      DefaultOutcome outcome = aggregated.getRepresentation(operation, DefaultOutcome.class);
+      OperationThroughput throughput = aggregated.getRepresentation(operation, OperationThroughput.class,
+         TimeUnit.MILLISECONDS.toNanos(aggregated.getEnd() - aggregated.getBegin()));
+      double errorRatio = outcome == null || outcome.requests == 0 ? 1 : (double) outcome.errors / outcome.requests;
+      boolean passed = p.responseTimeMax <= maxResponseTime && errorRatio <= maxErrorRatio;
+      return new Point(rate, throughput == null ? 0 : throughput.gross, p.responseTimeMax, errorRatio, passed);
+   }
+
+   /**
+    * Finds the point where response times start to grow faster than throughput, as the point
+    * with the largest distance from the line connecting the lowest and highest throughput
+    * (in normalized coordinates).
+    */
+   static Point findKnee(List<Point> points) {
+      if (points.size() < 3) return null;
+      List<Point> sorted = new ArrayList<>(points);
+      sorted.sort(Comparator.comparingDouble(point -> point.rate));
+      double minThroughput = sorted.stream().mapToDouble(point -> point.throughput).min().getAsDouble();
+      double maxThroughput = sorted.stream().mapToDouble(point -> point.throughput).max().getAsDouble();
+      double minResponseTime = sorted.stream().mapToDouble(point -> point.responseTime).min().getAsDouble();
+      double maxResponseTime = sorted.stream().mapToDouble(point -> point.responseTime).max().getAsDouble();
+      if (maxThroughput == minThroughput || maxResponseTime == minResponseTime) return null;
+      double[] x = new double[sorted.size()];
+      double[] y = new double[sorted.size()];
+      for (int i = 0; i < sorted.size(); ++i) {
+         x[i] = (sorted.get(i).throughput - minThroughput) / (maxThroughput - minThroughput);
+         y[i] = (sorted.get(i).responseTime - minResponseTime) / (maxResponseTime - minResponseTime);
+      }
+      int last = sorted.size() - 1;
+      Point knee = null;
+      double maxDistance = 0;
+      for (int i = 1; i < last; ++i) {
+         // positive when the point lies below the line, on the flat part of the curve
+         double distance = (y[last] - y[0]) * (x[i] - x[0]) - (x[last] - x[0]) * (y[i] - y[0]);
+         if (distance > maxDistance) {
+            maxDistance = distance;
+            knee = sorted.get(i);
+         }
+      }
+      return knee;
+   }
+
+   @Override
+   public DistStageAck executeOnSlave() {
+      return successfulResponse();
+   }
+
+   @Override
+   public StageResult processAckOnMaster(List<DistStageAck> acks) {
+      StageResult result = super.processAckOnMaster(acks);
+      if (result.isError()) return result;
+      return finished ? StageResult.BREAK : result;
+   }
+
+   private static class Search implements Serializable {
+      private final List<Point> points = new ArrayList<>();
+      private double rate;
+      private double passing = 0;
+      private double failing = Double.POSITIVE_INFINITY;
+
+      Search(double rate) {
+         this.rate = rate;
+      }
+   }
+
+   static class Point implements Serializable {
+      final double rate;
+      final double throughput;
+      final double responseTime;
+      final double errorRatio;
+      final boolean passed;
+
+      Point(double rate, double throughput, double responseTime, double errorRatio, boolean passed) {
+         this.rate = rate;
+         this.throughput = throughput;
+         this.responseTime = responseTime;
+         this.errorRatio = errorRatio;
+         this.passed = passed;
+      }
+
+      @Override
+      public String toString() {
+         return String.format("%s at %.0f reqs/s (target %.0f reqs/s, %.3f %% errors)",
+            Utils.prettyPrintTime((long) responseTime, TimeUnit.NANOSECONDS), throughput, rate, 100 * errorRatio);
+      }
+   }
+}
@@ -0,0 +1,72 @@
+package org.radargun.stages.test;
+
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Init;
+import org.radargun.config.Property;
+import org.radargun.config.PropertyHelper;
+import org.radargun.utils.ReflexiveConverters;
+import org.radargun.utils.TimeConverter;
+
+/**
+ * Part of the test with its own workload settings. Test stages can define their own phases
+ * (annotated with {@link DefinitionElement}) inheriting from this class to vary other settings
+ * than the arrival rate; settings that are not set in the phase are taken from the stage.
+ */
+@DefinitionElement(name = "phase", doc = "Phase of the test with its own arrival rate.")
+public class WorkloadPhase {
+   @Property(doc = "Name of the phase, used in the timeline. Default is phase-N.")
+   protected String name;
+
+   @Property(doc = "Duration of the phase. The last phase lasts until the test finishes, " +
+      "other phases must set the duration.", converter = TimeConverter.class)
+   protected long duration = 0;
+
+   @Property(doc = "Duration of linear transition from settings of previous phase to settings of this phase, " +
+      "counted from the beginning of this phase. Within the ramp, the settings of this phase are used with probability " +
+      "increasing from 0 to 1. Default is 0 (the settings change at the phase boundary).", converter = TimeConverter.class)
+   protected long rampDuration = 0;
+
+   @Property(doc = "Total rate of requests across the cluster during this phase, in requests per second. " +
+      "Arrival rate in the ramp changes linearly from the previous phase (or from stage's 'initial-arrival-rate' " +
+      "for the first phase). Default is stage's 'arrival-rate'.")
+   protected Double arrivalRate;
+
+   @Init
+   public void validatePhase() {
+      if (duration < 0) throw new IllegalStateException("Phase duration can't be < 0");
+      if (rampDuration < 0) throw new IllegalStateException("Phase ramp duration can't be < 0");
+      if (duration > 0 && rampDuration > duration) throw new IllegalStateException("Phase ramp cannot be longer than the phase");
+      if (arrivalRate != null && arrivalRate <= 0) throw new IllegalStateException("Phase arrival rate must be > 0");
+   }
+
+   public String getName() {
+      return name;
+   }
+
+   public long getDuration() {
+      return duration;
+   }
+
+   public long getRampDuration() {
+      return rampDuration;
+   }
+
+   public Double getArrivalRate() {
+      return arrivalRate;
+   }
+
+   @Override
+   public String toString() {
+      return getClass().getSimpleName() + PropertyHelper.toString(this);
+   }
+
+   /**
+    * Accepts the basic phase and all phases defined by extensions.
+    */
+   public static class ListConverter extends ReflexiveConverters.ListConverter {
+      public ListConverter() {
+         super(WorkloadPhase.class);
+         classes.put(WorkloadPhase.class.getAnnotation(DefinitionElement.class).name(), WorkloadPhase.class);
+      }
+   }
+}
@@ -0,0 +1,164 @@
+package org.radargun.stages.test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+import org.radargun.reporting.Timeline;
+import org.radargun.utils.TimeService;
+import org.radargun.utils.Utils;
+
+/**
+ * Switches {@link WorkloadPhase phases} of the test in time. The schedule starts when the measured
+ * part of the test starts; before that, the first phase is used. Phase boundaries are recorded
+ * in the timeline.
+ *
+ * Stressors call {@link #select(Random)} for each setting that can vary between phases, which
+ * returns the phase whose setting should be used. During the ramp at the beginning of a phase, the
+ * previous phase is returned with probability decreasing linearly from 1 to 0, so that the
+ * distribution of operations, keys etc. is linear mix of the two phases' distributions.
+ */
+public class WorkloadSchedule {
+   public static final String PHASES = "Workload phases";
+   private static final Log log = LogFactory.getLog(WorkloadSchedule.class);
+
+   private final List<WorkloadPhase> phases;
+   private final String[] names;
+   // offsets of phase beginnings from the start, in milliseconds
+   private final long[] offsets;
+   private final long[] rampEnds;
+   private final long[] rampDurations;
+   private final ScheduledExecutorService executor;
+
+   private volatile int currentPhase = 0;
+
+   public WorkloadSchedule(List<WorkloadPhase> phases) {
+      if (phases.isEmpty()) throw new IllegalArgumentException("No phases");
+      this.phases = phases;
+      this.names = new String[phases.size()];
+      this.offsets = new long[phases.size()];
+      this.rampEnds = new long[phases.size()];
+      this.rampDurations = new long[phases.size()];
+      long offset = 0;
+      for (int i = 0; i < phases.size(); ++i) {
+         WorkloadPhase phase = phases.get(i);
+         names[i] = phase.getName() == null ? "phase-" + i : phase.getName();
+         offsets[i] = offset;
+         // ramp to the first phase changes only the arrival rate
+         rampDurations[i] = i == 0 ? 0 : TimeUnit.MILLISECONDS.toNanos(phase.getRampDuration());
+         offset += phase.getDuration();
+      }
+      this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+         Thread thread = new Thread(r, "WorkloadSchedule");
+         thread.setDaemon(true);
+         return thread;
+      });
+   }
+
+   /**
+    * Starts the first phase and schedules switching to the other phases.
+    *
+    * @param timeline Timeline where the phase boundaries are recorded, or null.
+    */
+   public void start(Timeline timeline) {
+      long startNanos = TimeService.nanoTime();
+      for (int i = 0; i < phases.size(); ++i) {
+         rampEnds[i] = startNanos + TimeUnit.MILLISECONDS.toNanos(offsets[i]) + rampDurations[i];
+      }
+      // the volatile write publishes ramp ends to stressors
+      enterPhase(0, timeline);
+      for (int i = 1; i < phases.size(); ++i) {
+         int phase = i;
+         executor.schedule(() -> enterPhase(phase, timeline), offsets[i], TimeUnit.MILLISECONDS);
+      }
+   }
+
+   public void stop() {
+      Utils.shutdownAndWait(executor);
+   }
+
+   private void enterPhase(int phase, Timeline timeline) {
+      currentPhase = phase;
+      log.info("Entering workload phase " + names[phase] + ": " + phases.get(phase));
+      if (timeline != null) {
+         long now = TimeService.currentTimeMillis();
+         timeline.addEvent(PHASES, new Timeline.TextEvent(now, names[phase]));
+         if (rampDurations[phase] > 0) {
+            timeline.addEvent(PHASES, new Timeline.IntervalEvent(now, names[phase] + " ramp",
+               TimeUnit.NANOSECONDS.toMillis(rampDurations[phase])));
+         }
+      }
+   }
+
+   /**
+    * @return Index of the phase whose settings should be used for the next operation.
+    */
+   public int select(Random random) {
+      int phase = currentPhase;
+      long rampDuration = rampDurations[phase];
+      if (rampDuration > 0) {
+         long remaining = rampEnds[phase] - TimeService.nanoTime();
+         if (remaining > 0 && random.nextDouble() * rampDuration < remaining) {
+            return phase - 1;
+         }
+      }
+      return phase;
+   }
+
+   public List<WorkloadPhase> getPhases() {
+      return phases;
+   }
+
+   public int size() {
+      return phases.size();
+   }
+
+   /**
+    * Creates instance of a setting for each phase; when the phase does not define given
+    * setting the function returns null and the default (stage's) setting is used.
+    *
+    * @return Array indexed by phase, or null if no phase defines the setting.
+    */
+   public <T> T[] perPhase(Function<WorkloadPhase, T> phaseSetting, T defaultSetting, T[] array) {
+      boolean defined = false;
+      for (int i = 0; i < phases.size(); ++i) {
+         T setting = phaseSetting.apply(phases.get(i));
+         if (setting != null) {
+            defined = true;
+            array[i] = setting;
+         } else {
+            array[i] = defaultSetting;
+         }
+      }
+      return defined ? array : null;
+   }
+
+   /**
+    * Points of the piecewise linear profile of total arrival rate, as accepted by
+    * {@link ArrivalScheduler#ArrivalScheduler(ArrivalScheduler.Process, long[], double[])}.
+    *
+    * @param initialRate Rate at the beginning of the first phase's ramp
+    * @param defaultRate Rate of phases that do not define it
+    * @param divisor The rates are divided by this number (e.g. number of slaves)
+    */
+   public ArrivalScheduler createArrivalScheduler(ArrivalScheduler.Process process, double initialRate, double defaultRate, int divisor) {
+      long[] times = new long[2 * phases.size()];
+      double[] rates = new double[2 * phases.size()];
+      double previousRate = initialRate;
+      for (int i = 0; i < phases.size(); ++i) {
+         WorkloadPhase phase = phases.get(i);
+         double rate = phase.getArrivalRate() == null ? defaultRate : phase.getArrivalRate();
+         times[2 * i] = offsets[i];
+         rates[2 * i] = (phase.getRampDuration() > 0 ? previousRate : rate) / divisor;
+         times[2 * i + 1] = offsets[i] + phase.getRampDuration();
+         rates[2 * i + 1] = rate / divisor;
+         previousRate = rate;
+      }
+      return new ArrivalScheduler(process, times, rates);
+   }
+}
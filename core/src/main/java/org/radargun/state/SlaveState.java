@@ -3,7 +3,9 @@ package org.radargun.state;
 import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.function.Consumer;
 
+import org.radargun.DistStageProgress;
 import org.radargun.RemoteSlaveConnection;
 import org.radargun.config.Cluster;
 import org.radargun.reporting.Timeline;
@@ -29,6 +31,7 @@ public class SlaveState extends StateBase<ServiceListener> {
 
    private Map<Class<?>, Object> traits;
    private Timeline timeline;
+   private Consumer<DistStageProgress> progressSender;
 
    public void setLocalAddress(InetAddress localAddress) {
       this.localAddress = localAddress;
@@ -107,6 +110,23 @@ public class SlaveState extends StateBase<ServiceListener> {
       this.timeline = timeline;
    }
 
+   public void setProgressSender(Consumer<DistStageProgress> progressSender) {
+      this.progressSender = progressSender;
+   }
+
+   /**
+    * Sends progress of currently executed stage to the master.
+    *
+    * @return False if this slave cannot communicate with the master during stage execution.
+    */
+   public boolean sendProgress(DistStageProgress progress) {
+      if (progressSender == null) {
+         return false;
+      }
+      progressSender.accept(progress);
+      return true;
+   }
+
    public void setSlaveAddresses(RemoteSlaveConnection.SlaveAddresses slaveAddresses) {
       this.slaveAddresses = slaveAddresses;
    }
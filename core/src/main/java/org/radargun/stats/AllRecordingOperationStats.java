@@ -94,6 +94,7 @@ public class AllRecordingOperationStats implements OperationStats {
       System.arraycopy(other.responseTimes, 0, responseTimes, mySize, otherSize);
       pos = mySize + otherSize;
       full = responseTimes.length > MAX_CAPACITY;
+      errors += other.errors;
    }
 
    @Override
@@ -102,6 +103,7 @@ public class AllRecordingOperationStats implements OperationStats {
       copy.responseTimes = Arrays.copyOf(responseTimes, responseTimes.length);
       copy.full = full;
       copy.pos = pos;
+      copy.errors = errors;
       return copy;
    }
 
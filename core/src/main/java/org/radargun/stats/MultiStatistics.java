@@ -43,6 +43,18 @@ public abstract class MultiStatistics implements Statistics {
       }
    }
 
+   @Override
+   public void harvest() {
+      for (Statistics s : internal) {
+         s.harvest();
+      }
+   }
+
+   @Override
+   public boolean isPeriodic() {
+      return Stream.of(internal).anyMatch(Statistics::isPeriodic);
+   }
+
    @Override
    public void record(Request request, Operation operation) {
       for (Statistics s : internal) {
@@ -54,6 +54,11 @@ public class PeriodicStatistics extends IntervalStatistics {
       }
    }
 
+   @Override
+   public boolean isPeriodic() {
+      return true;
+   }
+
    public void setPeriod(long period) {
       this.period = period;
    }
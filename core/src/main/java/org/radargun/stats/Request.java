@@ -7,17 +7,19 @@ import org.radargun.Operation;
 import org.radargun.utils.TimeService;
 
 /**
- * Tracks time for RPC-like operations, possibly asynchronous (TODO).
+ * Tracks time for RPC-like operations, possibly asynchronous.
+ * For asynchronous operations the time when the request was sent ({@link #requestCompleted()})
+ * can be tracked as well; the completion can be marked by {@link #responseCompleted(boolean)}
+ * from any thread and recorded later through {@link #finished(Operation)} from the thread owning
+ * the statistics.
  * @see Message for tracking messages with different origin and destination.
  *
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
  */
 public final class Request {
    private final Statistics statistics;
-   private final long requestStartTime;
-//   This is for async:
-//   private long requestCompleteTime;
-//   private long responseStartedTime;
+   private long requestStartTime;
+   private long requestCompleteTime = Long.MIN_VALUE;
    private long responseCompleteTime = Long.MIN_VALUE;
    private boolean successful = true;
 
@@ -30,6 +32,18 @@ public final class Request {
       this.requestStartTime = requestStartTime;
    }
 
+   /**
+    * Prepares this instance for tracking another request, so that a single instance
+    * can be used by one thread for all its requests.
+    */
+   public Request restart(long requestStartTime) {
+      this.requestStartTime = requestStartTime;
+      this.requestCompleteTime = Long.MIN_VALUE;
+      this.responseCompleteTime = Long.MIN_VALUE;
+      this.successful = true;
+      return this;
+   }
+
    public void exec(Operation operation, Runnable runnable) {
       try {
          runnable.run();
@@ -71,10 +85,31 @@ public final class Request {
       return value;
    }
 
-//   This is for async:
-//   public void requestCompleted() {}
-//   public void requestFailed() {}
-//   public void responseStarted() {}
+   /**
+    * Marks the moment when the request was sent (the asynchronous invocation has returned).
+    */
+   public void requestCompleted() {
+      this.requestCompleteTime = TimeService.nanoTime();
+   }
+
+   /**
+    * Marks the moment when the response was received, without recording the request.
+    * Can be called from another thread than the one owning the statistics.
+    */
+   public void responseCompleted(boolean successful) {
+      this.responseCompleteTime = TimeService.nanoTime();
+      this.successful = successful;
+   }
+
+   /**
+    * Records the request completed through {@link #responseCompleted(boolean)}.
+    */
+   public void finished(Operation operation) {
+      if (!isFinished()) {
+         throw new IllegalStateException("Response was not completed yet.");
+      }
+      record(operation);
+   }
 
    public void succeeded(Operation operation) {
       this.responseCompleteTime = TimeService.nanoTime();
@@ -103,6 +138,10 @@ public final class Request {
       return requestStartTime;
    }
 
+   public long getRequestCompleteTime() {
+      return requestCompleteTime;
+   }
+
    public long getResponseCompleteTime() {
       return responseCompleteTime;
    }
@@ -16,6 +16,17 @@ public final class RequestSet {
       this.statistics = statistics;
    }
 
+   /**
+    * Prepares this instance for tracking another set of requests.
+    */
+   public RequestSet restart() {
+      begin = Long.MAX_VALUE;
+      end = Long.MIN_VALUE;
+      sumDurations = 0;
+      successful = true;
+      return this;
+   }
+
    public void add(Request request) {
       if (!request.isFinished()) {
          throw new IllegalArgumentException();
@@ -64,6 +64,21 @@ public interface Statistics extends Serializable {
     */
    void reset();
 
+   /**
+    * Moves measurements buffered outside of the statistics' own state (e.g. in recorders that
+    * are swapped asynchronously) into the statistics, so that {@link #copy()} sees all of them.
+    */
+   default void harvest() {
+   }
+
+   /**
+    * @return True if the statistics split the measurement into their own time intervals.
+    *         Such statistics cannot be uploaded and reset periodically.
+    */
+   default boolean isPeriodic() {
+      return false;
+   }
+
    /**
     * This method should be called just before the benchmarked operation. When the operation finishes,
     * either {@link Request#succeeded(Operation)}, {@link Request#failed(Operation)} or {@link Request#discard()}
@@ -47,6 +47,7 @@ public class ArgsHolder {
    protected static final String CURRENT_PLUGIN = "--current-plugin";
    protected static final String SLAVE_INDEX = "--slaveIndex";
    protected static final String MASTER = "--master";
+   protected static final String AWAIT_LOCK = "--await-lock";
 
    private static String configFile;
    private static String masterHost;
@@ -55,6 +56,7 @@ public class ArgsHolder {
    private static UUID uuid;
    private static String tempConfigDir;
    private static String currentPlugin;
+   private static String awaitLock;
    private static List<String> defaultVmArgs = new ArrayList<>();
    private static Map<String, PluginParam> pluginParams = new HashMap<>();
    private static List<String> reporterPaths = new ArrayList<>();
@@ -126,6 +128,9 @@ public class ArgsHolder {
                case DEFAULT_VM_ARG:
                   defaultVmArgs.add(nextArg(arg, argList));
                   break;
+               case AWAIT_LOCK:
+                  awaitLock = nextArg(arg, argList);
+                  break;
                default:
                   processCommonArgs(arg, argList, type);
             }
@@ -270,6 +275,13 @@ public class ArgsHolder {
       ArgsHolder.currentPlugin = currentPlugin;
    }
 
+   /**
+    * @return File locked by the previous generation of pre-started slave, or null if the slave should connect immediately.
+    */
+   public static String getAwaitLock() {
+      return awaitLock;
+   }
+
    public static List<String> getDefaultVmArgs() {
       return defaultVmArgs;
    }
@@ -0,0 +1,63 @@
+package org.radargun.utils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pool of direct buffers for receiving large messages. Buffers capacities are rounded up to power of two
+ * so that they can be reused for messages of similar size; the pool keeps at most given amount of memory,
+ * buffers released above this limit are left to GC.
+ */
+public class ByteBufferPool {
+   private static final int MIN_CAPACITY = 64 * 1024;
+
+   private final long maxPooledBytes;
+   private final Map<Integer, ArrayDeque<ByteBuffer>> buffers = new HashMap<>();
+   private long pooledBytes;
+
+   public ByteBufferPool(long maxPooledBytes) {
+      this.maxPooledBytes = maxPooledBytes;
+   }
+
+   /**
+    * @return Cleared direct buffer with at least given capacity.
+    */
+   public synchronized ByteBuffer acquire(int minCapacity) {
+      int capacity = capacityFor(minCapacity);
+      ArrayDeque<ByteBuffer> queue = buffers.get(capacity);
+      ByteBuffer buffer = queue == null ? null : queue.pollFirst();
+      if (buffer == null) {
+         return ByteBuffer.allocateDirect(capacity);
+      }
+      pooledBytes -= capacity;
+      buffer.clear();
+      return buffer;
+   }
+
+   /**
+    * Returns buffer retrieved through {@link #acquire(int)} to the pool.
+    */
+   public synchronized void release(ByteBuffer buffer) {
+      int capacity = buffer.capacity();
+      if (!buffer.isDirect() || capacity != capacityFor(capacity) || pooledBytes + capacity > maxPooledBytes) {
+         return;
+      }
+      buffers.computeIfAbsent(capacity, c -> new ArrayDeque<>()).addFirst(buffer);
+      pooledBytes += capacity;
+   }
+
+   private static int capacityFor(int minCapacity) {
+      if (minCapacity <= MIN_CAPACITY) {
+         return MIN_CAPACITY;
+      }
+      int highestBit = Integer.highestOneBit(minCapacity);
+      if (highestBit == minCapacity) {
+         return minCapacity;
+      } else if (highestBit == 1 << 30) {
+         return Integer.MAX_VALUE;
+      }
+      return highestBit << 1;
+   }
+}
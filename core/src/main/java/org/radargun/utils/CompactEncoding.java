@@ -0,0 +1,61 @@
+package org.radargun.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Variable-length encoding of integral values used for compact serialized form of statistics
+ * and timelines. Non-negative values take 1 byte per 7 bits; signed values are zig-zag encoded
+ * first, so that small negative numbers are short as well.
+ */
+public final class CompactEncoding {
+   private CompactEncoding() {}
+
+   public static void writeVarLong(DataOutput out, long value) throws IOException {
+      while ((value & ~0x7FL) != 0) {
+         out.writeByte((int) ((value & 0x7F) | 0x80));
+         value >>>= 7;
+      }
+      out.writeByte((int) value);
+   }
+
+   public static long readVarLong(DataInput in) throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+         byte b = in.readByte();
+         value |= (long) (b & 0x7F) << shift;
+         if (b >= 0) {
+            return value;
+         }
+      }
+      throw new IOException("Malformed variable-length number");
+   }
+
+   public static void writeVarInt(DataOutput out, int value) throws IOException {
+      writeVarLong(out, value & 0xFFFFFFFFL);
+   }
+
+   public static int readVarInt(DataInput in) throws IOException {
+      return (int) readVarLong(in);
+   }
+
+   public static void writeSignedVarLong(DataOutput out, long value) throws IOException {
+      writeVarLong(out, (value << 1) ^ (value >> 63));
+   }
+
+   public static long readSignedVarLong(DataInput in) throws IOException {
+      long value = readVarLong(in);
+      return (value >>> 1) ^ -(value & 1);
+   }
+
+   /**
+    * Checks the version of serialized form.
+    */
+   public static void checkVersion(DataInput in, int expected, Class<?> clazz) throws IOException {
+      int version = in.readUnsignedByte();
+      if (version != expected) {
+         throw new IOException("Unsupported version " + version + " of " + clazz.getName() + ", expected " + expected);
+      }
+   }
+}
@@ -51,6 +51,8 @@ import org.radargun.config.Converter;
 public final class Fuzzy<T extends Serializable> implements Serializable {
    private Serializable[] values;
    private BigDecimal[] probabilities;
+   // probabilities as doubles, to avoid allocating BigDecimal in each #next(Random)
+   private transient double[] thresholds;
 
    private Fuzzy(Serializable[] values, BigDecimal[] probabilities) {
       this.values = values;
@@ -63,8 +65,15 @@ public final class Fuzzy<T extends Serializable> implements Serializable {
 
    public T next(Random random) {
       if (probabilities.length == 1) return (T) values[0];
-      BigDecimal x = BigDecimal.valueOf(random.nextDouble());
-      int index = Arrays.binarySearch(probabilities, x);
+      double[] thresholds = this.thresholds;
+      if (thresholds == null) {
+         thresholds = new double[probabilities.length];
+         for (int i = 0; i < probabilities.length; ++i) {
+            thresholds[i] = probabilities[i].doubleValue();
+         }
+         this.thresholds = thresholds;
+      }
+      int index = Arrays.binarySearch(thresholds, random.nextDouble());
       if (index < 0) {
          index = -index - 1;
       } else {
@@ -1,5 +1,6 @@
 package org.radargun.utils;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
@@ -10,15 +11,20 @@ import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 
 import org.radargun.Directories;
 import org.radargun.Slave;
 import org.radargun.config.Evaluator;
 import org.radargun.config.VmArgs;
+import org.radargun.logging.Log;
 import org.radargun.logging.LogFactory;
 
 /**
@@ -29,6 +35,10 @@ import org.radargun.logging.LogFactory;
 public final class RestartHelper {
 
 
+   private static final long DESTROY_TIMEOUT = 10000;
+   // keeps the locks until this process ends
+   private static final List<LockedFile> successorLocks = new ArrayList<>();
+
    private RestartHelper() {}
 
    public static void init() {
@@ -38,8 +48,102 @@ public final class RestartHelper {
    }
 
    public static void spawnSlave(int slaveIndex, UUID nextUuid, String plugin, VmArgs vmArgs, HashMap<String, String> envs) throws IOException {
-      ProcessBuilder processBuilder = new ProcessBuilder();
-      processBuilder.inheritIO();
+      ListBuilder<String> command = new ListBuilder<>(new ArrayList<String>());
+      // we need to run intermediate process that waits until this process ends
+      command.add(javaExecutable())
+         .add("-cp").add(Directories.LIB_DIR.toString() + "/*").add(RestartHelper.class.getName())
+         .add(lockTempFile(slaveIndex).getPath());
+      addSlaveCommand(command, slaveIndex, nextUuid, plugin, vmArgs);
+      start(command.build(), envs);
+   }
+
+   private static LockedFile lockTempFile(int slaveIndex) throws IOException {
+      LockedFile lock = LockedFile.create("restart-" + slaveIndex);
+      synchronized (successorLocks) {
+         successorLocks.add(lock);
+      }
+      return lock;
+   }
+
+   /**
+    * Starts the next generation of this slave right away. The new JVM loads classes from its classpath
+    * and waits until this process ends; only then it connects to master. Unless the restart is requested
+    * with the same setup, the standby slave should be {@link StandbySlave#destroy() destroyed}.
+    */
+   public static StandbySlave spawnStandbySlave(int slaveIndex, String plugin, VmArgs vmArgs, Map<String, String> envs) throws IOException {
+      UUID uuid = UUID.randomUUID();
+      ListBuilder<String> command = new ListBuilder<>(new ArrayList<String>());
+      List<String> jvmArgs = addSlaveCommand(command, slaveIndex, uuid, plugin, vmArgs);
+      LockedFile lock = LockedFile.create("restart-" + slaveIndex);
+      command.add(ArgsHolder.AWAIT_LOCK).add(lock.getPath());
+      Process process;
+      try {
+         process = start(command.build(), envs);
+      } catch (IOException e) {
+         lock.close();
+         throw e;
+      }
+      return new StandbySlave(uuid, plugin, jvmArgs, new HashMap<>(envs), process, lock);
+   }
+
+   /**
+    * Called in the standby slave: loads classes and waits until the previous generation of the slave ends.
+    */
+   public static void awaitPredecessor(String lockFile) throws IOException {
+      Log log = LogFactory.getLog(RestartHelper.class);
+      long start = TimeService.currentTimeMillis();
+      int classes = preloadClasses();
+      log.infof("Loaded %d classes in %d ms, waiting for previous slave to end", classes, TimeService.currentTimeMillis() - start);
+      File file = new File(lockFile);
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+         // the lock is released when the previous process ends
+         raf.getChannel().lock().release();
+      }
+      file.delete();
+   }
+
+   /**
+    * Loads (but does not initialize) all classes from the jars on classpath, so that the slave does not spend
+    * time on that when the scenario is started.
+    */
+   private static int preloadClasses() {
+      ClassLoader classLoader = RestartHelper.class.getClassLoader();
+      int loaded = 0;
+      for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+         File file = new File(entry);
+         if (!file.isFile() || !file.getName().endsWith(".jar")) {
+            continue;
+         }
+         try (JarFile jar = new JarFile(file)) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+               String name = entries.nextElement().getName();
+               // skips module-info, package-info and META-INF
+               if (!name.endsWith(".class") || name.contains("-")) {
+                  continue;
+               }
+               try {
+                  Class.forName(name.substring(0, name.length() - 6).replace('/', '.'), false, classLoader);
+                  loaded++;
+               } catch (ClassNotFoundException | LinkageError e) {
+                  // optional dependencies are not present
+               }
+            }
+         } catch (IOException e) {
+            LogFactory.getLog(RestartHelper.class).debug("Cannot read " + file, e);
+         }
+      }
+      return loaded;
+   }
+
+   private static String javaExecutable() {
+      return Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+   }
+
+   /**
+    * @return JVM arguments of the slave.
+    */
+   private static List<String> addSlaveCommand(ListBuilder<String> command, int slaveIndex, UUID nextUuid, String plugin, VmArgs vmArgs) throws IOException {
       StringBuilder classpathBuilder = new StringBuilder();
       // plugin-specific stuff should be prepended
       ArgsHolder.PluginParam pluginParam = ArgsHolder.getPluginParams().get(plugin);
@@ -69,15 +173,10 @@ public final class RestartHelper {
       classpathBuilder.append(File.pathSeparatorChar).append(Evaluator.parseString(extraClassPath));
       addConfAndLib(classpathBuilder, Directories.ROOT_DIR);
 
-      ListBuilder<String> command = new ListBuilder<>(new ArrayList<String>());
-      String javaExecutable = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
-      // we need to run intermediate process that waits until this process ends
-      command.add(javaExecutable)
-         .add("-cp").add(Directories.LIB_DIR.toString() + "/*").add(RestartHelper.class.getName())
-         .add(createLockedTempFile(slaveIndex));
-      command.add(javaExecutable);
+      command.add(javaExecutable());
       List<String> defaultVmArgs = ArgsHolder.getDefaultVmArgs();
-      command.addAll(vmArgs.getVmArgs(defaultVmArgs));
+      List<String> jvmArgs = vmArgs.getVmArgs(defaultVmArgs);
+      command.addAll(jvmArgs);
       // we have to specify log4j configuration explicitly because plugin can define its default config
       if (!defaultVmArgs.stream().anyMatch(s -> s.startsWith("-Dlog4j.configuration"))) {
          command.add("-Dlog4j.configuration=file://" + Directories.ROOT_DIR + "/conf/log4j.xml");
@@ -107,17 +206,16 @@ public final class RestartHelper {
       for (String vmArg : defaultVmArgs) {
          command.add(ArgsHolder.DEFAULT_VM_ARG).add(vmArg);
       }
-
-      LogFactory.getLog(RestartHelper.class).info("VM start command = " + command.build().toString());
-      processBuilder.command(command.build());
-      processBuilder.environment().putAll(envs);
-      processBuilder.start();
+      return jvmArgs;
    }
 
-   private static String createLockedTempFile(int slaveIndex) throws IOException {
-      File tempFile = File.createTempFile("restart-" + slaveIndex, ".tmp");
-      new RandomAccessFile(tempFile, "rw").getChannel().lock();
-      return tempFile.getAbsolutePath();
+   private static Process start(List<String> command, Map<String, String> envs) throws IOException {
+      LogFactory.getLog(RestartHelper.class).info("VM start command = " + command.toString());
+      ProcessBuilder processBuilder = new ProcessBuilder();
+      processBuilder.inheritIO();
+      processBuilder.command(command);
+      processBuilder.environment().putAll(envs);
+      return processBuilder.start();
    }
 
    private static void addConfAndLib(StringBuilder classpathBuilder, File parentDir) {
@@ -131,6 +229,109 @@ public final class RestartHelper {
       }
    }
 
+   /**
+    * Temporary file locked by this process. The next generation of the slave waits until the lock is released,
+    * which happens when this process ends or the file is {@link #close() closed}.
+    */
+   public static class LockedFile implements Closeable {
+      private final File file;
+      private final RandomAccessFile raf;
+      private final FileLock lock;
+
+      private LockedFile(File file, RandomAccessFile raf, FileLock lock) {
+         this.file = file;
+         this.raf = raf;
+         this.lock = lock;
+      }
+
+      public static LockedFile create(String prefix) throws IOException {
+         File file = File.createTempFile(prefix, ".tmp");
+         RandomAccessFile raf = new RandomAccessFile(file, "rw");
+         try {
+            return new LockedFile(file, raf, raf.getChannel().lock());
+         } catch (IOException e) {
+            raf.close();
+            file.delete();
+            throw e;
+         }
+      }
+
+      public String getPath() {
+         return file.getAbsolutePath();
+      }
+
+      /**
+       * Releases the lock and deletes the file.
+       */
+      @Override
+      public void close() throws IOException {
+         try {
+            lock.release();
+         } finally {
+            raf.close();
+            file.delete();
+         }
+      }
+   }
+
+   /**
+    * Slave JVM started by {@link #spawnStandbySlave(int, String, VmArgs, Map)}.
+    */
+   public static class StandbySlave {
+      private final UUID uuid;
+      private final String plugin;
+      private final List<String> jvmArgs;
+      private final Map<String, String> envs;
+      private final Process process;
+      private final LockedFile lock;
+
+      public StandbySlave(UUID uuid, String plugin, List<String> jvmArgs, Map<String, String> envs, Process process, LockedFile lock) {
+         this.uuid = uuid;
+         this.plugin = plugin;
+         this.jvmArgs = jvmArgs;
+         this.envs = envs;
+         this.process = process;
+         this.lock = lock;
+      }
+
+      public UUID getUuid() {
+         return uuid;
+      }
+
+      /**
+       * @return True if the slave is still running and it was started with the same setup.
+       */
+      public boolean matches(String plugin, VmArgs vmArgs, Map<String, String> envs) {
+         return process.isAlive() && this.plugin.equals(plugin)
+            && jvmArgs.equals(vmArgs.getVmArgs(ArgsHolder.getDefaultVmArgs())) && this.envs.equals(envs);
+      }
+
+      /**
+       * Stops the slave and releases the lock it is waiting for. The lock is kept until this process ends
+       * if the slave does not end in time, so that it cannot connect to master.
+       */
+      public void destroy() {
+         Log log = LogFactory.getLog(RestartHelper.class);
+         process.destroy();
+         try {
+            if (!process.waitFor(DESTROY_TIMEOUT, TimeUnit.MILLISECONDS)) {
+               process.destroyForcibly().waitFor(DESTROY_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         if (process.isAlive()) {
+            log.warn("Pre-started slave " + uuid + " did not end, keeping lock " + lock.getPath());
+            return;
+         }
+         try {
+            lock.close();
+         } catch (IOException e) {
+            log.warn("Failed to release " + lock.getPath(), e);
+         }
+      }
+   }
+
    public static void main(String[] args) throws IOException {
       File file = new File(args[0]);
       System.out.printf("%s: Waiting for lock on file %s%n", timestamp(), args[0]);
@@ -18,6 +18,7 @@ PLUGIN_PATHS=""
 PLUGIN_CONFIGS=""
 REPORTER_PATHS=""
 WAIT=false
+D_VARS_EXTRA=""
 OUT_FILE=stdout_master.out
 
 master_pid() {
@@ -45,6 +46,8 @@ help_and_exit() {
   wrappedecho ""
   wrappedecho "   -J              Add custom Java options."
   wrappedecho ""
+  wrappedecho "   --prestart-slaves  Slaves start JVMs for the next scenario while the current one is running."
+  wrappedecho ""
   wrappedecho "   -status         Prints infromation on master's status: running or not."
   wrappedecho ""
   wrappedecho "   -stop           Forces the master to stop running."
@@ -142,6 +145,9 @@ do
       JVM_OPTS="${JVM_OPTS} ${2}"
       shift
       ;;
+    "--prestart-slaves")
+      D_VARS_EXTRA="${D_VARS_EXTRA} -Dradargun.prestartSlaves=true"
+      ;;
     *)
       wrappedecho "Warning: unknown argument ${1}" 
       help_and_exit
@@ -155,7 +161,7 @@ welcome "This script is used to launch the master process, which coordinates tes
 add_fwk_to_classpath
 set_env
 
-D_VARS="-Djava.net.preferIPv4Stack=true"
+D_VARS="-Djava.net.preferIPv4Stack=true${D_VARS_EXTRA}"
 
 if [ "x${MASTER}" != "x" ]; then
   get_port ${MASTER}
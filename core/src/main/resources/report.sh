@@ -10,18 +10,21 @@ export RADARGUN_HOME
 
 CONFIG=""
 SERIALIZED_DIR=""
+COLUMNAR_DIR=""
 DEBUG=""
 DEBUG_SUSPEND="n"
 REPORTER_PATHS=""
 
 help_and_exit() {
   wrappedecho "Usage: "
-  wrappedecho '  $ report.sh -c CONFIG -s SERIALIZED_DIR [-d [host:]port] [-J "-Dopt1 -Dopt2"] [--add-reporter reporter ...]'
+  wrappedecho '  $ report.sh -c CONFIG (-s SERIALIZED_DIR | -r COLUMNAR_DIR) [-d [host:]port] [-J "-Dopt1 -Dopt2"] [--add-reporter reporter ...]'
   wrappedecho ""
   wrappedecho "   -c              Configuration file (benchmark.xml) - only the reporters section will be used."
   wrappedecho ""
   wrappedecho "   -s              Directory with the serialized data."
   wrappedecho ""
+  wrappedecho "   -r              Directory with the data stored by columnar reporter."
+  wrappedecho ""
   wrappedecho "   -d              Debug master on given port."
   wrappedecho ""
   wrappedecho "   --debug-suspend Wait for the debugger to connect."
@@ -56,6 +59,10 @@ do
       SERIALIZED_DIR=$2;
       shift
       ;;
+    "-r")
+      COLUMNAR_DIR=$2;
+      shift
+      ;;
     "-h")
       help_and_exit
       ;;
@@ -83,6 +90,10 @@ if [ "x${DEBUG}" != "x" ]; then
   JVM_OPTS="${JVM_OPTS} -agentlib:jdwp=transport=dt_socket,server=y,suspend=${DEBUG_SUSPEND},address=${DEBUG}"
 fi
 
-RUN_CMD="${JAVA} ${JVM_OPTS} -classpath $CP org.radargun.reporting.serialized.SerializedReporter $CONFIG $SERIALIZED_DIR ${REPORTER_PATHS}"
+if [ "x${COLUMNAR_DIR}" != "x" ]; then
+  RUN_CMD="${JAVA} ${JVM_OPTS} -classpath $CP org.radargun.reporting.columnar.ResultStoreTool report $CONFIG $COLUMNAR_DIR ${REPORTER_PATHS}"
+else
+  RUN_CMD="${JAVA} ${JVM_OPTS} -classpath $CP org.radargun.reporting.serialized.SerializedReporter $CONFIG $SERIALIZED_DIR ${REPORTER_PATHS}"
+fi
 echo ${RUN_CMD}
 ${RUN_CMD}
@@ -0,0 +1,102 @@
+package org.radargun;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.radargun.state.SlaveState;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+@Test(timeOut = 60000)
+public class RemoteSlaveConnectionTest {
+
+   public void testCoalescedFrames() throws Exception {
+      int port;
+      try (ServerSocket socket = new ServerSocket(0)) {
+         port = socket.getLocalPort();
+      }
+      RemoteSlaveConnection connection = new RemoteSlaveConnection(1, "127.0.0.1", port);
+      SlaveState slaveState = new SlaveState();
+      slaveState.setSlaveIndex(0);
+      CompletableFuture<Void> slave = CompletableFuture.runAsync(() -> {
+         try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", port))) {
+            ByteBuffer handshake = ByteBuffer.allocate(4 + 16);
+            handshake.putInt(-1).putLong(0).putLong(0).flip();
+            write(channel, handshake);
+            read(channel, 8);
+            // wait until the master sends the stage
+            read(channel, 4);
+            // progress, large progress that does not fit into the default buffer and the ack in single write
+            ByteBuffer frames = ByteBuffer.allocate(1024);
+            frames = frame(new DistStageProgress(slaveState), frames);
+            frames = frame(new Progress(slaveState, new byte[100000]), frames);
+            frames = frame(new DistStageAck(slaveState), frames);
+            frames.flip();
+            write(channel, frames);
+            // keep the connection open until the master closes it
+            ByteBuffer rest = ByteBuffer.allocate(1024);
+            while (channel.read(rest) >= 0) {
+               rest.clear();
+            }
+         } catch (IOException e) {
+            // the master closes the connection when released
+         }
+      });
+      try {
+         connection.establish();
+         List<DistStageProgress> progress = Collections.synchronizedList(new ArrayList<>());
+         connection.setProgressHandler(progress::add);
+         List<DistStageAck> acks = connection.runStage(0, new HashMap<>(), 1);
+         assertEquals(acks.size(), 1);
+         assertEquals(acks.get(0).getClass(), DistStageAck.class);
+         assertEquals(progress.size(), 2);
+         assertEquals(progress.get(0).getClass(), DistStageProgress.class);
+         assertEquals(((Progress) progress.get(1)).payload.length, 100000);
+      } finally {
+         connection.release();
+      }
+      slave.get(10, TimeUnit.SECONDS);
+   }
+
+   private static ByteBuffer frame(Serializable object, ByteBuffer buffer) throws IOException {
+      buffer = SerializationHelper.serializeObjectWithLength(object, buffer);
+      // no restart
+      buffer = SerializationHelper.appendLong(0, buffer);
+      return SerializationHelper.appendLong(0, buffer);
+   }
+
+   private static void write(SocketChannel channel, ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+         channel.write(buffer);
+      }
+   }
+
+   private static void read(SocketChannel channel, int bytes) throws IOException {
+      ByteBuffer buffer = ByteBuffer.allocate(bytes);
+      while (buffer.hasRemaining()) {
+         if (channel.read(buffer) < 0) {
+            throw new IOException("Closed");
+         }
+      }
+   }
+
+   private static class Progress extends DistStageProgress {
+      private final byte[] payload;
+
+      private Progress(SlaveState slaveState, byte[] payload) {
+         super(slaveState);
+         this.payload = payload;
+      }
+   }
+}
@@ -0,0 +1,69 @@
+package org.radargun;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.DeflaterOutputStream;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+@Test
+public class SerializationHelperTest {
+
+   public void testWithLength() throws IOException {
+      ArrayList<String> object = new ArrayList<>(Arrays.asList("foo", "bar", "goo"));
+      // the buffer has to grow
+      ByteBuffer buffer = SerializationHelper.serializeObjectWithLength(object, ByteBuffer.allocate(8));
+      buffer = SerializationHelper.appendLong(42, buffer);
+      buffer.flip();
+      int length = buffer.getInt();
+      assertEquals(length, buffer.remaining() - 8);
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      assertEquals(SerializationHelper.deserialize(bytes, 0, length), object);
+      assertEquals(ByteBuffer.wrap(bytes, length, 8).getLong(), 42);
+   }
+
+   public void testDirectBuffer() throws IOException {
+      ArrayList<Integer> object = new ArrayList<>();
+      for (int i = 0; i < 1000; ++i) {
+         object.add(i);
+      }
+      ByteBuffer heap = SerializationHelper.serializeObject(object, ByteBuffer.allocate(64));
+      heap.flip();
+      ByteBuffer direct = ByteBuffer.allocateDirect(heap.remaining() + 10);
+      direct.position(10);
+      direct.put(heap);
+      direct.flip().position(10);
+      assertEquals(SerializationHelper.deserialize(direct), object);
+      // position is not modified
+      assertEquals(direct.position(), 10);
+   }
+
+   public void testCompressionDetected() throws IOException {
+      String object = String.join("", Collections.nCopies(100, "compressible "));
+      byte[] compressed = compress(object);
+      assertEquals(compressed[0] & 0xFF, 0x78);
+      byte[] padded = new byte[compressed.length + 5];
+      System.arraycopy(compressed, 0, padded, 5, compressed.length);
+      assertEquals(SerializationHelper.deserialize(padded, 5, compressed.length), object);
+      ByteBuffer direct = ByteBuffer.allocateDirect(compressed.length);
+      direct.put(compressed).flip();
+      assertEquals(SerializationHelper.deserialize(direct), object);
+   }
+
+   private static byte[] compress(Serializable object) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(new DeflaterOutputStream(bytes))) {
+         out.writeObject(object);
+      }
+      return bytes.toByteArray();
+   }
+}
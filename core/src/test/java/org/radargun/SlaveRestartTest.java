@@ -0,0 +1,214 @@
+package org.radargun;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.radargun.config.Cluster;
+import org.radargun.config.Configuration;
+import org.radargun.config.Definition;
+import org.radargun.config.PropertyHelper;
+import org.radargun.config.SimpleDefinition;
+import org.radargun.config.VmArgs;
+import org.radargun.utils.ArgsHolder;
+import org.radargun.utils.RestartHelper;
+import org.radargun.utils.SlaveConnectionInfo;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks that the slave hands over to the pre-started JVM only when it was started with the requested setup.
+ */
+@Test(timeOut = 60000)
+public class SlaveRestartTest {
+
+   public void testHandover() throws Exception {
+      TestSlave slave = new TestSlave(0);
+      Configuration configuration = configuration("plugin", "true", "value");
+      Cluster cluster = cluster(2);
+      slave.prepareRestart(new RemoteSlaveConnection.PrepareRestart(configuration, cluster));
+      RestartHelper.StandbySlave standby = slave.getStandby();
+      assertNotNull(standby);
+      // the same setup does not start another JVM
+      slave.prepareRestart(new RemoteSlaveConnection.PrepareRestart(configuration("plugin", "true", "value"), cluster(2)));
+      assertSame(slave.getStandby(), standby);
+      assertEquals(slave.standbys.size(), 1);
+
+      slave.setScenario(configuration, cluster);
+      assertEquals(slave.restart(), standby.getUuid());
+      assertTrue(slave.spawned.isEmpty());
+      // the lock is held until the slave ends
+      assertSame(slave.getStandby(), standby);
+      assertTrue(slave.standbys.get(0).process.isAlive());
+      assertTrue(slave.standbys.get(0).lockFile.exists());
+      slave.destroyStandby();
+   }
+
+   public void testRestartWithDifferentSetup() throws Exception {
+      TestSlave slave = new TestSlave(0);
+      slave.prepareRestart(new RemoteSlaveConnection.PrepareRestart(configuration("plugin", "true", "value"), cluster(1)));
+      assertNotNull(slave.getStandby());
+
+      slave.setScenario(configuration("plugin", "false", "value"), cluster(1));
+      UUID nextUuid = slave.restart();
+      assertEquals(slave.spawned, Collections.singletonList(nextUuid));
+      assertNull(slave.getStandby());
+      StandbyRecord record = slave.standbys.get(0);
+      assertNotEquals(nextUuid, record.uuid);
+      // destroyed standby is not waiting for the lock
+      assertFalse(record.process.isAlive());
+      assertFalse(record.lockFile.exists());
+   }
+
+   public void testPrepareDifferentSetup() throws Exception {
+      TestSlave slave = new TestSlave(0);
+      slave.prepareRestart(new RemoteSlaveConnection.PrepareRestart(configuration("plugin", "true", "value"), cluster(1)));
+      slave.prepareRestart(new RemoteSlaveConnection.PrepareRestart(configuration("plugin", "true", "other"), cluster(1)));
+      assertEquals(slave.standbys.size(), 2);
+      assertFalse(slave.standbys.get(0).process.isAlive());
+      assertEquals(slave.getStandby().getUuid(), slave.standbys.get(1).uuid);
+      assertTrue(slave.standbys.get(1).process.isAlive());
+
+      slave.setScenario(configuration("plugin", "true", "other"), cluster(1));
+      assertEquals(slave.restart(), slave.standbys.get(1).uuid);
+      slave.destroyStandby();
+   }
+
+   public void testSlaveNotInNextCluster() throws Exception {
+      TestSlave slave = new TestSlave(1);
+      slave.prepareRestart(new RemoteSlaveConnection.PrepareRestart(configuration("plugin", "true", "value"), cluster(1)));
+      assertNull(slave.getStandby());
+      assertTrue(slave.standbys.isEmpty());
+   }
+
+   public void testStandbyMatches() throws Exception {
+      VmArgs vmArgs = new VmArgs();
+      List<String> jvmArgs = vmArgs.getVmArgs(ArgsHolder.getDefaultVmArgs());
+      Map<String, String> envs = Collections.singletonMap("VARIABLE", "value");
+      FakeProcess process = new FakeProcess();
+      RestartHelper.LockedFile lock = RestartHelper.LockedFile.create("radargun-restart-test");
+      File lockFile = new File(lock.getPath());
+      RestartHelper.StandbySlave standby = new RestartHelper.StandbySlave(UUID.randomUUID(), "plugin", jvmArgs,
+         new HashMap<>(envs), process, lock);
+      assertTrue(standby.matches("plugin", new VmArgs(), new HashMap<>(envs)));
+      assertFalse(standby.matches("other", new VmArgs(), envs));
+      assertFalse(standby.matches("plugin", new VmArgs(), Collections.singletonMap("VARIABLE", "other")));
+      assertFalse(standby.matches("plugin", new VmArgs(), Collections.emptyMap()));
+      VmArgs otherVmArgs = new VmArgs();
+      PropertyHelper.setPropertiesFromDefinitions(otherVmArgs, Collections.singletonMap("unlock-diagnostic-vm-options",
+         new SimpleDefinition("true", SimpleDefinition.Source.ATTRIBUTE)), Collections.emptyMap());
+      assertFalse(standby.matches("plugin", otherVmArgs, envs));
+
+      standby.destroy();
+      assertFalse(standby.matches("plugin", new VmArgs(), envs));
+      assertFalse(lockFile.exists());
+   }
+
+   private static Configuration configuration(String plugin, String unlockDiagnostic, String variable) {
+      Configuration configuration = new Configuration("configuration");
+      Map<String, Definition> vmArgs = new HashMap<>();
+      vmArgs.put("unlock-diagnostic-vm-options", new SimpleDefinition(unlockDiagnostic, SimpleDefinition.Source.ATTRIBUTE));
+      Map<String, Definition> envs = new HashMap<>();
+      envs.put("VARIABLE", new SimpleDefinition(variable, SimpleDefinition.Source.ATTRIBUTE));
+      configuration.addSetup(null, Cluster.DEFAULT_GROUP, plugin, "service", new HashMap<>(), vmArgs, envs, false);
+      return configuration;
+   }
+
+   private static Cluster cluster(int size) {
+      Cluster cluster = new Cluster();
+      cluster.setSize(size);
+      return cluster;
+   }
+
+   private static class TestSlave extends Slave {
+      private final List<UUID> spawned = new ArrayList<>();
+      private final List<StandbyRecord> standbys = new ArrayList<>();
+
+      private TestSlave(int slaveIndex) {
+         super(new RemoteMasterConnection("localhost", 0));
+         state.setSlaveIndex(slaveIndex);
+         RemoteSlaveConnection.SlaveAddresses addresses = new RemoteSlaveConnection.SlaveAddresses();
+         for (int i = 0; i < 2; ++i) {
+            addresses.addSlaveAddresses(i, new SlaveConnectionInfo());
+         }
+         state.setSlaveAddresses(addresses);
+      }
+
+      private void setScenario(Configuration configuration, Cluster cluster) {
+         this.configuration = configuration;
+         this.cluster = cluster;
+      }
+
+      @Override
+      protected void spawnSlave(UUID nextUuid, String plugin, VmArgs vmArgs, HashMap<String, String> envs) {
+         spawned.add(nextUuid);
+      }
+
+      @Override
+      protected RestartHelper.StandbySlave spawnStandbySlave(String plugin, VmArgs vmArgs, Map<String, String> envs) throws IOException {
+         StandbyRecord record = new StandbyRecord();
+         RestartHelper.LockedFile lock = RestartHelper.LockedFile.create("radargun-restart-test");
+         record.lockFile = new File(lock.getPath());
+         standbys.add(record);
+         return new RestartHelper.StandbySlave(record.uuid, plugin, vmArgs.getVmArgs(ArgsHolder.getDefaultVmArgs()),
+            new HashMap<>(envs), record.process, lock);
+      }
+   }
+
+   private static class StandbyRecord {
+      private final UUID uuid = UUID.randomUUID();
+      private final FakeProcess process = new FakeProcess();
+      private File lockFile;
+   }
+
+   private static class FakeProcess extends Process {
+      private volatile boolean alive = true;
+
+      @Override
+      public OutputStream getOutputStream() {
+         return null;
+      }
+
+      @Override
+      public InputStream getInputStream() {
+         return null;
+      }
+
+      @Override
+      public InputStream getErrorStream() {
+         return null;
+      }
+
+      @Override
+      public int waitFor() {
+         return 0;
+      }
+
+      @Override
+      public int exitValue() {
+         if (alive) {
+            throw new IllegalThreadStateException();
+         }
+         return 0;
+      }
+
+      @Override
+      public void destroy() {
+         alive = false;
+      }
+   }
+}
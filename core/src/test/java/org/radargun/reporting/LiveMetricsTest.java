@@ -0,0 +1,120 @@
+package org.radargun.reporting;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.radargun.Operation;
+import org.radargun.config.MasterConfig;
+import org.radargun.state.MasterState;
+import org.radargun.stats.BasicStatistics;
+import org.radargun.stats.Request;
+import org.radargun.stats.Statistics;
+import org.radargun.utils.TimeService;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class LiveMetricsTest {
+   private static final Operation GET = Operation.register("LiveMetricsTest.Get");
+
+   public void testPrometheus() {
+      LiveMetrics liveMetrics = liveMetrics();
+      String output = liveMetrics.toPrometheus();
+      assertTrue(output.contains("# TYPE radargun_requests_total counter\n"), output);
+      assertTrue(output.contains("radargun_requests_total{test=\"My \\\"test\\\"\",operation=\"" + GET.name + "\"} 3\n"), output);
+      assertTrue(output.contains("radargun_errors_total{test=\"My \\\"test\\\"\",operation=\"" + GET.name + "\"} 1\n"), output);
+      assertTrue(output.contains("radargun_response_time_seconds_count{test=\"My \\\"test\\\"\",operation=\"" + GET.name + "\"} 3\n"), output);
+      assertTrue(output.contains("radargun_monitor{node=\"slave0\",name=\"Heap\"} 1024\n"), output);
+      assertTrue(output.contains("radargun_monitor{node=\"slave0\",name=\"Load\"} 0.500000\n"), output);
+      assertTrue(output.contains("radargun_monitor{node=\"slave0\",name=\"Missing\"} NaN\n"), output);
+      assertTrue(output.contains("radargun_monitor{node=\"slave0\",name=\"Overflow\"} +Inf\n"), output);
+      assertTrue(output.contains("radargun_monitor{node=\"slave0\",name=\"Underflow\"} -Inf\n"), output);
+   }
+
+   public void testJson() {
+      LiveMetrics liveMetrics = liveMetrics();
+      String output = liveMetrics.toJson();
+      assertTrue(output.startsWith("{\"tests\":{\"My \\\"test\\\"\":{\"operations\":{\"" + GET.name
+         + "\":{\"requests\":3,\"errors\":1,"), output);
+      assertTrue(output.endsWith(",\"monitors\":{\"slave0\":{\"Heap\":1024,\"Load\":0.500000,"
+         + "\"Missing\":null,\"Overflow\":null,\"Underflow\":null}}}"), output);
+   }
+
+   public void testEmpty() {
+      LiveMetrics liveMetrics = new LiveMetrics(new MasterState(new MasterConfig(2103, "localhost")), Collections.emptyList());
+      assertEquals(liveMetrics.toJson(), "{\"tests\":{},\"monitors\":{}}");
+      assertFalse(liveMetrics.toPrometheus().contains("{"));
+   }
+
+   public void testResetTest() {
+      LiveMetrics liveMetrics = liveMetrics();
+      liveMetrics.resetTest("My \"test\"");
+      assertFalse(liveMetrics.toPrometheus().contains("radargun_requests_total{"));
+   }
+
+   public void testHttp() throws IOException {
+      MasterState masterState = new MasterState(new MasterConfig(2103, "localhost"));
+      LiveMetrics liveMetrics = new LiveMetrics(masterState, Collections.emptyList());
+      int port;
+      try (ServerSocket socket = new ServerSocket(0)) {
+         port = socket.getLocalPort();
+      }
+      liveMetrics.start("127.0.0.1", port);
+      try {
+         assertSame(LiveMetrics.getInstance(masterState), liveMetrics);
+         assertEquals(get("http://127.0.0.1:" + port + "/metrics.json"), liveMetrics.toJson());
+         assertEquals(get("http://127.0.0.1:" + port + "/metrics"), liveMetrics.toPrometheus());
+      } finally {
+         liveMetrics.stop();
+      }
+      assertNull(LiveMetrics.getInstance(masterState));
+   }
+
+   private static LiveMetrics liveMetrics() {
+      LiveMetrics liveMetrics = new LiveMetrics(new MasterState(new MasterConfig(2103, "localhost")), Arrays.asList(50d, 99d));
+      Statistics statistics = new BasicStatistics();
+      statistics.begin();
+      new Request(statistics, TimeService.nanoTime() - 1_000_000).succeeded(GET);
+      new Request(statistics, TimeService.nanoTime() - 2_000_000).succeeded(GET);
+      new Request(statistics, TimeService.nanoTime() - 3_000_000).failed(GET);
+      statistics.end();
+      liveMetrics.updateStatistics("My \"test\"", 0, statistics);
+      Map<String, Number> monitorValues = new LinkedHashMap<>();
+      monitorValues.put("Heap", 1024L);
+      monitorValues.put("Load", 0.5);
+      monitorValues.put("Missing", Double.NaN);
+      monitorValues.put("Overflow", Double.POSITIVE_INFINITY);
+      monitorValues.put("Underflow", Double.NEGATIVE_INFINITY);
+      liveMetrics.updateMonitorValues(0, monitorValues);
+      return liveMetrics;
+   }
+
+   private static String get(String url) throws IOException {
+      HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+      try (InputStream in = connection.getInputStream()) {
+         ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+         byte[] buffer = new byte[1024];
+         int read;
+         while ((read = in.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, read);
+         }
+         return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+      } finally {
+         connection.disconnect();
+      }
+   }
+}
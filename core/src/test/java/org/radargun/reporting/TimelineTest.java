@@ -0,0 +1,72 @@
+package org.radargun.reporting;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+@Test
+public class TimelineTest {
+
+   public void testSerializationRoundTrip() throws Exception {
+      Timeline.Category cpu = Timeline.Category.sysCategory("CPU");
+      Timeline.Category custom = Timeline.Category.customCategory("Custom");
+      Timeline timeline = new Timeline(3);
+      timeline.addEvent("Stages", new Timeline.TextEvent(1000, "Started"));
+      timeline.addEvent("Stages", new Timeline.IntervalEvent(2000, "Test", 500));
+      timeline.addValue(cpu, new Timeline.Value(1_500_000_000_000L, 42));
+      timeline.addValue(cpu, new Timeline.Value(1_500_000_001_000L, -7L));
+      // values are not necessarily ordered by timestamp
+      timeline.addValue(cpu, new Timeline.Value(1_499_999_999_000L, 0.25));
+      timeline.addValue(custom, new Timeline.Value(1_500_000_000_500L, Long.MIN_VALUE));
+      timeline.addValue(custom, new Timeline.Value(1_500_000_000_600L, new BigDecimal("1.5")));
+
+      Timeline copy = roundTrip(timeline);
+      assertEquals(copy.slaveIndex, 3);
+      assertEquals(copy.getFirstTimestamp(), timeline.getFirstTimestamp());
+      assertEquals(copy.getLastTimestamp(), timeline.getLastTimestamp());
+      assertEquals(copy.getEventCategories(), timeline.getEventCategories());
+      List<Timeline.MarkerEvent> events = copy.getEvents("Stages");
+      assertEquals(events.size(), 2);
+      assertEquals(events.get(0).toString(), timeline.getEvents("Stages").get(0).toString());
+      assertEquals(events.get(1).toString(), timeline.getEvents("Stages").get(1).toString());
+      assertEquals(copy.getValueCategories(), timeline.getValueCategories());
+      assertValues(copy.getValues(cpu), timeline.getValues(cpu));
+      assertValues(copy.getValues(custom), timeline.getValues(custom));
+      // the type of the values is preserved
+      assertEquals(copy.getValues(cpu).get(0).value, 42);
+      assertEquals(copy.getValues(cpu).get(1).value, -7L);
+      assertEquals(copy.getValues(cpu).get(2).value, 0.25);
+   }
+
+   public void testEmpty() throws Exception {
+      Timeline copy = roundTrip(new Timeline(0));
+      assertEquals(copy.getValueCategories().size(), 0);
+      assertEquals(copy.getEventCategories().size(), 0);
+   }
+
+   private static void assertValues(List<Timeline.Value> actual, List<Timeline.Value> expected) {
+      assertEquals(actual.size(), expected.size());
+      for (int i = 0; i < expected.size(); ++i) {
+         assertEquals(actual.get(i).timestamp, expected.get(i).timestamp);
+         assertEquals(actual.get(i).value, expected.get(i).value);
+      }
+   }
+
+   private static Timeline roundTrip(Timeline timeline) throws IOException, ClassNotFoundException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+         out.writeObject(timeline);
+      }
+      try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+         return (Timeline) in.readObject();
+      }
+   }
+}
@@ -0,0 +1,80 @@
+package org.radargun.stages.test;
+
+import java.util.concurrent.TimeUnit;
+
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.radargun.utils.TimeService;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test
+@PowerMockIgnore({"javax.management.*"})
+@PrepareForTest(TimeService.class)
+public class ArrivalSchedulerTest extends PowerMockTestCase {
+   private static final long START = 1000;
+
+   public void testFixed() {
+      ArrivalScheduler scheduler = start(new ArrivalScheduler(ArrivalScheduler.Process.FIXED, 0, 1000, 0));
+      for (int i = 1; i <= 10; ++i) {
+         assertEquals(scheduler.next(), START + i * TimeUnit.MILLISECONDS.toNanos(1));
+      }
+   }
+
+   public void testRamp() {
+      // 0 -> 2000 req/s in 1 second means 1000 arrivals during the ramp
+      ArrivalScheduler scheduler = start(new ArrivalScheduler(ArrivalScheduler.Process.FIXED, 0, 2000, 1000));
+      long previousInterval = Long.MAX_VALUE;
+      long previous = START;
+      for (int i = 1; i < 1000; ++i) {
+         long next = scheduler.next();
+         assertTrue(next - previous <= previousInterval, "Arrivals should be accelerating");
+         previousInterval = next - previous;
+         previous = next;
+      }
+      assertEquals(scheduler.next(), START + TimeUnit.SECONDS.toNanos(1), 1);
+      assertEquals(scheduler.next(), START + TimeUnit.SECONDS.toNanos(1) + TimeUnit.MICROSECONDS.toNanos(500), 1);
+   }
+
+   public void testPoisson() {
+      ArrivalScheduler scheduler = start(new ArrivalScheduler(ArrivalScheduler.Process.POISSON, 0, 1000, 0));
+      int arrivals = 100000;
+      long last = START;
+      for (int i = 0; i < arrivals; ++i) {
+         long next = scheduler.next();
+         assertTrue(next >= last);
+         last = next;
+      }
+      double meanInterval = (double) (last - START) / arrivals;
+      assertEquals(meanInterval, TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MICROSECONDS.toNanos(20));
+   }
+
+   public void testPiecewiseProfile() {
+      // 1000 req/s for 1 second, then step to 2000 req/s and ramp down to 1000 req/s during 1 second
+      ArrivalScheduler scheduler = start(new ArrivalScheduler(ArrivalScheduler.Process.FIXED,
+         new long[] {0, 1000, 1000, 2000}, new double[] {1000, 1000, 2000, 1000}));
+      for (int i = 1; i < 1000; ++i) {
+         assertEquals(scheduler.next(), START + i * TimeUnit.MILLISECONDS.toNanos(1), 1);
+      }
+      assertEquals(scheduler.next(), START + TimeUnit.SECONDS.toNanos(1), 1);
+      // the rate is already decreasing
+      assertEquals(scheduler.next(), START + TimeUnit.SECONDS.toNanos(1) + TimeUnit.MICROSECONDS.toNanos(500), 100);
+      // 1500 arrivals in the ramp down
+      for (int i = 2; i < 1500; ++i) {
+         scheduler.next();
+      }
+      assertEquals(scheduler.next(), START + TimeUnit.SECONDS.toNanos(2), 1);
+      assertEquals(scheduler.next(), START + TimeUnit.SECONDS.toNanos(2) + TimeUnit.MILLISECONDS.toNanos(1), 1);
+   }
+
+   private ArrivalScheduler start(ArrivalScheduler scheduler) {
+      PowerMockito.mockStatic(TimeService.class);
+      PowerMockito.when(TimeService.nanoTime()).thenReturn(START);
+      assertEquals(scheduler.next(), START);
+      return scheduler;
+   }
+}
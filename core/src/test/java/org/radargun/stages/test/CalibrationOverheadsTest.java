@@ -0,0 +1,62 @@
+package org.radargun.stages.test;
+
+import java.util.List;
+
+import org.radargun.Operation;
+import org.radargun.config.MasterConfig;
+import org.radargun.state.MasterState;
+import org.radargun.stats.AllRecordingOperationStats;
+import org.radargun.stats.BasicStatistics;
+import org.radargun.stats.Request;
+import org.radargun.stats.Statistics;
+import org.radargun.utils.TimeService;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class CalibrationOverheadsTest {
+   private static final Operation FAST = Operation.register("CalibrationOverheadsTest.Fast");
+   private static final Operation SLOW = Operation.register("CalibrationOverheadsTest.Slow");
+
+   public void testDominatedOperations() {
+      MasterState masterState = new MasterState(new MasterConfig(2103, "localhost"));
+      CalibrationOverheads overheads = CalibrationOverheads.get(masterState);
+      assertSame(CalibrationOverheads.get(masterState), overheads);
+
+      Statistics prototype = new BasicStatistics();
+      Statistics aggregated = prototype.newInstance();
+      aggregated.begin();
+      record(aggregated, FAST, 50_000);
+      record(aggregated, SLOW, 10_000_000);
+      aggregated.end();
+      assertTrue(overheads.findDominated(prototype, aggregated).isEmpty());
+
+      overheads.put(prototype, 20_000, 0.1);
+      // equally configured statistics share the overhead
+      List<String> dominated = overheads.findDominated(new BasicStatistics(), aggregated);
+      assertEquals(dominated.size(), 1);
+      assertTrue(dominated.get(0).startsWith(FAST.name), dominated.toString());
+      // differently configured statistics were not calibrated
+      assertTrue(overheads.findDominated(new BasicStatistics(new AllRecordingOperationStats()), aggregated).isEmpty());
+
+      overheads.put(prototype, 20_000, 0);
+      assertTrue(overheads.findDominated(prototype, aggregated).isEmpty());
+      overheads.put(prototype, 20_000, 0.1);
+      overheads.remove(prototype);
+      assertTrue(overheads.findDominated(prototype, aggregated).isEmpty());
+   }
+
+   public void testDescribe() {
+      assertEquals(CalibrationOverheads.describe(new BasicStatistics()), CalibrationOverheads.describe(new BasicStatistics()));
+      assertNotEquals(CalibrationOverheads.describe(new BasicStatistics()),
+         CalibrationOverheads.describe(new BasicStatistics(new AllRecordingOperationStats())));
+   }
+
+   private static void record(Statistics statistics, Operation operation, long duration) {
+      new Request(statistics, TimeService.nanoTime() - duration).succeeded(operation);
+   }
+}
@@ -0,0 +1,94 @@
+package org.radargun.stages.test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.radargun.DistStageAck;
+import org.radargun.Operation;
+import org.radargun.StageResult;
+import org.radargun.reporting.Report;
+import org.radargun.stages.AbstractDistStage;
+import org.radargun.state.MasterState;
+import org.radargun.stats.Request;
+import org.radargun.stats.Statistics;
+import org.radargun.traits.Lifecycle;
+import org.radargun.util.CoreStageRunner;
+import org.radargun.utils.TimeService;
+import org.radargun.utils.Utils;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+@Test(timeOut = 30000)
+public class CalibrationStageTest {
+
+   public void testCalibration() throws Exception {
+      CoreStageRunner stageRunner = new CoreStageRunner(1);
+      stageRunner.getTraitImpl(Lifecycle.class).start();
+      CalibrationStage stage = new CalibrationStage();
+      stage.totalThreads = 1;
+      stage.duration = 200;
+      DistStageAck ack = stageRunner.executeOnSlave(stage);
+      assertFalse(ack.isError());
+      StageResult result = stageRunner.processAckOnMaster(stage, Collections.singletonList(ack));
+      assertFalse(result.isError());
+
+      MasterState masterState = (MasterState) Utils.getField(AbstractDistStage.class, stage, "masterState");
+      Report.Test test = masterState.getReport().getTest(stage.testName);
+      assertNotNull(test);
+      Report.TestResult overhead = test.getIterations().get(0).getResults().get("Overhead");
+      assertNotNull(overhead);
+      assertTrue(overhead.aggregatedValue.endsWith(" ns"), overhead.aggregatedValue);
+      Report.TestResult recorded = test.getIterations().get(0).getResults().get("Recorded overhead");
+      assertNotNull(recorded);
+      assertTrue(recorded.aggregatedValue.contains(" +/- "), recorded.aggregatedValue);
+      // the whole loop costs more than the part between starting and recording the request
+      double overheadNanos = Double.parseDouble(overhead.aggregatedValue.split(" ")[0]);
+      double recordedNanos = Double.parseDouble(recorded.aggregatedValue.split(" ")[0]);
+      assertTrue(overheadNanos >= recordedNanos, overheadNanos + " < " + recordedNanos);
+
+      // requests that do nothing are dominated by the overhead
+      Statistics statistics = stage.statisticsPrototype.newInstance();
+      statistics.begin();
+      for (int i = 0; i < 10000; ++i) {
+         new Request(statistics, TimeService.nanoTime() - 1).succeeded(CalibrationStage.NO_OP);
+      }
+      statistics.end();
+      assertEquals(CalibrationOverheads.get(masterState).findDominated(stage.statisticsPrototype, statistics).size(), 1);
+   }
+
+   public void testOpenModelWarmUpIsPaced() throws Exception {
+      CoreStageRunner stageRunner = new CoreStageRunner(1);
+      stageRunner.getTraitImpl(Lifecycle.class).start();
+      LongAdder warmUpRequests = new LongAdder();
+      CalibrationStage stage = new CalibrationStage() {
+         @Override
+         public OperationLogic getLogic() {
+            return new Logic() {
+               @Override
+               public void run(Operation operation) throws RequestException {
+                  if (!isStarted()) {
+                     warmUpRequests.increment();
+                  }
+                  super.run(operation);
+               }
+            };
+         }
+      };
+      stage.totalThreads = 2;
+      stage.duration = 100;
+      stage.arrivalRate = 100;
+      stage.maxWarmUp = 500;
+      stage.warmUpWindow = 100;
+      stage.warmUpWindows = 2;
+      DistStageAck ack = stageRunner.executeOnSlave(stage);
+      assertFalse(ack.isError());
+      long warmUpDuration = ((TestStage.StatisticsAck) ack).getWarmUpDuration();
+      assertTrue(warmUpDuration > 0);
+      // requests arrive at 100 per second, each stressor could have claimed one more arrival
+      assertTrue(warmUpRequests.sum() <= warmUpDuration / 10 + 3, warmUpRequests.sum() + " requests in " + warmUpDuration + " ms");
+   }
+}
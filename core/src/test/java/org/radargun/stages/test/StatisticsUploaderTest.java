@@ -0,0 +1,98 @@
+package org.radargun.stages.test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.radargun.DistStageAck;
+import org.radargun.DistStageProgress;
+import org.radargun.state.SlaveState;
+import org.radargun.stats.PeriodicStatistics;
+import org.radargun.stats.Statistics;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.traits.Lifecycle;
+import org.radargun.util.CoreStageRunner;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(timeOut = 30000)
+public class StatisticsUploaderTest {
+   private static final int OPERATIONS = 100;
+
+   public void testUploadsPerThread() throws Exception {
+      List<DistStageProgress> uploads = new CopyOnWriteArrayList<>();
+      DistStageAck ack = runStage(false, uploads);
+      assertFalse(uploads.isEmpty());
+      for (DistStageProgress progress : uploads) {
+         assertEquals(progress.getSlaveIndex(), 0);
+         assertEquals(((StatisticsUploader.StatisticsUpload) progress).statistics.size(), 2);
+      }
+      // nothing is lost or counted twice
+      assertEquals(uploadedRequests(uploads) + requests(((TestStage.StatisticsAck) ack).statistics), OPERATIONS);
+   }
+
+   public void testMergedUploads() throws Exception {
+      List<DistStageProgress> uploads = new CopyOnWriteArrayList<>();
+      DistStageAck ack = runStage(true, uploads);
+      assertFalse(uploads.isEmpty());
+      for (DistStageProgress progress : uploads) {
+         assertEquals(((StatisticsUploader.StatisticsUpload) progress).statistics.size(), 1);
+      }
+      assertEquals(uploadedRequests(uploads) + requests(((TestStage.StatisticsAck) ack).statistics), OPERATIONS);
+   }
+
+   public void testCannotSend() throws Exception {
+      // intervals that cannot be sent are returned in the ack
+      DistStageAck ack = runStage(false, null);
+      assertEquals(requests(((TestStage.StatisticsAck) ack).statistics), OPERATIONS);
+   }
+
+   @Test(expectedExceptions = IllegalStateException.class)
+   public void testRejectsPeriodicStatistics() {
+      CalibrationStage stage = new CalibrationStage();
+      stage.totalThreads = 1;
+      stage.statisticsUploadPeriod = 50;
+      stage.statisticsPrototype = new PeriodicStatistics();
+      stage.init();
+   }
+
+   private DistStageAck runStage(boolean mergeThreadStats, List<DistStageProgress> uploads) throws Exception {
+      CoreStageRunner stageRunner = new CoreStageRunner(1);
+      stageRunner.getTraitImpl(Lifecycle.class).start();
+      SlaveState slaveState = stageRunner.getSlaveState();
+      if (uploads != null) {
+         slaveState.setProgressSender(uploads::add);
+      }
+      CalibrationStage stage = new CalibrationStage();
+      stage.totalThreads = 2;
+      stage.numOperations = OPERATIONS;
+      stage.thinkTime = 5;
+      stage.statisticsUploadPeriod = 50;
+      stage.mergeThreadStats = mergeThreadStats;
+      DistStageAck ack = stageRunner.executeOnSlave(stage);
+      assertFalse(ack.isError());
+      assertTrue(ack instanceof TestStage.StatisticsAck);
+      return ack;
+   }
+
+   private static long uploadedRequests(List<DistStageProgress> uploads) {
+      long requests = 0;
+      for (DistStageProgress progress : uploads) {
+         requests += requests(((StatisticsUploader.StatisticsUpload) progress).statistics);
+      }
+      return requests;
+   }
+
+   private static long requests(List<Statistics> statistics) {
+      long requests = 0;
+      for (Statistics s : statistics) {
+         DefaultOutcome outcome = s == null ? null : s.getRepresentation(CalibrationStage.NO_OP.name, DefaultOutcome.class);
+         if (outcome != null) {
+            requests += outcome.requests;
+         }
+      }
+      return requests;
+   }
+}
@@ -0,0 +1,60 @@
+package org.radargun.stages.test;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class SteadyStateDetectorTest {
+   private static final long WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+   public void testSteadyAfterWarmUp() {
+      // JIT activity of the test JVM must not affect the result
+      SteadyStateDetector detector = new SteadyStateDetector(3, 0.05, Double.MAX_VALUE);
+      long now = 0;
+      detector.start(now);
+      // response times are improving during the first windows
+      long[] responseTimes = {5000, 3000, 2000, 1000, 1010, 990};
+      boolean[] steady = new boolean[responseTimes.length];
+      for (int i = 0; i < responseTimes.length; ++i) {
+         for (int request = 0; request < 1000; ++request) {
+            detector.record(responseTimes[i]);
+         }
+         now += WINDOW;
+         steady[i] = detector.sample(now);
+      }
+      for (int i = 0; i < responseTimes.length - 1; ++i) {
+         assertFalse(steady[i], "Window " + i);
+      }
+      assertTrue(steady[responseTimes.length - 1]);
+   }
+
+   public void testNoRequests() {
+      SteadyStateDetector detector = new SteadyStateDetector(2, 0.05, Double.MAX_VALUE);
+      detector.start(0);
+      assertFalse(detector.sample(WINDOW));
+      assertFalse(detector.sample(2 * WINDOW));
+   }
+
+   public void testVaryingThroughput() {
+      SteadyStateDetector detector = new SteadyStateDetector(2, 0.05, Double.MAX_VALUE);
+      detector.start(0);
+      for (int request = 0; request < 1000; ++request) {
+         detector.record(1000);
+      }
+      assertFalse(detector.sample(WINDOW));
+      for (int request = 0; request < 500; ++request) {
+         detector.record(1000);
+      }
+      assertFalse(detector.sample(2 * WINDOW));
+   }
+
+   public void testCoefficientOfVariation() {
+      assertEquals(SteadyStateDetector.coefficientOfVariation(new double[] {10, 10, 10}), 0d);
+      assertEquals(SteadyStateDetector.coefficientOfVariation(new double[] {8, 12}), Math.sqrt(8) / 10, 1e-9);
+   }
+}
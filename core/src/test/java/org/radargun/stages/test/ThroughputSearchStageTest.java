@@ -0,0 +1,54 @@
+package org.radargun.stages.test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.radargun.config.Cluster;
+import org.radargun.config.Configuration;
+import org.radargun.reporting.Report;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class ThroughputSearchStageTest {
+
+   public void testKnee() {
+      ThroughputSearchStage.Point knee = ThroughputSearchStage.findKnee(Arrays.asList(
+         point(1000, 1000, 1_000_000),
+         point(4000, 3900, 1_500_000),
+         point(2000, 2000, 1_100_000),
+         point(3000, 2950, 1_200_000),
+         point(5000, 4100, 20_000_000)));
+      assertEquals(knee.rate, 4000d);
+   }
+
+   public void testNotEnoughPoints() {
+      assertNull(ThroughputSearchStage.findKnee(Collections.singletonList(point(1000, 1000, 1_000_000))));
+      assertNull(ThroughputSearchStage.findKnee(Arrays.asList(
+         point(1000, 1000, 1_000_000), point(2000, 2000, 1_000_000), point(3000, 3000, 1_000_000))));
+   }
+
+   public void testResultsAreNumeric() {
+      Report report = new Report(new Configuration("configuration"), new Cluster());
+      Report.Test test = report.createTest("test", null, false);
+      ThroughputSearchStage.addResults(test, 0, new ThroughputSearchStage.Point(2000, 1990.4, 1_500_000, 0.002, false), 99);
+      Report.TestIteration iteration = test.getIterations().get(0);
+      assertEquals(iteration.getValue(), "2000");
+      Map<String, Report.TestResult> results = iteration.getResults();
+      assertEquals(Double.parseDouble(results.get("Target rate [reqs/s]").aggregatedValue), 2000d);
+      assertEquals(Double.parseDouble(results.get("Throughput [reqs/s]").aggregatedValue), 1990d);
+      Report.TestResult responseTime = results.get("Response time at 99.0 % [ms]");
+      assertEquals(Double.parseDouble(responseTime.aggregatedValue), 1.5d);
+      assertTrue(responseTime.suspicious);
+      assertEquals(Double.parseDouble(results.get("Error ratio").aggregatedValue), 0.002d);
+   }
+
+   private static ThroughputSearchStage.Point point(double rate, double throughput, double responseTime) {
+      return new ThroughputSearchStage.Point(rate, throughput, responseTime, 0, true);
+   }
+}
@@ -0,0 +1,48 @@
+package org.radargun.stats;
+
+import org.radargun.Operation;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+@Test
+public class AllRecordingOperationStatsTest {
+   private static final Operation OPERATION = Operation.register(AllRecordingOperationStatsTest.class.getSimpleName());
+
+   public void testCopyKeepsErrors() {
+      Statistics statistics = statistics(3, 2);
+      assertOutcome(statistics.copy(), 5, 2);
+      // the copy is independent
+      Statistics copy = statistics.copy();
+      new Request(copy).failed(OPERATION);
+      assertOutcome(statistics, 5, 2);
+      assertOutcome(copy, 6, 3);
+   }
+
+   public void testMergeKeepsErrors() {
+      Statistics merged = statistics(3, 2).copy();
+      merged.merge(statistics(1, 4));
+      assertOutcome(merged, 10, 6);
+      assertOutcome(Statistics.MERGE.apply(statistics(2, 0), statistics(0, 1)), 3, 1);
+   }
+
+   private static Statistics statistics(int succeeded, int failed) {
+      Statistics statistics = new BasicStatistics(new AllRecordingOperationStats());
+      statistics.begin();
+      for (int i = 0; i < succeeded; ++i) {
+         new Request(statistics).succeeded(OPERATION);
+      }
+      for (int i = 0; i < failed; ++i) {
+         new Request(statistics).failed(OPERATION);
+      }
+      statistics.end();
+      return statistics;
+   }
+
+   private static void assertOutcome(Statistics statistics, long requests, long errors) {
+      DefaultOutcome outcome = statistics.getRepresentation(OPERATION.name, DefaultOutcome.class);
+      assertEquals(outcome.requests, requests);
+      assertEquals(outcome.errors, errors);
+   }
+}
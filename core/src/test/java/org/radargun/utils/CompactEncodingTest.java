@@ -0,0 +1,107 @@
+package org.radargun.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+@Test
+public class CompactEncodingTest {
+   private static final long[] VALUES = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, Integer.MIN_VALUE,
+      Long.MAX_VALUE, Long.MIN_VALUE, -1, -64, -65};
+
+   public void testVarLong() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      for (long value : VALUES) {
+         CompactEncoding.writeVarLong(out, value);
+      }
+      DataInputStream in = input(bytes);
+      for (long value : VALUES) {
+         assertEquals(CompactEncoding.readVarLong(in), value);
+      }
+      assertEquals(in.available(), 0);
+   }
+
+   public void testSignedVarLong() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      for (long value : VALUES) {
+         CompactEncoding.writeSignedVarLong(out, value);
+      }
+      DataInputStream in = input(bytes);
+      for (long value : VALUES) {
+         assertEquals(CompactEncoding.readSignedVarLong(in), value);
+      }
+      assertEquals(in.available(), 0);
+   }
+
+   public void testVarInt() throws IOException {
+      int[] values = {0, 1, 300, Integer.MAX_VALUE, Integer.MIN_VALUE, -1};
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      for (int value : values) {
+         CompactEncoding.writeVarInt(out, value);
+      }
+      DataInputStream in = input(bytes);
+      for (int value : values) {
+         assertEquals(CompactEncoding.readVarInt(in), value);
+      }
+      assertEquals(in.available(), 0);
+   }
+
+   public void testLength() throws IOException {
+      assertEquals(varLongLength(0), 1);
+      assertEquals(varLongLength(127), 1);
+      assertEquals(varLongLength(128), 2);
+      assertEquals(varLongLength(Long.MAX_VALUE), 9);
+      assertEquals(varLongLength(-1), 10);
+      assertEquals(signedVarLongLength(-1), 1);
+      assertEquals(signedVarLongLength(-64), 1);
+      assertEquals(signedVarLongLength(-65), 2);
+   }
+
+   public void testMalformed() throws IOException {
+      byte[] bytes = new byte[11];
+      Arrays.fill(bytes, (byte) 0x80);
+      try {
+         CompactEncoding.readVarLong(new DataInputStream(new ByteArrayInputStream(bytes)));
+         fail("Expected exception");
+      } catch (IOException e) {
+         // expected
+      }
+   }
+
+   public void testVersion() throws IOException {
+      CompactEncoding.checkVersion(new DataInputStream(new ByteArrayInputStream(new byte[] {1})), 1, Object.class);
+      try {
+         CompactEncoding.checkVersion(new DataInputStream(new ByteArrayInputStream(new byte[] {2})), 1, Object.class);
+         fail("Expected exception");
+      } catch (IOException e) {
+         // expected
+      }
+   }
+
+   private static int varLongLength(long value) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      CompactEncoding.writeVarLong(new DataOutputStream(bytes), value);
+      return bytes.size();
+   }
+
+   private static int signedVarLongLength(long value) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      CompactEncoding.writeSignedVarLong(new DataOutputStream(bytes), value);
+      return bytes.size();
+   }
+
+   private static DataInputStream input(ByteArrayOutputStream bytes) {
+      return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+   }
+}
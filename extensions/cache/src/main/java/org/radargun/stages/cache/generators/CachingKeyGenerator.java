@@ -0,0 +1,183 @@
+package org.radargun.stages.cache.generators;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Init;
+import org.radargun.config.Property;
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+import org.radargun.utils.TimeService;
+import org.radargun.utils.Utils;
+
+/**
+ * Materializes keys of another generator for bounded range of key IDs when the first key is requested,
+ * so that retrieving the key is a single lookup. Keys outside of the range are generated by the wrapped
+ * generator. The keys are either kept as objects on heap (and shared by all operations), or encoded
+ * in direct buffers; in that case only string and byte-array keys are supported and each lookup
+ * decodes the key into a new object (without any other allocation).
+ */
+@DefinitionElement(name = "caching", doc = "Pre-generates keys of another generator for range of key IDs.")
+public class CachingKeyGenerator implements KeyGenerator {
+   private static final Log log = LogFactory.getLog(CachingKeyGenerator.class);
+   private static final byte STRING = 0;
+   private static final byte BYTE_ARRAY = 1;
+
+   @Property(doc = "Generator of the cached keys. Default is 'string'.", complexConverter = KeyGenerator.ComplexConverter.class)
+   private KeyGenerator generator = new StringKeyGenerator();
+
+   @Property(doc = "Number of cached keys.", optional = false)
+   private int numKeys;
+
+   @Property(doc = "ID of the first cached key. Default is 0.")
+   private long keyIdOffset = 0;
+
+   @Property(doc = "Keep the keys encoded off-heap instead of key objects. Supports only string and byte-array keys. " +
+      "Default is false.")
+   private boolean offHeap = false;
+
+   @Property(doc = "Compute hash codes of the keys when these are cached; keys that remember their hash code " +
+      "(such as strings) do not compute it during the test. Applies only to keys cached on heap; has no effect " +
+      "on byte-array keys. Default is true.")
+   private boolean precomputeHashCodes = true;
+
+   private volatile Object[] keys;
+   private volatile OffHeapKeys offHeapKeys;
+
+   @Init
+   public void init() {
+      if (numKeys <= 0) {
+         throw new IllegalArgumentException("Number of keys must be > 0");
+      }
+      if (offHeap && numKeys >= Integer.MAX_VALUE / Integer.BYTES) {
+         throw new IllegalArgumentException("At most " + (Integer.MAX_VALUE / Integer.BYTES - 1) + " keys can be cached off-heap");
+      }
+      if (generator instanceof CachingKeyGenerator) {
+         throw new IllegalArgumentException("Caching key generator cannot wrap another caching generator");
+      }
+   }
+
+   @Override
+   public Object generateKey(long keyIndex) {
+      long index = keyIndex - keyIdOffset;
+      if (index < 0 || index >= numKeys) {
+         return generator.generateKey(keyIndex);
+      }
+      if (offHeap) {
+         OffHeapKeys offHeapKeys = this.offHeapKeys;
+         if (offHeapKeys == null) {
+            offHeapKeys = materializeOffHeap();
+         }
+         return offHeapKeys.get((int) index);
+      }
+      Object[] keys = this.keys;
+      if (keys == null) {
+         keys = materialize();
+      }
+      return keys[(int) index];
+   }
+
+   private synchronized Object[] materialize() {
+      if (keys != null) {
+         return keys;
+      }
+      long start = TimeService.nanoTime();
+      Object[] keys = new Object[numKeys];
+      IntStream.range(0, numKeys).parallel().forEach(i -> {
+         Object key = generator.generateKey(keyIdOffset + i);
+         // arrays use identity hash code, there is nothing to precompute
+         if (precomputeHashCodes && !key.getClass().isArray()) {
+            key.hashCode();
+         }
+         keys[i] = key;
+      });
+      log.infof("Cached %d keys in %s", numKeys, Utils.getNanosDurationString(TimeService.nanoTime() - start));
+      this.keys = keys;
+      return keys;
+   }
+
+   private synchronized OffHeapKeys materializeOffHeap() {
+      if (offHeapKeys != null) {
+         return offHeapKeys;
+      }
+      long start = TimeService.nanoTime();
+      OffHeapKeys offHeapKeys = new OffHeapKeys(numKeys);
+      for (int i = 0; i < numKeys; ++i) {
+         offHeapKeys.add(i, generator.generateKey(keyIdOffset + i));
+      }
+      log.infof("Cached %d keys off-heap (%d bytes) in %s", numKeys, offHeapKeys.size(),
+         Utils.getNanosDurationString(TimeService.nanoTime() - start));
+      this.offHeapKeys = offHeapKeys;
+      return offHeapKeys;
+   }
+
+   /**
+    * Encoded keys stored one after another in direct buffer, with offsets of the keys in another one.
+    * The table is read through absolute reads or duplicates once it is filled, so it can be read concurrently.
+    */
+   private static class OffHeapKeys {
+      private final ByteBuffer offsets;
+      private ByteBuffer data;
+      private byte type = -1;
+      private int maxLength;
+      // string keys are decoded from this buffer; the table is filled before the first lookup
+      private final ThreadLocal<byte[]> decodeBuffer = ThreadLocal.withInitial(() -> new byte[maxLength]);
+
+      private OffHeapKeys(int numKeys) {
+         offsets = ByteBuffer.allocateDirect((numKeys + 1) * Integer.BYTES);
+         offsets.putInt(0, 0);
+      }
+
+      private void add(int index, Object key) {
+         byte[] encoded;
+         if (key instanceof String) {
+            encoded = ((String) key).getBytes(StandardCharsets.UTF_8);
+            checkType(STRING, key);
+         } else if (key instanceof byte[]) {
+            encoded = (byte[]) key;
+            checkType(BYTE_ARRAY, key);
+         } else {
+            throw new IllegalStateException("Keys of type " + (key == null ? null : key.getClass().getName()) + " cannot be cached off-heap");
+         }
+         if (data == null) {
+            data = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE, (long) encoded.length * offsets.capacity() / Integer.BYTES));
+         } else if (data.remaining() < encoded.length) {
+            if (data.capacity() == Integer.MAX_VALUE) {
+               throw new IllegalStateException("Encoded keys do not fit into 2 GB");
+            }
+            ByteBuffer larger = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE, 2L * data.capacity() + encoded.length));
+            data.flip();
+            larger.put(data);
+            data = larger;
+         }
+         data.put(encoded);
+         maxLength = Math.max(maxLength, encoded.length);
+         offsets.putInt((index + 1) * Integer.BYTES, data.position());
+      }
+
+      private void checkType(byte type, Object key) {
+         if (this.type < 0) {
+            this.type = type;
+         } else if (this.type != type) {
+            throw new IllegalStateException("Cannot mix key types in off-heap cache, found " + key.getClass().getName());
+         }
+      }
+
+      private Object get(int index) {
+         int from = offsets.getInt(index * Integer.BYTES);
+         int length = offsets.getInt((index + 1) * Integer.BYTES) - from;
+         // absolute reads do not allocate a view of the buffer; only the returned key is allocated
+         byte[] encoded = type == STRING ? decodeBuffer.get() : new byte[length];
+         for (int i = 0; i < length; ++i) {
+            encoded[i] = data.get(from + i);
+         }
+         return type == STRING ? new String(encoded, 0, length, StandardCharsets.UTF_8) : encoded;
+      }
+
+      private int size() {
+         return data.position();
+      }
+   }
+}
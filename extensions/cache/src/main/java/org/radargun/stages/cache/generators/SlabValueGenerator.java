@@ -0,0 +1,128 @@
+package org.radargun.stages.cache.generators;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Init;
+import org.radargun.config.Property;
+
+/**
+ * Generates values as slices of a large slab filled with random bytes when the generator is first used.
+ * Offset of the slice is derived from hash code of the key, so the value for given key and size
+ * is always the same and can be verified in {@link #checkValue(Object, Object, int)}.
+ * The slabs are shared by all generators with the same parameters in this JVM and are never released.
+ */
+@DefinitionElement(name = "slab", doc = "Generates values as slices of pre-generated random slab chosen by key hash. " +
+   "Avoids generating random content for each value.")
+public class SlabValueGenerator implements ValueGenerator {
+   private static final Map<String, ByteBuffer> SLABS = new ConcurrentHashMap<>();
+   private static final int FILL_CHUNK = 64 * 1024;
+
+   @Property(doc = "Size of the slab in bytes; it must be greater than the largest value. Default is 16 MB.")
+   private int slabSize = 16 * 1024 * 1024;
+
+   @Property(doc = "Allocate the slab off-heap (in direct buffer). Default is false.")
+   private boolean offHeap = false;
+
+   @Property(doc = "Generate read-only ByteBuffer views of the slab instead of copying the slice into byte array. " +
+      "ByteBuffers are not serializable, therefore this can be used only with services accepting ByteBuffer " +
+      "values (e.g. chm or offheap). Default is false.")
+   private boolean byteBuffer = false;
+
+   @Property(doc = "Seed used to fill the slab; slaves must use the same seed in order to verify values " +
+      "written by other slaves. Default is 0.")
+   private long seed = 0;
+
+   private ByteBuffer slab;
+
+   @Init
+   public void init() {
+      if (slabSize <= 0) {
+         throw new IllegalArgumentException("Slab size must be > 0");
+      }
+   }
+
+   @Override
+   public Object generateValue(Object key, int size, Random random) {
+      ByteBuffer slice = slice(key, size);
+      if (byteBuffer) {
+         return slice;
+      }
+      byte[] array = new byte[size];
+      slice.get(array);
+      return array;
+   }
+
+   @Override
+   public boolean generatesByteBuffers() {
+      return byteBuffer;
+   }
+
+   @Override
+   public int sizeOf(Object value) {
+      if (value instanceof ByteBuffer) {
+         return ((ByteBuffer) value).remaining();
+      }
+      return ((byte[]) value).length;
+   }
+
+   @Override
+   public boolean checkValue(Object value, Object key, int expectedSize) {
+      ByteBuffer buffer;
+      if (value instanceof byte[]) {
+         buffer = ByteBuffer.wrap((byte[]) value);
+      } else if (value instanceof ByteBuffer) {
+         buffer = ((ByteBuffer) value).duplicate();
+      } else {
+         return false;
+      }
+      int size = buffer.remaining();
+      if ((expectedSize > 0 && size != expectedSize) || size > slabSize) {
+         return false;
+      }
+      return buffer.equals(slice(key, size));
+   }
+
+   private ByteBuffer slice(Object key, int size) {
+      if (size > slabSize) {
+         throw new IllegalArgumentException("Value size " + size + " exceeds slab size " + slabSize);
+      }
+      int hash = key instanceof byte[] ? Arrays.hashCode((byte[]) key) : key.hashCode();
+      // spread the bits, String hash codes of similar keys differ only in low bits
+      long mixed = (hash & 0xFFFFFFFFL) * 0x9E3779B97F4A7C15L;
+      int offset = (int) ((mixed >>> 32) % (slabSize - size + 1));
+      ByteBuffer slice = getSlab().duplicate();
+      slice.position(offset).limit(offset + size);
+      return slice.slice();
+   }
+
+   private ByteBuffer getSlab() {
+      ByteBuffer slab = this.slab;
+      if (slab == null) {
+         slab = SLABS.computeIfAbsent(slabSize + ":" + offHeap + ":" + seed, k -> createSlab());
+         this.slab = slab;
+      }
+      return slab;
+   }
+
+   private ByteBuffer createSlab() {
+      Random random = new Random(seed);
+      if (!offHeap) {
+         byte[] array = new byte[slabSize];
+         random.nextBytes(array);
+         return ByteBuffer.wrap(array).asReadOnlyBuffer();
+      }
+      ByteBuffer buffer = ByteBuffer.allocateDirect(slabSize);
+      byte[] chunk = new byte[FILL_CHUNK];
+      while (buffer.hasRemaining()) {
+         random.nextBytes(chunk);
+         buffer.put(chunk, 0, Math.min(chunk.length, buffer.remaining()));
+      }
+      buffer.flip();
+      return buffer.asReadOnlyBuffer();
+   }
+}
@@ -2,6 +2,7 @@ package org.radargun.stages.cache.generators;
 
 import java.util.Random;
 
+import org.radargun.traits.CacheInformation;
 import org.radargun.utils.ReflexiveConverters;
 
 /**
@@ -18,6 +19,31 @@ public interface ValueGenerator {
 
    boolean checkValue(Object value, Object key, int expectedSize);
 
+   /**
+    * @return True if the generated values are {@link java.nio.ByteBuffer ByteBuffers}, which can be stored
+    *         only into caches accepting them.
+    */
+   default boolean generatesByteBuffers() {
+      return false;
+   }
+
+   /**
+    * Rejects generator producing values that the cache cannot store.
+    *
+    * @param cacheInformation Trait provided by the service, or null.
+    * @throws IllegalStateException if the values are ByteBuffers and the service does not accept them.
+    */
+   static void checkCompatible(ValueGenerator valueGenerator, CacheInformation cacheInformation) {
+      if (!valueGenerator.generatesByteBuffers()) {
+         return;
+      }
+      CacheInformation.Cache cache = cacheInformation == null ? null : cacheInformation.getCache(null);
+      if (cache == null || !cache.acceptsByteBufferValues()) {
+         throw new IllegalStateException("Values generated by " + valueGenerator.getClass().getSimpleName()
+            + " are ByteBuffers; these can be used only with services accepting ByteBuffer values.");
+      }
+   }
+
    public static class ComplexConverter extends ReflexiveConverters.ObjectConverter {
       public ComplexConverter() {
          super(ValueGenerator.class);
@@ -0,0 +1,89 @@
+package org.radargun.stages.cache.test;
+
+import java.util.concurrent.TimeUnit;
+
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+
+/**
+ * Searches for batch size with the highest throughput by hill climbing: after each window
+ * of completed batches the size is multiplied (or divided) by {@link #STEP}, and the direction
+ * is reversed when the throughput drops. When the mean latency of batches in the window exceeds
+ * the limit, the size is decreased regardless of the throughput.
+ *
+ * Not thread-safe, the loader thread records all completions.
+ */
+class AdaptiveBatchSize {
+   private static final Log log = LogFactory.getLog(AdaptiveBatchSize.class);
+   private static final double STEP = 1.25;
+   // throughput changes smaller than this are considered noise
+   private static final double TOLERANCE = 0.05;
+
+   private final int minSize;
+   private final int maxSize;
+   private final long maxLatency;
+   private final int windowBatches;
+   private double size;
+   private boolean increasing = true;
+   private double lastThroughput = 0;
+
+   private long windowStart = Long.MIN_VALUE;
+   private int windowCompleted = 0;
+   private long windowEntries = 0;
+   private long windowLatency = 0;
+
+   /**
+    * @param initialSize Size of the first batches
+    * @param minSize Minimal size
+    * @param maxSize Maximal size
+    * @param maxLatency Limit for mean latency of batches, in nanoseconds
+    * @param windowBatches Number of batches in the window
+    */
+   AdaptiveBatchSize(int initialSize, int minSize, int maxSize, long maxLatency, int windowBatches) {
+      this.size = Math.max(minSize, Math.min(maxSize, initialSize));
+      this.minSize = minSize;
+      this.maxSize = maxSize;
+      this.maxLatency = maxLatency;
+      this.windowBatches = windowBatches;
+   }
+
+   int get() {
+      return (int) size;
+   }
+
+   /**
+    * Called when the first batch of the window is sent.
+    */
+   void started(long now) {
+      if (windowStart == Long.MIN_VALUE) {
+         windowStart = now;
+      }
+   }
+
+   void completed(int entries, long latency, long now) {
+      windowCompleted++;
+      windowEntries += entries;
+      windowLatency += latency;
+      if (windowCompleted < windowBatches || now <= windowStart) {
+         return;
+      }
+      double throughput = (double) windowEntries * TimeUnit.SECONDS.toNanos(1) / (now - windowStart);
+      long meanLatency = windowLatency / windowCompleted;
+      if (meanLatency > maxLatency) {
+         increasing = false;
+      } else if (throughput < lastThroughput * (1 - TOLERANCE)) {
+         increasing = !increasing;
+      }
+      double previousSize = size;
+      size = Math.max(minSize, Math.min(maxSize, increasing ? size * STEP : size / STEP));
+      if (log.isDebugEnabled()) {
+         log.debugf("Throughput %.0f entries/s, mean batch latency %d us: batch size %d -> %d",
+            throughput, TimeUnit.NANOSECONDS.toMicros(meanLatency), (int) previousSize, (int) size);
+      }
+      lastThroughput = throughput;
+      windowStart = now;
+      windowCompleted = 0;
+      windowEntries = 0;
+      windowLatency = 0;
+   }
+}
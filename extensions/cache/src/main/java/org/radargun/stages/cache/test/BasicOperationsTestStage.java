@@ -1,8 +1,12 @@
 package org.radargun.stages.cache.test;
 
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.radargun.Operation;
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Init;
 import org.radargun.config.Namespace;
 import org.radargun.config.Property;
 import org.radargun.config.Stage;
@@ -12,8 +16,11 @@ import org.radargun.stages.test.OperationSelector;
 import org.radargun.stages.test.RatioOperationSelector;
 import org.radargun.stages.test.Stressor;
 import org.radargun.stages.test.TestStage;
+import org.radargun.stages.test.WorkloadPhase;
 import org.radargun.traits.BasicOperations;
+import org.radargun.traits.BulkOperations;
 import org.radargun.traits.InjectTrait;
+import org.radargun.utils.NanoTimeConverter;
 
 /**
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
@@ -39,9 +46,49 @@ public class BasicOperationsTestStage extends CacheOperationsTestStage {
    @Property(doc = "Ratio of GET_AND_REMOVE requests. Default is 0.")
    protected int getAndRemoveRatio = 0;
 
+   @Property(doc = "Maximum number of GET or PUT requests from all stressors on this node that are coalesced " +
+      "into single getAll or putAll call; latency is still recorded for each request. Default is 1 (no batching).")
+   protected int batchSize = 1;
+
+   @Property(doc = "Maximum time the first request of a batch waits for other requests before the batch is executed. " +
+      "Default is 1 ms.", converter = NanoTimeConverter.class)
+   protected long batchLinger = TimeUnit.MILLISECONDS.toNanos(1);
+
    @InjectTrait
    protected BasicOperations basicOperations;
 
+   @InjectTrait(dependency = InjectTrait.Dependency.OPTIONAL)
+   protected BulkOperations bulkOperations;
+
+   // shared by all stressors using the same cache
+   private final ConcurrentHashMap<String, BatchingCache> batchingCaches = new ConcurrentHashMap<>();
+
+   @Init
+   public void validateBatching() {
+      if (batchSize <= 0) throw new IllegalStateException("Batch size must be > 0");
+      if (batchLinger < 0) throw new IllegalStateException("Batch linger can't be < 0");
+   }
+
+   @Override
+   protected void prepare() {
+      super.prepare();
+      if (batchSize > 1 && bulkOperations == null) {
+         throw new IllegalArgumentException("Batching has been enabled, but bulk operations are not supported by current service");
+      }
+      batchingCaches.clear();
+   }
+
+   @Override
+   protected void destroy() {
+      super.destroy();
+      batchingCaches.forEach((cacheName, cache) -> {
+         if (cache.getBatches() > 0) {
+            log.info(String.format("Cache %s: executed %d requests in %d batches, average batch size %.2f", cacheName,
+               cache.getBatchedRequests(), cache.getBatches(), (double) cache.getBatchedRequests() / cache.getBatches()));
+         }
+      });
+   }
+
    @Override
    protected OperationSelector createOperationSelector() {
       RatioOperationSelector operationSelector = new RatioOperationSelector.Builder()
@@ -56,6 +103,30 @@ public class BasicOperationsTestStage extends CacheOperationsTestStage {
       return operationSelector;
    }
 
+   @Override
+   protected OperationSelector createOperationSelector(WorkloadPhase workloadPhase) {
+      if (!(workloadPhase instanceof Phase)) {
+         return null;
+      }
+      Phase phase = (Phase) workloadPhase;
+      if (phase.getRatio == null && phase.containsRatio == null && phase.putRatio == null
+         && phase.getAndPutRatio == null && phase.removeRatio == null && phase.getAndRemoveRatio == null) {
+         return null;
+      }
+      return new RatioOperationSelector.Builder()
+         .add(BasicOperations.GET, ratio(phase.getRatio, getRatio))
+         .add(BasicOperations.CONTAINS_KEY, ratio(phase.containsRatio, containsRatio))
+         .add(BasicOperations.PUT, ratio(phase.putRatio, putRatio))
+         .add(BasicOperations.GET_AND_PUT, ratio(phase.getAndPutRatio, getAndPutRatio))
+         .add(BasicOperations.REMOVE, ratio(phase.removeRatio, removeRatio))
+         .add(BasicOperations.GET_AND_REMOVE, ratio(phase.getAndRemoveRatio, getAndRemoveRatio))
+         .build();
+   }
+
+   private static int ratio(Integer phaseRatio, int stageRatio) {
+      return phaseRatio == null ? stageRatio : phaseRatio;
+   }
+
    @Override
    public OperationLogic getLogic() {
       return new Logic();
@@ -65,19 +136,38 @@ public class BasicOperationsTestStage extends CacheOperationsTestStage {
       protected BasicOperations.Cache nonTxCache;
       protected BasicOperations.Cache cache;
       protected KeySelector keySelector;
+      // invocations are reused for all requests executed by this thread
+      protected CacheInvocations.Get get;
+      protected CacheInvocations.Put put;
+      protected CacheInvocations.Remove remove;
+      protected CacheInvocations.ContainsKey containsKey;
+      protected CacheInvocations.GetAndPut getAndPut;
+      protected CacheInvocations.GetAndRemove getAndRemove;
 
       @Override
       public void init(Stressor stressor) {
          super.init(stressor);
          String cacheName = cacheSelector.getCacheName(stressor.getGlobalThreadIndex());
          this.nonTxCache = basicOperations.getCache(cacheName);
-         if (useTransactions(cacheName)) {
+         if (batchSize > 1) {
+            if (useTransactions(cacheName)) {
+               throw new IllegalStateException("Batching cannot be used with transactions");
+            }
+            cache = batchingCaches.computeIfAbsent(cacheName == null ? "" : cacheName, name -> new BatchingCache(
+               nonTxCache, bulkOperations.getCache(cacheName, false), batchSize, batchLinger));
+         } else if (useTransactions(cacheName)) {
             cache = new Delegates.BasicOperationsCache<>();
          } else {
             cache = nonTxCache;
          }
          stressor.setUseTransactions(useTransactions(cacheName));
          keySelector = getKeySelector(stressor);
+         get = new CacheInvocations.Get(cache, null);
+         put = new CacheInvocations.Put(cache, null, null);
+         remove = new CacheInvocations.Remove(cache, null);
+         containsKey = new CacheInvocations.ContainsKey(cache, null);
+         getAndPut = new CacheInvocations.GetAndPut(cache, null, null);
+         getAndRemove = new CacheInvocations.GetAndRemove(cache, null);
       }
 
       @Override
@@ -97,19 +187,45 @@ public class BasicOperationsTestStage extends CacheOperationsTestStage {
 
          Invocation invocation;
          if (operation == BasicOperations.GET) {
-            invocation = new CacheInvocations.Get(cache, key);
+            invocation = get.set(key);
          } else if (operation == BasicOperations.PUT) {
-            invocation = new CacheInvocations.Put(cache, key, valueGenerator.generateValue(key, entrySize.next(random), random));
+            invocation = put.set(key, valueGenerator.generateValue(key, nextEntrySize(random), random));
          } else if (operation == BasicOperations.REMOVE) {
-            invocation = new CacheInvocations.Remove(cache, key);
+            invocation = remove.set(key);
          } else if (operation == BasicOperations.CONTAINS_KEY) {
-            invocation = new CacheInvocations.ContainsKey(cache, key);
+            invocation = containsKey.set(key);
          } else if (operation == BasicOperations.GET_AND_PUT) {
-            invocation = new CacheInvocations.GetAndPut(cache, key, valueGenerator.generateValue(key, entrySize.next(random), random));
+            invocation = getAndPut.set(key, valueGenerator.generateValue(key, nextEntrySize(random), random));
          } else if (operation == BasicOperations.GET_AND_REMOVE) {
-            invocation = new CacheInvocations.GetAndRemove(cache, key);
+            invocation = getAndRemove.set(key);
          } else throw new IllegalArgumentException(operation.name);
          stressor.makeRequest(invocation);
       }
    }
+
+   /**
+    * Phase of basic operations test that can also change the operation mix.
+    */
+   @Namespace(name = TestStage.NAMESPACE, deprecatedName = TestStage.DEPRECATED_NAMESPACE)
+   @DefinitionElement(name = "basic-operations-phase", doc = "Phase of basic-operations-test with its own arrival rate, " +
+      "key selector, entry size and ratios of operations.")
+   public static class Phase extends CacheWorkloadPhase {
+      @Property(doc = "Ratio of GET requests. Default is stage's ratio.")
+      protected Integer getRatio;
+
+      @Property(doc = "Ratio of CONTAINS requests. Default is stage's ratio.")
+      protected Integer containsRatio;
+
+      @Property(doc = "Ratio of PUT requests. Default is stage's ratio.")
+      protected Integer putRatio;
+
+      @Property(doc = "Ratio of GET_AND_PUT requests. Default is stage's ratio.")
+      protected Integer getAndPutRatio;
+
+      @Property(doc = "Ratio of REMOVE requests. Default is stage's ratio.")
+      protected Integer removeRatio;
+
+      @Property(doc = "Ratio of GET_AND_REMOVE requests. Default is stage's ratio.")
+      protected Integer getAndRemoveRatio;
+   }
 }
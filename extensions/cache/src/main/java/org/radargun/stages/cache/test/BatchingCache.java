@@ -0,0 +1,184 @@
+package org.radargun.stages.cache.test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.radargun.traits.BasicOperations;
+import org.radargun.traits.BulkOperations;
+
+/**
+ * Cache shared by stressors that coalesces their gets and puts into {@link BulkOperations.Cache#getAll(java.util.Set)}
+ * and {@link BulkOperations.Cache#putAll(Map)}, the way client libraries batch requests of concurrent callers.
+ * The first request added to a batch waits until the batch is full or the linger time elapses, the thread that
+ * closes the batch executes the bulk operation and the other requests block until it completes. Other operations
+ * are executed directly.
+ */
+class BatchingCache implements BasicOperations.Cache<Object, Object> {
+   private final BasicOperations.Cache<Object, Object> cache;
+   private final BulkOperations.Cache<Object, Object> bulkCache;
+   private final int maxBatchSize;
+   private final long lingerNanos;
+   private final ReentrantLock lock = new ReentrantLock();
+   private final Condition batchFull = lock.newCondition();
+   private final LongAdder batches = new LongAdder();
+   private final LongAdder batchedRequests = new LongAdder();
+   private Batch openGets;
+   private Batch openPuts;
+
+   BatchingCache(BasicOperations.Cache<Object, Object> cache, BulkOperations.Cache<Object, Object> bulkCache,
+                 int maxBatchSize, long lingerNanos) {
+      this.cache = cache;
+      this.bulkCache = bulkCache;
+      this.maxBatchSize = maxBatchSize;
+      this.lingerNanos = lingerNanos;
+   }
+
+   @Override
+   public Object get(Object key) {
+      Batch batch = join(true, key, null);
+      return batch.result.get(key);
+   }
+
+   @Override
+   public void put(Object key, Object value) {
+      join(false, key, value);
+   }
+
+   @Override
+   public boolean containsKey(Object key) {
+      return cache.containsKey(key);
+   }
+
+   @Override
+   public Object getAndPut(Object key, Object value) {
+      return cache.getAndPut(key, value);
+   }
+
+   @Override
+   public boolean remove(Object key) {
+      return cache.remove(key);
+   }
+
+   @Override
+   public Object getAndRemove(Object key) {
+      return cache.getAndRemove(key);
+   }
+
+   @Override
+   public void clear() {
+      cache.clear();
+   }
+
+   /**
+    * @return Number of executed bulk operations.
+    */
+   long getBatches() {
+      return batches.sum();
+   }
+
+   /**
+    * @return Number of requests executed in bulk operations.
+    */
+   long getBatchedRequests() {
+      return batchedRequests.sum();
+   }
+
+   private Batch join(boolean get, Object key, Object value) {
+      Batch batch;
+      boolean execute = false;
+      lock.lock();
+      try {
+         batch = get ? openGets : openPuts;
+         boolean first = batch == null;
+         if (first) {
+            batch = new Batch(get);
+            if (get) {
+               openGets = batch;
+            } else {
+               openPuts = batch;
+            }
+         }
+         batch.entries.put(key, value);
+         batch.requests++;
+         if (batch.requests >= maxBatchSize) {
+            close(batch);
+            batchFull.signalAll();
+            execute = true;
+         } else if (first) {
+            long remaining = lingerNanos;
+            try {
+               while (!batch.closed && remaining > 0) {
+                  remaining = batchFull.awaitNanos(remaining);
+               }
+            } catch (InterruptedException e) {
+               // execute the batch anyway, the other requests are waiting for it
+               Thread.currentThread().interrupt();
+            }
+            if (!batch.closed) {
+               close(batch);
+               execute = true;
+            }
+         }
+      } finally {
+         lock.unlock();
+      }
+      if (execute) {
+         execute(batch);
+      } else {
+         try {
+            batch.done.await();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for batch completion", e);
+         }
+      }
+      if (batch.failure != null) {
+         throw new IllegalStateException("Batch of " + batch.requests + " requests failed", batch.failure);
+      }
+      return batch;
+   }
+
+   private void close(Batch batch) {
+      batch.closed = true;
+      if (batch.get) {
+         openGets = null;
+      } else {
+         openPuts = null;
+      }
+   }
+
+   private void execute(Batch batch) {
+      try {
+         if (batch.get) {
+            batch.result = bulkCache.getAll(batch.entries.keySet());
+         } else {
+            bulkCache.putAll(batch.entries);
+         }
+      } catch (RuntimeException e) {
+         batch.failure = e;
+      } finally {
+         batches.increment();
+         batchedRequests.add(batch.requests);
+         batch.done.countDown();
+      }
+   }
+
+   private static class Batch {
+      private final boolean get;
+      private final Map<Object, Object> entries = new HashMap<>();
+      private final CountDownLatch done = new CountDownLatch(1);
+      private int requests;
+      private boolean closed;
+      // published to the waiting threads through the latch
+      private Map<Object, Object> result;
+      private RuntimeException failure;
+
+      private Batch(boolean get) {
+         this.get = get;
+      }
+   }
+}
@@ -6,8 +6,11 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.radargun.Operation;
+import org.radargun.config.Init;
 import org.radargun.config.Namespace;
 import org.radargun.config.Property;
 import org.radargun.config.Stage;
@@ -17,9 +20,11 @@ import org.radargun.stages.test.OperationSelector;
 import org.radargun.stages.test.RatioOperationSelector;
 import org.radargun.stages.test.Stressor;
 import org.radargun.stages.test.TestStage;
+import org.radargun.stages.test.TransactionMode;
 import org.radargun.traits.BasicOperations;
 import org.radargun.traits.BulkOperations;
 import org.radargun.traits.InjectTrait;
+import org.radargun.utils.Utils;
 
 /**
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
@@ -49,9 +54,45 @@ public class BulkOperationsTestStage extends CacheOperationsTestStage {
    @Property(doc = "Ratio of REMOVE_ALL_ASYNC requests. Default is 0.")
    protected int removeAllAsyncRatio = 0;
 
+   @Property(doc = "Send PUT_ALL_ASYNC and REMOVE_ALL_ASYNC requests without waiting for their completion; each thread " +
+      "keeps up to 'max-in-flight-requests' of them in flight. The requests are not wrapped in transactions then, " +
+      "therefore it cannot be combined with use-transactions = ALWAYS. Default is false.")
+   protected boolean pipelineAsync = false;
+
    @InjectTrait
    protected BulkOperations bulkOperations;
 
+   // executes asynchronous operations of services without native support
+   private ExecutorService asyncExecutor;
+
+   @Init
+   public void validatePipelineAsync() {
+      if (pipelineAsync && useTransactions == TransactionMode.ALWAYS)
+         throw new IllegalStateException("Pipelined asynchronous requests cannot be executed within transactions");
+   }
+
+   @Override
+   protected void prepare() {
+      super.prepare();
+      if (pipelineAsync) {
+         int numThreads = Math.max(1, getNumThreadsOn(slaveState.getSlaveIndex()) * maxInFlightRequests);
+         asyncExecutor = Executors.newFixedThreadPool(numThreads, r -> {
+            Thread thread = new Thread(r, "BulkOperationsAsync");
+            thread.setDaemon(true);
+            return thread;
+         });
+      }
+   }
+
+   @Override
+   protected void destroy() {
+      if (asyncExecutor != null) {
+         Utils.shutdownAndWait(asyncExecutor);
+         asyncExecutor = null;
+      }
+      super.destroy();
+   }
+
    @Override
    protected OperationSelector createOperationSelector() {
 
@@ -92,14 +133,16 @@ public class BulkOperationsTestStage extends CacheOperationsTestStage {
          String cacheName = cacheSelector.getCacheName(stressor.getGlobalThreadIndex());
          this.nonTxNativeCache = bulkOperations.getCache(cacheName, false);
          this.nonTxAsyncCache = bulkOperations.getCache(cacheName, true);
-         if (useTransactions(cacheName)) {
+         // pipelined asynchronous requests cannot be executed within transactions
+         boolean useTransactions = !pipelineAsync && useTransactions(cacheName);
+         if (useTransactions) {
             nativeCache = new Delegates.BulkOperationsCache();
             asyncCache = new Delegates.BulkOperationsCache();
          } else {
             nativeCache = nonTxNativeCache;
             asyncCache = nonTxAsyncCache;
          }
-         stressor.setUseTransactions(useTransactions(cacheName));
+         stressor.setUseTransactions(useTransactions);
          keySelector = getKeySelector(stressor);
       }
 
@@ -125,12 +168,15 @@ public class BulkOperationsTestStage extends CacheOperationsTestStage {
             for (int i = 0; i < bulkSize; ) {
                Object key = keyGenerator.generateKey(keySelector.next());
                if (!map.containsKey(key)) {
-                  map.put(key, valueGenerator.generateValue(key, entrySize.next(random), random));
+                  map.put(key, valueGenerator.generateValue(key, nextEntrySize(random), random));
                   ++i;
                }
             }
             if (operation == BulkOperations.PUT_ALL_NATIVE) {
                invocation = new CacheInvocations.PutAll(nativeCache, false, map);
+            } else if (pipelineAsync) {
+               stressor.makeAsyncRequest(new CacheInvocations.PutAllAsync<>(asyncCache, map, asyncExecutor));
+               return;
             } else {
                invocation = new CacheInvocations.PutAll(asyncCache, true, map);
             }
@@ -152,6 +198,9 @@ public class BulkOperationsTestStage extends CacheOperationsTestStage {
             } else {
                if (operation == BulkOperations.REMOVE_ALL_NATIVE) {
                   invocation = new CacheInvocations.RemoveAll(nativeCache, false, set);
+               } else if (pipelineAsync) {
+                  stressor.makeAsyncRequest(new CacheInvocations.RemoveAllAsync<>(asyncCache, set, asyncExecutor));
+                  return;
                } else {
                   invocation = new CacheInvocations.RemoveAll(asyncCache, true, set);
                }
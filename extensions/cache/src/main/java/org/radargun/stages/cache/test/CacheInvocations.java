@@ -5,6 +5,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 
 import org.radargun.Operation;
 import org.radargun.stages.test.Invocation;
@@ -19,6 +21,8 @@ import org.radargun.traits.TemporalOperations;
  * operations from traits {@link org.radargun.traits.BasicOperations},
  * {@link org.radargun.traits.ConditionalOperations}, and
  * {@link org.radargun.traits.BulkOperations}.
+ * Invocations of {@link org.radargun.traits.BasicOperations} can be reused by the stressor
+ * thread through their <code>set</code> methods.
  *
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
  */
@@ -27,7 +31,7 @@ public class CacheInvocations {
       public static final Operation GET_NULL = BasicOperations.GET.derive("Null");
       public static final Operation TX = BasicOperations.GET.derive("tx");
       private final BasicOperations.Cache<K, V> cache;
-      private final K key;
+      private K key;
       private V value;
 
       public Get(BasicOperations.Cache cache, K key) {
@@ -35,6 +39,15 @@ public class CacheInvocations {
          this.key = key;
       }
 
+      /**
+       * Reuses this instance for another request, to avoid allocation per request.
+       */
+      public Get<K, V> set(K key) {
+         this.key = key;
+         this.value = null;
+         return this;
+      }
+
       @Override
       public V invoke() {
          return value = cache.get(key);
@@ -54,8 +67,8 @@ public class CacheInvocations {
    public static final class Put<K, V> implements Invocation<Void> {
       public static final Operation TX = BasicOperations.PUT.derive("tx");
       private final BasicOperations.Cache<K, V> cache;
-      private final K key;
-      private final V value;
+      private K key;
+      private V value;
 
       public Put(BasicOperations.Cache<K, V> cache, K key, V value) {
          this.cache = cache;
@@ -63,6 +76,12 @@ public class CacheInvocations {
          this.value = value;
       }
 
+      public Put<K, V> set(K key, V value) {
+         this.key = key;
+         this.value = value;
+         return this;
+      }
+
       @Override
       public Void invoke() {
          cache.put(key, value);
@@ -147,13 +166,18 @@ public class CacheInvocations {
    public static final class Remove<K, V> implements Invocation<Boolean> {
       public static final Operation TX = BasicOperations.REMOVE.derive("tx");
       private final BasicOperations.Cache<K, V> cache;
-      private final K key;
+      private K key;
 
       public Remove(BasicOperations.Cache cache, K key) {
          this.cache = cache;
          this.key = key;
       }
 
+      public Remove<K, V> set(K key) {
+         this.key = key;
+         return this;
+      }
+
       @Override
       public Boolean invoke() {
          return cache.remove(key);
@@ -173,13 +197,18 @@ public class CacheInvocations {
    public static final class ContainsKey<K> implements Invocation<Boolean> {
       public static final Operation TX = BasicOperations.CONTAINS_KEY.derive("tx");
       private final BasicOperations.Cache<K, ?> cache;
-      private final K key;
+      private K key;
 
       public ContainsKey(BasicOperations.Cache<K, ?> cache, K key) {
          this.cache = cache;
          this.key = key;
       }
 
+      public ContainsKey<K> set(K key) {
+         this.key = key;
+         return this;
+      }
+
       @Override
       public Boolean invoke() {
          return cache.containsKey(key);
@@ -199,8 +228,8 @@ public class CacheInvocations {
    public static final class GetAndPut<K, V> implements Invocation<V> {
       public static final Operation TX = BasicOperations.GET_AND_PUT.derive("tx");
       private final BasicOperations.Cache<K, V> cache;
-      private final K key;
-      private final V value;
+      private K key;
+      private V value;
 
       public GetAndPut(BasicOperations.Cache<K, V> cache, K key, V value) {
          this.cache = cache;
@@ -208,6 +237,12 @@ public class CacheInvocations {
          this.value = value;
       }
 
+      public GetAndPut<K, V> set(K key, V value) {
+         this.key = key;
+         this.value = value;
+         return this;
+      }
+
       @Override
       public V invoke() {
          return cache.getAndPut(key, value);
@@ -289,13 +324,18 @@ public class CacheInvocations {
    public static final class GetAndRemove<K, V> implements Invocation<V> {
       public static final Operation TX = BasicOperations.GET_AND_REMOVE.derive("tx");
       private final BasicOperations.Cache<K, V> cache;
-      private final K key;
+      private K key;
 
       public GetAndRemove(BasicOperations.Cache<K, V> cache, K key) {
          this.cache = cache;
          this.key = key;
       }
 
+      public GetAndRemove<K, V> set(K key) {
+         this.key = key;
+         return this;
+      }
+
       @Override
       public V invoke() {
          return cache.getAndRemove(key);
@@ -605,6 +645,68 @@ public class CacheInvocations {
       }
    }
 
+   /**
+    * Executed through {@link org.radargun.stages.test.Stressor#makeAsyncRequest(Invocation)}, therefore it cannot
+    * be used within transactions.
+    */
+   public static final class PutAllAsync<K, V> implements Invocation<CompletionStage<Void>> {
+      private final BulkOperations.Cache<K, V> cache;
+      private final Map<K, V> entries;
+      private final Executor executor;
+
+      public PutAllAsync(BulkOperations.Cache<K, V> cache, Map<K, V> entries, Executor executor) {
+         this.cache = cache;
+         this.entries = entries;
+         this.executor = executor;
+      }
+
+      @Override
+      public CompletionStage<Void> invoke() {
+         return cache.putAllAsync(entries, executor);
+      }
+
+      @Override
+      public Operation operation() {
+         return BulkOperations.PUT_ALL_ASYNC;
+      }
+
+      @Override
+      public Operation txOperation() {
+         throw new UnsupportedOperationException("Asynchronous requests cannot be executed within transactions.");
+      }
+   }
+
+   /**
+    * Executed through {@link org.radargun.stages.test.Stressor#makeAsyncRequest(Invocation)}, therefore it cannot
+    * be used within transactions.
+    */
+   public static final class RemoveAllAsync<K, V> implements Invocation<CompletionStage<Void>> {
+      private final BulkOperations.Cache<K, V> cache;
+      private final Set<K> keys;
+      private final Executor executor;
+
+      public RemoveAllAsync(BulkOperations.Cache<K, V> cache, Set<K> keys, Executor executor) {
+         this.cache = cache;
+         this.keys = keys;
+         this.executor = executor;
+      }
+
+      @Override
+      public CompletionStage<Void> invoke() {
+         return cache.removeAllAsync(keys, executor);
+      }
+
+      @Override
+      public Operation operation() {
+         return BulkOperations.REMOVE_ALL_ASYNC;
+      }
+
+      @Override
+      public Operation txOperation() {
+         throw new UnsupportedOperationException("Asynchronous requests cannot be executed within transactions.");
+      }
+   }
+
    public static final class GetViaStream<K, V extends Number> implements Invocation<Integer> {
       public static final Operation GET_NULL = StreamingOperations.GET.derive("Null");
       public static final Operation TX = StreamingOperations.GET.derive("tx");
@@ -5,6 +5,7 @@ import org.radargun.config.Property;
 import org.radargun.config.Stage;
 import org.radargun.stages.test.Stressor;
 import org.radargun.stages.test.TestStage;
+import org.radargun.stages.test.WorkloadSchedule;
 import org.radargun.utils.ReflexiveConverters;
 
 /**
@@ -18,13 +19,30 @@ public abstract class CacheOperationsTestStage extends CacheTestStage {
    protected KeySelectorFactory keySelectorFactory;
 
    protected KeySelector getKeySelector(Stressor stressor) {
-      return keySelectorFactory.newInstance(CacheOperationsTestStage.this,
+      KeySelector keySelector = newKeySelector(keySelectorFactory, stressor);
+      WorkloadSchedule schedule = getWorkloadSchedule();
+      if (schedule == null) {
+         return keySelector;
+      }
+      KeySelector[] phaseSelectors = schedule.perPhase(phase -> {
+         if (phase instanceof CacheWorkloadPhase && ((CacheWorkloadPhase) phase).getKeySelectorFactory() != null) {
+            return newKeySelector(((CacheWorkloadPhase) phase).getKeySelectorFactory(), stressor);
+         }
+         return null;
+      }, keySelector, new KeySelector[schedule.size()]);
+      return phaseSelectors == null ? keySelector : new PhasedKeySelector(schedule, stressor.getRandom(), phaseSelectors);
+   }
+
+   private KeySelector newKeySelector(KeySelectorFactory factory, Stressor stressor) {
+      return factory.newInstance(CacheOperationsTestStage.this,
          stressor.getRandom(), stressor.getGlobalThreadIndex(), stressor.getThreadIndex());
    }
 
-   private static class KeySelectorFactoryConverter extends ReflexiveConverters.ObjectConverter {
+   static class KeySelectorFactoryConverter extends ReflexiveConverters.ObjectConverter {
       protected KeySelectorFactoryConverter() {
-         super(new Class<?>[] {CollidingKeysSelector.Factory.class, ConcurrentKeysSelector.Factory.class, GaussianKeysSelector.Factory.class});
+         super(new Class<?>[] {CollidingKeysSelector.Factory.class, ConcurrentKeysSelector.Factory.class, GaussianKeysSelector.Factory.class,
+            ZipfianKeysSelector.Factory.class, ScrambledZipfianKeysSelector.Factory.class, HotspotKeysSelector.Factory.class,
+            LatestKeysSelector.Factory.class});
       }
    }
 }
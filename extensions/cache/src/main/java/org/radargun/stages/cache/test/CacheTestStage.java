@@ -1,5 +1,7 @@
 package org.radargun.stages.cache.test;
 
+import java.util.Random;
+
 import org.radargun.config.Namespace;
 import org.radargun.config.Property;
 import org.radargun.config.PropertyHelper;
@@ -8,6 +10,9 @@ import org.radargun.stages.cache.generators.KeyGenerator;
 import org.radargun.stages.cache.generators.ValueGenerator;
 import org.radargun.stages.helpers.CacheSelector;
 import org.radargun.stages.test.TestStage;
+import org.radargun.stages.test.WorkloadPhase;
+import org.radargun.stages.test.WorkloadSchedule;
+import org.radargun.traits.CacheInformation;
 import org.radargun.traits.ConditionalOperations;
 import org.radargun.traits.InjectTrait;
 import org.radargun.utils.Fuzzy;
@@ -37,6 +42,9 @@ public abstract class CacheTestStage extends TestStage {
    @InjectTrait
    protected ConditionalOperations conditionalOperations;
 
+   @InjectTrait
+   protected CacheInformation cacheInformation;
+
    @Override
    protected void prepare() {
       if (keyGenerator == null) {
@@ -58,6 +66,7 @@ public abstract class CacheTestStage extends TestStage {
          slaveState.put(ValueGenerator.VALUE_GENERATOR, valueGenerator);
       }
       log.info("Using value generator " + valueGenerator.getClass().getName() + PropertyHelper.toString(valueGenerator));
+      ValueGenerator.checkCompatible(valueGenerator, cacheInformation);
 
       if (cacheSelector == null) {
          cacheSelector = (CacheSelector) slaveState.get(CacheSelector.CACHE_SELECTOR);
@@ -69,4 +78,18 @@ public abstract class CacheTestStage extends TestStage {
       }
       log.info("Using cache selector " + cacheSelector);
    }
+
+   /**
+    * @return Size of the next value, according to the current workload phase.
+    */
+   protected int nextEntrySize(Random random) {
+      WorkloadSchedule schedule = getWorkloadSchedule();
+      if (schedule != null) {
+         WorkloadPhase phase = schedule.getPhases().get(schedule.select(random));
+         if (phase instanceof CacheWorkloadPhase && ((CacheWorkloadPhase) phase).getEntrySize() != null) {
+            return ((CacheWorkloadPhase) phase).getEntrySize().next(random);
+         }
+      }
+      return entrySize.next(random);
+   }
 }
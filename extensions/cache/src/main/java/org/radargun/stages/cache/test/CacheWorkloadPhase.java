@@ -0,0 +1,30 @@
+package org.radargun.stages.cache.test;
+
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Namespace;
+import org.radargun.config.Property;
+import org.radargun.stages.test.TestStage;
+import org.radargun.stages.test.WorkloadPhase;
+import org.radargun.utils.Fuzzy;
+
+/**
+ * Phase of cache test that can change distribution of keys and size of values.
+ */
+@Namespace(name = TestStage.NAMESPACE, deprecatedName = TestStage.DEPRECATED_NAMESPACE)
+@DefinitionElement(name = "cache-phase", doc = "Phase of cache test with its own arrival rate, key selector and entry size.")
+public class CacheWorkloadPhase extends WorkloadPhase {
+   @Property(name = "keySelector", doc = "Selects which key IDs are used in this phase. Default is stage's key selector.",
+      complexConverter = CacheOperationsTestStage.KeySelectorFactoryConverter.class)
+   protected KeySelectorFactory keySelectorFactory;
+
+   @Property(doc = "Size of the value in bytes. Default is stage's entry size.", converter = Fuzzy.IntegerConverter.class)
+   protected Fuzzy<Integer> entrySize;
+
+   public KeySelectorFactory getKeySelectorFactory() {
+      return keySelectorFactory;
+   }
+
+   public Fuzzy<Integer> getEntrySize() {
+      return entrySize;
+   }
+}
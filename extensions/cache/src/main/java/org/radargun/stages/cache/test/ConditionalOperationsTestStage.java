@@ -121,7 +121,7 @@ public class ConditionalOperationsTestStage extends CacheOperationsTestStage {
       public void run(Operation operation) throws RequestException {
          Random random = stressor.getRandom();
          Object key = keyGenerator.generateKey(keySelector.next());
-         Object newValue = valueGenerator.generateValue(key, entrySize.next(random), random);
+         Object newValue = valueGenerator.generateValue(key, nextEntrySize(random), random);
          boolean shouldMatch = matchSelector.shouldMatch();
 
          Object oldValue = stressor.makeRequest(new CacheInvocations.Get(basicCache, key));
@@ -140,7 +140,7 @@ public class ConditionalOperationsTestStage extends CacheOperationsTestStage {
                shouldMatch ? oldValue : newValue));
             matchSelector.record(removed);
          } else if (operation == ConditionalOperations.REPLACE) {
-            Object wrongValue = valueGenerator.generateValue(key, entrySize.next(random), random);
+            Object wrongValue = valueGenerator.generateValue(key, nextEntrySize(random), random);
             Boolean replaced = (Boolean) stressor.makeRequest(new CacheInvocations.Replace(conditionalCache, key,
                shouldMatch ? oldValue : wrongValue, newValue));
             matchSelector.record(replaced);
@@ -0,0 +1,69 @@
+package org.radargun.stages.cache.test;
+
+import java.util.Random;
+
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Init;
+import org.radargun.config.Namespace;
+import org.radargun.config.Property;
+import org.radargun.config.PropertyHelper;
+import org.radargun.stages.test.TestStage;
+
+/**
+ * Directs given fraction of operations to a hot set of keys (the lowest indices), the rest
+ * goes to the remaining keys. Keys within each set are selected uniformly.
+ */
+public class HotspotKeysSelector implements KeySelector {
+   private final Random random;
+   private final long numEntries;
+   private final long hotEntries;
+   private final double hotOperationsFraction;
+
+   public HotspotKeysSelector(Random random, long numEntries, long hotEntries, double hotOperationsFraction) {
+      this.random = random;
+      this.numEntries = numEntries;
+      this.hotEntries = hotEntries;
+      this.hotOperationsFraction = hotOperationsFraction;
+   }
+
+   @Override
+   public long next() {
+      if (hotEntries == numEntries || random.nextDouble() < hotOperationsFraction) {
+         return (random.nextLong() & Long.MAX_VALUE) % hotEntries;
+      } else {
+         return hotEntries + (random.nextLong() & Long.MAX_VALUE) % (numEntries - hotEntries);
+      }
+   }
+
+   @Namespace(name = TestStage.NAMESPACE, deprecatedName = TestStage.DEPRECATED_NAMESPACE)
+   @DefinitionElement(name = "hotspot-keys", doc = "In the test fixed set of entries is used and this is shared among all stressor threads. " +
+      "Given fraction of operations targets small hot set of keys, e.g. 80 % of operations on 20 % of keys.")
+   public static class Factory implements KeySelectorFactory {
+      @Property(doc = "Total number of key-value entries.", optional = false)
+      protected long numEntries = 0;
+
+      @Property(doc = "Fraction of keys in the hot set. Default is 0.2.")
+      protected double hotKeysFraction = 0.2;
+
+      @Property(doc = "Fraction of operations that target the hot set. Default is 0.8.")
+      protected double hotOperationsFraction = 0.8;
+
+      @Init
+      public void init() {
+         if (numEntries <= 0) throw new IllegalStateException("Number of entries must be positive");
+         if (hotKeysFraction <= 0 || hotKeysFraction > 1) throw new IllegalStateException("Hot keys fraction must be within (0, 1]");
+         if (hotOperationsFraction < 0 || hotOperationsFraction > 1) throw new IllegalStateException("Hot operations fraction must be within [0, 1]");
+      }
+
+      @Override
+      public KeySelector newInstance(CacheOperationsTestStage stage, Random random, int globalThreadId, int threadId) {
+         long hotEntries = Math.max(1, Math.min(numEntries, (long) (numEntries * hotKeysFraction)));
+         return new HotspotKeysSelector(random, numEntries, hotEntries, hotOperationsFraction);
+      }
+
+      @Override
+      public String toString() {
+         return HotspotKeysSelector.class.getSimpleName() + PropertyHelper.toString(this);
+      }
+   }
+}
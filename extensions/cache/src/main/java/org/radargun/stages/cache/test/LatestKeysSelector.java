@@ -0,0 +1,64 @@
+package org.radargun.stages.cache.test;
+
+import java.util.Random;
+
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Init;
+import org.radargun.config.Namespace;
+import org.radargun.config.Property;
+import org.radargun.config.PropertyHelper;
+import org.radargun.stages.test.TestStage;
+
+/**
+ * Favors the most recently inserted keys: the popularity follows Zipfian distribution
+ * counted from the highest key index (keys are loaded in the order of indices).
+ */
+public class LatestKeysSelector implements KeySelector {
+   private final Random random;
+   private final Zipfian zipfian;
+   private final long numEntries;
+
+   public LatestKeysSelector(Random random, long numEntries, double theta) {
+      this(random, new Zipfian(numEntries, theta), numEntries);
+   }
+
+   LatestKeysSelector(Random random, Zipfian zipfian, long numEntries) {
+      this.random = random;
+      this.zipfian = zipfian;
+      this.numEntries = numEntries;
+   }
+
+   @Override
+   public long next() {
+      return numEntries - 1 - zipfian.sample(random);
+   }
+
+   @Namespace(name = TestStage.NAMESPACE, deprecatedName = TestStage.DEPRECATED_NAMESPACE)
+   @DefinitionElement(name = "latest-keys", doc = "In the test fixed set of entries is used and this is shared among all stressor threads. " +
+      "The most recently loaded keys (with the highest indices) are the most popular, with Zipfian distribution.")
+   public static class Factory implements KeySelectorFactory {
+      @Property(doc = "Total number of key-value entries.", optional = false)
+      protected long numEntries = 0;
+
+      @Property(doc = "Skew of the distribution, must be within (0, 1); higher values concentrate the requests " +
+         "on fewer keys. Default is 0.99.")
+      protected double theta = 0.99;
+
+      private Zipfian zipfian;
+
+      @Init
+      public void init() {
+         zipfian = new Zipfian(numEntries, theta);
+      }
+
+      @Override
+      public KeySelector newInstance(CacheOperationsTestStage stage, Random random, int globalThreadId, int threadId) {
+         return new LatestKeysSelector(random, zipfian, numEntries);
+      }
+
+      @Override
+      public String toString() {
+         return LatestKeysSelector.class.getSimpleName() + PropertyHelper.toString(this);
+      }
+   }
+}
@@ -0,0 +1,110 @@
+package org.radargun.stages.cache.test;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+
+/**
+ * Persists progress of loaders to a local file, so that interrupted loading can be resumed.
+ * Each line holds global index of the loader, its key ID range and ID up to which all entries
+ * have been stored. The file is replaced atomically, therefore it is never left half-written.
+ */
+class LoadCheckpoint {
+   private static final Log log = LogFactory.getLog(LoadCheckpoint.class);
+   private static final String HEADER = "# loader from to loaded";
+
+   private final Path file;
+   private final Map<Integer, Progress> progress = new TreeMap<>();
+
+   LoadCheckpoint(Path file) {
+      this.file = file;
+   }
+
+   /**
+    * Reads progress stored in the file; missing file is treated as empty checkpoint.
+    */
+   synchronized void read() throws IOException {
+      progress.clear();
+      try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+         String line;
+         while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+               continue;
+            }
+            String[] parts = line.split("\\s+");
+            if (parts.length != 4) {
+               throw new IOException("Malformed line in checkpoint file " + file + ": " + line);
+            }
+            try {
+               int loader = Integer.parseInt(parts[0]);
+               progress.put(loader, new Progress(Long.parseLong(parts[1]), Long.parseLong(parts[2]), Long.parseLong(parts[3])));
+            } catch (NumberFormatException e) {
+               throw new IOException("Malformed line in checkpoint file " + file + ": " + line, e);
+            }
+         }
+      } catch (NoSuchFileException e) {
+         log.info("Checkpoint file " + file + " does not exist, loading from the beginning");
+      }
+   }
+
+   /**
+    * @return ID up to which the entries were loaded, or <code>from</code> if the checkpoint does not
+    * contain record for this loader and range.
+    */
+   synchronized long loaded(int loader, long from, long to) {
+      Progress p = progress.get(loader);
+      if (p == null) {
+         return from;
+      } else if (p.from != from || p.to != to) {
+         log.warnf("Checkpoint of loader %d is for range [%d, %d), current range is [%d, %d); ignoring it",
+            loader, p.from, p.to, from, to);
+         return from;
+      }
+      return Math.max(from, Math.min(p.loaded, to));
+   }
+
+   synchronized void update(int loader, long from, long to, long loaded) {
+      progress.put(loader, new Progress(from, to, loaded));
+   }
+
+   synchronized void write() throws IOException {
+      Path parent = file.toAbsolutePath().getParent();
+      if (parent != null) {
+         Files.createDirectories(parent);
+      }
+      Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+      try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+         writer.write(HEADER);
+         writer.newLine();
+         for (Map.Entry<Integer, Progress> entry : progress.entrySet()) {
+            Progress p = entry.getValue();
+            writer.write(entry.getKey() + " " + p.from + " " + p.to + " " + p.loaded);
+            writer.newLine();
+         }
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+   }
+
+   private static class Progress {
+      private final long from;
+      private final long to;
+      private final long loaded;
+
+      private Progress(long from, long to, long loaded) {
+         this.from = from;
+         this.to = to;
+         this.loaded = loaded;
+      }
+   }
+}
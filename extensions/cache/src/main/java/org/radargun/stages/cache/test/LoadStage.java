@@ -1,9 +1,23 @@
 package org.radargun.stages.cache.test;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.radargun.config.Init;
 import org.radargun.config.Property;
 import org.radargun.config.Stage;
 import org.radargun.stages.cache.generators.ByteArrayValueGenerator;
@@ -14,6 +28,7 @@ import org.radargun.stages.helpers.CacheSelector;
 import org.radargun.stages.test.TransactionMode;
 import org.radargun.traits.BasicOperations;
 import org.radargun.traits.BulkOperations;
+import org.radargun.traits.CacheInformation;
 import org.radargun.traits.InjectTrait;
 import org.radargun.traits.Transactional;
 import org.radargun.utils.Fuzzy;
@@ -72,6 +87,41 @@ public class LoadStage extends org.radargun.stages.test.LoadStage {
    @Property(doc = "Controls whether batch insertion is performed in asychronous way. Default is false (prefer synchronous operations).")
    protected boolean useAsyncBatchLoading = false;
 
+   @Property(doc = "Maximum number of batches each loader thread keeps in flight. With value > 1 the batches " +
+      "are loaded through asynchronous putAll/removeAll, so that the loader prepares next batches while the previous " +
+      "ones are being stored. Requires batch-size > 0 and cannot be used with transactions. Default is 1.")
+   protected int maxBatchesInFlight = 1;
+
+   @Property(doc = "Adapt the size of batches to observed throughput and latency, starting from batch-size. " +
+      "Requires batch-size > 0 and cannot be used with transactions. Default is false.")
+   protected boolean adaptiveBatchSize = false;
+
+   @Property(doc = "Maximum size of batch when adaptive-batch-size is enabled. Default is 10000.")
+   protected int maxBatchSize = 10000;
+
+   @Property(doc = "Batch size is decreased when mean latency of batches exceeds this value. " +
+      "Applies only when adaptive-batch-size is enabled. Default is 1 second.", converter = TimeConverter.class)
+   protected long maxBatchLatency = 1000;
+
+   @Property(doc = "File where the progress of loaders is periodically stored, so that the loading can be resumed " +
+      "after failure. Use ${slave.index} in the path when the slaves share the file system. " +
+      "By default the progress is not stored.")
+   protected String checkpointFile;
+
+   @Property(doc = "Period of storing the progress into checkpoint file. Default is 10 seconds.",
+      converter = TimeConverter.class)
+   protected long checkpointPeriod = 10000;
+
+   @Property(doc = "Skip entries that have been already loaded according to the checkpoint file. The key ranges " +
+      "of loaders must be the same as in the interrupted run (same number of slaves, threads and entries). " +
+      "Default is false.")
+   protected boolean resume = false;
+
+   @Property(doc = "Number of randomly chosen entries per loader that are read when resuming, to verify that " +
+      "the skipped entries are present in the cache (or absent when removing). If any check fails, " +
+      "the loader starts from the beginning of its range. Default is 0 (no verification).")
+   protected int resumeVerifySamples = 0;
+
    @InjectTrait(dependency = InjectTrait.Dependency.MANDATORY)
    protected BasicOperations basicOperations;
 
@@ -81,8 +131,37 @@ public class LoadStage extends org.radargun.stages.test.LoadStage {
    @InjectTrait
    protected Transactional transactional;
 
+   @InjectTrait
+   protected CacheInformation cacheInformation;
+
+   // executes batches of services without native asynchronous bulk operations
+   private ExecutorService batchExecutor;
+   private LoadCheckpoint checkpoint;
+   private ScheduledExecutorService checkpointExecutor;
+   private final List<RangeIds> checkpointedRanges = new CopyOnWriteArrayList<>();
+
+   @Init
+   public void validatePipelining() {
+      if (maxBatchesInFlight <= 0) throw new IllegalStateException("Max batches in flight must be > 0");
+      if (isPipelined()) {
+         if (batchSize <= 0) throw new IllegalStateException("Pipelined or adaptive batch loading requires batch-size > 0");
+         if (useTransactions == TransactionMode.ALWAYS)
+            throw new IllegalStateException("Pipelined or adaptive batch loading cannot be used with transactions");
+         if (adaptiveBatchSize && maxBatchSize < batchSize)
+            throw new IllegalStateException("Max batch size must be >= batch size");
+      }
+   }
+
+   @Init
+   public void validateCheckpoint() {
+      if (resume && checkpointFile == null) throw new IllegalStateException("Resuming requires checkpoint-file");
+      if (checkpointPeriod <= 0) throw new IllegalStateException("Checkpoint period must be > 0");
+      if (resumeVerifySamples < 0) throw new IllegalStateException("Resume verify samples must be >= 0");
+   }
+
    @Override
    protected void prepare() {
+      ValueGenerator.checkCompatible(valueGenerator, cacheInformation);
       if (useTransactions == TransactionMode.ALWAYS) {
          if (transactional == null) {
             throw new IllegalStateException("Service does not support transactions");
@@ -90,10 +169,36 @@ public class LoadStage extends org.radargun.stages.test.LoadStage {
             throw new IllegalStateException("Transaction size was not configured");
          }
       }
+      if (isPipelined() && batchExecutor == null) {
+         AtomicInteger threadCounter = new AtomicInteger();
+         batchExecutor = Executors.newFixedThreadPool(numThreads * maxBatchesInFlight, r -> {
+            Thread thread = new Thread(r, "BatchLoader-" + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+         });
+      }
 
       slaveState.put(KeyGenerator.KEY_GENERATOR, keyGenerator);
       slaveState.put(ValueGenerator.VALUE_GENERATOR, valueGenerator);
       slaveState.put(CacheSelector.CACHE_SELECTOR, cacheSelector);
+
+      if (checkpointFile != null) {
+         checkpoint = new LoadCheckpoint(Paths.get(checkpointFile));
+         if (resume) {
+            try {
+               checkpoint.read();
+            } catch (IOException e) {
+               throw new IllegalStateException("Failed to read checkpoint file " + checkpointFile, e);
+            }
+         }
+         checkpointedRanges.clear();
+         checkpointExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "LoadCheckpoint");
+            thread.setDaemon(true);
+            return thread;
+         });
+         checkpointExecutor.scheduleAtFixedRate(this::writeCheckpoint, checkpointPeriod, checkpointPeriod, TimeUnit.MILLISECONDS);
+      }
    }
 
    protected Loader createLoader(int threadBase, int threadIndex) {
@@ -101,17 +206,87 @@ public class LoadStage extends org.radargun.stages.test.LoadStage {
       boolean useTransactions = this.useTransactions.use(transactional, cacheName, transactionSize);
       int totalThreads = (loadAllKeys ? 1 : getExecutingSlaves().size()) * numThreads;
       int globalThreadIndex = loadAllKeys ? threadIndex : threadBase + threadIndex;
-      LoaderIds loaderIds = new RangeIds(keyIdOffset + numEntries * globalThreadIndex / totalThreads, keyIdOffset + numEntries * (globalThreadIndex + 1) / totalThreads);
+      RangeIds loaderIds = new RangeIds(globalThreadIndex, keyIdOffset + numEntries * globalThreadIndex / totalThreads, keyIdOffset + numEntries * (globalThreadIndex + 1) / totalThreads);
+      if (checkpoint != null) {
+         if (resume) {
+            resume(loaderIds, cacheName);
+         }
+         checkpointedRanges.add(loaderIds);
+      }
       if (batchSize > 0) {
          if (batchSize > 0 && bulkOperations == null) {
             throw new IllegalArgumentException("Bulk operations have been enabled, but they are not supported by current service");
          }
+         if (isPipelined()) {
+            if (useTransactions) {
+               throw new IllegalStateException("Pipelined or adaptive batch loading cannot be used with transactions");
+            }
+            return new PipelinedBulkLoader(threadIndex, loaderIds);
+         }
          return useTransactions ? new BulkTxLoader(threadIndex, loaderIds) : new BulkNonTxLoader(threadIndex, loaderIds);
       } else {
          return useTransactions ? new TxLoader(threadIndex, loaderIds) : new NonTxLoader(threadIndex, loaderIds);
       }
    }
 
+   @Override
+   protected void stopLoaders(List<Loader> loaders) throws Exception {
+      try {
+         super.stopLoaders(loaders);
+      } finally {
+         if (batchExecutor != null) {
+            batchExecutor.shutdownNow();
+            batchExecutor = null;
+         }
+         if (checkpointExecutor != null) {
+            Utils.shutdownAndWait(checkpointExecutor);
+            checkpointExecutor = null;
+            writeCheckpoint();
+         }
+      }
+   }
+
+   /**
+    * Moves the range behind entries loaded according to the checkpoint, if these pass verification.
+    */
+   private void resume(RangeIds range, String cacheName) {
+      long loaded = checkpoint.loaded(range.loader, range.from, range.limit);
+      if (loaded == range.from) {
+         return;
+      }
+      if (resumeVerifySamples > 0) {
+         BasicOperations.Cache<Object, Object> cache = basicOperations.getCache(cacheName);
+         Random random = seed == null ? new Random() : new Random(seed + range.loader);
+         for (int i = 0; i < resumeVerifySamples; ++i) {
+            long keyId = range.from + (long) (random.nextDouble() * (loaded - range.from));
+            Object key = keyGenerator.generateKey(keyId);
+            Object value = cache.get(key);
+            if (remove ? value != null : value == null || !valueGenerator.checkValue(value, key, -1)) {
+               log.warnf("Verification of key %s (ID %d) loaded before failure did not pass, loader %d will start from the beginning",
+                  key, keyId, range.loader);
+               return;
+            }
+         }
+      }
+      log.infof("Loader %d resumes from key ID %d, skipping %d entries loaded before", range.loader, loaded, loaded - range.from);
+      range.skipTo(loaded);
+   }
+
+   private void writeCheckpoint() {
+      for (RangeIds range : checkpointedRanges) {
+         checkpoint.update(range.loader, range.from, range.limit, range.loaded);
+      }
+      try {
+         checkpoint.write();
+      } catch (IOException e) {
+         log.error("Failed to write checkpoint file " + checkpointFile, e);
+      }
+   }
+
+   private boolean isPipelined() {
+      return maxBatchesInFlight > 1 || adaptiveBatchSize;
+   }
+
    private interface LoaderIds {
       /** Return next key ID */
       long next();
@@ -124,19 +299,34 @@ public class LoadStage extends org.radargun.stages.test.LoadStage {
 
       /* Returns index of the key */
       long currentKeyIndex();
+
+      /** Returns ID of the next key, or limit if all keys have been returned */
+      long position();
+
+      /** Records that all keys before given position have been stored */
+      void commit(long position);
    }
 
    private static class RangeIds implements LoaderIds {
-      private final long start;
+      private final int loader;
+      private final long from;
+      private final long limit;
+      private long start;
       private long current;
-      private long limit;
       private long mark;
+      // read by checkpoint thread
+      private volatile long loaded;
 
-      public RangeIds(long from, long to) {
-         start = current = from;
+      public RangeIds(int loader, long from, long to) {
+         this.loader = loader;
+         this.from = start = current = mark = loaded = from;
          limit = to;
       }
 
+      public void skipTo(long position) {
+         start = current = mark = loaded = position;
+      }
+
       @Override
       public long next() {
          if (current < limit) {
@@ -160,6 +350,16 @@ public class LoadStage extends org.radargun.stages.test.LoadStage {
       public long currentKeyIndex() {
          return current - start;
       }
+
+      @Override
+      public long position() {
+         return current;
+      }
+
+      @Override
+      public void commit(long position) {
+         loaded = position;
+      }
    }
 
    private abstract class CacheLoader extends Loader {
@@ -207,6 +407,7 @@ public class LoadStage extends org.radargun.stages.test.LoadStage {
          if (txCurrentSize >= transactionSize || keyId < 0) {
             try {
                tx.commit();
+               loaderIds.commit(loaderIds.position());
                long entryCountToLog = batchSize > 0 ? txCurrentSize * batchSize : txCurrentSize;
                logLoaded(entryCountToLog, txValuesSize, remove);
                txAttempts = 0;
@@ -291,6 +492,7 @@ public class LoadStage extends org.radargun.stages.test.LoadStage {
                remove ? "remove" : "insert", key, value, maxLoadAttempts);
             throw new RuntimeException(message);
          }
+         loaderIds.commit(loaderIds.position());
          logLoaded(1, size, remove);
          return true;
       }
@@ -334,6 +536,7 @@ public class LoadStage extends org.radargun.stages.test.LoadStage {
                } else {
                   cache.putAll(entryMap);
                }
+               loaderIds.commit(loaderIds.position());
                if (keyId < 0) {
                   log.info(String.format("Finished %s entries", remove ? "removing" : "loading"));
                   return false;
@@ -357,6 +560,136 @@ public class LoadStage extends org.radargun.stages.test.LoadStage {
       }
    }
 
+   /**
+    * Keeps up to {@link #maxBatchesInFlight} batches in flight; the completions are handled
+    * by the loader thread, which also retries failed batches.
+    */
+   private class PipelinedBulkLoader extends CacheLoader {
+      private final BulkOperations.Cache<Object, Object> cache;
+      private final BlockingQueue<Batch> completed = new LinkedBlockingQueue<>();
+      // batches in the order of key IDs, to find out which prefix of the range is stored
+      private final ArrayDeque<Batch> pending = new ArrayDeque<>();
+      private final AdaptiveBatchSize adaptiveSize;
+      private int inFlight = 0;
+
+      public PipelinedBulkLoader(int index, LoaderIds loaderIds) {
+         super(index, loaderIds);
+         String cacheName = cacheSelector.getCacheName(threadIndex);
+         cache = bulkOperations.getCache(cacheName, useAsyncBatchLoading);
+         adaptiveSize = adaptiveBatchSize ? new AdaptiveBatchSize(batchSize, 1, maxBatchSize,
+            TimeUnit.MILLISECONDS.toNanos(maxBatchLatency), Math.max(maxBatchesInFlight, 4)) : null;
+      }
+
+      @Override
+      protected boolean loadDataUnit() {
+         awaitCompleted(maxBatchesInFlight - 1);
+         Batch batch = nextBatch(adaptiveSize == null ? batchSize : adaptiveSize.get());
+         if (batch == null) {
+            awaitCompleted(0);
+            log.info(String.format("Finished %s entries", remove ? "removing" : "loading"));
+            return false;
+         }
+         send(batch);
+         return true;
+      }
+
+      private Batch nextBatch(int size) {
+         Map<Object, Object> entries = new HashMap<>(size * 4 / 3 + 1);
+         long totalSize = 0;
+         for (int i = 0; i < size; i++) {
+            int entrySize = LoadStage.this.entrySize.next(random);
+            delayRequest(start, TimeService.nanoTime(), loaderIds.currentKeyIndex());
+            long keyId = loaderIds.next();
+            if (keyId < 0) {
+               break;
+            }
+            Object key = keyGenerator.generateKey(keyId);
+            entries.put(key, valueGenerator.generateValue(key, entrySize, random));
+            totalSize += entrySize;
+         }
+         if (entries.isEmpty()) {
+            return null;
+         }
+         Batch batch = new Batch(entries, totalSize, loaderIds.position());
+         pending.add(batch);
+         return batch;
+      }
+
+      private void send(Batch batch) {
+         batch.sentTime = TimeService.nanoTime();
+         if (adaptiveSize != null) {
+            adaptiveSize.started(batch.sentTime);
+         }
+         inFlight++;
+         CompletionStage<Void> stage;
+         try {
+            stage = remove ? cache.removeAllAsync(batch.entries.keySet(), batchExecutor) : cache.putAllAsync(batch.entries, batchExecutor);
+         } catch (Exception e) {
+            batch.complete(e);
+            return;
+         }
+         stage.whenComplete((nil, throwable) -> batch.complete(throwable));
+      }
+
+      private void awaitCompleted(int maxInFlight) {
+         try {
+            while (inFlight > maxInFlight) {
+               handle(completed.take());
+            }
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted when waiting for batches to complete", e);
+         }
+      }
+
+      private void handle(Batch batch) {
+         inFlight--;
+         if (batch.throwable == null) {
+            batch.stored = true;
+            while (!pending.isEmpty() && pending.peekFirst().stored) {
+               loaderIds.commit(pending.pollFirst().position);
+            }
+            logLoaded(batch.entries.size(), batch.size, remove);
+            if (adaptiveSize != null) {
+               adaptiveSize.completed(batch.entries.size(), batch.completedTime - batch.sentTime, batch.completedTime);
+            }
+            return;
+         }
+         batch.attempts++;
+         if (batch.attempts >= maxLoadAttempts) {
+            throw new RuntimeException(String.format("Failed to %s batch entries %d times.",
+               remove ? "remove" : "insert", maxLoadAttempts), batch.throwable);
+         }
+         log.warnf(batch.throwable, "Attempt %d/%d to %s cache failed, waiting %d ms before next attempt",
+            batch.attempts, maxLoadAttempts, remove ? "remove entries from" : "insert entries into", waitOnError);
+         Utils.sleep(waitOnError);
+         send(batch);
+      }
+
+      private class Batch {
+         private final Map<Object, Object> entries;
+         private final long size;
+         private final long position;
+         private boolean stored;
+         private int attempts;
+         private long sentTime;
+         private long completedTime;
+         private Throwable throwable;
+
+         private Batch(Map<Object, Object> entries, long size, long position) {
+            this.entries = entries;
+            this.size = size;
+            this.position = position;
+         }
+
+         private void complete(Throwable throwable) {
+            this.completedTime = TimeService.nanoTime();
+            this.throwable = throwable;
+            PipelinedBulkLoader.this.completed.add(this);
+         }
+      }
+   }
+
    private class TxLoader extends CacheTxLoader {
       private final BasicOperations.Cache<Object, Object> nonTxCache;
       private BasicOperations.Cache cache;
@@ -0,0 +1,201 @@
+package org.radargun.stages.cache.test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.radargun.traits.BasicOperations;
+import org.radargun.traits.NearCacheOperations;
+import org.radargun.utils.TimeService;
+
+/**
+ * Near cache kept by the driver for services without native support. Entries are held in LRU order
+ * in independently locked segments; writes through this cache update it, modifications made by others
+ * are reflected after {@link #invalidate(Object)} is called (e.g. from a cache listener) or when the entry
+ * exceeds its lifespan.
+ */
+class LocalNearCache implements NearCacheOperations.Cache<Object, Object> {
+   private static final int SEGMENTS = 16;
+
+   private final BasicOperations.Cache<Object, Object> remote;
+   private final long lifespanNanos;
+   private final Segment[] segments = new Segment[SEGMENTS];
+
+   /**
+    * @param lifespanNanos Time after which entries are reloaded from the remote cache, non-positive means unlimited.
+    */
+   LocalNearCache(BasicOperations.Cache<Object, Object> remote, int maxEntries, long lifespanNanos) {
+      this.remote = remote;
+      this.lifespanNanos = lifespanNanos;
+      int segmentEntries = Math.max(1, (maxEntries + SEGMENTS - 1) / SEGMENTS);
+      for (int i = 0; i < SEGMENTS; ++i) {
+         segments[i] = new Segment(segmentEntries, lifespanNanos > 0);
+      }
+   }
+
+   @Override
+   public boolean isNearCached(Object key) {
+      Segment segment = segment(key);
+      segment.lock();
+      try {
+         // unlike get, neither containsKey nor the lookup of creation time update the access order
+         return segment.entries.containsKey(key) && !isExpired(segment, key, TimeService.nanoTime());
+      } finally {
+         segment.unlock();
+      }
+   }
+
+   @Override
+   public Object get(Object key) {
+      Segment segment = segment(key);
+      long epoch;
+      segment.lock();
+      try {
+         Object value = segment.entries.get(key);
+         if (value != null) {
+            if (!isExpired(segment, key, TimeService.nanoTime())) {
+               return value;
+            }
+            segment.remove(key);
+         }
+         epoch = segment.epoch;
+      } finally {
+         segment.unlock();
+      }
+      Object value = remote.get(key);
+      if (value != null) {
+         segment.lock();
+         try {
+            // the value could be already outdated if the key was invalidated during the remote read
+            if (segment.epoch == epoch) {
+               segment.put(key, value, TimeService.nanoTime());
+            }
+         } finally {
+            segment.unlock();
+         }
+      }
+      return value;
+   }
+
+   @Override
+   public boolean containsKey(Object key) {
+      return isNearCached(key) || remote.containsKey(key);
+   }
+
+   @Override
+   public void put(Object key, Object value) {
+      remote.put(key, value);
+      update(key, value);
+   }
+
+   @Override
+   public Object getAndPut(Object key, Object value) {
+      Object previous = remote.getAndPut(key, value);
+      update(key, value);
+      return previous;
+   }
+
+   @Override
+   public boolean remove(Object key) {
+      boolean removed = remote.remove(key);
+      invalidate(key);
+      return removed;
+   }
+
+   @Override
+   public Object getAndRemove(Object key) {
+      Object previous = remote.getAndRemove(key);
+      invalidate(key);
+      return previous;
+   }
+
+   @Override
+   public void clear() {
+      remote.clear();
+      for (Segment segment : segments) {
+         segment.lock();
+         try {
+            segment.entries.clear();
+            if (segment.created != null) {
+               segment.created.clear();
+            }
+            segment.epoch++;
+         } finally {
+            segment.unlock();
+         }
+      }
+   }
+
+   /**
+    * Drops the entry, following reads will load it from the remote cache.
+    */
+   void invalidate(Object key) {
+      Segment segment = segment(key);
+      segment.lock();
+      try {
+         segment.remove(key);
+         segment.epoch++;
+      } finally {
+         segment.unlock();
+      }
+   }
+
+   private void update(Object key, Object value) {
+      Segment segment = segment(key);
+      segment.lock();
+      try {
+         segment.put(key, value, TimeService.nanoTime());
+         segment.epoch++;
+      } finally {
+         segment.unlock();
+      }
+   }
+
+   private boolean isExpired(Segment segment, Object key, long now) {
+      return segment.created != null && now - segment.created.get(key) >= lifespanNanos;
+   }
+
+   private Segment segment(Object key) {
+      int hash = key.hashCode();
+      return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+   }
+
+   private static class Segment extends ReentrantLock {
+      private final Map<Object, Object> entries;
+      // creation times are kept aside, so that these can be checked without updating the access order
+      private final Map<Object, Long> created;
+      // incremented on each local modification
+      private long epoch;
+
+      private Segment(int maxEntries, boolean expiring) {
+         created = expiring ? new HashMap<>() : null;
+         entries = new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+               if (size() > maxEntries) {
+                  if (created != null) {
+                     created.remove(eldest.getKey());
+                  }
+                  return true;
+               }
+               return false;
+            }
+         };
+      }
+
+      private void put(Object key, Object value, long now) {
+         entries.put(key, value);
+         if (created != null) {
+            created.put(key, now);
+         }
+      }
+
+      private void remove(Object key) {
+         entries.remove(key);
+         if (created != null) {
+            created.remove(key);
+         }
+      }
+   }
+}
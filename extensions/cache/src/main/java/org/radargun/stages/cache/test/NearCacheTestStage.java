@@ -0,0 +1,332 @@
+package org.radargun.stages.cache.test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.radargun.DistStageAck;
+import org.radargun.Operation;
+import org.radargun.config.Init;
+import org.radargun.config.Namespace;
+import org.radargun.config.Property;
+import org.radargun.config.Stage;
+import org.radargun.stages.test.Invocation;
+import org.radargun.stages.test.OperationLogic;
+import org.radargun.stages.test.OperationSelector;
+import org.radargun.stages.test.RatioOperationSelector;
+import org.radargun.stages.test.Stressor;
+import org.radargun.stages.test.TestStage;
+import org.radargun.stages.test.TransactionMode;
+import org.radargun.stats.Statistics;
+import org.radargun.traits.BasicOperations;
+import org.radargun.traits.CacheListeners;
+import org.radargun.traits.InjectTrait;
+import org.radargun.traits.NearCacheOperations;
+import org.radargun.utils.NanoTimeConverter;
+import org.radargun.utils.TimeConverter;
+import org.radargun.utils.TimeService;
+
+/**
+ * Executes gets, puts and removes through client-side (near) cache. Gets are recorded as hits or misses
+ * depending on whether the entry was held in the near cache. In parallel, each slave periodically
+ * writes a timestamp into its probe key and polls the probe keys of other slaves; the time since
+ * the write when the new value is observed is recorded as invalidation delay. Requests are never
+ * executed in transactions.
+ */
+@Namespace(name = TestStage.NAMESPACE, deprecatedName = TestStage.DEPRECATED_NAMESPACE)
+@Stage(doc = "Test using BasicOperations through client-side (near) cache, recording hits, misses and invalidation delay.")
+public class NearCacheTestStage extends CacheOperationsTestStage {
+   private static final String PROBE_KEY_PREFIX = "nearCacheProbe_";
+
+   @Property(doc = "Ratio of GET requests. Default is 4.")
+   protected int getRatio = 4;
+
+   @Property(doc = "Ratio of PUT requests. Default is 1.")
+   protected int putRatio = 1;
+
+   @Property(doc = "Ratio of REMOVE requests. Default is 0.")
+   protected int removeRatio = 0;
+
+   @Property(doc = "Use near cache maintained by the driver even if the service supports near cache natively. " +
+      "The driver's near cache is always used when the service does not support it. Default is false.")
+   protected boolean localNearCache = false;
+
+   @Property(doc = "Maximum number of entries in the driver's near cache; least recently used entries are dropped. " +
+      "Default is 10000.")
+   protected int localNearCacheSize = 10000;
+
+   @Property(doc = "Time after which entries in the driver's near cache are reloaded. Entries are invalidated " +
+      "through cache listeners, if the service supports these. Default is 0 (unlimited).", converter = TimeConverter.class)
+   protected long localNearCacheLifespan = 0;
+
+   @Property(doc = "Period of writing the probe key of this slave, used to measure invalidation delay. " +
+      "The delay is computed using wall-clock time, therefore the clocks of slaves should be synchronized. " +
+      "Zero disables the measurement. Default is 100 ms.", converter = TimeConverter.class)
+   protected long invalidationProbePeriod = 100;
+
+   @Property(doc = "Interval between reads of probe keys of other slaves. Default is 100 us.", converter = NanoTimeConverter.class)
+   protected long invalidationPollInterval = TimeUnit.MICROSECONDS.toNanos(100);
+
+   @InjectTrait
+   protected BasicOperations basicOperations;
+
+   @InjectTrait(dependency = InjectTrait.Dependency.OPTIONAL)
+   protected NearCacheOperations nearCacheOperations;
+
+   @InjectTrait(dependency = InjectTrait.Dependency.OPTIONAL)
+   protected CacheListeners cacheListeners;
+
+   // near cache is shared by all stressors using the same cache, as it would be by threads of one client
+   private final Map<String, NearCacheOperations.Cache> nearCaches = new ConcurrentHashMap<>();
+   private final List<Runnable> listenerRemovals = new ArrayList<>();
+   private InvalidationMonitor invalidationMonitor;
+
+   @Init
+   public void validateNearCache() {
+      if (localNearCacheSize <= 0) throw new IllegalStateException("Local near cache size must be > 0");
+      if (localNearCacheLifespan < 0) throw new IllegalStateException("Local near cache lifespan can't be < 0");
+      if (invalidationProbePeriod < 0) throw new IllegalStateException("Invalidation probe period can't be < 0");
+      if (invalidationPollInterval < 0) throw new IllegalStateException("Invalidation poll interval can't be < 0");
+      if (useTransactions == TransactionMode.ALWAYS) throw new IllegalStateException("Near cache test cannot use transactions");
+   }
+
+   @Override
+   protected OperationSelector createOperationSelector() {
+      return new RatioOperationSelector.Builder()
+         .add(BasicOperations.GET, getRatio)
+         .add(BasicOperations.PUT, putRatio)
+         .add(BasicOperations.REMOVE, removeRatio)
+         .build();
+   }
+
+   @Override
+   protected void prepare() {
+      super.prepare();
+      if (invalidationProbePeriod > 0) {
+         invalidationMonitor = new InvalidationMonitor(getNearCache(cacheSelector.getCacheName(0)));
+         invalidationMonitor.start();
+      }
+   }
+
+   @Override
+   protected void destroy() {
+      super.destroy();
+      if (invalidationMonitor != null) {
+         invalidationMonitor.finish();
+      }
+      synchronized (listenerRemovals) {
+         listenerRemovals.forEach(Runnable::run);
+         listenerRemovals.clear();
+      }
+      nearCaches.clear();
+   }
+
+   @Override
+   protected DistStageAck newStatisticsAck(List<Stressor> stressors) {
+      if (invalidationMonitor == null || invalidationMonitor.stats == null) {
+         return super.newStatisticsAck(stressors);
+      }
+      List<Statistics> results = new ArrayList<>(gatherResults(stressors, new StatisticsResultRetriever()));
+      // invalidations are a separate operation, reported along with the first thread rather than as another thread
+      if (results.isEmpty()) {
+         results.add(invalidationMonitor.stats);
+      } else {
+         results.get(0).merge(invalidationMonitor.stats);
+      }
+      invalidationMonitor = null;
+      return new StatisticsAck(slaveState, results, statisticsPrototype.getGroupOperationsMap());
+   }
+
+   @Override
+   public OperationLogic getLogic() {
+      return new Logic();
+   }
+
+   private NearCacheOperations.Cache getNearCache(String cacheName) {
+      // ConcurrentHashMap does not allow null keys
+      return nearCaches.computeIfAbsent(cacheName == null ? "" : cacheName, name -> {
+         if (nearCacheOperations != null && !localNearCache) {
+            return nearCacheOperations.getCache(cacheName);
+         }
+         return createLocalNearCache(cacheName);
+      });
+   }
+
+   private LocalNearCache createLocalNearCache(String cacheName) {
+      LocalNearCache nearCache = new LocalNearCache(basicOperations.getCache(cacheName), localNearCacheSize,
+         TimeUnit.MILLISECONDS.toNanos(localNearCacheLifespan));
+      if (cacheListeners == null) {
+         log.info("Service does not support cache listeners, entries modified by other nodes will be served " +
+            "from the near cache until these are evicted or expire.");
+         return nearCache;
+      }
+      EnumSet<CacheListeners.Type> supported = EnumSet.noneOf(CacheListeners.Type.class);
+      supported.addAll(cacheListeners.getSupportedListeners());
+      synchronized (listenerRemovals) {
+         if (supported.contains(CacheListeners.Type.UPDATED)) {
+            CacheListeners.UpdatedListener<Object, Object> listener = (key, value) -> nearCache.invalidate(key);
+            cacheListeners.addUpdatedListener(cacheName, listener, false);
+            listenerRemovals.add(() -> cacheListeners.removeUpdatedListener(cacheName, listener, false));
+         }
+         if (supported.contains(CacheListeners.Type.REMOVED)) {
+            CacheListeners.RemovedListener<Object, Object> listener = (key, value) -> nearCache.invalidate(key);
+            cacheListeners.addRemovedListener(cacheName, listener, false);
+            listenerRemovals.add(() -> cacheListeners.removeRemovedListener(cacheName, listener, false));
+         }
+         if (supported.contains(CacheListeners.Type.EXPIRED)) {
+            CacheListeners.ExpiredListener<Object, Object> listener = (key, value) -> nearCache.invalidate(key);
+            cacheListeners.addExpiredListener(cacheName, listener, false);
+            listenerRemovals.add(() -> cacheListeners.removeExpiredListener(cacheName, listener, false));
+         }
+      }
+      return nearCache;
+   }
+
+   protected class Logic extends OperationLogic {
+      protected NearCacheOperations.Cache cache;
+      protected KeySelector keySelector;
+      protected Get get;
+      protected CacheInvocations.Put put;
+      protected CacheInvocations.Remove remove;
+
+      @Override
+      public void init(Stressor stressor) {
+         super.init(stressor);
+         cache = getNearCache(cacheSelector.getCacheName(stressor.getGlobalThreadIndex()));
+         keySelector = getKeySelector(stressor);
+         get = new Get(cache);
+         put = new CacheInvocations.Put(cache, null, null);
+         remove = new CacheInvocations.Remove(cache, null);
+      }
+
+      @Override
+      public void run(Operation operation) throws RequestException {
+         Object key = keyGenerator.generateKey(keySelector.next());
+         Invocation invocation;
+         if (operation == BasicOperations.GET) {
+            invocation = get.set(key);
+         } else if (operation == BasicOperations.PUT) {
+            Object value = valueGenerator.generateValue(key, nextEntrySize(stressor.getRandom()), stressor.getRandom());
+            invocation = put.set(key, value);
+         } else if (operation == BasicOperations.REMOVE) {
+            invocation = remove.set(key);
+         } else throw new IllegalArgumentException(operation.name);
+         stressor.makeRequest(invocation);
+      }
+   }
+
+   /**
+    * Get recorded as hit or miss of the near cache.
+    */
+   protected static final class Get implements Invocation<Object> {
+      private final NearCacheOperations.Cache<Object, Object> cache;
+      private Object key;
+      private boolean hit;
+
+      protected Get(NearCacheOperations.Cache<Object, Object> cache) {
+         this.cache = cache;
+      }
+
+      public Get set(Object key) {
+         this.key = key;
+         // checked before the request is started, so it does not add to the latency
+         this.hit = cache.isNearCached(key);
+         return this;
+      }
+
+      @Override
+      public Object invoke() {
+         return cache.get(key);
+      }
+
+      @Override
+      public Operation operation() {
+         return hit ? NearCacheOperations.GET_HIT : NearCacheOperations.GET_MISS;
+      }
+
+      @Override
+      public Operation txOperation() {
+         return operation();
+      }
+   }
+
+   private class InvalidationMonitor extends Thread {
+      private final NearCacheOperations.Cache<Object, Object> cache;
+      private final long wallClockBaseMillis = TimeService.currentTimeMillis();
+      private final long wallClockBaseNanos = TimeService.nanoTime();
+      private volatile boolean finished;
+      // accessed by the monitor thread only until it's joined
+      private Statistics stats;
+
+      private InvalidationMonitor(NearCacheOperations.Cache<Object, Object> cache) {
+         super("NearCacheInvalidationMonitor");
+         setDaemon(true);
+         this.cache = cache;
+      }
+
+      @Override
+      public void run() {
+         String ownKey = PROBE_KEY_PREFIX + slaveState.getSlaveIndex();
+         Map<String, Long> lastSeen = new HashMap<>();
+         long nextWrite = TimeService.nanoTime();
+         while (!finished && !isTerminated()) {
+            try {
+               if (TimeService.nanoTime() - nextWrite >= 0) {
+                  cache.put(ownKey, wallClockNanos());
+                  nextWrite += TimeUnit.MILLISECONDS.toNanos(invalidationProbePeriod);
+               }
+               for (int i = 0; i < slaveState.getClusterSize(); ++i) {
+                  if (i == slaveState.getSlaveIndex()) {
+                     continue;
+                  }
+                  String probeKey = PROBE_KEY_PREFIX + i;
+                  Object value = cache.get(probeKey);
+                  if (value instanceof Long) {
+                     Long previous = lastSeen.put(probeKey, (Long) value);
+                     if (previous != null && (Long) value > previous) {
+                        recordDelay(wallClockNanos() - (Long) value);
+                     }
+                  }
+               }
+            } catch (RuntimeException e) {
+               log.warn("Failed to access probe keys", e);
+            }
+            LockSupport.parkNanos(invalidationPollInterval);
+         }
+         if (stats != null) {
+            stats.end();
+         }
+      }
+
+      private void recordDelay(long delay) {
+         if (!isStarted() || isFinished()) {
+            return;
+         }
+         if (stats == null) {
+            stats = createStatistics();
+            stats.begin();
+         }
+         // delay can be negative due to clock skew
+         stats.startRequest(TimeService.nanoTime() - Math.max(delay, 0)).succeeded(NearCacheOperations.INVALIDATION);
+      }
+
+      private long wallClockNanos() {
+         return TimeUnit.MILLISECONDS.toNanos(wallClockBaseMillis) + TimeService.nanoTime() - wallClockBaseNanos;
+      }
+
+      private void finish() {
+         finished = true;
+         try {
+            join();
+         } catch (InterruptedException e) {
+            log.warn("Interrupted while waiting for invalidation monitor", e);
+            Thread.currentThread().interrupt();
+         }
+      }
+   }
+}
@@ -0,0 +1,25 @@
+package org.radargun.stages.cache.test;
+
+import java.util.Random;
+
+import org.radargun.stages.test.WorkloadSchedule;
+
+/**
+ * Delegates to key selector of the current {@link CacheWorkloadPhase phase}.
+ */
+class PhasedKeySelector implements KeySelector {
+   private final WorkloadSchedule schedule;
+   private final Random random;
+   private final KeySelector[] selectors;
+
+   PhasedKeySelector(WorkloadSchedule schedule, Random random, KeySelector[] selectors) {
+      this.schedule = schedule;
+      this.random = random;
+      this.selectors = selectors;
+   }
+
+   @Override
+   public long next() {
+      return selectors[schedule.select(random)].next();
+   }
+}
@@ -0,0 +1,78 @@
+package org.radargun.stages.cache.test;
+
+import java.util.Random;
+
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Init;
+import org.radargun.config.Namespace;
+import org.radargun.config.Property;
+import org.radargun.config.PropertyHelper;
+import org.radargun.stages.test.TestStage;
+
+/**
+ * Zipfian distribution of popularity where the popular keys are scattered over the whole key range
+ * (through FNV-1a hash of the rank) instead of having the lowest indices. With key generators that
+ * keep the order of indices, this prevents the hot keys from ending up next to each other.
+ */
+public class ScrambledZipfianKeysSelector implements KeySelector {
+   private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+   private static final long FNV_PRIME = 0x100000001B3L;
+
+   private final Random random;
+   private final Zipfian zipfian;
+   private final long numEntries;
+
+   public ScrambledZipfianKeysSelector(Random random, long numEntries, double theta) {
+      this(random, new Zipfian(numEntries, theta), numEntries);
+   }
+
+   ScrambledZipfianKeysSelector(Random random, Zipfian zipfian, long numEntries) {
+      this.random = random;
+      this.zipfian = zipfian;
+      this.numEntries = numEntries;
+   }
+
+   @Override
+   public long next() {
+      return (fnvHash(zipfian.sample(random)) & Long.MAX_VALUE) % numEntries;
+   }
+
+   static long fnvHash(long value) {
+      long hash = FNV_OFFSET_BASIS;
+      for (int i = 0; i < 8; ++i) {
+         hash ^= value & 0xFF;
+         hash *= FNV_PRIME;
+         value >>>= 8;
+      }
+      return hash;
+   }
+
+   @Namespace(name = TestStage.NAMESPACE, deprecatedName = TestStage.DEPRECATED_NAMESPACE)
+   @DefinitionElement(name = "scrambled-zipfian-keys", doc = "In the test fixed set of entries is used and this is shared among all stressor threads. " +
+      "Popularity of the keys follows Zipfian distribution, but the popular keys are spread over the whole key range.")
+   public static class Factory implements KeySelectorFactory {
+      @Property(doc = "Total number of key-value entries.", optional = false)
+      protected long numEntries = 0;
+
+      @Property(doc = "Skew of the distribution, must be within (0, 1); higher values concentrate the requests " +
+         "on fewer keys. Default is 0.99.")
+      protected double theta = 0.99;
+
+      private Zipfian zipfian;
+
+      @Init
+      public void init() {
+         zipfian = new Zipfian(numEntries, theta);
+      }
+
+      @Override
+      public KeySelector newInstance(CacheOperationsTestStage stage, Random random, int globalThreadId, int threadId) {
+         return new ScrambledZipfianKeysSelector(random, zipfian, numEntries);
+      }
+
+      @Override
+      public String toString() {
+         return ScrambledZipfianKeysSelector.class.getSimpleName() + PropertyHelper.toString(this);
+      }
+   }
+}
@@ -76,7 +76,7 @@ public class StreamingOperationsTestStage extends CacheOperationsTestStage {
             invocation = new CacheInvocations.GetViaStream<Object, Integer>(cache, key, buffer);
          } else if (operation == StreamingOperations.PUT) {
             invocation = new CacheInvocations.PutViaStream<Object, InputStream>(cache, key,
-                  (InputStream) valueGenerator.generateValue(key, entrySize.next(random), random), buffer);
+                  (InputStream) valueGenerator.generateValue(key, nextEntrySize(random), random), buffer);
          } else
             throw new IllegalArgumentException(operation.name);
          stressor.makeRequest(invocation);
@@ -132,17 +132,17 @@ public class TemporalOperationsTestStage extends CacheOperationsTestStage {
          if (operation == BasicOperations.GET) {
             invocation = new CacheInvocations.Get(basicCache, key);
          } else if (operation == TemporalOperations.PUT_WITH_LIFESPAN) {
-            invocation = new CacheInvocations.PutWithLifespan(temporalCache, key, valueGenerator.generateValue(key, entrySize.next(random), random), lifespan);
+            invocation = new CacheInvocations.PutWithLifespan(temporalCache, key, valueGenerator.generateValue(key, nextEntrySize(random), random), lifespan);
          } else if (operation == TemporalOperations.PUT_WITH_LIFESPAN_AND_MAXIDLE) {
-            invocation = new CacheInvocations.PutWithLifespanAndMaxIdle(temporalCache, key, valueGenerator.generateValue(key, entrySize.next(random), random), lifespan, maxIdle);
+            invocation = new CacheInvocations.PutWithLifespanAndMaxIdle(temporalCache, key, valueGenerator.generateValue(key, nextEntrySize(random), random), lifespan, maxIdle);
          } else if (operation == TemporalOperations.GET_AND_PUT_WITH_LIFESPAN) {
-            invocation = new CacheInvocations.GetAndPutWithLifespan(temporalCache, key, valueGenerator.generateValue(key, entrySize.next(random), random), lifespan);
+            invocation = new CacheInvocations.GetAndPutWithLifespan(temporalCache, key, valueGenerator.generateValue(key, nextEntrySize(random), random), lifespan);
          } else if (operation == TemporalOperations.GET_AND_PUT_WITH_LIFESPAN_AND_MAXIDLE) {
-            invocation = new CacheInvocations.GetAndPutWithLifespanAndMaxIdle(temporalCache, key, valueGenerator.generateValue(key, entrySize.next(random), random), lifespan, maxIdle);
+            invocation = new CacheInvocations.GetAndPutWithLifespanAndMaxIdle(temporalCache, key, valueGenerator.generateValue(key, nextEntrySize(random), random), lifespan, maxIdle);
          } else if (operation == TemporalOperations.PUT_IF_ABSENT_WITH_LIFESPAN) {
-            invocation = new CacheInvocations.PutIfAbsentWithLifespan(temporalCache, key, valueGenerator.generateValue(key, entrySize.next(random), random), lifespan);
+            invocation = new CacheInvocations.PutIfAbsentWithLifespan(temporalCache, key, valueGenerator.generateValue(key, nextEntrySize(random), random), lifespan);
          } else if (operation == TemporalOperations.PUT_IF_ABSENT_WITH_LIFESPAN_AND_MAXIDLE) {
-            invocation = new CacheInvocations.PutIfAbsentWithLifespanAndMaxIdle(temporalCache, key, valueGenerator.generateValue(key, entrySize.next(random), random), lifespan, maxIdle);
+            invocation = new CacheInvocations.PutIfAbsentWithLifespanAndMaxIdle(temporalCache, key, valueGenerator.generateValue(key, nextEntrySize(random), random), lifespan, maxIdle);
          } else throw new IllegalArgumentException(operation.name);
          stressor.makeRequest(invocation);
       }
@@ -0,0 +1,57 @@
+package org.radargun.stages.cache.test;
+
+import java.util.Random;
+
+/**
+ * Zipfian distribution of ranks 0..n-1, where the probability of rank i is proportional
+ * to 1 / (i + 1)^theta. Uses the constant-time algorithm from Gray et al., Quickly Generating
+ * Billion-Record Synthetic Databases (SIGMOD 1994), as does YCSB: all the constants are
+ * computed when the distribution is created and each sample costs single {@link Math#pow(double, double)}.
+ *
+ * Instances are immutable and can be shared by all threads.
+ */
+final class Zipfian {
+   // zeta(n) is summed exactly up to this rank, the rest is approximated by integral
+   private static final long EXACT_ZETA_TERMS = 1 << 20;
+
+   private final long n;
+   private final double alpha;
+   private final double zetan;
+   private final double eta;
+   private final double secondRankThreshold;
+
+   Zipfian(long n, double theta) {
+      if (n < 2) throw new IllegalArgumentException("Zipfian distribution requires at least 2 items, have " + n);
+      if (theta <= 0 || theta >= 1) throw new IllegalArgumentException("Theta must be within (0, 1): " + theta);
+      this.n = n;
+      this.alpha = 1 / (1 - theta);
+      this.zetan = zeta(n, theta);
+      double zeta2 = zeta(2, theta);
+      this.eta = (1 - Math.pow(2d / n, 1 - theta)) / (1 - zeta2 / zetan);
+      this.secondRankThreshold = 1 + Math.pow(0.5, theta);
+   }
+
+   long sample(Random random) {
+      double u = random.nextDouble();
+      double uz = u * zetan;
+      if (uz < 1) {
+         return 0;
+      } else if (uz < secondRankThreshold) {
+         return 1;
+      }
+      return Math.min(n - 1, (long) (n * Math.pow(eta * u - eta + 1, alpha)));
+   }
+
+   static double zeta(long n, double theta) {
+      long exactTerms = Math.min(n, EXACT_ZETA_TERMS);
+      double sum = 0;
+      for (long i = 1; i <= exactTerms; ++i) {
+         sum += 1 / Math.pow(i, theta);
+      }
+      if (n > exactTerms) {
+         // Euler-Maclaurin: sum of i^-theta for i in (m, n] ~ integral over [m + 1/2, n + 1/2]
+         sum += (Math.pow(n + 0.5, 1 - theta) - Math.pow(exactTerms + 0.5, 1 - theta)) / (1 - theta);
+      }
+      return sum;
+   }
+}
@@ -0,0 +1,63 @@
+package org.radargun.stages.cache.test;
+
+import java.util.Random;
+
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Init;
+import org.radargun.config.Namespace;
+import org.radargun.config.Property;
+import org.radargun.config.PropertyHelper;
+import org.radargun.stages.test.TestStage;
+
+/**
+ * Selects keys from fixed set shared by all threads with Zipfian distribution: key 0 is the most
+ * popular one, key 1 the second most popular etc.
+ */
+public class ZipfianKeysSelector implements KeySelector {
+   private final Random random;
+   private final Zipfian zipfian;
+
+   public ZipfianKeysSelector(Random random, long numEntries, double theta) {
+      this(random, new Zipfian(numEntries, theta));
+   }
+
+   ZipfianKeysSelector(Random random, Zipfian zipfian) {
+      this.random = random;
+      this.zipfian = zipfian;
+   }
+
+   @Override
+   public long next() {
+      return zipfian.sample(random);
+   }
+
+   @Namespace(name = TestStage.NAMESPACE, deprecatedName = TestStage.DEPRECATED_NAMESPACE)
+   @DefinitionElement(name = "zipfian-keys", doc = "In the test fixed set of entries is used and this is shared among all stressor threads. " +
+      "Key with index i is selected with probability proportional to 1 / (i + 1)^theta, so low key indices are the most popular.")
+   public static class Factory implements KeySelectorFactory {
+      @Property(doc = "Total number of key-value entries.", optional = false)
+      protected long numEntries = 0;
+
+      @Property(doc = "Skew of the distribution, must be within (0, 1); higher values concentrate the requests " +
+         "on fewer keys. Default is 0.99.")
+      protected double theta = 0.99;
+
+      // computing the constants is O(numEntries), share them among threads
+      private Zipfian zipfian;
+
+      @Init
+      public void init() {
+         zipfian = new Zipfian(numEntries, theta);
+      }
+
+      @Override
+      public KeySelector newInstance(CacheOperationsTestStage stage, Random random, int globalThreadId, int threadId) {
+         return new ZipfianKeysSelector(random, zipfian);
+      }
+
+      @Override
+      public String toString() {
+         return ZipfianKeysSelector.class.getSimpleName() + PropertyHelper.toString(this);
+      }
+   }
+}
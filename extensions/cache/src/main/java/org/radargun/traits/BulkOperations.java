@@ -2,6 +2,9 @@ package org.radargun.traits;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 
 import org.radargun.Operation;
 
@@ -61,5 +64,21 @@ public interface BulkOperations {
        * The order in which the individual entries are removed is undefined.
        */
       void removeAll(Set<K> keys);
+
+      /**
+       * Asynchronous variant of {@link #putAll(Map)}. Services without native asynchronous
+       * operation execute the synchronous one in provided executor.
+       */
+      default CompletionStage<Void> putAllAsync(Map<K, V> entries, Executor executor) {
+         return CompletableFuture.runAsync(() -> putAll(entries), executor);
+      }
+
+      /**
+       * Asynchronous variant of {@link #removeAll(Set)}. Services without native asynchronous
+       * operation execute the synchronous one in provided executor.
+       */
+      default CompletionStage<Void> removeAllAsync(Set<K> keys, Executor executor) {
+         return CompletableFuture.runAsync(() -> removeAll(keys), executor);
+      }
    }
 }
@@ -62,5 +62,13 @@ public interface CacheInformation {
        *         into the cache, or negative number if the information is not available.
        */
       int getEntryOverhead();
+
+      /**
+       * @return True if the cache can store {@link java.nio.ByteBuffer} values, either keeping them
+       *         as they were passed in or marshalling them itself. ByteBuffers are not serializable.
+       */
+      default boolean acceptsByteBufferValues() {
+         return false;
+      }
    }
 }
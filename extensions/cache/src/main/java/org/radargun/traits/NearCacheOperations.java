@@ -0,0 +1,26 @@
+package org.radargun.traits;
+
+import org.radargun.Operation;
+
+/**
+ * Basic operations executed through client-side (near) cache, which serves reads of recently used
+ * entries locally and is invalidated when the entries are modified on the server.
+ */
+@Trait(doc = "Basic operations through client-side (near) cache.")
+public interface NearCacheOperations {
+   String TRAIT = NearCacheOperations.class.getSimpleName();
+   Operation GET_HIT = Operation.register(TRAIT + ".Get.Hit");
+   Operation GET_MISS = Operation.register(TRAIT + ".Get.Miss");
+   Operation INVALIDATION = Operation.register(TRAIT + ".Invalidation");
+
+   <K, V> Cache<K, V> getCache(String cacheName);
+
+   interface Cache<K, V> extends BasicOperations.Cache<K, V> {
+      /**
+       * Checks the near cache only, without contacting the server.
+       *
+       * @return True if {@link #get(Object)} of this key would be served from the near cache.
+       */
+      boolean isNearCached(K key);
+   }
+}
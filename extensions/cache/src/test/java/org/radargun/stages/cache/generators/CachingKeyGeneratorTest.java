@@ -0,0 +1,124 @@
+package org.radargun.stages.cache.generators;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.radargun.utils.Utils;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test
+public class CachingKeyGeneratorTest {
+   private static final int NUM_KEYS = 1000;
+   private static final int OFFSET = 10;
+
+   public void testOnHeapKeys() throws Exception {
+      StringKeyGenerator wrapped = new StringKeyGenerator();
+      CachingKeyGenerator generator = generator(wrapped, false);
+      for (long id = OFFSET; id < OFFSET + NUM_KEYS; ++id) {
+         Object key = generator.generateKey(id);
+         assertEquals(key, wrapped.generateKey(id));
+         assertSame(generator.generateKey(id), key);
+      }
+   }
+
+   public void testRangeFallthrough() throws Exception {
+      // long keys cannot be cached off-heap, but keys outside of the range are never cached
+      for (boolean offHeap : new boolean[] {false, true}) {
+         CachingKeyGenerator generator = generator(id -> id, offHeap);
+         assertEquals(generator.generateKey(OFFSET - 1), (long) OFFSET - 1);
+         assertEquals(generator.generateKey(OFFSET + NUM_KEYS), (long) OFFSET + NUM_KEYS);
+         assertEquals(generator.generateKey(Long.MAX_VALUE), Long.MAX_VALUE);
+      }
+      StringKeyGenerator wrapped = new StringKeyGenerator();
+      CachingKeyGenerator generator = generator(wrapped, false);
+      Object key = generator.generateKey(OFFSET + NUM_KEYS);
+      assertEquals(key, wrapped.generateKey(OFFSET + NUM_KEYS));
+      assertNotSame(generator.generateKey(OFFSET + NUM_KEYS), key);
+   }
+
+   public void testOffHeapStringKeys() throws Exception {
+      // keys are getting longer, so that the buffer sized by the first key must grow; non-ASCII characters
+      // test that the lengths are in bytes
+      KeyGenerator wrapped = id -> repeat("é", (int) (id - OFFSET)) + id;
+      CachingKeyGenerator generator = generator(wrapped, true);
+      // lookups decode the keys concurrently
+      IntStream.range(OFFSET, OFFSET + NUM_KEYS).parallel().forEach(id ->
+         assertEquals(generator.generateKey(id), wrapped.generateKey(id)));
+      for (long id = OFFSET; id < OFFSET + NUM_KEYS; ++id) {
+         assertEquals(generator.generateKey(id), wrapped.generateKey(id));
+      }
+   }
+
+   public void testOffHeapByteArrayKeys() throws Exception {
+      KeyGenerator wrapped = id -> repeat("k", (int) (id % 7)).concat(String.valueOf(id)).getBytes(StandardCharsets.UTF_8);
+      CachingKeyGenerator generator = generator(wrapped, true);
+      for (long id = OFFSET; id < OFFSET + NUM_KEYS; ++id) {
+         byte[] key = (byte[]) generator.generateKey(id);
+         assertTrue(Arrays.equals(key, (byte[]) wrapped.generateKey(id)), "Key " + id);
+         // each lookup returns a copy, modification of the key does not corrupt the cache
+         key[0]++;
+         assertTrue(Arrays.equals((byte[]) generator.generateKey(id), (byte[]) wrapped.generateKey(id)), "Key " + id);
+      }
+   }
+
+   public void testOffHeapEmptyKeys() throws Exception {
+      CachingKeyGenerator generator = generator(id -> id % 2 == 0 ? "" : "key" + id, true);
+      assertEquals(generator.generateKey(OFFSET), "");
+      assertEquals(generator.generateKey(OFFSET + 1), "key" + (OFFSET + 1));
+   }
+
+   public void testOffHeapUnsupportedKeys() throws Exception {
+      expectFailure(generator(id -> id, true));
+      expectFailure(generator(id -> id % 2 == 0 ? String.valueOf(id) : new byte[] {(byte) id}, true));
+   }
+
+   public void testInvalidConfiguration() throws Exception {
+      CachingKeyGenerator generator = new CachingKeyGenerator();
+      try {
+         generator.init();
+         fail("Number of keys must be set");
+      } catch (IllegalArgumentException e) {
+         // expected
+      }
+      try {
+         generator(generator(new StringKeyGenerator(), false), false);
+         fail("Caching generators cannot be nested");
+      } catch (IllegalArgumentException e) {
+         // expected
+      }
+   }
+
+   private static void expectFailure(CachingKeyGenerator generator) {
+      try {
+         generator.generateKey(OFFSET);
+         fail("Keys should be rejected");
+      } catch (IllegalStateException e) {
+         // expected
+      }
+   }
+
+   private static CachingKeyGenerator generator(KeyGenerator wrapped, boolean offHeap) {
+      CachingKeyGenerator generator = new CachingKeyGenerator();
+      Utils.setField(CachingKeyGenerator.class, "generator", generator, wrapped);
+      Utils.setField(CachingKeyGenerator.class, "numKeys", generator, NUM_KEYS);
+      Utils.setField(CachingKeyGenerator.class, "keyIdOffset", generator, (long) OFFSET);
+      Utils.setField(CachingKeyGenerator.class, "offHeap", generator, offHeap);
+      generator.init();
+      return generator;
+   }
+
+   private static String repeat(String s, int times) {
+      StringBuilder sb = new StringBuilder(s.length() * times);
+      for (int i = 0; i < times; ++i) {
+         sb.append(s);
+      }
+      return sb.toString();
+   }
+}
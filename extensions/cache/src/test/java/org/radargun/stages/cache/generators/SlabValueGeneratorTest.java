@@ -0,0 +1,199 @@
+package org.radargun.stages.cache.generators;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+
+import org.radargun.traits.CacheInformation;
+import org.radargun.utils.Utils;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test
+public class SlabValueGeneratorTest {
+   private static final int SLAB_SIZE = 4096;
+
+   public void testDeterministicValues() throws Exception {
+      SlabValueGenerator generator = generator(false, false);
+      byte[] first = (byte[]) generator.generateValue("key1", 100, new Random(1));
+      byte[] second = (byte[]) generator.generateValue("key1", 100, new Random(2));
+      assertEquals(first.length, 100);
+      assertTrue(Arrays.equals(first, second));
+      assertFalse(Arrays.equals(first, (byte[]) generator.generateValue("key2", 100, null)));
+      // another generator with the same parameters produces the same values
+      assertTrue(Arrays.equals(first, (byte[]) generator(false, false).generateValue("key1", 100, null)));
+      assertEquals(generator.sizeOf(first), 100);
+   }
+
+   public void testCheckValue() throws Exception {
+      SlabValueGenerator generator = generator(false, false);
+      byte[] value = (byte[]) generator.generateValue("key", 100, null);
+      assertTrue(generator.checkValue(value, "key", 100));
+      assertTrue(generator.checkValue(value, "key", -1));
+      assertFalse(generator.checkValue(value, "key", 99));
+      assertFalse(generator.checkValue(value, "otherKey", 100));
+      assertFalse(generator.checkValue("string", "key", 100));
+      byte[] corrupted = value.clone();
+      corrupted[50]++;
+      assertFalse(generator.checkValue(corrupted, "key", 100));
+      assertTrue(generator.checkValue(ByteBuffer.wrap(value), "key", 100));
+   }
+
+   public void testByteArrayKeys() throws Exception {
+      SlabValueGenerator generator = generator(false, false);
+      byte[] value = (byte[]) generator.generateValue(new byte[] {1, 2, 3}, 100, null);
+      assertTrue(generator.checkValue(value, new byte[] {1, 2, 3}, 100));
+   }
+
+   public void testByteBufferValues() throws Exception {
+      SlabValueGenerator generator = generator(false, true);
+      ByteBuffer value = (ByteBuffer) generator.generateValue("key", 100, null);
+      assertTrue(value.isReadOnly());
+      assertEquals(value.remaining(), 100);
+      assertEquals(generator.sizeOf(value), 100);
+      assertTrue(generator.checkValue(value, "key", 100));
+      // checking the value must not consume it
+      assertEquals(value.remaining(), 100);
+      byte[] copy = (byte[]) generator(false, false).generateValue("key", 100, null);
+      assertTrue(value.equals(ByteBuffer.wrap(copy)));
+   }
+
+   public void testOffHeapSlab() throws Exception {
+      SlabValueGenerator onHeap = generator(false, true);
+      SlabValueGenerator offHeap = generator(true, true);
+      ByteBuffer value = (ByteBuffer) offHeap.generateValue("key", 100, null);
+      assertTrue(value.isDirect());
+      assertEquals(value, onHeap.generateValue("key", 100, null));
+      assertTrue(offHeap.checkValue(value, "key", 100));
+   }
+
+   public void testSeed() throws Exception {
+      SlabValueGenerator generator = generator(false, false);
+      SlabValueGenerator other = generator(false, false);
+      Utils.setField(SlabValueGenerator.class, "seed", other, 42L);
+      assertNotEquals(ByteBuffer.wrap((byte[]) generator.generateValue("key", 100, null)),
+         ByteBuffer.wrap((byte[]) other.generateValue("key", 100, null)));
+   }
+
+   public void testValueLargerThanSlab() throws Exception {
+      SlabValueGenerator generator = generator(false, false);
+      assertEquals(((byte[]) generator.generateValue("key", SLAB_SIZE, null)).length, SLAB_SIZE);
+      try {
+         generator.generateValue("key", SLAB_SIZE + 1, null);
+         fail("Value larger than slab should be rejected");
+      } catch (IllegalArgumentException e) {
+         // expected
+      }
+      assertFalse(generator.checkValue(new byte[SLAB_SIZE + 1], "key", -1));
+   }
+
+   public void testInvalidSlabSize() throws Exception {
+      SlabValueGenerator generator = new SlabValueGenerator();
+      Utils.setField(SlabValueGenerator.class, "slabSize", generator, 0);
+      try {
+         generator.init();
+         fail("Zero slab size should be rejected");
+      } catch (IllegalArgumentException e) {
+         // expected
+      }
+   }
+
+   public void testCompatibility() throws Exception {
+      SlabValueGenerator byteArrays = generator(false, false);
+      SlabValueGenerator byteBuffers = generator(false, true);
+      assertFalse(byteArrays.generatesByteBuffers());
+      assertTrue(byteBuffers.generatesByteBuffers());
+
+      ValueGenerator.checkCompatible(byteArrays, null);
+      ValueGenerator.checkCompatible(byteArrays, new TestCacheInformation(false));
+      ValueGenerator.checkCompatible(byteBuffers, new TestCacheInformation(true));
+      for (CacheInformation cacheInformation : Arrays.asList(null, new TestCacheInformation(false))) {
+         try {
+            ValueGenerator.checkCompatible(byteBuffers, cacheInformation);
+            fail("ByteBuffer values should be rejected");
+         } catch (IllegalStateException e) {
+            // expected
+         }
+      }
+   }
+
+   private static SlabValueGenerator generator(boolean offHeap, boolean byteBuffer) throws Exception {
+      SlabValueGenerator generator = new SlabValueGenerator();
+      Utils.setField(SlabValueGenerator.class, "slabSize", generator, SLAB_SIZE);
+      Utils.setField(SlabValueGenerator.class, "offHeap", generator, offHeap);
+      Utils.setField(SlabValueGenerator.class, "byteBuffer", generator, byteBuffer);
+      generator.init();
+      return generator;
+   }
+
+   private static class TestCacheInformation implements CacheInformation, CacheInformation.Cache {
+      private final boolean acceptsByteBuffers;
+
+      private TestCacheInformation(boolean acceptsByteBuffers) {
+         this.acceptsByteBuffers = acceptsByteBuffers;
+      }
+
+      @Override
+      public String getDefaultCacheName() {
+         return "default";
+      }
+
+      @Override
+      public Collection<String> getCacheNames() {
+         return Collections.singleton("default");
+      }
+
+      @Override
+      public Cache getCache(String cacheName) {
+         return this;
+      }
+
+      @Override
+      public long getOwnedSize() {
+         return -1;
+      }
+
+      @Override
+      public long getLocallyStoredSize() {
+         return -1;
+      }
+
+      @Override
+      public long getMemoryStoredSize() {
+         return -1;
+      }
+
+      @Override
+      public long getTotalSize() {
+         return -1;
+      }
+
+      @Override
+      public Map<?, Long> getStructuredSize() {
+         return Collections.emptyMap();
+      }
+
+      @Override
+      public int getNumReplicas() {
+         return 1;
+      }
+
+      @Override
+      public int getEntryOverhead() {
+         return -1;
+      }
+
+      @Override
+      public boolean acceptsByteBufferValues() {
+         return acceptsByteBuffers;
+      }
+   }
+}
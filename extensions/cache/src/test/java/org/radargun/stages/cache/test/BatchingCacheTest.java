@@ -0,0 +1,59 @@
+package org.radargun.stages.cache.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.radargun.util.CacheTraitRepository;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(timeOut = 30000)
+public class BatchingCacheTest {
+
+   public void testCoalescing() throws Exception {
+      ConcurrentHashMap<Object, Object> map = new ConcurrentHashMap<>();
+      BatchingCache cache = new BatchingCache(new CacheTraitRepository.BasicOperationsCache<>(map),
+         new CacheTraitRepository.BulkOperationsCache<>(map), 4, TimeUnit.SECONDS.toNanos(10));
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+         List<Future<?>> futures = new ArrayList<>();
+         for (int i = 0; i < 8; ++i) {
+            int key = i;
+            futures.add(executor.submit(() -> cache.put(key, "value" + key)));
+         }
+         for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+         }
+         Assert.assertEquals(map.size(), 8);
+         Assert.assertEquals(cache.getBatches(), 2);
+
+         List<Future<Object>> gets = new ArrayList<>();
+         for (int i = 0; i < 8; ++i) {
+            int key = i;
+            gets.add(executor.submit(() -> cache.get(key)));
+         }
+         for (int i = 0; i < 8; ++i) {
+            Assert.assertEquals(gets.get(i).get(5, TimeUnit.SECONDS), "value" + i);
+         }
+         Assert.assertEquals(cache.getBatches(), 4);
+         Assert.assertEquals(cache.getBatchedRequests(), 16);
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   public void testLinger() {
+      ConcurrentHashMap<Object, Object> map = new ConcurrentHashMap<>();
+      BatchingCache cache = new BatchingCache(new CacheTraitRepository.BasicOperationsCache<>(map),
+         new CacheTraitRepository.BulkOperationsCache<>(map), 100, TimeUnit.MILLISECONDS.toNanos(1));
+      cache.put("key", "value");
+      Assert.assertEquals(cache.get("key"), "value");
+      Assert.assertNull(cache.get("missing"));
+      Assert.assertEquals(cache.getBatches(), 3);
+   }
+}
@@ -0,0 +1,56 @@
+package org.radargun.stages.cache.test;
+
+import org.radargun.DistStageAck;
+import org.radargun.stages.cache.generators.ByteArrayValueGenerator;
+import org.radargun.stages.cache.generators.KeyGenerator;
+import org.radargun.stages.cache.generators.StringKeyGenerator;
+import org.radargun.stages.cache.generators.ValueGenerator;
+import org.radargun.stages.helpers.CacheSelector;
+import org.radargun.stages.test.Stressor;
+import org.radargun.state.SlaveState;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.traits.BulkOperations;
+import org.radargun.traits.Lifecycle;
+import org.radargun.util.CacheStageRunner;
+import org.radargun.util.CacheTraitRepository;
+import org.radargun.utils.Utils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(timeOut = 30000)
+public class BulkOperationsTestStageTest {
+
+   public void testPipelinedAsyncRequests() throws Exception {
+      CacheStageRunner stageRunner = new CacheStageRunner(1);
+      SlaveState slaveState = stageRunner.getSlaveState();
+      slaveState.put(KeyGenerator.KEY_GENERATOR, new StringKeyGenerator());
+      slaveState.put(ValueGenerator.VALUE_GENERATOR, new ByteArrayValueGenerator());
+      slaveState.put(CacheSelector.CACHE_SELECTOR, new CacheSelector.Default());
+      stageRunner.getTraitImpl(Lifecycle.class).start();
+
+      BulkOperationsTestStage stage = new BulkOperationsTestStage();
+      KeySelectorFactory keySelectorFactory = new ConcurrentKeysSelector.Factory();
+      Utils.setField(ConcurrentKeysSelector.Factory.class, "totalEntries", keySelectorFactory, 1000);
+      Utils.setField(BulkOperationsTestStage.class, "keySelectorFactory", stage, keySelectorFactory);
+      Utils.setField(BulkOperationsTestStage.class, "duration", stage, 1000);
+      Utils.setField(BulkOperationsTestStage.class, "totalThreads", stage, 2);
+      Utils.setField(BulkOperationsTestStage.class, "maxInFlightRequests", stage, 4);
+      Utils.setField(BulkOperationsTestStage.class, "pipelineAsync", stage, true);
+      Utils.setField(BulkOperationsTestStage.class, "getAllNativeRatio", stage, 0);
+      Utils.setField(BulkOperationsTestStage.class, "putAllNativeRatio", stage, 0);
+      Utils.setField(BulkOperationsTestStage.class, "putAllAsyncRatio", stage, 1);
+
+      DistStageAck ack = stageRunner.executeOnSlave(stage, 0);
+      Assert.assertFalse(ack.isError());
+
+      BulkOperations bulkOperations = stageRunner.getTraitImpl(BulkOperations.class);
+      CacheTraitRepository.BulkOperationsCache cache = (CacheTraitRepository.BulkOperationsCache) bulkOperations.getCache(null, true);
+      Assert.assertTrue(cache.size() > 0);
+      for (Stressor stressor : stage.getStressorsManager().getStressors()) {
+         DefaultOutcome outcome = stressor.getStats().getRepresentation(BulkOperations.PUT_ALL_ASYNC.name, DefaultOutcome.class);
+         Assert.assertNotNull(outcome);
+         Assert.assertTrue(outcome.requests > 0);
+         Assert.assertEquals(outcome.errors, 0);
+      }
+   }
+}
@@ -1,14 +1,21 @@
 package org.radargun.stages.cache.test;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.radargun.DistStageAck;
 import org.radargun.StageResult;
+import org.radargun.stages.cache.generators.SlabValueGenerator;
 import org.radargun.traits.BasicOperations;
 import org.radargun.traits.Lifecycle;
 import org.radargun.util.CacheStageRunner;
 import org.radargun.util.CacheTraitRepository;
+import org.radargun.util.ReflectionUtils;
+import org.radargun.utils.Utils;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -33,4 +40,76 @@ public class CacheLoadStageTest {
       Assert.assertEquals(cache.size(), 100);
       Assert.assertEquals(stageRunner.processAckOnMaster(cacheLoadStage, acks), StageResult.SUCCESS);
    }
+
+   public void testPipelinedAdaptiveLoading() throws Exception {
+      CacheStageRunner stageRunner = new CacheStageRunner(1);
+      Lifecycle lifecycle = stageRunner.getTraitImpl(Lifecycle.class);
+      lifecycle.start();
+
+      List<DistStageAck> acks = new ArrayList<>(1);
+      LoadStage cacheLoadStage = new LoadStage();
+      cacheLoadStage.numEntries = 10000;
+      cacheLoadStage.batchSize = 10;
+      cacheLoadStage.maxBatchesInFlight = 4;
+      cacheLoadStage.adaptiveBatchSize = true;
+      acks.add(stageRunner.executeOnSlave(cacheLoadStage, 0));
+      BasicOperations basicOperations = stageRunner.getTraitImpl(BasicOperations.class);
+      CacheTraitRepository.BasicOperationsCache cache = (CacheTraitRepository.BasicOperationsCache) basicOperations.getCache(null);
+
+      Assert.assertEquals(cache.size(), 10000);
+      Assert.assertEquals(stageRunner.processAckOnMaster(cacheLoadStage, acks), StageResult.SUCCESS);
+   }
+
+   public void testResumeFromCheckpoint() throws Exception {
+      Path checkpointFile = Files.createTempFile("load", ".checkpoint");
+      try {
+         // the first half of the range has been loaded before failure
+         Files.write(checkpointFile, Arrays.asList("0 0 20 10"), StandardCharsets.UTF_8);
+         Assert.assertEquals(resume(checkpointFile, 0), 10);
+         Assert.assertEquals(Files.readAllLines(checkpointFile, StandardCharsets.UTF_8).get(1), "0 0 20 20");
+
+         // the entries are not in the cache, therefore verification fails and everything is loaded
+         Files.write(checkpointFile, Arrays.asList("0 0 20 10"), StandardCharsets.UTF_8);
+         Assert.assertEquals(resume(checkpointFile, 5), 20);
+      } finally {
+         Files.deleteIfExists(checkpointFile);
+      }
+   }
+
+   public void testRejectsByteBufferValues() throws Exception {
+      CacheStageRunner stageRunner = new CacheStageRunner(1);
+      stageRunner.getTraitImpl(Lifecycle.class).start();
+
+      LoadStage cacheLoadStage = new LoadStage();
+      SlabValueGenerator valueGenerator = new SlabValueGenerator();
+      Utils.setField(SlabValueGenerator.class, "byteBuffer", valueGenerator, true);
+      cacheLoadStage.valueGenerator = valueGenerator;
+      // the test cache information does not declare that ByteBuffer values are accepted
+      try {
+         stageRunner.executeOnSlave(cacheLoadStage, 0);
+         Assert.fail("ByteBuffer values should be rejected");
+      } catch (IllegalStateException e) {
+         // expected
+      }
+      BasicOperations basicOperations = stageRunner.getTraitImpl(BasicOperations.class);
+      Assert.assertEquals(((CacheTraitRepository.BasicOperationsCache) basicOperations.getCache(null)).size(), 0);
+   }
+
+   private int resume(Path checkpointFile, int verifySamples) throws Exception {
+      CacheStageRunner stageRunner = new CacheStageRunner(1);
+      Lifecycle lifecycle = stageRunner.getTraitImpl(Lifecycle.class);
+      lifecycle.start();
+
+      List<DistStageAck> acks = new ArrayList<>(1);
+      LoadStage cacheLoadStage = new LoadStage();
+      cacheLoadStage.numEntries = 20;
+      ReflectionUtils.setClassProperty(LoadStage.class, cacheLoadStage, "numThreads", 1);
+      cacheLoadStage.checkpointFile = checkpointFile.toString();
+      cacheLoadStage.resume = true;
+      cacheLoadStage.resumeVerifySamples = verifySamples;
+      acks.add(stageRunner.executeOnSlave(cacheLoadStage, 0));
+      Assert.assertEquals(stageRunner.processAckOnMaster(cacheLoadStage, acks), StageResult.SUCCESS);
+      BasicOperations basicOperations = stageRunner.getTraitImpl(BasicOperations.class);
+      return ((CacheTraitRepository.BasicOperationsCache) basicOperations.getCache(null)).size();
+   }
 }
@@ -0,0 +1,78 @@
+package org.radargun.stages.cache.test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.radargun.util.CacheTraitRepository;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(timeOut = 30000)
+public class LocalNearCacheTest {
+
+   public void testHitsAndInvalidation() {
+      ConcurrentHashMap<Object, Object> remote = new ConcurrentHashMap<>();
+      LocalNearCache cache = new LocalNearCache(new CacheTraitRepository.BasicOperationsCache<>(remote), 100, 0);
+      remote.put("key", "value");
+      Assert.assertFalse(cache.isNearCached("key"));
+      Assert.assertEquals(cache.get("key"), "value");
+      Assert.assertTrue(cache.isNearCached("key"));
+
+      // modification by other client is not visible until invalidated
+      remote.put("key", "value2");
+      Assert.assertEquals(cache.get("key"), "value");
+      cache.invalidate("key");
+      Assert.assertFalse(cache.isNearCached("key"));
+      Assert.assertEquals(cache.get("key"), "value2");
+
+      cache.put("key", "value3");
+      Assert.assertTrue(cache.isNearCached("key"));
+      Assert.assertEquals(remote.get("key"), "value3");
+      Assert.assertEquals(cache.getAndRemove("key"), "value3");
+      Assert.assertFalse(cache.isNearCached("key"));
+      Assert.assertNull(cache.get("key"));
+   }
+
+   public void testEviction() {
+      ConcurrentHashMap<Object, Object> remote = new ConcurrentHashMap<>();
+      LocalNearCache cache = new LocalNearCache(new CacheTraitRepository.BasicOperationsCache<>(remote), 160, 0);
+      for (int i = 0; i < 1000; ++i) {
+         cache.put(i, "value");
+         cache.get(0);
+      }
+      int cached = 0;
+      for (int i = 0; i < 1000; ++i) {
+         if (cache.isNearCached(i)) cached++;
+      }
+      Assert.assertTrue(cached <= 160, String.valueOf(cached));
+      Assert.assertTrue(cache.isNearCached(0));
+      Assert.assertTrue(cache.isNearCached(999));
+      Assert.assertEquals(remote.size(), 1000);
+   }
+
+   public void testCheckDoesNotUpdateAccessOrder() {
+      ConcurrentHashMap<Object, Object> remote = new ConcurrentHashMap<>();
+      // two entries per segment, keys 0, 16 and 32 fall into the same segment
+      LocalNearCache cache = new LocalNearCache(new CacheTraitRepository.BasicOperationsCache<>(remote), 32,
+         TimeUnit.MINUTES.toNanos(1));
+      cache.put(0, "value");
+      cache.put(16, "value");
+      Assert.assertTrue(cache.isNearCached(0));
+      cache.put(32, "value");
+      Assert.assertFalse(cache.isNearCached(0));
+      Assert.assertTrue(cache.isNearCached(16));
+      Assert.assertTrue(cache.isNearCached(32));
+   }
+
+   public void testLifespan() throws InterruptedException {
+      ConcurrentHashMap<Object, Object> remote = new ConcurrentHashMap<>();
+      LocalNearCache cache = new LocalNearCache(new CacheTraitRepository.BasicOperationsCache<>(remote), 100,
+         TimeUnit.MILLISECONDS.toNanos(50));
+      cache.put("key", "value");
+      remote.put("key", "value2");
+      Assert.assertEquals(cache.get("key"), "value");
+      Thread.sleep(60);
+      Assert.assertFalse(cache.isNearCached("key"));
+      Assert.assertEquals(cache.get("key"), "value2");
+   }
+}
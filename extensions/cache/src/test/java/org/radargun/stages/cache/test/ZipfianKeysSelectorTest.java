@@ -0,0 +1,46 @@
+package org.radargun.stages.cache.test;
+
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(timeOut = 30000)
+public class ZipfianKeysSelectorTest {
+
+   public void testRangeAndSkew() {
+      int numEntries = 1000;
+      ZipfianKeysSelector selector = new ZipfianKeysSelector(new Random(42), numEntries, 0.99);
+      long[] counts = new long[numEntries];
+      for (int i = 0; i < 200000; ++i) {
+         long key = selector.next();
+         Assert.assertTrue(key >= 0 && key < numEntries, "Key out of range: " + key);
+         counts[(int) key]++;
+      }
+      // probability of rank 1 is ~ half of rank 0 with theta close to 1
+      double ratio = (double) counts[0] / counts[1];
+      Assert.assertTrue(ratio > 1.7 && ratio < 2.3, "Unexpected ratio " + ratio);
+      Assert.assertTrue(counts[0] > counts[numEntries / 2] * 100);
+   }
+
+   public void testZetaApproximation() {
+      long n = 3 << 20;
+      double exact = 0;
+      for (long i = 1; i <= n; ++i) {
+         exact += 1 / Math.pow(i, 0.99);
+      }
+      Assert.assertEquals(Zipfian.zeta(n, 0.99), exact, exact * 1e-9);
+   }
+
+   public void testScrambledAndLatestInRange() {
+      int numEntries = 777;
+      KeySelector scrambled = new ScrambledZipfianKeysSelector(new Random(1), numEntries, 0.5);
+      KeySelector latest = new LatestKeysSelector(new Random(1), numEntries, 0.5);
+      for (int i = 0; i < 100000; ++i) {
+         long s = scrambled.next();
+         long l = latest.next();
+         Assert.assertTrue(s >= 0 && s < numEntries);
+         Assert.assertTrue(l >= 0 && l < numEntries);
+      }
+   }
+}
@@ -17,6 +17,7 @@ import org.radargun.stats.representation.Histogram;
 import org.radargun.stats.representation.MeanAndDev;
 import org.radargun.stats.representation.OperationThroughput;
 import org.radargun.stats.representation.Percentile;
+import org.radargun.utils.CompactEncoding;
 import org.radargun.utils.NanoTimeConverter;
 
 /**
@@ -27,6 +28,8 @@ import org.radargun.utils.NanoTimeConverter;
  */
 @DefinitionElement(name = "histogram", doc = "Stores data required for producing histogram or percentiles.")
 public final class HistogramOperationStats implements OperationStats {
+   private static final int SERIAL_VERSION = 1;
+
    @Property(doc = "Maximum value that could be recorded. Default is one hour.", converter = NanoTimeConverter.class)
    private long maxValue = TimeUnit.HOURS.toNanos(1);
 
@@ -41,8 +44,9 @@ public final class HistogramOperationStats implements OperationStats {
    public HistogramOperationStats() {
    }
 
-   private HistogramOperationStats(AbstractHistogram histogram, long maxValue, int digits) {
+   private HistogramOperationStats(AbstractHistogram histogram, long errors, long maxValue, int digits) {
       this.histogram = histogram;
+      this.errors = errors;
       this.maxValue = maxValue;
       this.digits = digits;
    }
@@ -70,7 +74,7 @@ public final class HistogramOperationStats implements OperationStats {
 
    @Override
    public OperationStats copy() {
-      return new HistogramOperationStats(getHistogram().copy(), maxValue, digits);
+      return new HistogramOperationStats(getHistogram().copy(), errors, maxValue, digits);
    }
 
    @Override
@@ -79,12 +83,22 @@ public final class HistogramOperationStats implements OperationStats {
          HistogramOperationStats otherStats = (HistogramOperationStats) other;
          histogram = getHistogram();
          histogram.add(otherStats.getHistogram());
+         errors += otherStats.errors;
          compact();
       } else {
          throw new IllegalArgumentException(String.valueOf(other));
       }
    }
 
+   /**
+    * Adds values recorded elsewhere (e.g. harvested from a {@link org.HdrHistogram.Recorder}).
+    */
+   void add(AbstractHistogram other, long errors) {
+      histogram = getHistogram();
+      histogram.add(other);
+      this.errors += errors;
+   }
+
    @Override
    public void record(Request request) {
       histogram.recordValue(request.duration());
@@ -226,27 +240,34 @@ public final class HistogramOperationStats implements OperationStats {
    }
 
    private void writeObject(ObjectOutputStream s) throws IOException {
-      s.writeLong(maxValue);
-      s.writeInt(digits);
-      s.writeLong(errors);
+      s.writeByte(SERIAL_VERSION);
+      CompactEncoding.writeVarLong(s, maxValue);
+      CompactEncoding.writeVarInt(s, digits);
+      CompactEncoding.writeVarLong(s, errors);
       compact();
-      s.writeInt(compacted.ranges.length);
+      // ranges are increasing, therefore we store only the differences
+      CompactEncoding.writeVarInt(s, compacted.ranges.length);
+      long previous = 0;
       for (int i = 0; i < compacted.ranges.length; ++i) {
-         s.writeLong(compacted.ranges[i]);
-         s.writeLong(compacted.counts[i]);
+         CompactEncoding.writeSignedVarLong(s, compacted.ranges[i] - previous);
+         CompactEncoding.writeVarLong(s, compacted.counts[i]);
+         previous = compacted.ranges[i];
       }
    }
 
    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
-      maxValue = s.readLong();
-      digits = s.readInt();
-      errors = s.readLong();
-      int length = s.readInt();
+      CompactEncoding.checkVersion(s, SERIAL_VERSION, HistogramOperationStats.class);
+      maxValue = CompactEncoding.readVarLong(s);
+      digits = CompactEncoding.readVarInt(s);
+      errors = CompactEncoding.readVarLong(s);
+      int length = CompactEncoding.readVarInt(s);
       long[] ranges = new long[length];
       long[] counts = new long[length];
+      long previous = 0;
       for (int i = 0; i < length; ++i) {
-         ranges[i] = s.readLong();
-         counts[i] = s.readLong();
+         ranges[i] = previous + CompactEncoding.readSignedVarLong(s);
+         counts[i] = CompactEncoding.readVarLong(s);
+         previous = ranges[i];
       }
       compacted = new Histogram(ranges, counts);
    }
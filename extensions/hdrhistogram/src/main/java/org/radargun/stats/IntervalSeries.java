@@ -0,0 +1,130 @@
+package org.radargun.stats;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.stats.representation.MeanAndDev;
+import org.radargun.stats.representation.OperationThroughput;
+
+/**
+ * Fixed-size summary of response times for each period, stored in primitive arrays.
+ * In contrast to keeping whole statistics per period, all the values can be merged exactly.
+ */
+final class IntervalSeries implements Serializable {
+   private static final int INITIAL_CAPACITY = 16;
+
+   private int size;
+   private long[] requests = new long[INITIAL_CAPACITY];
+   private long[] errors = new long[INITIAL_CAPACITY];
+   private long[] max = new long[INITIAL_CAPACITY];
+   private double[] mean = new double[INITIAL_CAPACITY];
+   private double[] m2 = new double[INITIAL_CAPACITY];
+
+   IntervalSeries() {
+   }
+
+   private IntervalSeries(IntervalSeries other) {
+      size = other.size;
+      requests = Arrays.copyOf(other.requests, other.requests.length);
+      errors = Arrays.copyOf(other.errors, other.errors.length);
+      max = Arrays.copyOf(other.max, other.max.length);
+      mean = Arrays.copyOf(other.mean, other.mean.length);
+      m2 = Arrays.copyOf(other.m2, other.m2.length);
+   }
+
+   IntervalSeries copy() {
+      return new IntervalSeries(this);
+   }
+
+   int size() {
+      return size;
+   }
+
+   /**
+    * @param interval Index of the period
+    * @param requests Number of requests recorded
+    * @param errors Number of failed requests
+    * @param mean Mean response time
+    * @param dev Population standard deviation of response times
+    * @param max Maximum response time
+    */
+   void add(int interval, long requests, long errors, double mean, double dev, long max) {
+      ensure(interval);
+      merge(interval, requests, errors, mean, dev * dev * requests, max);
+   }
+
+   /**
+    * Adds the intervals from the other series, shifted by given offset.
+    */
+   void merge(IntervalSeries other, int offset) {
+      if (other.size == 0) return;
+      ensure(other.size - 1 + offset);
+      for (int i = 0; i < other.size; ++i) {
+         merge(i + offset, other.requests[i], other.errors[i], other.mean[i], other.m2[i], other.max[i]);
+      }
+   }
+
+   /**
+    * Prepends given number of empty intervals.
+    */
+   void shift(int intervals) {
+      if (intervals <= 0) return;
+      int oldSize = size;
+      ensure(oldSize - 1 + intervals);
+      System.arraycopy(requests, 0, requests, intervals, oldSize);
+      System.arraycopy(errors, 0, errors, intervals, oldSize);
+      System.arraycopy(max, 0, max, intervals, oldSize);
+      System.arraycopy(mean, 0, mean, intervals, oldSize);
+      System.arraycopy(m2, 0, m2, intervals, oldSize);
+      Arrays.fill(requests, 0, intervals, 0);
+      Arrays.fill(errors, 0, intervals, 0);
+      Arrays.fill(max, 0, intervals, 0);
+      Arrays.fill(mean, 0, intervals, 0);
+      Arrays.fill(m2, 0, intervals, 0);
+   }
+
+   void truncate(int size) {
+      this.size = Math.min(this.size, size);
+   }
+
+   private void merge(int i, long otherRequests, long otherErrors, double otherMean, double otherM2, long otherMax) {
+      long n = requests[i] + otherRequests;
+      if (n > 0) {
+         double delta = mean[i] - otherMean;
+         m2[i] = m2[i] + otherM2 + delta * delta * requests[i] * otherRequests / n;
+         mean[i] = (mean[i] * requests[i] + otherMean * otherRequests) / n;
+      }
+      requests[i] = n;
+      errors[i] += otherErrors;
+      max[i] = Math.max(max[i], otherMax);
+   }
+
+   private void ensure(int interval) {
+      if (interval >= requests.length) {
+         int capacity = Math.max(interval + 1, requests.length * 2);
+         requests = Arrays.copyOf(requests, capacity);
+         errors = Arrays.copyOf(errors, capacity);
+         max = Arrays.copyOf(max, capacity);
+         mean = Arrays.copyOf(mean, capacity);
+         m2 = Arrays.copyOf(m2, capacity);
+      }
+      size = Math.max(size, interval + 1);
+   }
+
+   DefaultOutcome defaultOutcome(int i) {
+      if (i >= size) return new DefaultOutcome(0, 0, 0, 0);
+      return new DefaultOutcome(requests[i], errors[i], mean[i], max[i]);
+   }
+
+   MeanAndDev meanAndDev(int i) {
+      if (i >= size || requests[i] < 2) return new MeanAndDev(i >= size ? 0 : mean[i], 0);
+      return new MeanAndDev(mean[i], Math.sqrt(m2[i] / (requests[i] - 1)));
+   }
+
+   OperationThroughput throughput(int i, long period) {
+      if (i >= size) return new OperationThroughput(0, 0);
+      double perSecond = 1000d / period;
+      return new OperationThroughput(requests[i] * perSecond, (requests[i] - errors[i]) * perSecond);
+   }
+}
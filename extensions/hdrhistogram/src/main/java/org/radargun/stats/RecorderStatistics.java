@@ -0,0 +1,440 @@
+package org.radargun.stats;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.radargun.Operation;
+import org.radargun.config.DefinitionElement;
+import org.radargun.config.Property;
+import org.radargun.stats.representation.AbstractSeries;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.stats.representation.MeanAndDev;
+import org.radargun.stats.representation.OperationThroughput;
+import org.radargun.utils.NanoTimeConverter;
+import org.radargun.utils.TimeConverter;
+import org.radargun.utils.TimeService;
+
+/**
+ * Records response times into HdrHistogram {@link Recorder recorders}; recording is wait-free
+ * and the active histogram is swapped and harvested once per period (or whenever {@link #harvest()}
+ * is called by a reader). Harvested values are added to a single cumulative histogram and
+ * to a fixed-size {@link IntervalSeries summary} of each period, so the memory footprint does not
+ * depend on the test duration as with {@link PeriodicStatistics} keeping a copy of statistics per period.
+ *
+ * Percentiles and histograms are available only for the whole test; per-period series provide
+ * throughput, mean, deviation and max response time.
+ */
+@DefinitionElement(name = "recorder", doc = "Wait-free recording into HdrHistogram with periodically harvested intervals. " +
+   "Memory footprint does not grow with the test duration.")
+public class RecorderStatistics extends IntervalStatistics {
+   private static final OperationRecorder[] EMPTY_ARRAY = new OperationRecorder[0];
+
+   @Property(doc = "Duration of one sample. Default is 1 second.", converter = TimeConverter.class)
+   private long period = 1000;
+
+   @Property(doc = "Maximum value that could be recorded. Default is one hour.", converter = NanoTimeConverter.class)
+   private long maxValue = TimeUnit.HOURS.toNanos(1);
+
+   @Property(doc = "Number of significant digits. Default is 2.")
+   private int digits = 2;
+
+   private transient volatile OperationRecorder[] recorders = EMPTY_ARRAY;
+   private transient volatile int currentInterval = 0;
+   private transient long beginNanos = Long.MAX_VALUE;
+
+   private final Map<String, HistogramOperationStats> cumulative = new HashMap<>();
+   private final Map<String, IntervalSeries> intervals = new HashMap<>();
+   private final Map<String, Set<Operation>> groupOperationsMap = new HashMap<>();
+   private final Map<Operation, String> operationGroupMap = new HashMap<>();
+
+   public RecorderStatistics() {
+   }
+
+   private RecorderStatistics(long period, long maxValue, int digits) {
+      this.period = period;
+      this.maxValue = maxValue;
+      this.digits = digits;
+   }
+
+   @Override
+   public Statistics newInstance() {
+      return new RecorderStatistics(period, maxValue, digits);
+   }
+
+   @Override
+   public Statistics copy() {
+      harvest();
+      RecorderStatistics copy = (RecorderStatistics) newInstance();
+      copy.merge(this);
+      return copy;
+   }
+
+   @Override
+   public void begin() {
+      start();
+      // drop anything recorded before the measurement started
+      for (OperationRecorder recorder : recorders()) {
+         if (recorder != null) {
+            recorder.reset();
+         }
+      }
+   }
+
+   private void start() {
+      super.begin();
+      beginNanos = TimeService.nanoTime();
+      currentInterval = 0;
+   }
+
+   @Override
+   public void end() {
+      super.end();
+      harvest();
+      // Discard last interval if it contains < 5% of the period, as with PeriodicStatistics
+      long lastIntervalDuration = getEnd() - getBegin() - currentInterval * period;
+      if (currentInterval > 0 && lastIntervalDuration < period / 20) {
+         synchronized (this) {
+            for (IntervalSeries series : intervals.values()) {
+               series.truncate(currentInterval);
+            }
+         }
+      }
+   }
+
+   /**
+    * Clears the harvested values. Values recorded since the last harvest (e.g. after the last {@link #copy()})
+    * stay in the recorders and are harvested into the new measurement, so that no request is lost when
+    * the statistics are copied and reset while stressors are recording.
+    */
+   @Override
+   public synchronized void reset() {
+      for (String operation : cumulative.keySet()) {
+         cumulative.put(operation, newHistogramStats());
+         intervals.put(operation, new IntervalSeries());
+      }
+      start();
+   }
+
+   @Override
+   public void record(Request request, Operation operation) {
+      record(operation, intervalNanos(request.getRequestStartTime()), request.duration(), request.isSuccessful());
+   }
+
+   @Override
+   public void record(Message message, Operation operation) {
+      // messages carry wall-clock timestamps in milliseconds, possibly from another node
+      int interval = interval(message.getSendStartTime() - getBegin());
+      if (message.isValid()) {
+         record(operation, interval, message.totalTime(), true);
+      } else {
+         OperationRecorder recorder = ensure(operation);
+         checkInterval(interval);
+         recorder.errors.incrementAndGet();
+      }
+   }
+
+   @Override
+   public void record(RequestSet requestSet, Operation operation) {
+      record(operation, intervalNanos(requestSet.getBegin()), requestSet.sumDurations(), requestSet.isSuccessful());
+   }
+
+   private int intervalNanos(long startTime) {
+      return interval(TimeUnit.NANOSECONDS.toMillis(startTime - beginNanos));
+   }
+
+   /**
+    * @param sinceBegin Milliseconds since the beginning of the measurement.
+    */
+   private int interval(long sinceBegin) {
+      return (int) (sinceBegin / period);
+   }
+
+   private void record(Operation operation, int interval, long duration, boolean successful) {
+      OperationRecorder recorder = ensure(operation);
+      checkInterval(interval);
+      recorder.recorder.recordValue(Math.max(0, Math.min(duration, maxValue)));
+      if (!successful) {
+         recorder.errors.incrementAndGet();
+      }
+   }
+
+   private void checkInterval(int interval) {
+      if (interval > currentInterval) {
+         harvest(interval);
+      }
+   }
+
+   private OperationRecorder ensure(Operation operation) {
+      OperationRecorder[] recorders = this.recorders;
+      OperationRecorder recorder;
+      if (operation.id < recorders.length && (recorder = recorders[operation.id]) != null) {
+         return recorder;
+      }
+      return addRecorder(operation);
+   }
+
+   private synchronized OperationRecorder addRecorder(Operation operation) {
+      OperationRecorder[] recorders = recorders();
+      if (operation.id < recorders.length && recorders[operation.id] != null) {
+         return recorders[operation.id];
+      }
+      OperationRecorder[] newRecorders = recorders;
+      if (operation.id >= recorders.length) {
+         newRecorders = new OperationRecorder[operation.id + 1];
+         System.arraycopy(recorders, 0, newRecorders, 0, recorders.length);
+      }
+      OperationRecorder recorder = new OperationRecorder(operation, new Recorder(maxValue, digits));
+      newRecorders[operation.id] = recorder;
+      cumulative.computeIfAbsent(operation.name, name -> newHistogramStats());
+      intervals.computeIfAbsent(operation.name, name -> new IntervalSeries());
+      this.recorders = newRecorders;
+      return recorder;
+   }
+
+   private OperationRecorder[] recorders() {
+      // null after deserialization
+      OperationRecorder[] recorders = this.recorders;
+      return recorders == null ? EMPTY_ARRAY : recorders;
+   }
+
+   @Override
+   public boolean isPeriodic() {
+      return true;
+   }
+
+   private HistogramOperationStats newHistogramStats() {
+      HistogramOperationStats stats = new HistogramOperationStats();
+      stats.init(maxValue, digits);
+      return stats;
+   }
+
+   /**
+    * Swaps the active histograms and adds the values recorded so far to the current interval.
+    * Can be called from any thread, recording threads are not blocked.
+    */
+   @Override
+   public void harvest() {
+      harvest(currentInterval);
+   }
+
+   private synchronized void harvest(int nextInterval) {
+      int interval = currentInterval;
+      for (OperationRecorder recorder : recorders()) {
+         if (recorder == null) continue;
+         Histogram histogram = recorder.harvest();
+         long errors = recorder.errors.getAndSet(0);
+         long count = histogram.getTotalCount();
+         if (count == 0 && errors == 0) continue;
+         cumulative.get(recorder.operation.name).add(histogram, errors);
+         intervals.get(recorder.operation.name).add(interval, count, errors,
+            histogram.getMean(), histogram.getStdDeviation(), histogram.getMaxValue());
+      }
+      currentInterval = Math.max(interval, nextInterval);
+   }
+
+   @Override
+   public synchronized void merge(Statistics otherStats) {
+      if (!(otherStats instanceof RecorderStatistics)) {
+         throw new IllegalArgumentException(String.valueOf(otherStats));
+      }
+      RecorderStatistics other = (RecorderStatistics) otherStats;
+      if (other.period != period) {
+         throw new IllegalArgumentException("Different periods: " + period + " vs. " + other.period);
+      }
+      int offset = 0;
+      if (!cumulative.isEmpty()) {
+         long distance = Math.abs(other.getBegin() - getBegin());
+         offset = (int) (distance / period);
+         if (2 * (distance - offset * period) > period) {
+            ++offset;
+         }
+      }
+      int thisOffset = 0, otherOffset = offset;
+      if (other.getBegin() < getBegin()) {
+         thisOffset = offset;
+         otherOffset = 0;
+      }
+      synchronized (other) {
+         if (other != this) {
+            other.harvest();
+         }
+         for (IntervalSeries series : intervals.values()) {
+            series.shift(thisOffset);
+         }
+         for (Map.Entry<String, HistogramOperationStats> entry : other.cumulative.entrySet()) {
+            HistogramOperationStats stats = cumulative.get(entry.getKey());
+            if (stats == null) {
+               cumulative.put(entry.getKey(), (HistogramOperationStats) entry.getValue().copy());
+            } else {
+               stats.merge(entry.getValue());
+            }
+         }
+         for (Map.Entry<String, IntervalSeries> entry : other.intervals.entrySet()) {
+            IntervalSeries series = intervals.get(entry.getKey());
+            if (series == null) {
+               series = new IntervalSeries();
+               series.shift(thisOffset);
+               intervals.put(entry.getKey(), series);
+            }
+            series.merge(entry.getValue(), otherOffset);
+         }
+         for (Map.Entry<String, Set<Operation>> entry : other.groupOperationsMap.entrySet()) {
+            registerOperationsGroup(entry.getKey(), entry.getValue());
+         }
+      }
+      // update beginTime/endTime after intervals
+      super.merge(otherStats);
+   }
+
+   @Override
+   public synchronized void registerOperationsGroup(String name, Set<Operation> operations) {
+      if (groupOperationsMap.containsKey(name)) {
+         return;
+      }
+      for (Set<Operation> groupOperations : groupOperationsMap.values()) {
+         for (Operation operation : operations) {
+            if (groupOperations.contains(operation)) {
+               return;
+            }
+         }
+      }
+      Set<Operation> updatedIdOperations = new HashSet<>();
+      for (Operation operation : operations) {
+         // This ensures the IDs match
+         operation = Operation.getByName(operation.name);
+         updatedIdOperations.add(operation);
+         operationGroupMap.put(operation, name);
+      }
+      groupOperationsMap.put(name, updatedIdOperations);
+   }
+
+   @Override
+   public String getOperationsGroup(Operation operation) {
+      return operationGroupMap.get(operation);
+   }
+
+   @Override
+   public Map<String, Set<Operation>> getGroupOperationsMap() {
+      return groupOperationsMap;
+   }
+
+   @Override
+   public synchronized List<Map<String, OperationStats>> getOperationStatsForGroups() {
+      Map<String, OperationStats> result = new HashMap<>(groupOperationsMap.size());
+      for (Map.Entry<String, Set<Operation>> entry : groupOperationsMap.entrySet()) {
+         OperationStats merged = null;
+         for (Operation operation : entry.getValue()) {
+            OperationStats stats = cumulative.get(operation.name);
+            if (stats == null) {
+               continue;
+            } else if (merged == null) {
+               merged = stats.copy();
+            } else {
+               merged.merge(stats);
+            }
+         }
+         if (merged != null && !merged.isEmpty()) {
+            result.put(entry.getKey(), merged);
+         }
+      }
+      List<Map<String, OperationStats>> list = new ArrayList<>();
+      list.add(result);
+      return list;
+   }
+
+   @Override
+   public synchronized List<Map<String, OperationStats>> getOperationsStats() {
+      return Collections.singletonList(new HashMap<>(cumulative));
+   }
+
+   @Override
+   public synchronized Set<String> getOperations() {
+      return new HashSet<>(cumulative.keySet());
+   }
+
+   @Override
+   public synchronized OperationStats getOperationStats(String operation) {
+      return cumulative.get(operation);
+   }
+
+   @Override
+   public synchronized <T> T getRepresentation(String operation, Class<T> clazz, Object... args) {
+      if (AbstractSeries.class.isAssignableFrom(clazz)) {
+         return (T) getRepresentationSeries(operation, clazz);
+      }
+      OperationStats stats = cumulative.get(operation);
+      if (stats == null) {
+         stats = getOperationStatsForGroups().get(0).get(operation);
+      }
+      if (stats == null) {
+         stats = newHistogramStats();
+      }
+      return stats.getRepresentation(clazz, this, args);
+   }
+
+   private Object getRepresentationSeries(String operation, Class<?> clazz) {
+      IntervalSeries series = intervals.get(operation);
+      if (series == null) {
+         series = new IntervalSeries();
+      }
+      int length = intervals.values().stream().mapToInt(IntervalSeries::size).max().orElse(0);
+      Object data;
+      if (clazz == DefaultOutcome.Series.class) {
+         data = Array.newInstance(DefaultOutcome.class, length);
+         for (int i = 0; i < length; ++i) Array.set(data, i, series.defaultOutcome(i));
+      } else if (clazz == MeanAndDev.Series.class) {
+         data = Array.newInstance(MeanAndDev.class, length);
+         for (int i = 0; i < length; ++i) Array.set(data, i, series.meanAndDev(i));
+      } else if (clazz == OperationThroughput.Series.class) {
+         data = Array.newInstance(OperationThroughput.class, length);
+         for (int i = 0; i < length; ++i) Array.set(data, i, series.throughput(i, period));
+      } else {
+         return null;
+      }
+      try {
+         Constructor<?> seriesCtor = clazz.getConstructor(long.class, long.class, data.getClass());
+         return seriesCtor.newInstance(getBegin(), period, data);
+      } catch (Exception e) {
+         throw new IllegalStateException("Cannot instantiate series " + clazz.getName(), e);
+      }
+   }
+
+   @Override
+   public String toString() {
+      return super.toString() + "{" + cumulative + "}";
+   }
+
+   private static final class OperationRecorder {
+      private final Operation operation;
+      private final Recorder recorder;
+      private final AtomicLong errors = new AtomicLong();
+      private Histogram intervalHistogram;
+
+      private OperationRecorder(Operation operation, Recorder recorder) {
+         this.operation = operation;
+         this.recorder = recorder;
+      }
+
+      // called only under the statistics lock
+      private Histogram harvest() {
+         intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+         return intervalHistogram;
+      }
+
+      private void reset() {
+         recorder.reset();
+         errors.set(0);
+      }
+   }
+}
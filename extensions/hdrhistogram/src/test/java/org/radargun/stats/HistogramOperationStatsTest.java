@@ -0,0 +1,73 @@
+package org.radargun.stats;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+import org.radargun.Operation;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.stats.representation.Histogram;
+import org.radargun.stats.representation.Percentile;
+import org.radargun.utils.TimeService;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class HistogramOperationStatsTest {
+   private static final Operation GET = Operation.register("HistogramOperationStatsTest.Get");
+
+   public void testSerializationRoundTrip() throws Exception {
+      Statistics statistics = new BasicStatistics();
+      HistogramOperationStats stats = (HistogramOperationStats) new HistogramOperationStats().newInstance();
+      statistics.begin();
+      for (int i = 1; i <= 100; ++i) {
+         Request request = new Request(statistics, TimeService.nanoTime() - i * 100_000L);
+         request.succeeded(GET);
+         stats.record(request);
+      }
+      stats.record(statistics.message().times(1000, 900));
+      stats.record(statistics.message().times(1000, 1001));
+      statistics.end();
+
+      HistogramOperationStats copy = roundTrip(stats);
+      DefaultOutcome expected = stats.getRepresentation(DefaultOutcome.class, statistics);
+      DefaultOutcome actual = copy.getRepresentation(DefaultOutcome.class, statistics);
+      assertEquals(actual.requests, expected.requests);
+      assertEquals(actual.errors, 1);
+      assertEquals(actual.responseTimeMean, expected.responseTimeMean, expected.responseTimeMean * 0.01);
+      assertEquals(actual.responseTimeMax, expected.responseTimeMax);
+      assertEquals(copy.getRepresentation(Percentile.class, statistics, 50d).responseTimeMax,
+         stats.getRepresentation(Percentile.class, statistics, 50d).responseTimeMax);
+      Histogram expectedHistogram = stats.getRepresentation(Histogram.class, statistics);
+      Histogram actualHistogram = copy.getRepresentation(Histogram.class, statistics);
+      assertTrue(Arrays.equals(actualHistogram.ranges, expectedHistogram.ranges));
+      assertTrue(Arrays.equals(actualHistogram.counts, expectedHistogram.counts));
+
+      // serialized form of deserialized instance is identical
+      assertTrue(Arrays.equals(serialize(copy), serialize(stats)));
+   }
+
+   public void testEmpty() throws Exception {
+      HistogramOperationStats copy = roundTrip((HistogramOperationStats) new HistogramOperationStats().newInstance());
+      assertTrue(copy.isEmpty());
+   }
+
+   private static byte[] serialize(HistogramOperationStats stats) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+         out.writeObject(stats);
+      }
+      return bytes.toByteArray();
+   }
+
+   private static HistogramOperationStats roundTrip(HistogramOperationStats stats) throws IOException, ClassNotFoundException {
+      try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialize(stats)))) {
+         return (HistogramOperationStats) in.readObject();
+      }
+   }
+}
@@ -0,0 +1,69 @@
+package org.radargun.stats;
+
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.stats.representation.MeanAndDev;
+import org.radargun.stats.representation.OperationThroughput;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+@Test
+public class IntervalSeriesTest {
+
+   public void testMerge() {
+      // response times 1, 2, 3 in the first series and 4, 5 in the second one
+      IntervalSeries first = new IntervalSeries();
+      first.add(0, 3, 0, 2, Math.sqrt(2d / 3), 3);
+      IntervalSeries second = new IntervalSeries();
+      second.add(0, 2, 1, 4.5, 0.5, 5);
+      first.merge(second, 0);
+
+      MeanAndDev meanAndDev = first.meanAndDev(0);
+      assertEquals(meanAndDev.mean, 3d, 1e-9);
+      // sample deviation of 1..5
+      assertEquals(meanAndDev.dev, Math.sqrt(2.5), 1e-9);
+      DefaultOutcome outcome = first.defaultOutcome(0);
+      assertEquals(outcome.requests, 5);
+      assertEquals(outcome.errors, 1);
+      assertEquals(outcome.responseTimeMax, 5);
+   }
+
+   public void testShiftAndOffset() {
+      IntervalSeries series = new IntervalSeries();
+      series.add(0, 10, 0, 100, 0, 100);
+      series.add(1, 20, 2, 100, 0, 100);
+      series.shift(2);
+      assertEquals(series.size(), 4);
+      assertEquals(series.defaultOutcome(0).requests, 0);
+      assertEquals(series.defaultOutcome(2).requests, 10);
+      assertEquals(series.defaultOutcome(3).errors, 2);
+
+      IntervalSeries other = new IntervalSeries();
+      for (int i = 0; i < 20; ++i) {
+         other.add(i, 1, 0, 200, 0, 200);
+      }
+      // grows beyond the initial capacity
+      series.merge(other, 1);
+      assertEquals(series.size(), 21);
+      assertEquals(series.defaultOutcome(0).requests, 0);
+      assertEquals(series.defaultOutcome(1).requests, 1);
+      assertEquals(series.defaultOutcome(3).requests, 21);
+      assertEquals(series.defaultOutcome(20).requests, 1);
+
+      OperationThroughput throughput = series.throughput(3, 500);
+      assertEquals(throughput.gross, 42d, 1e-9);
+      assertEquals(throughput.net, 38d, 1e-9);
+   }
+
+   public void testTruncateAndCopy() {
+      IntervalSeries series = new IntervalSeries();
+      series.add(0, 1, 0, 100, 0, 100);
+      series.add(2, 1, 0, 100, 0, 100);
+      IntervalSeries copy = series.copy();
+      series.truncate(1);
+      assertEquals(series.size(), 1);
+      assertEquals(series.defaultOutcome(2).requests, 0);
+      assertEquals(copy.size(), 3);
+      assertEquals(copy.defaultOutcome(2).requests, 1);
+   }
+}
@@ -0,0 +1,128 @@
+package org.radargun.stats;
+
+import org.radargun.Operation;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.stats.representation.Percentile;
+import org.radargun.utils.TimeService;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class RecorderStatisticsTest {
+   private static final Operation GET = Operation.register("RecorderStatisticsTest.Get");
+   private static final Operation PUT = Operation.register("RecorderStatisticsTest.Put");
+   private static final long BEGIN = 1_000_000L;
+
+   public void testMessageIntervals() {
+      RecorderStatistics statistics = new RecorderStatistics();
+      statistics.begin();
+      // messages carry wall-clock timestamps, compared to the beginning of the statistics
+      statistics.setBegin(BEGIN);
+      statistics.message().times(BEGIN + 100, BEGIN + 110).record(GET);
+      statistics.message().times(BEGIN + 2500, BEGIN + 2520).record(GET);
+      // invalid message counts as an error
+      statistics.message().times(BEGIN + 2600, BEGIN + 2500).record(GET);
+      statistics.harvest();
+
+      DefaultOutcome.Series series = statistics.getRepresentation(GET.name, DefaultOutcome.Series.class);
+      assertEquals(series.startTime, BEGIN);
+      assertEquals(series.samples.length, 3);
+      assertEquals(series.samples[0].requests, 1);
+      assertEquals(series.samples[0].responseTimeMean, 10_000_000d, 10_000_000d * 0.01);
+      assertEquals(series.samples[1].requests, 0);
+      assertEquals(series.samples[2].requests, 1);
+      assertEquals(series.samples[2].errors, 1);
+   }
+
+   public void testMerge() {
+      RecorderStatistics first = new RecorderStatistics();
+      first.begin();
+      for (int i = 0; i < 10; ++i) {
+         record(first, GET, 1_000_000L, true);
+      }
+      record(first, PUT, 2_000_000L, false);
+      first.end();
+      RecorderStatistics second = new RecorderStatistics();
+      second.begin();
+      for (int i = 0; i < 10; ++i) {
+         record(second, GET, 3_000_000L, true);
+      }
+      second.end();
+
+      Statistics merged = first.copy();
+      merged.merge(second);
+      DefaultOutcome get = merged.getRepresentation(GET.name, DefaultOutcome.class);
+      assertEquals(get.requests, 20);
+      assertEquals(get.errors, 0);
+      assertEquals(get.responseTimeMean, 2_000_000d, 2_000_000d * 0.05);
+      Percentile percentile = merged.getRepresentation(GET.name, Percentile.class, 90d);
+      assertEquals(percentile.responseTimeMax, 3_000_000d, 3_000_000d * 0.05);
+      DefaultOutcome put = merged.getRepresentation(PUT.name, DefaultOutcome.class);
+      assertEquals(put.requests, 1);
+      assertEquals(put.errors, 1);
+      // the source statistics are not modified
+      assertEquals(first.getRepresentation(GET.name, DefaultOutcome.class).requests, 10);
+   }
+
+   public void testPeriodic() {
+      assertTrue(new RecorderStatistics().isPeriodic());
+      assertTrue(new CommonStatistics().isPeriodic());
+      assertFalse(new BasicStatistics().isPeriodic());
+   }
+
+   public void testReset() {
+      RecorderStatistics statistics = new RecorderStatistics();
+      statistics.begin();
+      record(statistics, GET, 1_000_000L, true);
+      statistics.harvest();
+      statistics.reset();
+      record(statistics, GET, 1_000_000L, false);
+      statistics.end();
+      DefaultOutcome get = statistics.getRepresentation(GET.name, DefaultOutcome.class);
+      assertEquals(get.requests, 1);
+      assertEquals(get.errors, 1);
+   }
+
+   public void testCopyAndResetDoNotLoseSamples() {
+      RecorderStatistics statistics = new RecorderStatistics();
+      statistics.begin();
+      // not harvested yet
+      for (int i = 0; i < 10; ++i) {
+         record(statistics, GET, 1_000_000L, true);
+      }
+      record(statistics, GET, 1_000_000L, false);
+      // the same sequence as when the stressor hands over an interval
+      Statistics interval = statistics.copy();
+      record(statistics, PUT, 2_000_000L, true);
+      interval.end();
+      statistics.reset();
+      DefaultOutcome get = interval.getRepresentation(GET.name, DefaultOutcome.class);
+      assertEquals(get.requests, 11);
+      assertEquals(get.errors, 1);
+      assertEquals(interval.getRepresentation(PUT.name, DefaultOutcome.class).requests, 0);
+
+      // recorded after the copy, belongs to the next interval
+      record(statistics, PUT, 2_000_000L, true);
+      Statistics next = statistics.copy();
+      assertEquals(next.getRepresentation(GET.name, DefaultOutcome.class).requests, 0);
+      assertEquals(next.getRepresentation(PUT.name, DefaultOutcome.class).requests, 2);
+
+      // merging does not need explicit harvest either
+      record(statistics, GET, 1_000_000L, true);
+      Statistics merged = interval.copy();
+      merged.merge(statistics);
+      assertEquals(merged.getRepresentation(GET.name, DefaultOutcome.class).requests, 12);
+   }
+
+   private void record(Statistics statistics, Operation operation, long duration, boolean successful) {
+      Request request = new Request(statistics, TimeService.nanoTime() - duration);
+      if (successful) {
+         request.succeeded(operation);
+      } else {
+         request.failed(operation);
+      }
+   }
+}
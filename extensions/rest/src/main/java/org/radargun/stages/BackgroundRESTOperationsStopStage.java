@@ -1,8 +1,6 @@
 package org.radargun.stages;
 
-import java.util.List;
 import org.radargun.DistStageAck;
-import org.radargun.StageResult;
 import org.radargun.config.Namespace;
 import org.radargun.config.Property;
 import org.radargun.config.Stage;
@@ -66,7 +64,7 @@ public class BackgroundRESTOperationsStopStage extends RESTOperationsTestStage {
    }
 
    @Override
-   public StageResult processAckOnMaster(List<DistStageAck> acks) {
-      return processAckOnMaster(acks, testNameToStop);
+   protected String getResultsTestName() {
+      return testNameToStop;
    }
 }
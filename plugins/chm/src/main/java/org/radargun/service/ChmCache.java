@@ -1,115 +1,311 @@
 package org.radargun.service;
 
+import java.lang.management.ManagementFactory;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
 
+import com.sun.management.HotSpotDiagnosticMXBean;
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
 import org.radargun.traits.BasicOperations;
+import org.radargun.traits.BulkOperations;
 import org.radargun.traits.CacheInformation;
 import org.radargun.traits.ConditionalOperations;
+import org.radargun.traits.TemporalOperations;
+import org.radargun.utils.TimeService;
 
 /**
+ * Cache backed by {@link ConcurrentHashMap}. Expired entries are removed lazily on access
+ * and by periodic {@link #purgeExpired()}; until then these are included in the sizes. When the number
+ * of entries is bounded, inserted entries are tracked in a queue and evicted in FIFO order or by
+ * second-chance (clock) approximation of LRU. Overwriting an entry does not allocate.
+ *
  * @author Radim Vansa &lt;rvansa@redhat.com&gt;
  */
-public class ChmCache implements BasicOperations.Cache, ConditionalOperations.Cache, CacheInformation.Cache {
-   private final ConcurrentHashMap chm = new ConcurrentHashMap();
+public class ChmCache implements BasicOperations.Cache, ConditionalOperations.Cache, BulkOperations.Cache,
+   TemporalOperations.Cache, CacheInformation.Cache {
+   private static final Log log = LogFactory.getLog(ChmCache.class);
+
+   private final ConcurrentHashMap<Object, ChmEntry> chm;
    private final String name;
+   private final ChmService.EvictionPolicy eviction;
+   private final long maxEntries;
+   private final ConcurrentLinkedQueue<ChmEntry> evictionQueue;
+   private final AtomicInteger queued = new AtomicInteger();
+   private final ReentrantLock evictionLock = new ReentrantLock();
+   private final LongAdder evictions = new LongAdder();
+   private final LongAdder expirations = new LongAdder();
+   private final int entryOverhead;
+   private final ThreadLocal<PutFunction> putFunctions = ThreadLocal.withInitial(() -> new PutFunction());
 
    public ChmCache(String name) {
+      this(name, 16, 1, ChmService.EvictionPolicy.NONE, -1);
+   }
+
+   public ChmCache(String name, int initialCapacity, int concurrencyLevel, ChmService.EvictionPolicy eviction, long maxEntries) {
+      this.chm = new ConcurrentHashMap<>(initialCapacity, 0.75f, concurrencyLevel);
       this.name = name;
+      this.eviction = eviction;
+      this.maxEntries = maxEntries;
+      this.evictionQueue = maxEntries > 0 && eviction != ChmService.EvictionPolicy.NONE ? new ConcurrentLinkedQueue<>() : null;
+      this.entryOverhead = computeEntryOverhead(evictionQueue != null);
    }
 
    @Override
    public Object get(Object key) {
-      return chm.get(key);
+      ChmEntry entry = chm.get(key);
+      if (entry == null) {
+         return null;
+      }
+      long now = TimeService.currentTimeMillis();
+      if (entry.isExpired(now)) {
+         expire(entry);
+         return null;
+      }
+      entry.touch(now);
+      return entry.value;
    }
 
    @Override
    public boolean containsKey(Object key) {
-      return chm.containsKey(key);
+      ChmEntry entry = chm.get(key);
+      if (entry == null) {
+         return false;
+      }
+      if (entry.isExpired(TimeService.currentTimeMillis())) {
+         expire(entry);
+         return false;
+      }
+      return true;
    }
 
    @Override
    public void put(Object key, Object value) {
-      chm.put(key, value);
+      getAndPut(key, value, -1, -1);
    }
 
    @Override
    public Object getAndPut(Object key, Object value) {
-      return chm.put(key, value);
+      return getAndPut(key, value, -1, -1);
+   }
+
+   @Override
+   public void put(Object key, Object value, long lifespan) {
+      getAndPut(key, value, lifespan, -1);
+   }
+
+   @Override
+   public Object getAndPut(Object key, Object value, long lifespan) {
+      return getAndPut(key, value, lifespan, -1);
+   }
+
+   @Override
+   public void put(Object key, Object value, long lifespan, long maxIdleTime) {
+      getAndPut(key, value, lifespan, maxIdleTime);
+   }
+
+   @Override
+   public Object getAndPut(Object key, Object value, long lifespan, long maxIdleTime) {
+      requireNonNull(value);
+      PutFunction put = putFunctions.get();
+      try {
+         put.prepare(value, lifespan, maxIdleTime, false);
+         chm.compute(key, put);
+         afterInsert(put.inserted);
+         return put.previous;
+      } finally {
+         put.reset();
+      }
    }
 
    @Override
    public boolean putIfAbsent(Object key, Object value) {
-      return chm.putIfAbsent(key, value) == null;
+      return putIfAbsent(key, value, -1, -1);
+   }
+
+   @Override
+   public boolean putIfAbsent(Object key, Object value, long lifespan) {
+      return putIfAbsent(key, value, lifespan, -1);
+   }
+
+   @Override
+   public boolean putIfAbsent(Object key, Object value, long lifespan, long maxIdleTime) {
+      requireNonNull(value);
+      PutFunction put = putFunctions.get();
+      try {
+         put.prepare(value, lifespan, maxIdleTime, true);
+         chm.compute(key, put);
+         afterInsert(put.inserted);
+         return put.inserted != null;
+      } finally {
+         put.reset();
+      }
    }
 
    @Override
    public boolean remove(Object key, Object oldValue) {
-      return chm.remove(key, oldValue);
+      long now = TimeService.currentTimeMillis();
+      boolean[] removed = new boolean[1];
+      chm.computeIfPresent(key, (k, entry) -> {
+         if (isExpiredOnWrite(entry, now)) {
+            return null;
+         }
+         if (entry.value.equals(oldValue)) {
+            removed[0] = true;
+            return null;
+         }
+         return entry;
+      });
+      return removed[0];
    }
 
    @Override
    public boolean remove(Object key) {
-      return chm.remove(key) != null;
+      return getAndRemove(key) != null;
    }
 
    @Override
    public Object getAndRemove(Object key) {
-      return chm.remove(key);
+      long now = TimeService.currentTimeMillis();
+      Object[] previous = new Object[1];
+      chm.computeIfPresent(key, (k, entry) -> {
+         if (!isExpiredOnWrite(entry, now)) {
+            previous[0] = entry.value;
+         }
+         return null;
+      });
+      return previous[0];
    }
 
    @Override
    public boolean replace(Object key, Object value) {
-      for (; ; ) {
-         Object oldValue = chm.get(key);
-         if (oldValue == null) return false;
-         if (chm.replace(key, oldValue, value)) return true;
-      }
+      return getAndReplace(key, value) != null;
    }
 
    @Override
    public boolean replace(Object key, Object oldValue, Object newValue) {
-      return chm.replace(key, oldValue, newValue);
+      requireNonNull(newValue);
+      long now = TimeService.currentTimeMillis();
+      boolean[] replaced = new boolean[1];
+      chm.computeIfPresent(key, (k, entry) -> {
+         if (isExpiredOnWrite(entry, now)) {
+            return null;
+         }
+         if (entry.value.equals(oldValue)) {
+            replaced[0] = true;
+            return entry.update(newValue, -1, -1, now);
+         }
+         return entry;
+      });
+      return replaced[0];
    }
 
    @Override
    public Object getAndReplace(Object key, Object value) {
-      for (; ; ) {
-         Object oldValue = chm.get(key);
-         if (oldValue == null) return null;
-         if (chm.replace(key, oldValue, value)) return oldValue;
+      requireNonNull(value);
+      long now = TimeService.currentTimeMillis();
+      Object[] previous = new Object[1];
+      chm.computeIfPresent(key, (k, entry) -> {
+         if (isExpiredOnWrite(entry, now)) {
+            return null;
+         }
+         previous[0] = entry.value;
+         return entry.update(value, -1, -1, now);
+      });
+      return previous[0];
+   }
+
+   @Override
+   public Map getAll(Set keys) {
+      Map<Object, Object> entries = new HashMap<>(keys.size() * 4 / 3 + 1);
+      for (Object key : keys) {
+         Object value = get(key);
+         if (value != null) {
+            entries.put(key, value);
+         }
+      }
+      return entries;
+   }
+
+   @Override
+   public void putAll(Map entries) {
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) entries).entrySet()) {
+         put(entry.getKey(), entry.getValue());
+      }
+   }
+
+   @Override
+   public void removeAll(Set keys) {
+      for (Object key : keys) {
+         getAndRemove(key);
       }
    }
 
    @Override
    public void clear() {
       chm.clear();
+      if (evictionQueue != null) {
+         evictionLock.lock();
+         try {
+            evictionQueue.clear();
+            queued.set(0);
+         } finally {
+            evictionLock.unlock();
+         }
+      }
+   }
+
+   /**
+    * Removes all expired entries.
+    */
+   public void purgeExpired() {
+      long now = TimeService.currentTimeMillis();
+      for (ChmEntry entry : chm.values()) {
+         if (entry.isExpired(now)) {
+            expire(entry);
+         }
+      }
+   }
+
+   public long getEvictions() {
+      return evictions.sum();
+   }
+
+   public long getExpirations() {
+      return expirations.sum();
    }
 
    @Override
    public long getOwnedSize() {
-      return chm.size();
+      return chm.mappingCount();
    }
 
    @Override
    public long getLocallyStoredSize() {
-      return chm.size();
+      return chm.mappingCount();
    }
 
    @Override
    public long getMemoryStoredSize() {
-      return chm.size();
+      return chm.mappingCount();
    }
 
    @Override
    public long getTotalSize() {
-      return chm.size();
+      return chm.mappingCount();
    }
 
    @Override
    public Map<?, Long> getStructuredSize() {
-      return Collections.singletonMap(name, (long) chm.size());
+      return Collections.singletonMap(name, chm.mappingCount());
    }
 
    @Override
@@ -119,6 +315,171 @@ public class ChmCache implements BasicOperations.Cache, ConditionalOperations.Ca
 
    @Override
    public int getEntryOverhead() {
-      return -1;
+      return entryOverhead;
+   }
+
+   @Override
+   public boolean acceptsByteBufferValues() {
+      return true;
+   }
+
+   private void expire(ChmEntry entry) {
+      if (chm.remove(entry.key, entry)) {
+         expirations.increment();
+      }
+   }
+
+   /**
+    * Called inside compute when the entry is being overwritten or removed.
+    */
+   private boolean isExpiredOnWrite(ChmEntry entry, long now) {
+      if (entry.isExpired(now)) {
+         expirations.increment();
+         return true;
+      }
+      return false;
+   }
+
+   private void afterInsert(ChmEntry inserted) {
+      if (inserted == null || maxEntries <= 0) {
+         return;
+      }
+      if (evictionQueue == null) {
+         if (chm.mappingCount() > maxEntries) {
+            chm.remove(inserted.key, inserted);
+            throw new IllegalStateException("Cache " + name + " is full (" + maxEntries + " entries) and eviction is disabled");
+         }
+         return;
+      }
+      evictionQueue.offer(inserted);
+      int queueSize = queued.incrementAndGet();
+      // removed and expired entries stay in the queue until they're polled; when these make up
+      // the majority, the queue is compacted even if there's space in the cache
+      if ((chm.mappingCount() > maxEntries || queueSize > 2 * compactionThreshold()) && evictionLock.tryLock()) {
+         try {
+            evict();
+         } finally {
+            evictionLock.unlock();
+         }
+      }
+   }
+
+   private void evict() {
+      // every entry gets at most one second chance, so two passes are enough for a full cycle
+      int limit = 2 * queued.get();
+      long now = TimeService.currentTimeMillis();
+      for (int i = 0; i < limit; ++i) {
+         boolean overflow = chm.mappingCount() > maxEntries;
+         if (!overflow && queued.get() <= compactionThreshold()) {
+            return;
+         }
+         ChmEntry entry = evictionQueue.poll();
+         if (entry == null) {
+            return;
+         }
+         queued.decrementAndGet();
+         if (chm.get(entry.key) != entry) {
+            // stale record of removed entry
+            continue;
+         }
+         if (entry.isExpired(now)) {
+            expire(entry);
+            continue;
+         }
+         boolean secondChance = eviction == ChmService.EvictionPolicy.LRU && entry.accessed;
+         if (overflow && !secondChance) {
+            if (chm.remove(entry.key, entry)) {
+               evictions.increment();
+            }
+            continue;
+         }
+         if (overflow) {
+            entry.accessed = false;
+         }
+         evictionQueue.offer(entry);
+         queued.incrementAndGet();
+      }
+   }
+
+   private long compactionThreshold() {
+      return Math.max(chm.mappingCount(), 1024);
+   }
+
+   /**
+    * Remapping function of the put operations, reused by each thread.
+    */
+   private class PutFunction implements BiFunction<Object, ChmEntry, ChmEntry> {
+      private Object value;
+      private long lifespan;
+      private long maxIdleTime;
+      private long now;
+      private boolean onlyIfAbsent;
+      private Object previous;
+      private ChmEntry inserted;
+
+      private void prepare(Object value, long lifespan, long maxIdleTime, boolean onlyIfAbsent) {
+         this.value = value;
+         this.lifespan = lifespan;
+         this.maxIdleTime = maxIdleTime;
+         this.now = TimeService.currentTimeMillis();
+         this.onlyIfAbsent = onlyIfAbsent;
+      }
+
+      @Override
+      public ChmEntry apply(Object key, ChmEntry entry) {
+         if (entry != null && !isExpiredOnWrite(entry, now)) {
+            if (onlyIfAbsent) {
+               return entry;
+            }
+            previous = entry.value;
+            return entry.update(value, lifespan, maxIdleTime, now);
+         }
+         return inserted = new ChmEntry(key, value, lifespan, maxIdleTime, now);
+      }
+
+      private void reset() {
+         value = null;
+         previous = null;
+         inserted = null;
+      }
+   }
+
+   private static void requireNonNull(Object value) {
+      if (value == null) {
+         throw new NullPointerException("Null values are not supported");
+      }
+   }
+
+   /**
+    * Estimates memory taken by the map node, table slot, the entry wrapper and eviction queue node
+    * from the object layout of current JVM.
+    */
+   private static int computeEntryOverhead(boolean queued) {
+      boolean is64bit = !"32".equals(System.getProperty("sun.arch.data.model"));
+      boolean compressedOops = is64bit && useCompressedOops();
+      int ref = is64bit && !compressedOops ? 8 : 4;
+      int header = !is64bit ? 8 : (compressedOops ? 12 : 16);
+      // hash, key, value and next
+      int node = align(header + 4 + 3 * ref);
+      // key, value, 3 longs and boolean
+      int entry = align(header + 2 * ref + 3 * 8 + 1);
+      // table with load factor 0.75 is between 1.33 and 2.67 slots per entry
+      int slot = 2 * ref;
+      int queueNode = queued ? align(header + 2 * ref) : 0;
+      return node + entry + slot + queueNode;
+   }
+
+   private static boolean useCompressedOops() {
+      try {
+         HotSpotDiagnosticMXBean hotspot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+         return Boolean.parseBoolean(hotspot.getVMOption("UseCompressedOops").getValue());
+      } catch (RuntimeException | LinkageError e) {
+         log.trace("Cannot determine whether compressed oops are used", e);
+         return Runtime.getRuntime().maxMemory() < 32L * 1024 * 1024 * 1024;
+      }
+   }
+
+   private static int align(int size) {
+      return (size + 7) & ~7;
    }
 }
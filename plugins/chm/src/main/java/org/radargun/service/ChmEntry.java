@@ -0,0 +1,51 @@
+package org.radargun.service;
+
+/**
+ * Value wrapper stored in {@link ChmCache}, tracking expiration and access for eviction.
+ * Fields are modified only under the lock of the map bin (inside compute), readers may
+ * see the value and expiration of different updates.
+ */
+class ChmEntry {
+   static final long NEVER = Long.MAX_VALUE;
+
+   final Object key;
+   volatile Object value;
+   volatile long expiresAt;
+   volatile long maxIdle;
+   volatile long lastAccess;
+   volatile boolean accessed;
+
+   ChmEntry(Object key, Object value, long lifespan, long maxIdle, long now) {
+      this.key = key;
+      update(value, lifespan, maxIdle, now);
+   }
+
+   /**
+    * @param lifespan Lifespan in milliseconds, negative means unlimited.
+    * @param maxIdle Max idle time in milliseconds, negative means unlimited.
+    */
+   ChmEntry update(Object value, long lifespan, long maxIdle, long now) {
+      this.value = value;
+      this.expiresAt = lifespan < 0 ? NEVER : now + lifespan;
+      this.maxIdle = maxIdle;
+      this.lastAccess = now;
+      return this;
+   }
+
+   boolean isExpired(long now) {
+      return now >= expiresAt || (maxIdle >= 0 && now - lastAccess >= maxIdle);
+   }
+
+   boolean isMortal() {
+      return expiresAt != NEVER || maxIdle >= 0;
+   }
+
+   void touch(long now) {
+      if (maxIdle >= 0) {
+         lastAccess = now;
+      }
+      if (!accessed) {
+         accessed = true;
+      }
+   }
+}
@@ -3,30 +3,123 @@ package org.radargun.service;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.radargun.Service;
+import org.radargun.config.Init;
+import org.radargun.config.Property;
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
 import org.radargun.traits.BasicOperations;
+import org.radargun.traits.BulkOperations;
 import org.radargun.traits.CacheInformation;
 import org.radargun.traits.ConditionalOperations;
+import org.radargun.traits.Lifecycle;
 import org.radargun.traits.ProvidesTrait;
+import org.radargun.traits.TemporalOperations;
+import org.radargun.utils.TimeConverter;
 
 @Service(doc = "ConcurrentHashMap - not a distributed cache.")
 public class ChmService {
+   public static final String DEFAULT_CACHE_NAME = "default";
+   private static final Log log = LogFactory.getLog(ChmService.class);
+
+   @Property(doc = "Maximum number of entries in each cache, non-positive value means unbounded. Default is unbounded.")
+   protected long maxEntries = -1;
+
+   @Property(doc = "Policy applied when the cache is full: NONE (the insertion fails), FIFO or LRU " +
+      "(approximated by second-chance algorithm). Default is LRU.")
+   protected EvictionPolicy eviction = EvictionPolicy.LRU;
+
+   @Property(doc = "Initial capacity of the map. Default is 16.")
+   protected int initialCapacity = 16;
+
+   @Property(doc = "Estimated number of concurrently updating threads, used as sizing hint for the map. Default is 1.")
+   protected int concurrencyLevel = 1;
+
+   @Property(doc = "Period of removing expired entries in the background; expired entries are removed lazily " +
+      "on access as well. Zero disables the background removal. Default is 1 minute.", converter = TimeConverter.class)
+   protected long expirationInterval = 60000;
 
    protected ConcurrentHashMap<String, ChmCache> caches = new ConcurrentHashMap<String, ChmCache>();
+   private volatile ScheduledExecutorService expirationExecutor;
+   private volatile boolean running;
+
+   public enum EvictionPolicy {
+      NONE,
+      FIFO,
+      LRU
+   }
 
-   public ChmService() {
-      caches.put(null, new ChmCache(null));
+   @Init
+   public void init() {
+      if (initialCapacity < 0) {
+         throw new IllegalArgumentException("Initial capacity must not be negative");
+      }
+      if (concurrencyLevel <= 0) {
+         throw new IllegalArgumentException("Concurrency level must be positive");
+      }
+      if (expirationInterval < 0) {
+         throw new IllegalArgumentException("Expiration interval must not be negative");
+      }
+   }
+
+   protected synchronized void start() {
+      if (expirationInterval > 0 && expirationExecutor == null) {
+         expirationExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ChmExpiration");
+            thread.setDaemon(true);
+            return thread;
+         });
+         expirationExecutor.scheduleWithFixedDelay(this::purgeExpired, expirationInterval, expirationInterval, TimeUnit.MILLISECONDS);
+      }
+      running = true;
+   }
+
+   protected synchronized void stop() {
+      running = false;
+      if (expirationExecutor != null) {
+         expirationExecutor.shutdownNow();
+         expirationExecutor = null;
+      }
    }
 
    public ChmCache getCache(String cacheName) {
-      ChmCache cache = caches.get(cacheName);
-      if (cache == null) {
-         cache = new ChmCache(cacheName);
-         ChmCache prev = caches.putIfAbsent(cacheName, cache);
-         if (prev != null) cache = prev;
+      // ConcurrentHashMap does not accept null keys
+      return caches.computeIfAbsent(cacheName == null ? DEFAULT_CACHE_NAME : cacheName,
+         name -> new ChmCache(name, initialCapacity, concurrencyLevel, eviction, maxEntries));
+   }
+
+   protected void purgeExpired() {
+      try {
+         for (ChmCache cache : caches.values()) {
+            cache.purgeExpired();
+         }
+      } catch (RuntimeException e) {
+         log.error("Failed to remove expired entries", e);
       }
-      return cache;
+   }
+
+   @ProvidesTrait
+   public Lifecycle createLifecycle() {
+      return new Lifecycle() {
+         @Override
+         public void start() {
+            ChmService.this.start();
+         }
+
+         @Override
+         public void stop() {
+            ChmService.this.stop();
+         }
+
+         @Override
+         public boolean isRunning() {
+            return running;
+         }
+      };
    }
 
    @ProvidesTrait
@@ -49,12 +142,32 @@ public class ChmService {
       };
    }
 
+   @ProvidesTrait
+   public BulkOperations createBulkOperations() {
+      return new BulkOperations() {
+         @Override
+         public <K, V> Cache<K, V> getCache(String cacheName, boolean preferAsync) {
+            return ChmService.this.getCache(cacheName);
+         }
+      };
+   }
+
+   @ProvidesTrait
+   public TemporalOperations createTemporalOperations() {
+      return new TemporalOperations() {
+         @Override
+         public <K, V> Cache<K, V> getCache(String cacheName) {
+            return ChmService.this.getCache(cacheName);
+         }
+      };
+   }
+
    @ProvidesTrait
    public CacheInformation createCacheInformation() {
       return new CacheInformation() {
          @Override
          public String getDefaultCacheName() {
-            return null;
+            return DEFAULT_CACHE_NAME;
          }
 
          @Override
@@ -0,0 +1,191 @@
+package org.radargun.service;
+
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.radargun.traits.Lifecycle;
+import org.radargun.utils.TimeService;
+import org.radargun.utils.Utils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+@PowerMockIgnore({"javax.management.*"})
+@PrepareForTest(TimeService.class)
+public class ChmCacheTest extends PowerMockTestCase {
+   private static final long START = 1000;
+
+   public void testDefaultCache() {
+      ChmService service = createService(ChmService.EvictionPolicy.LRU, -1);
+      Assert.assertSame(service.getCache(null), service.getCache(ChmService.DEFAULT_CACHE_NAME));
+      Assert.assertTrue(service.getCache(null).getEntryOverhead() > 0);
+   }
+
+   public void testValuesStoredByReference() {
+      ChmCache cache = createService(ChmService.EvictionPolicy.LRU, -1).getCache(null);
+      Assert.assertTrue(cache.acceptsByteBufferValues());
+      byte[] value = new byte[10];
+      cache.put("key", value);
+      Assert.assertSame(cache.get("key"), value);
+      Assert.assertSame(cache.getAndPut("key", new byte[10]), value);
+      try {
+         cache.put("key", null);
+         Assert.fail("Null values should be rejected");
+      } catch (NullPointerException e) {
+         // expected
+      }
+   }
+
+   public void testExpiration() {
+      setTime(START);
+      ChmCache cache = createService(ChmService.EvictionPolicy.LRU, -1).getCache(null);
+      cache.put("lifespan", "value", 100);
+      cache.put("maxIdle", "value", -1, 100);
+      cache.put("immortal", "value", -1, -1);
+      Assert.assertEquals(cache.getTotalSize(), 3);
+
+      // reads extend the max idle time
+      for (int i = 1; i <= 4; ++i) {
+         setTime(START + i * 40);
+         Assert.assertEquals(cache.get("maxIdle"), "value");
+      }
+      Assert.assertNull(cache.get("lifespan"));
+      Assert.assertEquals(cache.getExpirations(), 1);
+      Assert.assertTrue(cache.putIfAbsent("lifespan", "value2", 100));
+
+      // expired entries are included in the sizes until these are removed
+      setTime(START + 400);
+      Assert.assertEquals(cache.getTotalSize(), 3);
+      Assert.assertEquals(cache.getMemoryStoredSize(), 3);
+      cache.purgeExpired();
+      Assert.assertEquals(cache.getTotalSize(), 1);
+      Assert.assertEquals(cache.getExpirations(), 3);
+      Assert.assertEquals(cache.get("immortal"), "value");
+   }
+
+   public void testExpiredEntriesAreAbsentForWrites() {
+      setTime(START);
+      ChmCache cache = createService(ChmService.EvictionPolicy.LRU, -1).getCache(null);
+      for (String key : Arrays.asList("replace", "replaceIfEquals", "remove", "removeIfEquals", "getAndPut", "putIfAbsent")) {
+         cache.put(key, "value", 100);
+      }
+      setTime(START + 100);
+      Assert.assertFalse(cache.replace("replace", "other"));
+      Assert.assertFalse(cache.replace("replaceIfEquals", "value", "other"));
+      Assert.assertNull(cache.getAndRemove("remove"));
+      Assert.assertFalse(cache.remove("removeIfEquals", "value"));
+      Assert.assertNull(cache.getAndPut("getAndPut", "other"));
+      Assert.assertTrue(cache.putIfAbsent("putIfAbsent", "other"));
+      Assert.assertEquals(cache.getExpirations(), 6);
+      // entries written over expired ones are immortal
+      Assert.assertEquals(cache.getTotalSize(), 2);
+      setTime(START + 1000);
+      Assert.assertEquals(cache.get("getAndPut"), "other");
+      Assert.assertEquals(cache.get("putIfAbsent"), "other");
+   }
+
+   public void testLifecycle() throws Exception {
+      setTime(START);
+      ChmService service = new ChmService();
+      service.expirationInterval = 60000;
+      service.init();
+      Lifecycle lifecycle = service.createLifecycle();
+      Assert.assertFalse(lifecycle.isRunning());
+      lifecycle.start();
+      Assert.assertTrue(lifecycle.isRunning());
+      ScheduledExecutorService executor = (ScheduledExecutorService) Utils.getField(ChmService.class, service, "expirationExecutor");
+      Assert.assertNotNull(executor);
+
+      // the background task calls this periodically
+      service.getCache(null).put("key", "value", 100);
+      setTime(START + 100);
+      service.purgeExpired();
+      Assert.assertEquals(service.getCache(null).getTotalSize(), 0);
+
+      lifecycle.stop();
+      Assert.assertFalse(lifecycle.isRunning());
+      Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+      Assert.assertNull(Utils.getField(ChmService.class, service, "expirationExecutor"));
+   }
+
+   public void testEviction() {
+      for (ChmService.EvictionPolicy policy : Arrays.asList(ChmService.EvictionPolicy.FIFO, ChmService.EvictionPolicy.LRU)) {
+         ChmCache cache = createService(policy, 100).getCache(null);
+         for (int i = 0; i < 100; ++i) {
+            cache.put(i, "value");
+         }
+         cache.get(0);
+         for (int i = 100; i < 10000; ++i) {
+            cache.put(i, "value");
+            if (policy == ChmService.EvictionPolicy.LRU) {
+               cache.get(0);
+            }
+         }
+         Assert.assertEquals(cache.getMemoryStoredSize(), 100, policy.toString());
+         Assert.assertEquals(cache.getEvictions(), 9900, policy.toString());
+         Assert.assertEquals(cache.containsKey(0), policy == ChmService.EvictionPolicy.LRU, policy.toString());
+         Assert.assertTrue(cache.containsKey(9999), policy.toString());
+      }
+   }
+
+   public void testOverwriteDoesNotQueueEntry() {
+      ChmCache cache = createService(ChmService.EvictionPolicy.FIFO, 2).getCache(null);
+      cache.put("first", "value");
+      cache.put("second", "value");
+      for (int i = 0; i < 100; ++i) {
+         cache.put("first", "value" + i);
+      }
+      Assert.assertEquals(cache.getEvictions(), 0);
+      cache.put("third", "value");
+      Assert.assertEquals(cache.getEvictions(), 1);
+      Assert.assertFalse(cache.containsKey("first"));
+   }
+
+   public void testQueueCompaction() {
+      ChmCache cache = createService(ChmService.EvictionPolicy.LRU, 1000000).getCache(null);
+      for (int i = 0; i < 100000; ++i) {
+         cache.put(i % 10, "value");
+         cache.remove(i % 10);
+      }
+      cache.put("key", "value");
+      Assert.assertEquals(cache.getTotalSize(), 1);
+      Assert.assertEquals(cache.getEvictions(), 0);
+   }
+
+   public void testNoEviction() {
+      ChmCache cache = createService(ChmService.EvictionPolicy.NONE, 100).getCache(null);
+      for (int i = 0; i < 100; ++i) {
+         cache.put(i, "value");
+      }
+      try {
+         cache.put(100, "value");
+         Assert.fail("Cache should be full");
+      } catch (IllegalStateException e) {
+         // expected
+      }
+      Assert.assertFalse(cache.containsKey(100));
+      Assert.assertEquals(cache.getTotalSize(), 100);
+      // overwriting does not need more space
+      cache.put(0, "other");
+      Assert.assertEquals(cache.get(0), "other");
+   }
+
+   private static void setTime(long millis) {
+      PowerMockito.mockStatic(TimeService.class);
+      PowerMockito.when(TimeService.currentTimeMillis()).thenReturn(millis);
+   }
+
+   private static ChmService createService(ChmService.EvictionPolicy policy, long maxEntries) {
+      ChmService service = new ChmService();
+      service.eviction = policy;
+      service.maxEntries = maxEntries;
+      service.expirationInterval = 0;
+      service.init();
+      return service;
+   }
+}
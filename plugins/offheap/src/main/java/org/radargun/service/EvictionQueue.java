@@ -0,0 +1,365 @@
+package org.radargun.service;
+
+import static org.radargun.service.OffHeapMemory.FREQUENCY;
+import static org.radargun.service.OffHeapMemory.NEXT_IN_QUEUE;
+import static org.radargun.service.OffHeapMemory.NULL;
+import static org.radargun.service.OffHeapMemory.PREV_IN_QUEUE;
+import static org.radargun.service.OffHeapMemory.QUEUE;
+
+/**
+ * Orders entries of one size class in a segment for eviction. The queues are doubly-linked lists
+ * threaded through the entry headers, so that no per-entry objects are allocated on heap.
+ * Accessed under the segment lock.
+ */
+abstract class EvictionQueue {
+   protected final OffHeapMemory memory;
+
+   protected EvictionQueue(OffHeapMemory memory) {
+      this.memory = memory;
+   }
+
+   static EvictionQueue create(OffHeapService.EvictionPolicy policy, OffHeapMemory memory, FrequencySketch sketch) {
+      switch (policy) {
+         case NONE:
+            return new None(memory);
+         case LRU:
+            return new Lru(memory);
+         case LFU:
+            return new Lfu(memory);
+         case W_TINY_LFU:
+            return new WindowTinyLfu(memory, sketch);
+         default:
+            throw new IllegalArgumentException(String.valueOf(policy));
+      }
+   }
+
+   abstract void onInsert(long address);
+
+   abstract void onAccess(long address);
+
+   abstract void onRemove(long address);
+
+   /**
+    * @return Address of the entry that should be evicted or {@link OffHeapMemory#NULL} if there is none.
+    */
+   abstract long victim();
+
+   abstract void clear();
+
+   /**
+    * Doubly-linked list of entries, identified by the queue id stored in entry header.
+    */
+   protected static class EntryList {
+      private final OffHeapMemory memory;
+      private final byte id;
+      private long head = NULL;
+      private long tail = NULL;
+      private int size;
+
+      protected EntryList(OffHeapMemory memory, int id) {
+         this.memory = memory;
+         this.id = (byte) id;
+      }
+
+      void addLast(long address) {
+         memory.putByte(address, QUEUE, id);
+         memory.putLong(address, PREV_IN_QUEUE, tail);
+         memory.putLong(address, NEXT_IN_QUEUE, NULL);
+         if (tail == NULL) {
+            head = address;
+         } else {
+            memory.putLong(tail, NEXT_IN_QUEUE, address);
+         }
+         tail = address;
+         size++;
+      }
+
+      void unlink(long address) {
+         long prev = memory.getLong(address, PREV_IN_QUEUE);
+         long next = memory.getLong(address, NEXT_IN_QUEUE);
+         if (prev == NULL) {
+            head = next;
+         } else {
+            memory.putLong(prev, NEXT_IN_QUEUE, next);
+         }
+         if (next == NULL) {
+            tail = prev;
+         } else {
+            memory.putLong(next, PREV_IN_QUEUE, prev);
+         }
+         size--;
+      }
+
+      void moveToEnd(long address) {
+         if (address != tail) {
+            unlink(address);
+            addLast(address);
+         }
+      }
+
+      boolean contains(long address) {
+         return memory.getByte(address, QUEUE) == id;
+      }
+
+      long head() {
+         return head;
+      }
+
+      long tail() {
+         return tail;
+      }
+
+      int size() {
+         return size;
+      }
+
+      void clear() {
+         head = tail = NULL;
+         size = 0;
+      }
+   }
+
+   /**
+    * Does not evict anything; insertion fails when the memory is full.
+    */
+   private static class None extends EvictionQueue {
+      private None(OffHeapMemory memory) {
+         super(memory);
+      }
+
+      @Override
+      void onInsert(long address) {
+         // marks the chunk as occupied
+         memory.putByte(address, QUEUE, (byte) 0);
+      }
+
+      @Override
+      void onAccess(long address) {
+      }
+
+      @Override
+      void onRemove(long address) {
+      }
+
+      @Override
+      long victim() {
+         return NULL;
+      }
+
+      @Override
+      void clear() {
+      }
+   }
+
+   private static class Lru extends EvictionQueue {
+      private final EntryList entries;
+
+      private Lru(OffHeapMemory memory) {
+         super(memory);
+         entries = new EntryList(memory, 0);
+      }
+
+      @Override
+      void onInsert(long address) {
+         entries.addLast(address);
+      }
+
+      @Override
+      void onAccess(long address) {
+         entries.moveToEnd(address);
+      }
+
+      @Override
+      void onRemove(long address) {
+         entries.unlink(address);
+      }
+
+      @Override
+      long victim() {
+         return entries.head();
+      }
+
+      @Override
+      void clear() {
+         entries.clear();
+      }
+   }
+
+   /**
+    * Entries are kept in LRU lists by access frequency, saturated at {@link #MAX_FREQUENCY}; the least recently
+    * used entry with the lowest frequency is evicted. Frequencies are halved after number of accesses exceeds
+    * ten times the number of entries, so that entries popular in the past can be evicted eventually.
+    */
+   private static class Lfu extends EvictionQueue {
+      private static final int MAX_FREQUENCY = 31;
+      private static final int MIN_AGING_PERIOD = 1024;
+
+      private final EntryList[] buckets = new EntryList[MAX_FREQUENCY + 1];
+      private int size;
+      private long accesses;
+
+      private Lfu(OffHeapMemory memory) {
+         super(memory);
+         for (int i = 0; i < buckets.length; ++i) {
+            buckets[i] = new EntryList(memory, i);
+         }
+      }
+
+      @Override
+      void onInsert(long address) {
+         memory.putByte(address, FREQUENCY, (byte) 0);
+         buckets[0].addLast(address);
+         size++;
+      }
+
+      @Override
+      void onAccess(long address) {
+         int frequency = memory.getByte(address, FREQUENCY);
+         if (frequency < MAX_FREQUENCY) {
+            buckets[frequency].unlink(address);
+            memory.putByte(address, FREQUENCY, (byte) (frequency + 1));
+            buckets[frequency + 1].addLast(address);
+         } else {
+            buckets[frequency].moveToEnd(address);
+         }
+         if (++accesses >= Math.max(MIN_AGING_PERIOD, 10L * size)) {
+            age();
+         }
+      }
+
+      @Override
+      void onRemove(long address) {
+         buckets[memory.getByte(address, FREQUENCY)].unlink(address);
+         size--;
+      }
+
+      @Override
+      long victim() {
+         for (EntryList bucket : buckets) {
+            if (bucket.size() > 0) {
+               return bucket.head();
+            }
+         }
+         return NULL;
+      }
+
+      @Override
+      void clear() {
+         for (EntryList bucket : buckets) {
+            bucket.clear();
+         }
+         size = 0;
+         accesses = 0;
+      }
+
+      private void age() {
+         accesses = 0;
+         for (int frequency = 1; frequency < buckets.length; ++frequency) {
+            int halved = frequency / 2;
+            for (long address = buckets[frequency].head(); address != NULL; ) {
+               long next = memory.getLong(address, NEXT_IN_QUEUE);
+               buckets[frequency].unlink(address);
+               memory.putByte(address, FREQUENCY, (byte) halved);
+               buckets[halved].addLast(address);
+               address = next;
+            }
+         }
+      }
+   }
+
+   /**
+    * Window TinyLFU: new entries enter small LRU window, entries leaving the window go to probation segment
+    * of main SLRU space and are promoted to the protected segment on access. Size of the protected segment
+    * is limited when the memory is full. The victim is either the most
+    * recent entry admitted to probation or the least recently used entry of probation, whichever has
+    * lower estimated frequency.
+    */
+   private static class WindowTinyLfu extends EvictionQueue {
+      private static final int WINDOW = 0;
+      private static final int PROBATION = 1;
+      private static final int PROTECTED = 2;
+      private static final double WINDOW_RATIO = 0.01;
+      private static final double PROTECTED_RATIO = 0.8;
+
+      private final FrequencySketch sketch;
+      private final EntryList window;
+      private final EntryList probation;
+      private final EntryList protectedEntries;
+
+      private WindowTinyLfu(OffHeapMemory memory, FrequencySketch sketch) {
+         super(memory);
+         this.sketch = sketch;
+         window = new EntryList(memory, WINDOW);
+         probation = new EntryList(memory, PROBATION);
+         protectedEntries = new EntryList(memory, PROTECTED);
+      }
+
+      @Override
+      void onInsert(long address) {
+         sketch.increment(memory.getInt(address, OffHeapMemory.HASH));
+         window.addLast(address);
+         int size = window.size() + probation.size() + protectedEntries.size();
+         while (window.size() > Math.max(1, (int) (size * WINDOW_RATIO))) {
+            long candidate = window.head();
+            window.unlink(candidate);
+            probation.addLast(candidate);
+         }
+      }
+
+      @Override
+      void onAccess(long address) {
+         sketch.increment(memory.getInt(address, OffHeapMemory.HASH));
+         if (window.contains(address)) {
+            window.moveToEnd(address);
+         } else if (probation.contains(address)) {
+            probation.unlink(address);
+            protectedEntries.addLast(address);
+         } else {
+            protectedEntries.moveToEnd(address);
+         }
+      }
+
+      @Override
+      void onRemove(long address) {
+         if (window.contains(address)) {
+            window.unlink(address);
+         } else if (probation.contains(address)) {
+            probation.unlink(address);
+         } else {
+            protectedEntries.unlink(address);
+         }
+      }
+
+      @Override
+      long victim() {
+         // the victim is requested only when the memory is full, so the size of main space is close to its capacity
+         int mainSize = probation.size() + protectedEntries.size();
+         while (protectedEntries.size() > Math.max(1, (int) (mainSize * PROTECTED_RATIO))) {
+            long demoted = protectedEntries.head();
+            protectedEntries.unlink(demoted);
+            probation.addLast(demoted);
+         }
+         if (probation.size() >= 2) {
+            long candidate = probation.tail();
+            long victim = probation.head();
+            return frequency(candidate) > frequency(victim) ? victim : candidate;
+         } else if (probation.size() == 1) {
+            return probation.head();
+         } else if (protectedEntries.size() > 0) {
+            return protectedEntries.head();
+         }
+         return window.head();
+      }
+
+      @Override
+      void clear() {
+         window.clear();
+         probation.clear();
+         protectedEntries.clear();
+      }
+
+      private int frequency(long address) {
+         return sketch.frequency(memory.getInt(address, OffHeapMemory.HASH));
+      }
+   }
+}
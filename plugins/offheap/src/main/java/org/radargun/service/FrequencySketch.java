@@ -0,0 +1,88 @@
+package org.radargun.service;
+
+/**
+ * Count-min sketch with four 4-bit counters per key, used to estimate popularity of keys for TinyLFU admission.
+ * All counters are halved after the number of increments reaches ten times the capacity, so that the sketch
+ * reflects recent history. The table grows with number of entries in the segment.
+ * Accessed under the segment lock.
+ */
+class FrequencySketch {
+   private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+   private static final long RESET_MASK = 0x7777777777777777L;
+   private static final long ONE_MASK = 0x1111111111111111L;
+   private static final int MIN_CAPACITY = 64;
+
+   private long[] table;
+   private int sampleSize;
+   private int increments;
+
+   FrequencySketch() {
+      resize(MIN_CAPACITY);
+   }
+
+   /**
+    * Grows the sketch if it is too small for given number of entries; the counters are reset.
+    */
+   void ensureCapacity(int entries) {
+      if (entries > table.length && table.length < (1 << 30)) {
+         resize(Math.min(Integer.highestOneBit(entries - 1) << 1, 1 << 30));
+      }
+   }
+
+   int frequency(int hash) {
+      int start = (hash & 3) << 2;
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < 4; ++i) {
+         int index = indexOf(hash, i);
+         int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xF);
+         frequency = Math.min(frequency, count);
+      }
+      return frequency;
+   }
+
+   void increment(int hash) {
+      int start = (hash & 3) << 2;
+      boolean added = false;
+      for (int i = 0; i < 4; ++i) {
+         added |= incrementAt(indexOf(hash, i), start + i);
+      }
+      if (added && ++increments >= sampleSize) {
+         reset();
+      }
+   }
+
+   void clear() {
+      resize(MIN_CAPACITY);
+   }
+
+   private boolean incrementAt(int index, int counter) {
+      int offset = counter << 2;
+      long mask = 0xFL << offset;
+      if ((table[index] & mask) != mask) {
+         table[index] += 1L << offset;
+         return true;
+      }
+      return false;
+   }
+
+   private int indexOf(int hash, int i) {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      h += h >>> 32;
+      return (int) h & (table.length - 1);
+   }
+
+   private void reset() {
+      int odd = 0;
+      for (int i = 0; i < table.length; ++i) {
+         odd += Long.bitCount(table[i] & ONE_MASK);
+         table[i] = (table[i] >>> 1) & RESET_MASK;
+      }
+      increments = (increments >>> 1) - (odd >>> 2);
+   }
+
+   private void resize(int capacity) {
+      table = new long[capacity];
+      sampleSize = 10 * capacity;
+      increments = 0;
+   }
+}
@@ -0,0 +1,225 @@
+package org.radargun.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.radargun.traits.BasicOperations;
+import org.radargun.traits.BulkOperations;
+import org.radargun.traits.CacheInformation;
+import org.radargun.traits.ConditionalOperations;
+
+/**
+ * Cache storing serialized entries in direct memory, split into segments by key hash.
+ */
+public class OffHeapCache implements BasicOperations.Cache, ConditionalOperations.Cache, BulkOperations.Cache, CacheInformation.Cache {
+   // approximate size of the type marker of key and value and the index slot (load factor 0.75)
+   private static final int INDEX_AND_MARSHALLING_OVERHEAD = 2 + 11;
+
+   private final OffHeapSegment[] segments;
+   private final int segmentShift;
+
+   OffHeapCache(OffHeapService.EvictionPolicy policy, int numSegments, int pageSize, OffHeapPages pages) {
+      int segmentBits = 32 - Integer.numberOfLeadingZeros(numSegments - 1);
+      segments = new OffHeapSegment[1 << segmentBits];
+      segmentShift = 32 - segmentBits;
+      for (int i = 0; i < segments.length; ++i) {
+         segments[i] = new OffHeapSegment(policy, pageSize, pages);
+         pages.register(segments[i]);
+      }
+   }
+
+   @Override
+   public Object get(Object key) {
+      byte[] k = OffHeapMarshaller.marshall(key);
+      int hash = OffHeapMarshaller.hash(k);
+      return OffHeapMarshaller.unmarshall(segment(hash).get(k, hash));
+   }
+
+   @Override
+   public boolean containsKey(Object key) {
+      byte[] k = OffHeapMarshaller.marshall(key);
+      int hash = OffHeapMarshaller.hash(k);
+      return segment(hash).containsKey(k, hash);
+   }
+
+   @Override
+   public void put(Object key, Object value) {
+      byte[] k = OffHeapMarshaller.marshall(key);
+      int hash = OffHeapMarshaller.hash(k);
+      segment(hash).put(k, hash, OffHeapMarshaller.marshall(value), false);
+   }
+
+   @Override
+   public Object getAndPut(Object key, Object value) {
+      byte[] k = OffHeapMarshaller.marshall(key);
+      int hash = OffHeapMarshaller.hash(k);
+      return OffHeapMarshaller.unmarshall(segment(hash).put(k, hash, OffHeapMarshaller.marshall(value), true));
+   }
+
+   @Override
+   public boolean remove(Object key) {
+      byte[] k = OffHeapMarshaller.marshall(key);
+      int hash = OffHeapMarshaller.hash(k);
+      return segment(hash).remove(k, hash);
+   }
+
+   @Override
+   public Object getAndRemove(Object key) {
+      byte[] k = OffHeapMarshaller.marshall(key);
+      int hash = OffHeapMarshaller.hash(k);
+      return OffHeapMarshaller.unmarshall(segment(hash).getAndRemove(k, hash));
+   }
+
+   @Override
+   public boolean putIfAbsent(Object key, Object value) {
+      byte[] k = OffHeapMarshaller.marshall(key);
+      int hash = OffHeapMarshaller.hash(k);
+      return segment(hash).putIfAbsent(k, hash, OffHeapMarshaller.marshall(value));
+   }
+
+   @Override
+   public boolean remove(Object key, Object oldValue) {
+      byte[] k = OffHeapMarshaller.marshall(key);
+      int hash = OffHeapMarshaller.hash(k);
+      return segment(hash).remove(k, hash, OffHeapMarshaller.marshall(oldValue));
+   }
+
+   @Override
+   public boolean replace(Object key, Object value) {
+      byte[] k = OffHeapMarshaller.marshall(key);
+      int hash = OffHeapMarshaller.hash(k);
+      return segment(hash).replace(k, hash, OffHeapMarshaller.marshall(value));
+   }
+
+   @Override
+   public boolean replace(Object key, Object oldValue, Object newValue) {
+      byte[] k = OffHeapMarshaller.marshall(key);
+      int hash = OffHeapMarshaller.hash(k);
+      return segment(hash).replace(k, hash, OffHeapMarshaller.marshall(oldValue), OffHeapMarshaller.marshall(newValue));
+   }
+
+   @Override
+   public Object getAndReplace(Object key, Object value) {
+      byte[] k = OffHeapMarshaller.marshall(key);
+      int hash = OffHeapMarshaller.hash(k);
+      return OffHeapMarshaller.unmarshall(segment(hash).getAndReplace(k, hash, OffHeapMarshaller.marshall(value)));
+   }
+
+   @Override
+   public Map getAll(Set keys) {
+      Map<Object, Object> entries = new HashMap<>(keys.size() * 4 / 3 + 1);
+      for (Object key : keys) {
+         Object value = get(key);
+         if (value != null) {
+            entries.put(key, value);
+         }
+      }
+      return entries;
+   }
+
+   @Override
+   public void putAll(Map entries) {
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) entries).entrySet()) {
+         put(entry.getKey(), entry.getValue());
+      }
+   }
+
+   @Override
+   public void removeAll(Set keys) {
+      for (Object key : keys) {
+         remove(key);
+      }
+   }
+
+   @Override
+   public void clear() {
+      for (OffHeapSegment segment : segments) {
+         segment.clear();
+      }
+   }
+
+   @Override
+   public long getOwnedSize() {
+      return size();
+   }
+
+   @Override
+   public long getLocallyStoredSize() {
+      return size();
+   }
+
+   @Override
+   public long getMemoryStoredSize() {
+      // no entries are stored on heap
+      return 0;
+   }
+
+   @Override
+   public long getTotalSize() {
+      return size();
+   }
+
+   @Override
+   public Map<?, Long> getStructuredSize() {
+      Map<String, Long> structured = new LinkedHashMap<>();
+      for (int i = 0; i < segments.length; ++i) {
+         structured.put("segment" + i, (long) segments[i].size());
+      }
+      return structured;
+   }
+
+   @Override
+   public int getNumReplicas() {
+      return 1;
+   }
+
+   @Override
+   public int getEntryOverhead() {
+      // rounding to size class adds up to 25 % of the entry size on top of that
+      return OffHeapMemory.HEADER + INDEX_AND_MARSHALLING_OVERHEAD;
+   }
+
+   @Override
+   public boolean acceptsByteBufferValues() {
+      // OffHeapMarshaller copies the remaining bytes of the buffer
+      return true;
+   }
+
+   public long getEvictions() {
+      long evictions = 0;
+      for (OffHeapSegment segment : segments) {
+         evictions += segment.evictions();
+      }
+      return evictions;
+   }
+
+   public long getUsedBytes() {
+      long used = 0;
+      for (OffHeapSegment segment : segments) {
+         used += segment.usedBytes();
+      }
+      return used;
+   }
+
+   public long getAllocatedBytes() {
+      long allocated = 0;
+      for (OffHeapSegment segment : segments) {
+         allocated += segment.allocatedBytes();
+      }
+      return allocated;
+   }
+
+   private long size() {
+      long size = 0;
+      for (OffHeapSegment segment : segments) {
+         size += segment.size();
+      }
+      return size;
+   }
+
+   private OffHeapSegment segment(int hash) {
+      return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+   }
+}
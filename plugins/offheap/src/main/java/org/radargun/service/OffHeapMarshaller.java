@@ -0,0 +1,98 @@
+package org.radargun.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts keys and values to the form stored off-heap. Byte arrays, byte buffers and strings are stored
+ * directly, other objects using Java serialization. The first byte identifies the type.
+ */
+final class OffHeapMarshaller {
+   private static final byte BYTE_ARRAY = 0;
+   private static final byte BYTE_BUFFER = 1;
+   private static final byte STRING = 2;
+   private static final byte SERIALIZED = 3;
+
+   private OffHeapMarshaller() {}
+
+   static byte[] marshall(Object object) {
+      if (object == null) {
+         throw new NullPointerException("Null keys and values are not supported");
+      } else if (object instanceof byte[]) {
+         return withType(BYTE_ARRAY, (byte[]) object, 0, ((byte[]) object).length);
+      } else if (object instanceof ByteBuffer) {
+         ByteBuffer buffer = ((ByteBuffer) object).duplicate();
+         byte[] bytes = new byte[buffer.remaining() + 1];
+         bytes[0] = BYTE_BUFFER;
+         buffer.get(bytes, 1, bytes.length - 1);
+         return bytes;
+      } else if (object instanceof String) {
+         byte[] utf8 = ((String) object).getBytes(StandardCharsets.UTF_8);
+         return withType(STRING, utf8, 0, utf8.length);
+      } else if (object instanceof Serializable) {
+         ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+         bytes.write(SERIALIZED);
+         try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+         } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot serialize " + object, e);
+         }
+         return bytes.toByteArray();
+      }
+      throw new IllegalArgumentException("Cannot store " + object.getClass().getName() + " off-heap, it is not serializable");
+   }
+
+   static Object unmarshall(byte[] bytes) {
+      if (bytes == null) {
+         return null;
+      }
+      switch (bytes[0]) {
+         case BYTE_ARRAY:
+            byte[] array = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, array, 0, array.length);
+            return array;
+         case BYTE_BUFFER:
+            return ByteBuffer.wrap(bytes, 1, bytes.length - 1).slice();
+         case STRING:
+            return new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+         case SERIALIZED:
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+               return in.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+               throw new IllegalStateException("Cannot deserialize stored object", e);
+            }
+         default:
+            throw new IllegalStateException("Unknown type " + bytes[0]);
+      }
+   }
+
+   /**
+    * @return Hash of the serialized form, with bits spread so that both upper (segment selection)
+    * and lower (bucket selection) bits are well distributed.
+    */
+   static int hash(byte[] bytes) {
+      int h = 1;
+      for (byte b : bytes) {
+         h = 31 * h + b;
+      }
+      h ^= h >>> 16;
+      h *= 0x85ebca6b;
+      h ^= h >>> 13;
+      h *= 0xc2b2ae35;
+      h ^= h >>> 16;
+      return h;
+   }
+
+   private static byte[] withType(byte type, byte[] source, int offset, int length) {
+      byte[] bytes = new byte[length + 1];
+      bytes[0] = type;
+      System.arraycopy(source, offset, bytes, 1, length);
+      return bytes;
+   }
+}
@@ -0,0 +1,313 @@
+package org.radargun.service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Slab allocator of entries in direct memory owned by one segment. Memory is split into pages of the same size,
+ * each page is carved into chunks of one size class. Chunks are addressed by page index (upper 32 bits)
+ * and offset in the page (lower 32 bits). Free chunks are linked through their {@link #NEXT} field.
+ * Index of page returned to the shared pool is reused by the next allocated page.
+ * <p>
+ * Entry header layout: next entry in hash chain (8 bytes), previous and next entry in eviction queue
+ * (8 + 8 bytes), key hash (4), key length (4), value length (4), eviction queue id (1), access frequency (1),
+ * size class (2); the header is followed by key and value.
+ * <p>
+ * Not thread-safe, the segment accesses the memory under its lock.
+ */
+class OffHeapMemory {
+   static final long NULL = -1;
+   static final int NEXT = 0;
+   static final int PREV_IN_QUEUE = 8;
+   static final int NEXT_IN_QUEUE = 16;
+   static final int HASH = 24;
+   static final int KEY_LENGTH = 28;
+   static final int VALUE_LENGTH = 32;
+   static final int QUEUE = 36;
+   static final int FREQUENCY = 37;
+   static final int SIZE_CLASS = 38;
+   static final int HEADER = 40;
+   static final byte FREE = -1;
+   private static final int RELEASED = -1;
+
+   private static final int MIN_CHUNK = 64;
+   private static final double GROWTH_FACTOR = 1.25;
+
+   private final int pageSize;
+   private final OffHeapPages pagePool;
+   private final int[] chunkSizes;
+   private final List<ByteBuffer> pages = new ArrayList<>();
+   private final List<Integer> pageClasses = new ArrayList<>();
+   private final Deque<Integer> releasedPages = new ArrayDeque<>();
+   private final long[] freeLists;
+   private final long[] carvePositions;
+   private final int[] chunkCounts;
+   private long usedBytes;
+   private int nextDonor;
+   // read by other segments without the lock
+   private volatile int pageCount;
+
+   /**
+    * @param pagePool Pages shared by all segments of the service.
+    */
+   OffHeapMemory(int pageSize, OffHeapPages pagePool) {
+      this.pageSize = pageSize;
+      this.pagePool = pagePool;
+      List<Integer> sizes = new ArrayList<>();
+      for (double size = MIN_CHUNK; size < pageSize; size *= GROWTH_FACTOR) {
+         sizes.add(((int) size + 7) & ~7);
+      }
+      sizes.add(pageSize);
+      chunkSizes = sizes.stream().distinct().mapToInt(Integer::intValue).toArray();
+      freeLists = new long[chunkSizes.length];
+      carvePositions = new long[chunkSizes.length];
+      chunkCounts = new int[chunkSizes.length];
+      Arrays.fill(freeLists, NULL);
+      Arrays.fill(carvePositions, NULL);
+   }
+
+   int numClasses() {
+      return chunkSizes.length;
+   }
+
+   /**
+    * @return Size class for entry with given key and value length, or -1 if it does not fit into a page.
+    */
+   int sizeClass(int keyLength, int valueLength) {
+      long size = (long) HEADER + keyLength + valueLength;
+      if (size > pageSize) {
+         return -1;
+      }
+      int index = Arrays.binarySearch(chunkSizes, (int) size);
+      return index >= 0 ? index : -index - 1;
+   }
+
+   /**
+    * @return Address of chunk in given size class or {@link #NULL} if there's no free chunk and no more pages
+    * can be allocated.
+    */
+   long allocate(int sizeClass) {
+      long address = freeLists[sizeClass];
+      if (address != NULL) {
+         freeLists[sizeClass] = getLong(address, NEXT);
+      } else {
+         address = carvePositions[sizeClass];
+         if (address == NULL) {
+            if (!pagePool.acquire()) {
+               return NULL;
+            }
+            address = ((long) addPage(sizeClass)) << 32;
+         }
+         long next = address + chunkSizes[sizeClass];
+         carvePositions[sizeClass] = (int) next + chunkSizes[sizeClass] <= pageSize ? next : NULL;
+      }
+      putShort(address, SIZE_CLASS, (short) sizeClass);
+      usedBytes += chunkSizes[sizeClass];
+      chunkCounts[sizeClass]++;
+      return address;
+   }
+
+   void free(long address) {
+      int sizeClass = getShort(address, SIZE_CLASS);
+      putByte(address, QUEUE, FREE);
+      putLong(address, NEXT, freeLists[sizeClass]);
+      freeLists[sizeClass] = address;
+      usedBytes -= chunkSizes[sizeClass];
+      chunkCounts[sizeClass]--;
+   }
+
+   /**
+    * Selects page of another size class that should be reassigned to given class.
+    *
+    * @param sizeClass Class receiving the page, or -1 if the page should be released.
+    * @return Page index or -1 if all pages belong to this class.
+    */
+   int selectDonorPage(int sizeClass) {
+      for (int i = 0; i < pages.size(); ++i) {
+         int page = (nextDonor + i) % pages.size();
+         int pageClass = pageClasses.get(page);
+         if (pageClass != RELEASED && pageClass != sizeClass) {
+            nextDonor = page + 1;
+            return page;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * @return Addresses of chunks in given page which hold entries.
+    */
+   long[] occupiedChunks(int page) {
+      int sizeClass = pageClasses.get(page);
+      int chunkSize = chunkSizes[sizeClass];
+      long pageAddress = ((long) page) << 32;
+      int limit = pageSize - chunkSize;
+      long carve = carvePositions[sizeClass];
+      if (carve != NULL && (int) (carve >>> 32) == page) {
+         limit = (int) carve - chunkSize;
+      }
+      long[] occupied = new long[limit / chunkSize + 1];
+      int count = 0;
+      for (int offset = 0; offset <= limit; offset += chunkSize) {
+         if (getByte(pageAddress + offset, QUEUE) != FREE) {
+            occupied[count++] = pageAddress + offset;
+         }
+      }
+      return Arrays.copyOf(occupied, count);
+   }
+
+   /**
+    * Moves page without any entries to another size class; chunks of the page are removed from the free list.
+    */
+   void reassign(int page, int sizeClass) {
+      detach(page);
+      pageClasses.set(page, sizeClass);
+      carvePositions[sizeClass] = ((long) page) << 32;
+   }
+
+   /**
+    * Returns page without any entries to the shared pool; chunks of the page are removed from the free list.
+    */
+   void release(int page) {
+      detach(page);
+      pages.set(page, null);
+      pageClasses.set(page, RELEASED);
+      releasedPages.add(page);
+      pageCount--;
+      pagePool.release(1);
+   }
+
+   private void detach(int page) {
+      int donorClass = pageClasses.get(page);
+      long previous = NULL;
+      for (long address = freeLists[donorClass]; address != NULL; address = getLong(address, NEXT)) {
+         if ((int) (address >>> 32) == page) {
+            if (previous == NULL) {
+               freeLists[donorClass] = getLong(address, NEXT);
+            } else {
+               putLong(previous, NEXT, getLong(address, NEXT));
+            }
+         } else {
+            previous = address;
+         }
+      }
+      long carve = carvePositions[donorClass];
+      if (carve != NULL && (int) (carve >>> 32) == page) {
+         carvePositions[donorClass] = NULL;
+      }
+   }
+
+   private int addPage(int sizeClass) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(pageSize);
+      pageCount++;
+      Integer page = releasedPages.poll();
+      if (page != null) {
+         pages.set(page, buffer);
+         pageClasses.set(page, sizeClass);
+         return page;
+      }
+      pages.add(buffer);
+      pageClasses.add(sizeClass);
+      return pages.size() - 1;
+   }
+
+   /**
+    * Releases all pages.
+    */
+   void clear() {
+      pagePool.release(pageCount);
+      pages.clear();
+      pageClasses.clear();
+      releasedPages.clear();
+      pageCount = 0;
+      Arrays.fill(freeLists, NULL);
+      Arrays.fill(carvePositions, NULL);
+      Arrays.fill(chunkCounts, 0);
+      usedBytes = 0;
+   }
+
+   int chunkCount(int sizeClass) {
+      return chunkCounts[sizeClass];
+   }
+
+   long usedBytes() {
+      return usedBytes;
+   }
+
+   long allocatedBytes() {
+      return (long) pageCount * pageSize;
+   }
+
+   int pageCount() {
+      return pageCount;
+   }
+
+   int sizeClassOf(long address) {
+      return getShort(address, SIZE_CLASS);
+   }
+
+   long getLong(long address, int field) {
+      return page(address).getLong((int) address + field);
+   }
+
+   void putLong(long address, int field, long value) {
+      page(address).putLong((int) address + field, value);
+   }
+
+   int getInt(long address, int field) {
+      return page(address).getInt((int) address + field);
+   }
+
+   void putInt(long address, int field, int value) {
+      page(address).putInt((int) address + field, value);
+   }
+
+   byte getByte(long address, int field) {
+      return page(address).get((int) address + field);
+   }
+
+   void putByte(long address, int field, byte value) {
+      page(address).put((int) address + field, value);
+   }
+
+   short getShort(long address, int field) {
+      return page(address).getShort((int) address + field);
+   }
+
+   void putShort(long address, int field, short value) {
+      page(address).putShort((int) address + field, value);
+   }
+
+   void write(long address, int offset, byte[] bytes) {
+      ByteBuffer page = page(address);
+      page.position((int) address + offset);
+      page.put(bytes);
+   }
+
+   byte[] read(long address, int offset, int length) {
+      ByteBuffer page = page(address);
+      byte[] bytes = new byte[length];
+      page.position((int) address + offset);
+      page.get(bytes);
+      return bytes;
+   }
+
+   boolean equals(long address, int offset, byte[] bytes) {
+      ByteBuffer page = page(address);
+      int position = (int) address + offset;
+      for (int i = 0; i < bytes.length; ++i) {
+         if (page.get(position + i) != bytes[i]) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private ByteBuffer page(long address) {
+      return pages.get((int) (address >>> 32));
+   }
+}
@@ -0,0 +1,90 @@
+package org.radargun.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pages of memory shared by segments of all caches in the service. When the pages are used up, segment
+ * holding much less than its fair share takes a page from the segment with the most pages, evicting entries
+ * stored in that page. This way the memory is redistributed when caches (or segments) are filled unevenly.
+ */
+class OffHeapPages {
+   private final int totalPages;
+   private final AtomicInteger availablePages;
+   private final List<OffHeapSegment> segments = new CopyOnWriteArrayList<>();
+
+   OffHeapPages(int totalPages) {
+      this.totalPages = totalPages;
+      this.availablePages = new AtomicInteger(totalPages);
+   }
+
+   void register(OffHeapSegment segment) {
+      segments.add(segment);
+   }
+
+   /**
+    * @return True if a page can be allocated.
+    */
+   boolean acquire() {
+      for (; ; ) {
+         int available = availablePages.get();
+         if (available <= 0) {
+            return false;
+         }
+         if (availablePages.compareAndSet(available, available - 1)) {
+            return true;
+         }
+      }
+   }
+
+   void release(int pages) {
+      availablePages.addAndGet(pages);
+   }
+
+   /**
+    * @return Number of pages each segment can hold if the memory is evenly distributed.
+    */
+   int fairShare() {
+      return totalPages / Math.max(1, segments.size());
+   }
+
+   /**
+    * Makes other segment release one of its pages to the shared pool. The requester keeps its own lock,
+    * other segments are only tried to lock, so that two segments cannot wait for each other. Segments
+    * looking for a page do not hold more pages than the threshold, therefore these are never asked to
+    * release a page.
+    *
+    * @param requester Segment looking for a page; locked by current thread.
+    * @param threshold Only segments holding more pages than the threshold release a page.
+    * @return True if a page was released, false if no segment holds more pages than the threshold.
+    */
+   boolean reclaim(OffHeapSegment requester, int threshold) {
+      for (; ; ) {
+         List<OffHeapSegment> donors = new ArrayList<>();
+         for (OffHeapSegment segment : segments) {
+            if (segment != requester && segment.pageCount() > threshold) {
+               donors.add(segment);
+            }
+         }
+         if (donors.isEmpty()) {
+            return false;
+         }
+         donors.sort((s1, s2) -> Integer.compare(s2.pageCount(), s1.pageCount()));
+         for (OffHeapSegment donor : donors) {
+            if (donor.tryLock()) {
+               try {
+                  if (donor.pageCount() > threshold && donor.releasePage()) {
+                     return true;
+                  }
+               } finally {
+                  donor.unlock();
+               }
+            }
+         }
+         // all donors are busy with another operation
+         Thread.yield();
+      }
+   }
+}
@@ -0,0 +1,404 @@
+package org.radargun.service;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.radargun.service.OffHeapMemory.HASH;
+import static org.radargun.service.OffHeapMemory.HEADER;
+import static org.radargun.service.OffHeapMemory.KEY_LENGTH;
+import static org.radargun.service.OffHeapMemory.NEXT;
+import static org.radargun.service.OffHeapMemory.NULL;
+import static org.radargun.service.OffHeapMemory.VALUE_LENGTH;
+
+/**
+ * Part of the cache guarded by single lock. Entries are stored in {@link OffHeapMemory}, the hash index
+ * is an array of chain heads in direct buffer; keys and values are passed in serialized form.
+ */
+class OffHeapSegment extends ReentrantLock {
+   private static final int INITIAL_CAPACITY = 1024;
+   // the index is addressed by int offsets, 8 bytes per bucket
+   static final int MAX_CAPACITY = 1 << 27;
+
+   private final OffHeapService.EvictionPolicy policy;
+   private final OffHeapPages pages;
+   private final OffHeapMemory memory;
+   private final EvictionQueue[] queues;
+   private final FrequencySketch sketch;
+   private ByteBuffer table;
+   private int mask;
+   private volatile int size;
+   private volatile long evictions;
+
+   OffHeapSegment(OffHeapService.EvictionPolicy policy, int pageSize, OffHeapPages pages) {
+      this.policy = policy;
+      this.pages = pages;
+      this.memory = new OffHeapMemory(pageSize, pages);
+      this.sketch = policy == OffHeapService.EvictionPolicy.W_TINY_LFU ? new FrequencySketch() : null;
+      this.queues = new EvictionQueue[memory.numClasses()];
+      for (int i = 0; i < queues.length; ++i) {
+         queues[i] = EvictionQueue.create(policy, memory, sketch);
+      }
+      initTable(INITIAL_CAPACITY);
+   }
+
+   byte[] get(byte[] key, int hash) {
+      lock();
+      try {
+         long address = find(key, hash);
+         if (address == NULL) {
+            return null;
+         }
+         queue(address).onAccess(address);
+         return readValue(address);
+      } finally {
+         unlock();
+      }
+   }
+
+   boolean containsKey(byte[] key, int hash) {
+      lock();
+      try {
+         return find(key, hash) != NULL;
+      } finally {
+         unlock();
+      }
+   }
+
+   /**
+    * @return Previous value if requested and present, null otherwise.
+    */
+   byte[] put(byte[] key, int hash, byte[] value, boolean returnPrevious) {
+      lock();
+      try {
+         long address = find(key, hash);
+         if (address == NULL) {
+            insert(key, hash, value);
+            return null;
+         }
+         byte[] previous = returnPrevious ? readValue(address) : null;
+         replaceValue(address, key, hash, value);
+         return previous;
+      } finally {
+         unlock();
+      }
+   }
+
+   boolean putIfAbsent(byte[] key, int hash, byte[] value) {
+      lock();
+      try {
+         if (find(key, hash) != NULL) {
+            return false;
+         }
+         insert(key, hash, value);
+         return true;
+      } finally {
+         unlock();
+      }
+   }
+
+   boolean remove(byte[] key, int hash) {
+      lock();
+      try {
+         long address = find(key, hash);
+         if (address == NULL) {
+            return false;
+         }
+         removeEntry(address);
+         return true;
+      } finally {
+         unlock();
+      }
+   }
+
+   byte[] getAndRemove(byte[] key, int hash) {
+      lock();
+      try {
+         long address = find(key, hash);
+         if (address == NULL) {
+            return null;
+         }
+         byte[] previous = readValue(address);
+         removeEntry(address);
+         return previous;
+      } finally {
+         unlock();
+      }
+   }
+
+   boolean remove(byte[] key, int hash, byte[] expected) {
+      lock();
+      try {
+         long address = find(key, hash);
+         if (address == NULL || !valueEquals(address, expected)) {
+            return false;
+         }
+         removeEntry(address);
+         return true;
+      } finally {
+         unlock();
+      }
+   }
+
+   boolean replace(byte[] key, int hash, byte[] value) {
+      lock();
+      try {
+         long address = find(key, hash);
+         if (address == NULL) {
+            return false;
+         }
+         replaceValue(address, key, hash, value);
+         return true;
+      } finally {
+         unlock();
+      }
+   }
+
+   byte[] getAndReplace(byte[] key, int hash, byte[] value) {
+      lock();
+      try {
+         long address = find(key, hash);
+         if (address == NULL) {
+            return null;
+         }
+         byte[] previous = readValue(address);
+         replaceValue(address, key, hash, value);
+         return previous;
+      } finally {
+         unlock();
+      }
+   }
+
+   boolean replace(byte[] key, int hash, byte[] expected, byte[] value) {
+      lock();
+      try {
+         long address = find(key, hash);
+         if (address == NULL || !valueEquals(address, expected)) {
+            return false;
+         }
+         replaceValue(address, key, hash, value);
+         return true;
+      } finally {
+         unlock();
+      }
+   }
+
+   void clear() {
+      lock();
+      try {
+         memory.clear();
+         for (EvictionQueue queue : queues) {
+            queue.clear();
+         }
+         if (sketch != null) {
+            sketch.clear();
+         }
+         size = 0;
+         initTable(INITIAL_CAPACITY);
+      } finally {
+         unlock();
+      }
+   }
+
+   int size() {
+      return size;
+   }
+
+   long evictions() {
+      return evictions;
+   }
+
+   long usedBytes() {
+      lock();
+      try {
+         return memory.usedBytes();
+      } finally {
+         unlock();
+      }
+   }
+
+   /**
+    * Can be called without the lock.
+    */
+   int pageCount() {
+      return memory.pageCount();
+   }
+
+   /**
+    * Evicts entries from one page and returns it to the shared pool. The page holds the entry that would
+    * be evicted next from the most populated size class. Must be called with the lock held.
+    *
+    * @return False if the segment holds no pages.
+    */
+   boolean releasePage() {
+      int largestClass = 0;
+      for (int i = 1; i < queues.length; ++i) {
+         if (memory.chunkCount(i) > memory.chunkCount(largestClass)) {
+            largestClass = i;
+         }
+      }
+      long victim = queues[largestClass].victim();
+      int page = victim != NULL ? (int) (victim >>> 32) : memory.selectDonorPage(-1);
+      if (page < 0) {
+         return false;
+      }
+      for (long occupied : memory.occupiedChunks(page)) {
+         removeEntry(occupied);
+         evictions++;
+      }
+      memory.release(page);
+      return true;
+   }
+
+   long allocatedBytes() {
+      lock();
+      try {
+         return memory.allocatedBytes();
+      } finally {
+         unlock();
+      }
+   }
+
+   private long find(byte[] key, int hash) {
+      for (long address = table.getLong(bucket(hash, mask)); address != NULL; address = memory.getLong(address, NEXT)) {
+         if (memory.getInt(address, HASH) == hash && memory.getInt(address, KEY_LENGTH) == key.length
+            && memory.equals(address, HEADER, key)) {
+            return address;
+         }
+      }
+      return NULL;
+   }
+
+   private byte[] readValue(long address) {
+      return memory.read(address, HEADER + memory.getInt(address, KEY_LENGTH), memory.getInt(address, VALUE_LENGTH));
+   }
+
+   private boolean valueEquals(long address, byte[] expected) {
+      return memory.getInt(address, VALUE_LENGTH) == expected.length
+         && memory.equals(address, HEADER + memory.getInt(address, KEY_LENGTH), expected);
+   }
+
+   private EvictionQueue queue(long address) {
+      return queues[memory.sizeClassOf(address)];
+   }
+
+   private void insert(byte[] key, int hash, byte[] value) {
+      int sizeClass = memory.sizeClass(key.length, value.length);
+      if (sizeClass < 0) {
+         throw new IllegalArgumentException("Entry with key of " + key.length + " bytes and value of "
+            + value.length + " bytes does not fit into a page");
+      }
+      long address = allocate(sizeClass);
+      memory.putInt(address, HASH, hash);
+      memory.putInt(address, KEY_LENGTH, key.length);
+      memory.putInt(address, VALUE_LENGTH, value.length);
+      memory.write(address, HEADER, key);
+      memory.write(address, HEADER + key.length, value);
+      // allocation could evict entries, therefore the bucket is read afterwards
+      int bucket = bucket(hash, mask);
+      memory.putLong(address, NEXT, table.getLong(bucket));
+      table.putLong(bucket, address);
+      queues[sizeClass].onInsert(address);
+      size++;
+      if (sketch != null) {
+         sketch.ensureCapacity(size);
+      }
+      if (size > (mask + 1) / 4 * 3 && mask + 1 < MAX_CAPACITY) {
+         initTable((mask + 1) << 1);
+      }
+   }
+
+   private void replaceValue(long address, byte[] key, int hash, byte[] value) {
+      if (memory.sizeClass(key.length, value.length) == memory.sizeClassOf(address)) {
+         memory.putInt(address, VALUE_LENGTH, value.length);
+         memory.write(address, HEADER + key.length, value);
+         queue(address).onAccess(address);
+      } else {
+         removeEntry(address);
+         insert(key, hash, value);
+      }
+   }
+
+   private void removeEntry(long address) {
+      int bucket = bucket(memory.getInt(address, HASH), mask);
+      long next = memory.getLong(address, NEXT);
+      long current = table.getLong(bucket);
+      if (current == address) {
+         table.putLong(bucket, next);
+      } else {
+         while (memory.getLong(current, NEXT) != address) {
+            current = memory.getLong(current, NEXT);
+         }
+         memory.putLong(current, NEXT, next);
+      }
+      queue(address).onRemove(address);
+      memory.free(address);
+      size--;
+   }
+
+   /**
+    * Allocates chunk for an entry if the memory is full. Segment holding less than three quarters
+    * of its fair share of pages takes a page from another segment above the share; otherwise entries of the same size class are evicted, or page
+    * of another size class is reassigned. Segment without any entries to evict takes a page from another
+    * segment regardless of the share.
+    */
+   private long allocate(int sizeClass) {
+      for (; ; ) {
+         long address = memory.allocate(sizeClass);
+         if (address != NULL) {
+            return address;
+         }
+         if (policy == OffHeapService.EvictionPolicy.NONE) {
+            throw new IllegalStateException("Memory limit reached, cannot store entry as eviction is disabled");
+         }
+         // the slack avoids moving pages (and evicting whole pages) only because keys are not spread evenly
+         int fairShare = pages.fairShare();
+         if (memory.pageCount() < fairShare - fairShare / 4 && pages.reclaim(this, fairShare)) {
+            continue;
+         }
+         long victim = queues[sizeClass].victim();
+         if (victim != NULL) {
+            removeEntry(victim);
+            evictions++;
+            continue;
+         }
+         int page = memory.selectDonorPage(sizeClass);
+         if (page >= 0) {
+            for (long occupied : memory.occupiedChunks(page)) {
+               removeEntry(occupied);
+               evictions++;
+            }
+            memory.reassign(page, sizeClass);
+         } else if (!pages.reclaim(this, memory.pageCount())) {
+            throw new IllegalStateException("Memory limit reached, cannot store entry");
+         }
+      }
+   }
+
+   private void initTable(int capacity) {
+      ByteBuffer oldTable = table;
+      table = ByteBuffer.allocateDirect(capacity * Long.BYTES);
+      for (int i = 0; i < capacity; ++i) {
+         table.putLong(i * Long.BYTES, NULL);
+      }
+      mask = capacity - 1;
+      if (oldTable == null || size == 0) {
+         return;
+      }
+      for (int i = 0; i < oldTable.capacity(); i += Long.BYTES) {
+         for (long address = oldTable.getLong(i); address != NULL; ) {
+            long next = memory.getLong(address, NEXT);
+            int bucket = bucket(memory.getInt(address, HASH), mask);
+            memory.putLong(address, NEXT, table.getLong(bucket));
+            table.putLong(bucket, address);
+            address = next;
+         }
+      }
+   }
+
+   /**
+    * @return Offset of the chain head for given hash in the index.
+    */
+   static int bucket(int hash, int mask) {
+      return (hash & mask) * Long.BYTES;
+   }
+}
@@ -0,0 +1,119 @@
+package org.radargun.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.radargun.Service;
+import org.radargun.config.Init;
+import org.radargun.config.Property;
+import org.radargun.traits.BasicOperations;
+import org.radargun.traits.BulkOperations;
+import org.radargun.traits.CacheInformation;
+import org.radargun.traits.ConditionalOperations;
+import org.radargun.traits.ProvidesTrait;
+
+/**
+ * In-process cache keeping serialized entries in direct memory, to be used as a baseline without GC overhead
+ * of large heaps.
+ */
+@Service(doc = "Off-heap hash table with eviction - not a distributed cache.")
+public class OffHeapService {
+   public static final String DEFAULT_CACHE_NAME = "default";
+
+   @Property(doc = "Maximum memory used for entries of all caches, in bytes. The hash index takes roughly 11 bytes " +
+      "per entry on top of this. Default is 1 GB.")
+   protected long maxMemory = 1024L * 1024 * 1024;
+
+   @Property(doc = "Number of independently locked segments of each cache, rounded up to power of two. Default is 16.")
+   protected int segments = 16;
+
+   @Property(doc = "Size of memory pages; pages are split into chunks of the same size, entry must fit into a page. " +
+      "Default is 1 MB.")
+   protected int pageSize = 1024 * 1024;
+
+   @Property(doc = "Policy applied when the memory is full: NONE (the insertion fails), LRU, LFU or W_TINY_LFU " +
+      "(window TinyLFU). Entries of similar size are evicted first; segment holding less than three quarters of its " +
+      "share of maxMemory (divided among segments of all caches) takes the memory from other segments instead. Default is LRU.")
+   protected EvictionPolicy eviction = EvictionPolicy.LRU;
+
+   protected final ConcurrentHashMap<String, OffHeapCache> caches = new ConcurrentHashMap<>();
+   private OffHeapPages pages;
+
+   public enum EvictionPolicy {
+      NONE,
+      LRU,
+      LFU,
+      W_TINY_LFU
+   }
+
+   @Init
+   public void init() {
+      if (segments <= 0 || segments > (1 << 16)) {
+         throw new IllegalArgumentException("Number of segments must be between 1 and 65536");
+      }
+      if (pageSize < 4096) {
+         throw new IllegalArgumentException("Page size must be at least 4096 bytes");
+      }
+      long pages = maxMemory / pageSize;
+      if (pages < segments) {
+         throw new IllegalArgumentException("Max memory must allow at least one page per segment");
+      }
+      this.pages = new OffHeapPages((int) Math.min(pages, Integer.MAX_VALUE));
+   }
+
+   public OffHeapCache getCache(String cacheName) {
+      return caches.computeIfAbsent(cacheName == null ? DEFAULT_CACHE_NAME : cacheName,
+         name -> new OffHeapCache(eviction, segments, pageSize, pages));
+   }
+
+   @ProvidesTrait
+   public BasicOperations createBasicOperations() {
+      return new BasicOperations() {
+         @Override
+         public <K, V> Cache<K, V> getCache(String cacheName) {
+            return OffHeapService.this.getCache(cacheName);
+         }
+      };
+   }
+
+   @ProvidesTrait
+   public ConditionalOperations createConditionalOperations() {
+      return new ConditionalOperations() {
+         @Override
+         public <K, V> Cache<K, V> getCache(String cacheName) {
+            return OffHeapService.this.getCache(cacheName);
+         }
+      };
+   }
+
+   @ProvidesTrait
+   public BulkOperations createBulkOperations() {
+      return new BulkOperations() {
+         @Override
+         public <K, V> Cache<K, V> getCache(String cacheName, boolean preferAsync) {
+            return OffHeapService.this.getCache(cacheName);
+         }
+      };
+   }
+
+   @ProvidesTrait
+   public CacheInformation createCacheInformation() {
+      return new CacheInformation() {
+         @Override
+         public String getDefaultCacheName() {
+            return DEFAULT_CACHE_NAME;
+         }
+
+         @Override
+         public Collection<String> getCacheNames() {
+            return Collections.unmodifiableSet(caches.keySet());
+         }
+
+         @Override
+         public Cache getCache(String cacheName) {
+            return OffHeapService.this.getCache(cacheName);
+         }
+      };
+   }
+}
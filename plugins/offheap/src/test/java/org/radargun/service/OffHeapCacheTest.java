@@ -0,0 +1,187 @@
+package org.radargun.service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class OffHeapCacheTest {
+
+   public void testOperations() {
+      OffHeapCache cache = createService(OffHeapService.EvictionPolicy.LRU, 64 * 1024 * 1024).getCache(null);
+      Assert.assertNull(cache.get("key"));
+      cache.put("key", "value");
+      Assert.assertEquals(cache.get("key"), "value");
+      Assert.assertTrue(cache.containsKey("key"));
+      Assert.assertEquals(cache.getAndPut("key", new byte[] {1, 2, 3}), "value");
+      Assert.assertTrue(Arrays.equals((byte[]) cache.get("key"), new byte[] {1, 2, 3}));
+      Assert.assertFalse(cache.putIfAbsent("key", "other"));
+      Assert.assertFalse(cache.replace("key", "other", "new"));
+      Assert.assertTrue(cache.replace("key", new byte[] {1, 2, 3}, 42L));
+      Assert.assertEquals(cache.get("key"), 42L);
+      Assert.assertEquals(cache.getAndReplace("key", "replaced"), 42L);
+      Assert.assertTrue(cache.replace("key", "replaced again"));
+      Assert.assertFalse(cache.remove("key", "replaced"));
+      Assert.assertEquals(cache.getAndRemove("key"), "replaced again");
+      Assert.assertFalse(cache.remove("key"));
+      Assert.assertFalse(cache.replace("key", "value"));
+      Assert.assertTrue(cache.putIfAbsent("key", "value"));
+
+      Map<Object, Object> entries = new HashMap<>();
+      for (int i = 0; i < 10000; ++i) {
+         entries.put("key" + i, new byte[i % 2000]);
+      }
+      cache.putAll(entries);
+      Assert.assertEquals(cache.getTotalSize(), 10001);
+      Assert.assertEquals(cache.getAll(new HashSet<>(Arrays.asList("key1", "key2", "missing"))).size(), 2);
+      cache.removeAll(entries.keySet());
+      Assert.assertEquals(cache.getTotalSize(), 1);
+      cache.clear();
+      Assert.assertEquals(cache.getTotalSize(), 0);
+      Assert.assertNull(cache.get("key"));
+   }
+
+   public void testByteBufferValues() {
+      OffHeapCache cache = createService(OffHeapService.EvictionPolicy.LRU, 64 * 1024 * 1024).getCache(null);
+      Assert.assertTrue(cache.acceptsByteBufferValues());
+      ByteBuffer value = ByteBuffer.wrap(new byte[] {0, 1, 2, 3, 4});
+      value.position(1);
+      cache.put("key", value);
+      Assert.assertEquals(value.position(), 1);
+      Assert.assertEquals(cache.get("key"), ByteBuffer.wrap(new byte[] {1, 2, 3, 4}));
+   }
+
+   public void testEviction() {
+      for (OffHeapService.EvictionPolicy policy : Arrays.asList(OffHeapService.EvictionPolicy.LRU,
+         OffHeapService.EvictionPolicy.LFU, OffHeapService.EvictionPolicy.W_TINY_LFU)) {
+         OffHeapCache cache = createService(policy, 64 * 4096).getCache(null);
+         for (int i = 0; i < 100000; ++i) {
+            cache.put(i, new byte[100]);
+         }
+         Assert.assertTrue(cache.getTotalSize() < 100000, policy.toString());
+         Assert.assertTrue(cache.getEvictions() > 0, policy.toString());
+         Assert.assertTrue(cache.getAllocatedBytes() <= 64 * 4096, policy.toString());
+         Assert.assertNotNull(cache.get(99999), policy.toString());
+         // entries of different size take over pages of the evicted ones
+         for (int i = 0; i < 1000; ++i) {
+            cache.put(-i, new byte[1000]);
+         }
+         Assert.assertNotNull(cache.get(-999), policy.toString());
+      }
+   }
+
+   public void testFrequentEntriesSurviveScan() {
+      for (OffHeapService.EvictionPolicy policy : Arrays.asList(OffHeapService.EvictionPolicy.LFU,
+         OffHeapService.EvictionPolicy.W_TINY_LFU)) {
+         OffHeapCache cache = createService(policy, 64 * 4096).getCache(null);
+         for (int i = 0; i < 100; ++i) {
+            cache.put(i, new byte[100]);
+         }
+         for (int round = 0; round < 10; ++round) {
+            for (int i = 0; i < 100; ++i) {
+               cache.get(i);
+            }
+         }
+         for (int i = 100; i < 100000; ++i) {
+            cache.put(i, new byte[100]);
+         }
+         int present = 0;
+         for (int i = 0; i < 100; ++i) {
+            if (cache.containsKey(i)) present++;
+         }
+         Assert.assertTrue(present > 90, policy + ": " + present);
+      }
+   }
+
+   public void testMemorySharedByCaches() {
+      for (OffHeapService.EvictionPolicy policy : Arrays.asList(OffHeapService.EvictionPolicy.LRU,
+         OffHeapService.EvictionPolicy.LFU, OffHeapService.EvictionPolicy.W_TINY_LFU)) {
+         OffHeapService service = createService(policy, 64 * 4096);
+         OffHeapCache first = service.getCache("first");
+         for (int i = 0; i < 100000; ++i) {
+            first.put(i, new byte[100]);
+         }
+         Assert.assertEquals(first.getAllocatedBytes(), 64 * 4096, policy.toString());
+         // all pages are held by the first cache, the second one must take them over
+         OffHeapCache second = service.getCache("second");
+         for (int i = 0; i < 100000; ++i) {
+            second.put(i, new byte[100]);
+         }
+         Assert.assertNotNull(second.get(99999), policy.toString());
+         Assert.assertTrue(first.getAllocatedBytes() + second.getAllocatedBytes() <= 64 * 4096, policy.toString());
+         // each of the 8 segments holds at least three quarters of its share of 8 pages
+         long secondAllocated = second.getAllocatedBytes();
+         Assert.assertTrue(secondAllocated >= 24 * 4096, policy + ": " + secondAllocated);
+         Assert.assertTrue(first.getAllocatedBytes() >= 24 * 4096, policy + ": " + first.getAllocatedBytes());
+         Assert.assertTrue(first.getTotalSize() > 0, policy.toString());
+
+         // entries of the first cache can be stored again, taking memory only from its own segments
+         for (int i = 0; i < 100000; ++i) {
+            first.put(-i, new byte[100]);
+         }
+         Assert.assertNotNull(first.get(-99999), policy.toString());
+         Assert.assertEquals(second.getAllocatedBytes(), secondAllocated, policy.toString());
+
+         // cleared cache returns the memory
+         second.clear();
+         Assert.assertEquals(second.getAllocatedBytes(), 0, policy.toString());
+         for (int i = 0; i < 100000; ++i) {
+            first.put(i, new byte[100]);
+         }
+         Assert.assertEquals(first.getAllocatedBytes(), 64 * 4096, policy.toString());
+      }
+   }
+
+   @Test(timeOut = 60000)
+   public void testConcurrentCaches() throws Exception {
+      OffHeapService service = createService(OffHeapService.EvictionPolicy.LRU, 64 * 4096);
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+         List<Future<?>> futures = new ArrayList<>();
+         for (int t = 0; t < 4; ++t) {
+            OffHeapCache cache = service.getCache("cache" + (t % 2));
+            int offset = t * 100000;
+            futures.add(executor.submit(() -> {
+               for (int i = 0; i < 100000; ++i) {
+                  cache.put(offset + i, new byte[100 + i % 300]);
+               }
+            }));
+         }
+         for (Future<?> future : futures) {
+            future.get();
+         }
+      } finally {
+         executor.shutdown();
+      }
+      Assert.assertTrue(service.getCache("cache0").getAllocatedBytes() + service.getCache("cache1").getAllocatedBytes() <= 64 * 4096);
+   }
+
+   @Test(expectedExceptions = IllegalStateException.class)
+   public void testNoEviction() {
+      OffHeapCache cache = createService(OffHeapService.EvictionPolicy.NONE, 64 * 4096).getCache(null);
+      for (int i = 0; i < 100000; ++i) {
+         cache.put(i, Collections.nCopies(10, i).toString());
+      }
+   }
+
+   private static OffHeapService createService(OffHeapService.EvictionPolicy policy, long maxMemory) {
+      OffHeapService service = new OffHeapService();
+      service.eviction = policy;
+      service.maxMemory = maxMemory;
+      service.pageSize = 4096;
+      service.segments = 4;
+      service.init();
+      return service;
+   }
+}
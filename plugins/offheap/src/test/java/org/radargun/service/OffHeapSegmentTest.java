@@ -0,0 +1,16 @@
+package org.radargun.service;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class OffHeapSegmentTest {
+
+   public void testIndexOffsetsAtMaxCapacity() {
+      int mask = OffHeapSegment.MAX_CAPACITY - 1;
+      Assert.assertTrue((long) OffHeapSegment.MAX_CAPACITY * Long.BYTES <= Integer.MAX_VALUE);
+      Assert.assertEquals(OffHeapSegment.bucket(-1, mask), (long) mask * Long.BYTES);
+      Assert.assertEquals(OffHeapSegment.bucket(Integer.MIN_VALUE, mask), 0);
+      Assert.assertEquals(OffHeapSegment.bucket(mask, mask), OffHeapSegment.MAX_CAPACITY * Long.BYTES - Long.BYTES);
+   }
+}
@@ -0,0 +1,90 @@
+package org.radargun.reporting.columnar;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.radargun.config.MasterConfig;
+import org.radargun.config.Property;
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+import org.radargun.reporting.AbstractReporter;
+import org.radargun.reporting.Report;
+
+/**
+ * Stores the results in columnar binary format that can be memory-mapped, see {@link ResultStore}.
+ * Unlike {@link org.radargun.reporting.serialized.SerializedReporter} the stored data do not depend
+ * on the classes used for gathering statistics and the results can be compared without loading
+ * all of them into memory, using {@link ResultStoreTool}.
+ */
+public class ColumnarReporter extends AbstractReporter {
+   private static final Log log = LogFactory.getLog(ColumnarReporter.class);
+   private static final String TIMESTAMP_FORMAT = "yyyyMMdd-HHmmss";
+   // older files do not contain the milliseconds and the index
+   private static final Pattern FILE_NAME = Pattern.compile(".*-(\\d{8}-\\d{6})(?:-(\\d{3}))?(?:-(\\d+))?"
+      + Pattern.quote(ResultStore.FILE_SUFFIX));
+
+   @Property(doc = "Directory where the results should be stored. Default is results/columnar.")
+   protected String targetDir = "results" + File.separator + "columnar";
+
+   @Override
+   public void run(MasterConfig masterConfig, Collection<Report> reports) {
+      File dir = new File(targetDir);
+      if (!dir.exists()) {
+         dir.mkdirs();
+      }
+      for (Report report : reports) {
+         File file = newFile(dir, report);
+         try {
+            new ResultStoreWriter().write(report, file);
+         } catch (IOException e) {
+            log.error("Failed to write report to " + file, e);
+         }
+      }
+   }
+
+   /**
+    * @return File named &lt;configuration&gt;-&lt;cluster size&gt;-&lt;cluster index&gt;-&lt;timestamp&gt;, with an index
+    * appended if a file with the same timestamp already exists in the directory.
+    */
+   static File newFile(File dir, Report report) {
+      String prefix = String.format("%s-%s-%s-%s", report.getConfiguration().name, report.getCluster().getSize(),
+         report.getCluster().getClusterIndex(), new SimpleDateFormat(TIMESTAMP_FORMAT + "-SSS").format(new Date()));
+      File file = new File(dir, prefix + ResultStore.FILE_SUFFIX);
+      for (int index = 1; file.exists(); ++index) {
+         file = new File(dir, prefix + "-" + index + ResultStore.FILE_SUFFIX);
+      }
+      return file;
+   }
+
+   /**
+    * Orders files written by this reporter by the time of the run, oldest first. Files without
+    * the timestamp in the name are ordered by the time of last modification.
+    */
+   static int compareRunTime(File file1, File file2) {
+      long[] runTime1 = runTime(file1), runTime2 = runTime(file2);
+      int result = Long.compare(runTime1[0], runTime2[0]);
+      return result != 0 ? result : Long.compare(runTime1[1], runTime2[1]);
+   }
+
+   private static long[] runTime(File file) {
+      Matcher matcher = FILE_NAME.matcher(file.getName());
+      if (matcher.matches()) {
+         try {
+            long timestamp = new SimpleDateFormat(TIMESTAMP_FORMAT).parse(matcher.group(1)).getTime();
+            if (matcher.group(2) != null) {
+               timestamp += Integer.parseInt(matcher.group(2));
+            }
+            return new long[] {timestamp, matcher.group(3) == null ? 0 : Long.parseLong(matcher.group(3))};
+         } catch (ParseException e) {
+            log.trace("Cannot parse timestamp of " + file, e);
+         }
+      }
+      return new long[] {file.lastModified(), 0};
+   }
+}
@@ -0,0 +1,292 @@
+package org.radargun.reporting.columnar;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.radargun.config.MasterConfig;
+import org.radargun.config.Property;
+import org.radargun.logging.Log;
+import org.radargun.logging.LogFactory;
+import org.radargun.reporting.AbstractReporter;
+import org.radargun.reporting.Report;
+import org.radargun.stats.representation.Percentile;
+
+/**
+ * Compares results of current run with previous runs of the same configuration on cluster of the same size,
+ * kept in the history directory in the format of {@link ResultStore}.
+ *
+ * Throughput of each test iteration and operation is compared using bootstrap confidence interval of the relative
+ * change of mean throughput of a slave; the response times are compared using Mann-Whitney U test on the histograms
+ * merged over all slaves, and the change of selected percentiles. When a significant regression is found, the reporter
+ * fails and therefore the whole run ends with non-zero exit code.
+ */
+public class RegressionReporter extends AbstractReporter {
+   private static final Log log = LogFactory.getLog(RegressionReporter.class);
+
+   @Property(doc = "Directory with results of previous runs. Current run is added there unless it contains a regression. "
+      + "Default is results/history.")
+   protected String historyDir = "results" + File.separator + "history";
+
+   @Property(doc = "Directory where the comparison is written. Default is results/regression.")
+   protected String targetDir = "results" + File.separator + "regression";
+
+   @Property(doc = "Number of most recent runs used as a baseline. Default is 5.")
+   protected int baselineRuns = 5;
+
+   @Property(doc = "Significance level of the tests; the confidence interval of throughput change is computed at "
+      + "1 - significance. Default is 0.01.")
+   protected double significance = 0.01;
+
+   @Property(doc = "Minimal relative decrease of throughput considered a regression. Default is 0.05.")
+   protected double throughputThreshold = 0.05;
+
+   @Property(doc = "Minimal relative increase of response time percentile considered a regression. Note that percentiles "
+      + "are stored with precision of about 9%. Default is 0.1.")
+   protected double responseTimeThreshold = 0.1;
+
+   @Property(doc = "Compare response times at certain percentiles. Default is 50%, 90% and 99%.")
+   protected double[] percentiles = new double[] {50d, 90d, 99d};
+
+   @Property(doc = "Number of bootstrap resamples. Default is 10000.")
+   protected int bootstrapSamples = 10000;
+
+   @Property(doc = "Fail the reporter (and set non-zero exit code) when a regression is found. Default is true.")
+   protected boolean failOnRegression = true;
+
+   @Property(doc = "Add the run to history even if it contains a regression, making it part of future baselines. "
+      + "Default is false.")
+   protected boolean keepRegressed = false;
+
+   @Override
+   public void run(MasterConfig masterConfig, Collection<Report> reports) throws Exception {
+      File history = new File(historyDir);
+      if (!history.exists()) {
+         history.mkdirs();
+      }
+      File target = new File(targetDir);
+      if (!target.exists()) {
+         target.mkdirs();
+      }
+      int regressions = 0;
+      for (Report report : reports) {
+         regressions += checkReport(history, target, report);
+      }
+      if (regressions > 0 && failOnRegression) {
+         throw new IllegalStateException("Found " + regressions + " performance regression(s), see " + target);
+      }
+   }
+
+   private int checkReport(File history, File target, Report report) throws IOException {
+      String configurationName = report.getConfiguration().name;
+      int clusterSize = report.getCluster().getSize();
+      List<File> baseline = findBaseline(history, configurationName, clusterSize);
+      File current = File.createTempFile("radargun_regression_", ResultStore.FILE_SUFFIX);
+      try {
+         new ResultStoreWriter().write(report, current);
+         Map<String, Samples> currentSamples;
+         try (ResultStore store = ResultStore.open(current)) {
+            currentSamples = readSamples(store);
+         }
+         Map<String, Samples> baselineSamples = new HashMap<>();
+         for (File file : baseline) {
+            try (ResultStore store = ResultStore.open(file)) {
+               for (Map.Entry<String, Samples> entry : readSamples(store).entrySet()) {
+                  baselineSamples.merge(entry.getKey(), entry.getValue(), Samples::merge);
+               }
+            }
+         }
+
+         List<Comparison> comparisons = new ArrayList<>();
+         // same seed for each run makes the results reproducible
+         Random random = new Random(0);
+         for (Map.Entry<String, Samples> entry : currentSamples.entrySet()) {
+            Samples baselineSample = baselineSamples.get(entry.getKey());
+            if (baselineSample != null) {
+               compare(entry.getKey(), baselineSample, entry.getValue(), random, comparisons);
+            }
+         }
+         int regressions = 0;
+         for (Comparison comparison : comparisons) {
+            if (comparison.regression) {
+               log.warn("Regression in " + comparison);
+               regressions++;
+            }
+         }
+         String name = String.format("%s-%s-%s", configurationName, clusterSize, report.getCluster().getClusterIndex());
+         writeComparisons(new File(target, name + ".txt"), baseline, comparisons);
+         if (baseline.isEmpty()) {
+            log.info(String.format("No baseline for configuration %s on %d slaves", configurationName, clusterSize));
+         } else {
+            log.info(String.format("Compared configuration %s on %d slaves against %d previous runs, found %d regressions",
+               configurationName, clusterSize, baseline.size(), regressions));
+         }
+         if (regressions == 0 || keepRegressed) {
+            Files.copy(current.toPath(), ColumnarReporter.newFile(history, report).toPath());
+         }
+         return regressions;
+      } finally {
+         current.delete();
+      }
+   }
+
+   private List<File> findBaseline(File history, String configurationName, int clusterSize) {
+      File[] files = history.listFiles((dir, name) -> name.endsWith(ResultStore.FILE_SUFFIX));
+      List<File> baseline = new ArrayList<>();
+      if (files == null) {
+         return baseline;
+      }
+      // most recent runs first
+      Arrays.sort(files, (f1, f2) -> ColumnarReporter.compareRunTime(f2, f1));
+      for (File file : files) {
+         if (baseline.size() >= baselineRuns) {
+            break;
+         }
+         try (ResultStore store = ResultStore.open(file)) {
+            if (configurationName.equals(store.getConfigurationName()) && store.getCluster().getSize() == clusterSize) {
+               baseline.add(file);
+            }
+         } catch (IOException | RuntimeException e) {
+            log.warn("Cannot read " + file + ", ignoring it", e);
+         }
+      }
+      return baseline;
+   }
+
+   private Map<String, Samples> readSamples(ResultStore store) {
+      Map<String, Samples> samples = new TreeMap<>();
+      List<String> tests = store.getTestNames();
+      IntBuffer test = store.ints(ResultStore.TEST);
+      IntBuffer iteration = store.ints(ResultStore.ITERATION);
+      IntBuffer operation = store.ints(ResultStore.OPERATION);
+      LongBuffer begin = store.longs(ResultStore.BEGIN);
+      LongBuffer end = store.longs(ResultStore.END);
+      LongBuffer requests = store.longs(ResultStore.REQUESTS);
+      LongBuffer errors = store.longs(ResultStore.ERRORS);
+      for (int row = 0; row < store.getRows(); ++row) {
+         int testIndex = test.get(row);
+         int iterationId = iteration.get(row);
+         String iterationValue = store.getIterationValue(testIndex, iterationId);
+         String operationName = store.string(operation.get(row));
+         String key = String.format("%s, iteration %s, %s", tests.get(testIndex),
+            iterationValue == null ? String.valueOf(iterationId) : iterationValue, operationName);
+         Samples sample = samples.computeIfAbsent(key, k -> new Samples());
+         long duration = end.get(row) - begin.get(row);
+         if (duration > 0) {
+            sample.throughputs.add(1000d * (requests.get(row) - errors.get(row)) / duration);
+         }
+         sample.responseTimes.merge(store.getStatistics(row).getOperationStats(operationName));
+      }
+      return samples;
+   }
+
+   private void compare(String key, Samples baseline, Samples current, Random random, List<Comparison> comparisons) {
+      if (!baseline.throughputs.isEmpty() && !current.throughputs.isEmpty()) {
+         double[] baselineThroughputs = baseline.getThroughputs(), currentThroughputs = current.getThroughputs();
+         double baselineMean = SignificanceTests.mean(baselineThroughputs);
+         double currentMean = SignificanceTests.mean(currentThroughputs);
+         double[] interval = SignificanceTests.bootstrapRelativeChange(baselineThroughputs, currentThroughputs,
+            1 - significance, bootstrapSamples, random);
+         comparisons.add(new Comparison(key, "throughput", baselineMean, currentMean,
+            String.format("CI [%+.1f%%, %+.1f%%]", interval[0] * 100, interval[1] * 100),
+            interval[1] < -throughputThreshold, interval[0] > throughputThreshold));
+      }
+      SignificanceTests.MannWhitney mannWhitney = SignificanceTests.mannWhitney(baseline.responseTimes, current.responseTimes);
+      if (mannWhitney == null) {
+         return;
+      }
+      boolean slower = mannWhitney.pValue() < significance;
+      boolean faster = SignificanceTests.normalTail(-mannWhitney.z) < significance;
+      for (double percentile : percentiles) {
+         Percentile baselinePercentile = baseline.responseTimes.getRepresentation(Percentile.class, null, percentile);
+         Percentile currentPercentile = current.responseTimes.getRepresentation(Percentile.class, null, percentile);
+         if (baselinePercentile == null || currentPercentile == null || baselinePercentile.responseTimeMax <= 0) {
+            continue;
+         }
+         double change = currentPercentile.responseTimeMax / baselinePercentile.responseTimeMax - 1;
+         comparisons.add(new Comparison(key, String.format("%s%% response time", percentile),
+            baselinePercentile.responseTimeMax / 1000, currentPercentile.responseTimeMax / 1000,
+            String.format("z = %.2f, P(slower) = %.2f", mannWhitney.z, mannWhitney.effect),
+            slower && change > responseTimeThreshold, faster && change < -responseTimeThreshold));
+      }
+   }
+
+   private void writeComparisons(File file, List<File> baseline, List<Comparison> comparisons) throws IOException {
+      try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(file)))) {
+         writer.println("Baseline:");
+         for (File run : baseline) {
+            writer.println("   " + run.getName());
+         }
+         writer.println();
+         writer.printf("%-12s %-60s %-20s %14s %14s %8s %s%n", "Result", "Test, iteration, operation", "Metric",
+            "Baseline", "Current", "Change", "Test");
+         for (Comparison comparison : comparisons) {
+            writer.printf("%-12s %-60s %-20s %14.2f %14.2f %+7.1f%% %s%n",
+               comparison.regression ? "REGRESSION" : comparison.improvement ? "IMPROVEMENT" : "",
+               comparison.key, comparison.metric, comparison.baseline, comparison.current,
+               comparison.getChange() * 100, comparison.test);
+         }
+      }
+   }
+
+   /**
+    * Throughputs of all slaves and response times merged over them.
+    */
+   private static class Samples {
+      private final List<Double> throughputs = new ArrayList<>();
+      private final StoredOperationStats responseTimes = new StoredOperationStats();
+
+      private Samples merge(Samples other) {
+         throughputs.addAll(other.throughputs);
+         responseTimes.merge(other.responseTimes);
+         return this;
+      }
+
+      private double[] getThroughputs() {
+         return throughputs.stream().mapToDouble(Double::doubleValue).toArray();
+      }
+   }
+
+   private static class Comparison {
+      private final String key;
+      private final String metric;
+      private final double baseline;
+      private final double current;
+      private final String test;
+      private final boolean regression;
+      private final boolean improvement;
+
+      private Comparison(String key, String metric, double baseline, double current, String test, boolean regression,
+                         boolean improvement) {
+         this.key = key;
+         this.metric = metric;
+         this.baseline = baseline;
+         this.current = current;
+         this.test = test;
+         this.regression = regression;
+         this.improvement = improvement;
+      }
+
+      private double getChange() {
+         return baseline == 0 ? 0 : current / baseline - 1;
+      }
+
+      @Override
+      public String toString() {
+         return String.format("%s, %s: %.2f -> %.2f (%+.1f%%, %s)", key, metric, baseline, current, getChange() * 100, test);
+      }
+   }
+}
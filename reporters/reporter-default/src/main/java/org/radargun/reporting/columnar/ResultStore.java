@@ -0,0 +1,380 @@
+package org.radargun.reporting.columnar;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.radargun.Operation;
+import org.radargun.config.Cluster;
+import org.radargun.config.Configuration;
+import org.radargun.reporting.Report;
+import org.radargun.reporting.Timeline;
+import org.radargun.stats.Statistics;
+
+/**
+ * Read access to results written by {@link ColumnarReporter}.
+ *
+ * The file holds one {@link Report}. Statistics are stored as columns of fixed-size values, one row for each
+ * test, iteration, slave and operation (statistics from all threads on the slave are merged); timeline values
+ * are stored as series, one for each slave and category. Columns are memory-mapped only when they are accessed,
+ * so e.g. comparing throughput of several runs touches only the counters it needs. Names and other metadata
+ * are kept in a directory at the end of the file:
+ * <pre>
+ * [column data, 8-byte aligned] [directory] [directory offset: long] [MAGIC: int]
+ * </pre>
+ */
+public class ResultStore implements Closeable {
+   public static final String FILE_SUFFIX = ".rgc";
+
+   // row columns
+   public static final String TEST = "test";
+   public static final String ITERATION = "iteration";
+   public static final String SLAVE = "slave";
+   public static final String OPERATION = "operation";
+   public static final String THREADS = "threads";
+   public static final String BEGIN = "begin";
+   public static final String END = "end";
+   public static final String REQUESTS = "requests";
+   public static final String ERRORS = "errors";
+   public static final String RESPONSE_TIME_MAX = "responseTimeMax";
+   public static final String RESPONSE_TIME_MEAN = "responseTimeMean";
+   public static final String RESPONSE_TIME_DEV = "responseTimeDev";
+   public static final String HISTOGRAM_OFFSET = "histogramOffset";
+   public static final String HISTOGRAM_FIRST = "histogramFirst";
+   public static final String HISTOGRAM_LENGTH = "histogramLength";
+   // histogram buckets of all rows, addressed by HISTOGRAM_OFFSET and HISTOGRAM_LENGTH
+   public static final String HISTOGRAM_COUNTS = "histogramCounts";
+   // series columns
+   public static final String SERIES_SLAVE = "seriesSlave";
+   public static final String SERIES_CATEGORY = "seriesCategory";
+   public static final String SERIES_TYPE = "seriesType";
+   public static final String SERIES_OFFSET = "seriesOffset";
+   public static final String SERIES_LENGTH = "seriesLength";
+   // timeline values of all series, addressed by SERIES_OFFSET and SERIES_LENGTH
+   public static final String SERIES_TIMESTAMPS = "seriesTimestamps";
+   public static final String SERIES_VALUES = "seriesValues";
+
+   static final int MAGIC = 0x52474331; // RGC1
+   static final int TRAILER_SIZE = 12;
+
+   private final File file;
+   private final RandomAccessFile raf;
+   private final Map<String, long[]> columnRegions = new HashMap<>();
+   private final Map<String, ByteBuffer> mappedColumns = new HashMap<>();
+   private final List<String> strings = new ArrayList<>();
+   private final List<TestInfo> tests = new ArrayList<>();
+   private final Map<String, Integer> groups = new LinkedHashMap<>();
+   private String configurationName;
+   private int rows;
+   private int series;
+
+   private ResultStore(File file) throws IOException {
+      this.file = file;
+      this.raf = new RandomAccessFile(file, "r");
+      try {
+         readDirectory();
+      } catch (IOException | RuntimeException e) {
+         raf.close();
+         throw e;
+      }
+   }
+
+   /**
+    * Opens the store; only the directory is read, columns are mapped on demand.
+    */
+   public static ResultStore open(File file) throws IOException {
+      return new ResultStore(file);
+   }
+
+   private void readDirectory() throws IOException {
+      long length = raf.length();
+      if (length < TRAILER_SIZE) {
+         throw new IOException(file + " is not a result store");
+      }
+      raf.seek(length - TRAILER_SIZE);
+      long directoryOffset = raf.readLong();
+      if (raf.readInt() != MAGIC || directoryOffset < 0 || directoryOffset > length - TRAILER_SIZE) {
+         throw new IOException(file + " is not a result store");
+      }
+      byte[] directory = new byte[(int) (length - TRAILER_SIZE - directoryOffset)];
+      raf.seek(directoryOffset);
+      raf.readFully(directory);
+      DataInputStream input = new DataInputStream(new ByteArrayInputStream(directory));
+
+      configurationName = input.readUTF();
+      int groupCount = input.readInt();
+      for (int i = 0; i < groupCount; ++i) {
+         groups.put(input.readUTF(), input.readInt());
+      }
+      int stringCount = input.readInt();
+      for (int i = 0; i < stringCount; ++i) {
+         strings.add(input.readUTF());
+      }
+      int testCount = input.readInt();
+      for (int i = 0; i < testCount; ++i) {
+         tests.add(TestInfo.read(input, strings));
+      }
+      rows = input.readInt();
+      series = input.readInt();
+      int columnCount = input.readInt();
+      for (int i = 0; i < columnCount; ++i) {
+         String name = input.readUTF();
+         columnRegions.put(name, new long[] {input.readLong(), input.readLong()});
+      }
+   }
+
+   private synchronized ByteBuffer column(String name) {
+      ByteBuffer buffer = mappedColumns.get(name);
+      if (buffer == null) {
+         long[] region = columnRegions.get(name);
+         if (region == null) {
+            throw new IllegalArgumentException("No column " + name + " in " + file);
+         }
+         try {
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, region[0], region[1]);
+         } catch (IOException e) {
+            throw new IllegalStateException("Failed to map column " + name + " from " + file, e);
+         }
+         mappedColumns.put(name, buffer);
+      }
+      return buffer.duplicate();
+   }
+
+   public IntBuffer ints(String column) {
+      return column(column).asIntBuffer();
+   }
+
+   public LongBuffer longs(String column) {
+      return column(column).asLongBuffer();
+   }
+
+   public DoubleBuffer doubles(String column) {
+      return column(column).asDoubleBuffer();
+   }
+
+   /**
+    * @return String referenced from the {@link #OPERATION} or {@link #SERIES_CATEGORY} columns.
+    */
+   public String string(int reference) {
+      return string(strings, reference);
+   }
+
+   private static String string(List<String> strings, int reference) {
+      return reference < 0 ? null : strings.get(reference);
+   }
+
+   public File getFile() {
+      return file;
+   }
+
+   public String getConfigurationName() {
+      return configurationName;
+   }
+
+   /**
+    * @return New cluster with the same groups as the cluster the results were gathered on.
+    */
+   public Cluster getCluster() {
+      Cluster cluster = new Cluster();
+      for (Map.Entry<String, Integer> group : groups.entrySet()) {
+         if (Cluster.DEFAULT_GROUP.equals(group.getKey())) {
+            cluster.setSize(group.getValue());
+         } else {
+            cluster.addGroup(group.getKey(), group.getValue());
+         }
+      }
+      return cluster;
+   }
+
+   /**
+    * @return Names of the tests, index in this list matches the value in {@link #TEST} column.
+    */
+   public List<String> getTestNames() {
+      List<String> names = new ArrayList<>(tests.size());
+      for (TestInfo test : tests) {
+         names.add(string(test.name));
+      }
+      return names;
+   }
+
+   /**
+    * @return Value describing the iteration, or null if the test does not set it.
+    */
+   public String getIterationValue(int test, int iteration) {
+      return string(tests.get(test).iterations.get(iteration).value);
+   }
+
+   public int getRows() {
+      return rows;
+   }
+
+   public int getSeries() {
+      return series;
+   }
+
+   /**
+    * @return Statistics of given row with single operation.
+    */
+   public StoredStatistics getStatistics(int row) {
+      StoredStatistics statistics = new StoredStatistics(longs(BEGIN).get(row), longs(END).get(row));
+      statistics.addOperationStats(string(ints(OPERATION).get(row)), getOperationStats(row));
+      return statistics;
+   }
+
+   private StoredOperationStats getOperationStats(int row) {
+      long histogramOffset = longs(HISTOGRAM_OFFSET).get(row);
+      long[] counts = null;
+      if (histogramOffset >= 0) {
+         counts = new long[ints(HISTOGRAM_LENGTH).get(row)];
+         LongBuffer histogramCounts = longs(HISTOGRAM_COUNTS);
+         histogramCounts.position((int) histogramOffset);
+         histogramCounts.get(counts);
+      }
+      return new StoredOperationStats(longs(REQUESTS).get(row), longs(ERRORS).get(row), longs(RESPONSE_TIME_MAX).get(row),
+         doubles(RESPONSE_TIME_MEAN).get(row), doubles(RESPONSE_TIME_DEV).get(row), ints(HISTOGRAM_FIRST).get(row), counts);
+   }
+
+   /**
+    * Reconstructs the report so that it can be processed by other reporters. Statistics of each slave are
+    * {@link StoredStatistics} (threads' statistics are merged but the number of threads is kept); stages and service configurations are not stored.
+    */
+   public Report toReport() {
+      Report report = new Report(new Configuration(configurationName), getCluster());
+      List<Report.Test> reportTests = new ArrayList<>(tests.size());
+      for (TestInfo info : tests) {
+         Report.Test test = report.createTest(string(info.name), string(info.iterationsName), true);
+         if (!info.groups.isEmpty()) {
+            Map<String, Set<Operation>> groupOperationsMap = new HashMap<>();
+            for (Map.Entry<Integer, int[]> group : info.groups.entrySet()) {
+               Set<Operation> operations = new HashSet<>();
+               for (int operation : group.getValue()) {
+                  operations.add(Operation.register(string(operation)));
+               }
+               groupOperationsMap.put(string(group.getKey()), operations);
+            }
+            test.setGroupOperationsMap(groupOperationsMap);
+         }
+         for (int i = 0; i < info.iterations.size(); ++i) {
+            IterationInfo iteration = info.iterations.get(i);
+            if (iteration.value >= 0) {
+               test.setIterationValue(i, string(iteration.value));
+            }
+            for (Report.TestResult result : iteration.results) {
+               test.addResult(i, result);
+            }
+         }
+         reportTests.add(test);
+      }
+
+      // rows are ordered by test, iteration and slave
+      IntBuffer testColumn = ints(TEST), iterationColumn = ints(ITERATION), slaveColumn = ints(SLAVE);
+      StoredStatistics statistics = null;
+      for (int row = 0; row < rows; ++row) {
+         int test = testColumn.get(row), iteration = iterationColumn.get(row), slave = slaveColumn.get(row);
+         if (row == 0 || test != testColumn.get(row - 1) || iteration != iterationColumn.get(row - 1) || slave != slaveColumn.get(row - 1)) {
+            statistics = new StoredStatistics(longs(BEGIN).get(row), longs(END).get(row));
+            reportTests.get(test).addStatistics(iteration, slave, Collections.<Statistics>singletonList(statistics), ints(THREADS).get(row));
+         }
+         statistics.addOperationStats(string(ints(OPERATION).get(row)), getOperationStats(row));
+      }
+
+      // the report already contains master's timeline
+      Map<Integer, Timeline> timelines = new LinkedHashMap<>();
+      for (Timeline timeline : report.getTimelines()) {
+         timelines.put(timeline.slaveIndex, timeline);
+      }
+      int existingTimelines = timelines.size();
+      LongBuffer timestamps = longs(SERIES_TIMESTAMPS);
+      DoubleBuffer values = doubles(SERIES_VALUES);
+      for (int i = 0; i < series; ++i) {
+         int slave = ints(SERIES_SLAVE).get(i);
+         Timeline timeline = timelines.computeIfAbsent(slave, Timeline::new);
+         String categoryName = string(ints(SERIES_CATEGORY).get(i));
+         Timeline.Category category = Timeline.Category.Type.values()[ints(SERIES_TYPE).get(i)] == Timeline.Category.Type.CUSTOM
+            ? Timeline.Category.customCategory(categoryName) : Timeline.Category.sysCategory(categoryName);
+         long offset = longs(SERIES_OFFSET).get(i);
+         int length = ints(SERIES_LENGTH).get(i);
+         for (int j = 0; j < length; ++j) {
+            timeline.addValue(category, new Timeline.Value(timestamps.get((int) offset + j), values.get((int) offset + j)));
+         }
+      }
+      report.addTimelines(new ArrayList<>(timelines.values()).subList(existingTimelines, timelines.size()));
+      return report;
+   }
+
+   @Override
+   public void close() throws IOException {
+      mappedColumns.clear();
+      raf.close();
+   }
+
+   static class TestInfo {
+      final int name;
+      final int iterationsName;
+      // group name -> operation names
+      final Map<Integer, int[]> groups = new LinkedHashMap<>();
+      final List<IterationInfo> iterations = new ArrayList<>();
+
+      TestInfo(int name, int iterationsName) {
+         this.name = name;
+         this.iterationsName = iterationsName;
+      }
+
+      static TestInfo read(DataInputStream input, List<String> strings) throws IOException {
+         TestInfo test = new TestInfo(input.readInt(), input.readInt());
+         int groupCount = input.readInt();
+         for (int i = 0; i < groupCount; ++i) {
+            int group = input.readInt();
+            int[] operations = new int[input.readInt()];
+            for (int j = 0; j < operations.length; ++j) {
+               operations[j] = input.readInt();
+            }
+            test.groups.put(group, operations);
+         }
+         int iterationCount = input.readInt();
+         for (int i = 0; i < iterationCount; ++i) {
+            IterationInfo iteration = new IterationInfo(input.readInt());
+            int resultCount = input.readInt();
+            for (int j = 0; j < resultCount; ++j) {
+               String name = strings.get(input.readInt());
+               String aggregatedValue = string(strings, input.readInt());
+               boolean suspicious = input.readBoolean();
+               Map<Integer, Report.SlaveResult> slaveResults = new HashMap<>();
+               int slaveCount = input.readInt();
+               for (int k = 0; k < slaveCount; ++k) {
+                  int slave = input.readInt();
+                  slaveResults.put(slave, new Report.SlaveResult(string(strings, input.readInt()), input.readBoolean()));
+               }
+               iteration.results.add(new Report.TestResult(name, slaveResults, aggregatedValue, suspicious));
+            }
+            test.iterations.add(iteration);
+         }
+         return test;
+      }
+   }
+
+   static class IterationInfo {
+      final int value;
+      final List<Report.TestResult> results = new ArrayList<>();
+
+      IterationInfo(int value) {
+         this.value = value;
+      }
+   }
+}
@@ -0,0 +1,187 @@
+package org.radargun.reporting.columnar;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.radargun.ShutDownHook;
+import org.radargun.config.DomConfigParser;
+import org.radargun.config.InitHelper;
+import org.radargun.config.MasterConfig;
+import org.radargun.config.ReporterConfiguration;
+import org.radargun.reporting.Report;
+import org.radargun.reporting.Reporter;
+import org.radargun.reporting.ReporterHelper;
+
+/**
+ * Command line access to results stored by {@link ColumnarReporter}:
+ * <ul>
+ *    <li><code>report benchmark.xml /path/to/results [reporter-dir...]</code> runs reporters configured in the benchmark
+ *    on the stored results.</li>
+ *    <li><code>compare /path/to/results...</code> prints throughput and mean response time of each test, iteration
+ *    and operation side by side for all stored runs; only the columns needed for that are read.</li>
+ * </ul>
+ */
+public class ResultStoreTool {
+
+   private ResultStoreTool() {}
+
+   public static void main(String[] args) {
+      if (args.length >= 3 && "report".equals(args[0])) {
+         report(args[1], args[2], Arrays.copyOfRange(args, 3, args.length));
+         ShutDownHook.exit(0); // the shutdown is controlled
+      } else if (args.length >= 2 && "compare".equals(args[0])) {
+         compare(Arrays.copyOfRange(args, 1, args.length));
+      } else {
+         System.err.println("java " + ResultStoreTool.class.getName() + " report benchmark.xml /path/to/results [reporter-dir...]");
+         System.err.println("java " + ResultStoreTool.class.getName() + " compare /path/to/results...");
+      }
+   }
+
+   private static void report(String benchmark, String resultsDir, String[] reporterDirs) {
+      for (String reporterDir : reporterDirs) {
+         ReporterHelper.registerReporters(reporterDir);
+      }
+      MasterConfig config;
+      try {
+         config = DomConfigParser.getConfigParser().parseConfig(benchmark);
+      } catch (Exception e) {
+         System.err.println("Failed to parse " + benchmark);
+         e.printStackTrace();
+         return;
+      }
+
+      List<Report> reports = new ArrayList<>();
+      for (File file : listStores(resultsDir)) {
+         try (ResultStore store = ResultStore.open(file)) {
+            reports.add(store.toReport());
+         } catch (IOException e) {
+            System.err.println("Failed to read " + file);
+            e.printStackTrace();
+         }
+      }
+
+      for (ReporterConfiguration rc : config.getReporters()) {
+         for (ReporterConfiguration.Report rcr : rc.getReports()) {
+            Reporter reporter = null;
+            try {
+               reporter = ReporterHelper.createReporter(rc.type, rcr.getProperties());
+               if (reporter instanceof ColumnarReporter) continue;
+               reporter.run(config, reports, 0);
+            } catch (Exception e) {
+               System.err.println("Failed to run reporter " + rc.type);
+               e.printStackTrace();
+            } finally {
+               if (reporter != null) {
+                  InitHelper.destroy(reporter);
+               }
+            }
+         }
+      }
+   }
+
+   private static void compare(String[] paths) {
+      List<String> runs = new ArrayList<>();
+      // test, iteration and operation -> results of each run
+      Map<String, Summary[]> summaries = new TreeMap<>();
+      List<File> files = new ArrayList<>();
+      for (String path : paths) {
+         files.addAll(listStores(path));
+      }
+      for (int run = 0; run < files.size(); ++run) {
+         File file = files.get(run);
+         runs.add(file.getName());
+         try (ResultStore store = ResultStore.open(file)) {
+            List<String> tests = store.getTestNames();
+            IntBuffer test = store.ints(ResultStore.TEST);
+            IntBuffer iteration = store.ints(ResultStore.ITERATION);
+            IntBuffer operation = store.ints(ResultStore.OPERATION);
+            LongBuffer begin = store.longs(ResultStore.BEGIN);
+            LongBuffer end = store.longs(ResultStore.END);
+            LongBuffer requests = store.longs(ResultStore.REQUESTS);
+            LongBuffer errors = store.longs(ResultStore.ERRORS);
+            DoubleBuffer mean = store.doubles(ResultStore.RESPONSE_TIME_MEAN);
+            for (int row = 0; row < store.getRows(); ++row) {
+               int testIndex = test.get(row);
+               int iterationId = iteration.get(row);
+               String iterationValue = store.getIterationValue(testIndex, iterationId);
+               String key = String.format("%s %s %s", tests.get(testIndex),
+                  iterationValue == null ? String.valueOf(iterationId) : iterationValue, store.string(operation.get(row)));
+               Summary[] byRun = summaries.computeIfAbsent(key, k -> new Summary[files.size()]);
+               if (byRun[run] == null) {
+                  byRun[run] = new Summary();
+               }
+               byRun[run].add(begin.get(row), end.get(row), requests.get(row), errors.get(row), mean.get(row));
+            }
+         } catch (IOException e) {
+            System.err.println("Failed to read " + file);
+            e.printStackTrace();
+         }
+      }
+
+      for (int run = 0; run < runs.size(); ++run) {
+         System.out.printf("[%d] %s%n", run, runs.get(run));
+      }
+      System.out.printf("%-60s %4s %14s %14s %10s%n", "Test Iteration Operation", "Run", "Throughput", "Mean (us)", "Errors");
+      for (Map.Entry<String, Summary[]> entry : summaries.entrySet()) {
+         for (int run = 0; run < runs.size(); ++run) {
+            Summary summary = entry.getValue()[run];
+            if (summary != null) {
+               System.out.printf("%-60s %4d %14.1f %14.2f %10d%n", entry.getKey(), run, summary.getThroughput(),
+                  summary.getMean() / 1000, summary.errors);
+            }
+         }
+      }
+   }
+
+   private static List<File> listStores(String path) {
+      File file = new File(path);
+      List<File> stores = new ArrayList<>();
+      if (file.isDirectory()) {
+         File[] files = file.listFiles((dir, name) -> name.endsWith(ResultStore.FILE_SUFFIX));
+         if (files != null) {
+            Arrays.sort(files);
+            stores.addAll(Arrays.asList(files));
+         }
+      } else {
+         stores.add(file);
+      }
+      return stores;
+   }
+
+   /**
+    * Results of single operation merged over all slaves, the same way the statistics are merged.
+    */
+   private static class Summary {
+      private long begin = Long.MAX_VALUE;
+      private long end = Long.MIN_VALUE;
+      private long requests;
+      private long errors;
+      private double mean;
+
+      private void add(long begin, long end, long requests, long errors, double mean) {
+         this.begin = Math.min(this.begin, begin);
+         this.end = Math.max(this.end, end);
+         if (this.requests + requests > 0) {
+            this.mean = (this.mean * this.requests + mean * requests) / (this.requests + requests);
+         }
+         this.requests += requests;
+         this.errors += errors;
+      }
+
+      private double getThroughput() {
+         return end > begin ? 1000d * (requests - errors) / (end - begin) : 0;
+      }
+
+      private double getMean() {
+         return mean;
+      }
+   }
+}
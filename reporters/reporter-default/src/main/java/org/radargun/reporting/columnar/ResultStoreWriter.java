@@ -0,0 +1,254 @@
+package org.radargun.reporting.columnar;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.radargun.Operation;
+import org.radargun.config.Cluster;
+import org.radargun.reporting.Report;
+import org.radargun.reporting.Timeline;
+import org.radargun.stats.OperationStats;
+import org.radargun.stats.Statistics;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.stats.representation.Histogram;
+import org.radargun.stats.representation.MeanAndDev;
+
+/**
+ * Writes single report in the format read by {@link ResultStore}. Columns are buffered in memory
+ * in their binary form, which is much smaller than the statistics they are computed from.
+ */
+class ResultStoreWriter {
+   private final Map<String, ByteArrayOutputStream> columns = new LinkedHashMap<>();
+   private final Map<String, DataOutputStream> columnOutputs = new HashMap<>();
+   private final Map<String, Integer> stringRefs = new HashMap<>();
+   private final List<String> strings = new ArrayList<>();
+   private long histogramCounts;
+   private long seriesValues;
+   private int rows;
+   private int series;
+
+   ResultStoreWriter() {
+      for (String column : new String[] {ResultStore.TEST, ResultStore.ITERATION, ResultStore.SLAVE, ResultStore.OPERATION,
+         ResultStore.THREADS, ResultStore.BEGIN, ResultStore.END, ResultStore.REQUESTS, ResultStore.ERRORS,
+         ResultStore.RESPONSE_TIME_MAX, ResultStore.RESPONSE_TIME_MEAN, ResultStore.RESPONSE_TIME_DEV,
+         ResultStore.HISTOGRAM_OFFSET, ResultStore.HISTOGRAM_FIRST, ResultStore.HISTOGRAM_LENGTH, ResultStore.HISTOGRAM_COUNTS,
+         ResultStore.SERIES_SLAVE, ResultStore.SERIES_CATEGORY, ResultStore.SERIES_TYPE, ResultStore.SERIES_OFFSET,
+         ResultStore.SERIES_LENGTH, ResultStore.SERIES_TIMESTAMPS, ResultStore.SERIES_VALUES}) {
+         ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+         columns.put(column, bytes);
+         columnOutputs.put(column, new DataOutputStream(bytes));
+      }
+   }
+
+   void write(Report report, File file) throws IOException {
+      ByteArrayOutputStream directoryBytes = new ByteArrayOutputStream();
+      DataOutputStream directory = new DataOutputStream(directoryBytes);
+      List<Report.Test> tests = new ArrayList<>(report.getTests());
+      for (int test = 0; test < tests.size(); ++test) {
+         addTest(test, tests.get(test));
+      }
+      for (Timeline timeline : report.getTimelines()) {
+         addTimeline(timeline);
+      }
+      // strings are referenced from the tests' metadata, collect them before writing the dictionary
+      ByteArrayOutputStream testBytes = new ByteArrayOutputStream();
+      DataOutputStream testOutput = new DataOutputStream(testBytes);
+      for (Report.Test test : tests) {
+         writeTest(testOutput, test);
+      }
+
+      directory.writeUTF(report.getConfiguration().name);
+      List<Cluster.Group> groups = report.getCluster().getGroups();
+      directory.writeInt(groups.size());
+      for (Cluster.Group group : groups) {
+         directory.writeUTF(group.name);
+         directory.writeInt(group.size);
+      }
+      directory.writeInt(strings.size());
+      for (String string : strings) {
+         directory.writeUTF(string);
+      }
+      directory.writeInt(tests.size());
+      testBytes.writeTo(directory);
+      directory.writeInt(rows);
+      directory.writeInt(series);
+      directory.writeInt(columns.size());
+
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+         // DataOutputStream.size() overflows for files over 2GB
+         long position = 0;
+         for (Map.Entry<String, ByteArrayOutputStream> column : columns.entrySet()) {
+            // keep columns aligned so that the mapped buffers can be accessed efficiently
+            for (; position % 8 != 0; ++position) {
+               output.writeByte(0);
+            }
+            directory.writeUTF(column.getKey());
+            directory.writeLong(position);
+            directory.writeLong(column.getValue().size());
+            column.getValue().writeTo(output);
+            position += column.getValue().size();
+         }
+         directoryBytes.writeTo(output);
+         output.writeLong(position);
+         output.writeInt(ResultStore.MAGIC);
+      }
+   }
+
+   private void addTest(int test, Report.Test reportTest) throws IOException {
+      for (Report.TestIteration iteration : reportTest.getIterations()) {
+         Map<Integer, List<Statistics>> slaves = new TreeMap<>();
+         for (Map.Entry<Integer, List<Statistics>> entry : iteration.getStatistics()) {
+            slaves.put(entry.getKey(), entry.getValue());
+         }
+         for (Map.Entry<Integer, List<Statistics>> entry : slaves.entrySet()) {
+            Optional<Statistics> merged = entry.getValue().stream().filter(s -> s != null).reduce(Statistics.MERGE);
+            if (!merged.isPresent()) {
+               continue;
+            }
+            Statistics statistics = merged.get();
+            for (String operation : statistics.getOperations()) {
+               StoredOperationStats stored = toStored(statistics, operation);
+               if (stored != null) {
+                  addRow(test, iteration.id, entry.getKey(), operation, iteration.getThreadCount(entry.getKey()), statistics, stored);
+               }
+            }
+         }
+      }
+   }
+
+   private StoredOperationStats toStored(Statistics statistics, String operation) {
+      OperationStats operationStats = statistics.getOperationStats(operation);
+      if (operationStats instanceof StoredOperationStats) {
+         return operationStats.isEmpty() ? null : ((StoredOperationStats) operationStats).copy();
+      }
+      DefaultOutcome defaultOutcome = statistics.getRepresentation(operation, DefaultOutcome.class);
+      if (defaultOutcome == null || defaultOutcome.requests == 0) {
+         return null;
+      }
+      MeanAndDev meanAndDev = statistics.getRepresentation(operation, MeanAndDev.class);
+      StoredOperationStats stored = new StoredOperationStats(defaultOutcome.requests, defaultOutcome.errors,
+         defaultOutcome.responseTimeMax, meanAndDev != null ? meanAndDev.mean : defaultOutcome.responseTimeMean,
+         meanAndDev != null ? meanAndDev.dev : 0, 0, null);
+      Histogram histogram = statistics.getRepresentation(operation, Histogram.class);
+      if (histogram != null) {
+         stored.addHistogram(histogram);
+      }
+      return stored;
+   }
+
+   private void addRow(int test, int iteration, int slave, String operation, int threads, Statistics statistics,
+                       StoredOperationStats stored) throws IOException {
+      out(ResultStore.TEST).writeInt(test);
+      out(ResultStore.ITERATION).writeInt(iteration);
+      out(ResultStore.SLAVE).writeInt(slave);
+      out(ResultStore.OPERATION).writeInt(ref(operation));
+      out(ResultStore.THREADS).writeInt(threads);
+      out(ResultStore.BEGIN).writeLong(statistics.getBegin());
+      out(ResultStore.END).writeLong(statistics.getEnd());
+      out(ResultStore.REQUESTS).writeLong(stored.getRequests());
+      out(ResultStore.ERRORS).writeLong(stored.getErrors());
+      out(ResultStore.RESPONSE_TIME_MAX).writeLong(stored.getResponseTimeMax());
+      out(ResultStore.RESPONSE_TIME_MEAN).writeDouble(stored.getResponseTimeMean());
+      out(ResultStore.RESPONSE_TIME_DEV).writeDouble(stored.getResponseTimeDev());
+      long[] counts = stored.getCounts();
+      if (counts == null) {
+         out(ResultStore.HISTOGRAM_OFFSET).writeLong(-1);
+         out(ResultStore.HISTOGRAM_FIRST).writeInt(0);
+         out(ResultStore.HISTOGRAM_LENGTH).writeInt(0);
+      } else {
+         out(ResultStore.HISTOGRAM_OFFSET).writeLong(histogramCounts);
+         out(ResultStore.HISTOGRAM_FIRST).writeInt(stored.getFirstBucket());
+         out(ResultStore.HISTOGRAM_LENGTH).writeInt(counts.length);
+         DataOutputStream histogramOutput = out(ResultStore.HISTOGRAM_COUNTS);
+         for (long count : counts) {
+            histogramOutput.writeLong(count);
+         }
+         histogramCounts += counts.length;
+      }
+      rows++;
+   }
+
+   private void addTimeline(Timeline timeline) throws IOException {
+      for (Timeline.Category category : timeline.getValueCategories()) {
+         List<Timeline.Value> values = timeline.getValues(category);
+         if (values == null) {
+            continue;
+         }
+         out(ResultStore.SERIES_SLAVE).writeInt(timeline.slaveIndex);
+         out(ResultStore.SERIES_CATEGORY).writeInt(ref(category.getName()));
+         out(ResultStore.SERIES_TYPE).writeInt(category.getType().ordinal());
+         out(ResultStore.SERIES_OFFSET).writeLong(seriesValues);
+         out(ResultStore.SERIES_LENGTH).writeInt(values.size());
+         for (Timeline.Value value : values) {
+            out(ResultStore.SERIES_TIMESTAMPS).writeLong(value.timestamp);
+            out(ResultStore.SERIES_VALUES).writeDouble(value.value.doubleValue());
+         }
+         seriesValues += values.size();
+         series++;
+      }
+   }
+
+   private void writeTest(DataOutputStream output, Report.Test test) throws IOException {
+      output.writeInt(ref(test.name));
+      output.writeInt(ref(test.iterationsName));
+      Map<String, Set<Operation>> groups = test.getGroupOperationsMap();
+      if (groups == null) {
+         output.writeInt(0);
+      } else {
+         output.writeInt(groups.size());
+         for (Map.Entry<String, Set<Operation>> group : groups.entrySet()) {
+            output.writeInt(ref(group.getKey()));
+            output.writeInt(group.getValue().size());
+            for (Operation operation : group.getValue()) {
+               output.writeInt(ref(operation.name));
+            }
+         }
+      }
+      output.writeInt(test.getIterations().size());
+      for (Report.TestIteration iteration : test.getIterations()) {
+         output.writeInt(ref(iteration.getValue()));
+         Map<String, Report.TestResult> results = iteration.getResults();
+         output.writeInt(results.size());
+         for (Report.TestResult result : results.values()) {
+            output.writeInt(ref(result.name));
+            output.writeInt(ref(result.aggregatedValue));
+            output.writeBoolean(result.suspicious);
+            output.writeInt(result.slaveResults.size());
+            for (Map.Entry<Integer, Report.SlaveResult> slaveResult : result.slaveResults.entrySet()) {
+               output.writeInt(slaveResult.getKey());
+               output.writeInt(ref(slaveResult.getValue().value));
+               output.writeBoolean(slaveResult.getValue().suspicious);
+            }
+         }
+      }
+   }
+
+   private DataOutputStream out(String column) {
+      return columnOutputs.get(column);
+   }
+
+   private int ref(String string) {
+      if (string == null) {
+         return -1;
+      }
+      Integer ref = stringRefs.get(string);
+      if (ref == null) {
+         ref = strings.size();
+         strings.add(string);
+         stringRefs.put(string, ref);
+      }
+      return ref;
+   }
+}
@@ -0,0 +1,122 @@
+package org.radargun.reporting.columnar;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Statistical tests used by {@link RegressionReporter} to decide whether a difference between two runs is
+ * significant.
+ */
+final class SignificanceTests {
+
+   private SignificanceTests() {}
+
+   /**
+    * Mann-Whitney U test on two histograms with {@link StoredOperationStats} buckets. Values within the same
+    * bucket are considered tied, the variance is corrected for the ties. Uses normal approximation, which is
+    * appropriate for the number of requests executed in a test.
+    *
+    * @return Result where positive z means that values in the second histogram tend to be higher.
+    */
+   static MannWhitney mannWhitney(StoredOperationStats first, StoredOperationStats second) {
+      long[] firstCounts = first.getCounts(), secondCounts = second.getCounts();
+      if (firstCounts == null || secondCounts == null) {
+         return null;
+      }
+      int minBucket = Math.min(first.getFirstBucket(), second.getFirstBucket());
+      int maxBucket = Math.max(first.getFirstBucket() + firstCounts.length, second.getFirstBucket() + secondCounts.length);
+      double n1 = 0, n2 = 0, u = 0, ties = 0;
+      for (int bucket = minBucket; bucket < maxBucket; ++bucket) {
+         long c1 = count(first, bucket), c2 = count(second, bucket);
+         // each value from second histogram wins over all lower values from first one and ties with the equal ones
+         u += c2 * (n1 + c1 / 2d);
+         n1 += c1;
+         n2 += c2;
+         double t = c1 + c2;
+         ties += t * t * t - t;
+      }
+      if (n1 == 0 || n2 == 0) {
+         return null;
+      }
+      double n = n1 + n2;
+      double mean = n1 * n2 / 2;
+      double variance = n1 * n2 / 12 * ((n + 1) - ties / (n * (n - 1)));
+      double z = variance > 0 ? (u - mean) / Math.sqrt(variance) : 0;
+      return new MannWhitney(z, u / (n1 * n2));
+   }
+
+   private static long count(StoredOperationStats stats, int bucket) {
+      int index = bucket - stats.getFirstBucket();
+      return index >= 0 && index < stats.getCounts().length ? stats.getCounts()[index] : 0;
+   }
+
+   /**
+    * Percentile bootstrap confidence interval of relative change of the mean, <code>mean(second) / mean(first) - 1</code>.
+    *
+    * @return Array with lower and upper bound.
+    */
+   static double[] bootstrapRelativeChange(double[] first, double[] second, double confidence, int samples, Random random) {
+      double[] changes = new double[samples];
+      for (int i = 0; i < samples; ++i) {
+         double firstMean = resampledMean(first, random);
+         changes[i] = firstMean == 0 ? 0 : resampledMean(second, random) / firstMean - 1;
+      }
+      Arrays.sort(changes);
+      double alpha = (1 - confidence) / 2;
+      int lower = (int) Math.floor(alpha * (samples - 1));
+      int upper = (int) Math.ceil((1 - alpha) * (samples - 1));
+      return new double[] {changes[lower], changes[upper]};
+   }
+
+   private static double resampledMean(double[] values, Random random) {
+      double sum = 0;
+      for (int i = 0; i < values.length; ++i) {
+         sum += values[random.nextInt(values.length)];
+      }
+      return sum / values.length;
+   }
+
+   static double mean(double[] values) {
+      double sum = 0;
+      for (double value : values) {
+         sum += value;
+      }
+      return values.length == 0 ? 0 : sum / values.length;
+   }
+
+   /**
+    * @return Probability that standard normal variable is greater than z.
+    */
+   static double normalTail(double z) {
+      return erfc(z / Math.sqrt(2)) / 2;
+   }
+
+   // Complementary error function with fractional error below 1.2e-7 (Numerical Recipes, erfcc)
+   private static double erfc(double x) {
+      double z = Math.abs(x);
+      double t = 1 / (1 + z / 2);
+      double r = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+         + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+         + t * (-0.82215223 + t * 0.17087277)))))))));
+      return x >= 0 ? r : 2 - r;
+   }
+
+   static class MannWhitney {
+      // standardized U statistic
+      final double z;
+      // probability that a value from the second sample is higher than value from the first one (ties count half)
+      final double effect;
+
+      MannWhitney(double z, double effect) {
+         this.z = z;
+         this.effect = effect;
+      }
+
+      /**
+       * @return One-sided p-value for the hypothesis that values in the second sample are higher.
+       */
+      double pValue() {
+         return normalTail(z);
+      }
+   }
+}
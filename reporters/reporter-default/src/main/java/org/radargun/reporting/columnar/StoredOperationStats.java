@@ -0,0 +1,284 @@
+package org.radargun.reporting.columnar;
+
+import java.util.Arrays;
+
+import org.radargun.stats.Message;
+import org.radargun.stats.OperationStats;
+import org.radargun.stats.Request;
+import org.radargun.stats.RequestSet;
+import org.radargun.stats.Statistics;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.stats.representation.Histogram;
+import org.radargun.stats.representation.MeanAndDev;
+import org.radargun.stats.representation.OperationThroughput;
+import org.radargun.stats.representation.Percentile;
+
+/**
+ * Operation statistics as kept in the {@link ResultStore}: counters, response time moments and histogram
+ * with fixed logarithmic buckets ({@link #BUCKETS_PER_OCTAVE} buckets for each power of two nanoseconds),
+ * so that histograms from different slaves and runs can be merged bucket by bucket.
+ */
+public class StoredOperationStats implements OperationStats {
+   public static final int BUCKETS_PER_OCTAVE = 8;
+   private static final double LN_2 = Math.log(2);
+
+   private long requests;
+   private long errors;
+   private long responseTimeMax = Long.MIN_VALUE;
+   private double responseTimeMean;
+   private double responseTimeM2;
+   // counts[i] holds number of values in bucket firstBucket + i; null when the histogram is not known
+   private int firstBucket;
+   private long[] counts;
+
+   public StoredOperationStats() {
+   }
+
+   StoredOperationStats(long requests, long errors, long responseTimeMax, double responseTimeMean, double responseTimeDev,
+                        int firstBucket, long[] counts) {
+      this.requests = requests;
+      this.errors = errors;
+      this.responseTimeMax = responseTimeMax;
+      this.responseTimeMean = responseTimeMean;
+      this.responseTimeM2 = requests < 2 ? 0 : responseTimeDev * responseTimeDev * (requests - 1);
+      this.firstBucket = firstBucket;
+      this.counts = counts;
+   }
+
+   /**
+    * @return Index of the histogram bucket the value (in nanoseconds) belongs to.
+    */
+   public static int bucket(long value) {
+      if (value <= 1) {
+         return 0;
+      }
+      int bucket = (int) (Math.log(value) / LN_2 * BUCKETS_PER_OCTAVE);
+      // correct rounding errors so that the value lies between bucket bounds
+      if (bucketLowerBound(bucket + 1) <= value) {
+         return bucket + 1;
+      } else if (bucketLowerBound(bucket) > value) {
+         return bucket - 1;
+      }
+      return bucket;
+   }
+
+   /**
+    * @return Lowest value belonging to the bucket.
+    */
+   public static long bucketLowerBound(int bucket) {
+      return bucket == 0 ? 0 : (long) Math.ceil(Math.pow(2, bucket / (double) BUCKETS_PER_OCTAVE));
+   }
+
+   /**
+    * @return Highest value belonging to the bucket.
+    */
+   public static long bucketUpperBound(int bucket) {
+      return Math.max(bucketLowerBound(bucket), (long) Math.ceil(Math.pow(2, (bucket + 1) / (double) BUCKETS_PER_OCTAVE)) - 1);
+   }
+
+   /**
+    * Converts the histogram representation provided by other operation statistics into stored buckets;
+    * values from each source range are accounted to its upper bound.
+    */
+   void addHistogram(Histogram histogram) {
+      for (int i = 0; i < histogram.counts.length; ++i) {
+         if (histogram.counts[i] > 0) {
+            addToBucket(bucket(histogram.ranges[i + 1]), histogram.counts[i]);
+         }
+      }
+   }
+
+   private void addToBucket(int bucket, long count) {
+      if (counts == null) {
+         counts = new long[1];
+         firstBucket = bucket;
+      } else if (bucket < firstBucket) {
+         long[] newCounts = new long[counts.length + firstBucket - bucket];
+         System.arraycopy(counts, 0, newCounts, firstBucket - bucket, counts.length);
+         counts = newCounts;
+         firstBucket = bucket;
+      } else if (bucket >= firstBucket + counts.length) {
+         counts = Arrays.copyOf(counts, bucket - firstBucket + 1);
+      }
+      counts[bucket - firstBucket] += count;
+   }
+
+   long getRequests() {
+      return requests;
+   }
+
+   long getErrors() {
+      return errors;
+   }
+
+   long getResponseTimeMax() {
+      return responseTimeMax;
+   }
+
+   double getResponseTimeMean() {
+      return responseTimeMean;
+   }
+
+   double getResponseTimeDev() {
+      return requests < 2 ? 0 : Math.sqrt(responseTimeM2 / (requests - 1));
+   }
+
+   int getFirstBucket() {
+      return firstBucket;
+   }
+
+   long[] getCounts() {
+      return counts;
+   }
+
+   @Override
+   public StoredOperationStats newInstance() {
+      return new StoredOperationStats();
+   }
+
+   @Override
+   public StoredOperationStats copy() {
+      StoredOperationStats copy = newInstance();
+      copy.merge(this);
+      return copy;
+   }
+
+   @Override
+   public void merge(OperationStats o) {
+      if (!(o instanceof StoredOperationStats)) throw new IllegalArgumentException(o.toString());
+      StoredOperationStats other = (StoredOperationStats) o;
+      if (requests + other.requests > 0) {
+         double delta = responseTimeMean - other.responseTimeMean;
+         responseTimeM2 = responseTimeM2 + other.responseTimeM2
+            + delta * delta * requests * other.requests / (requests + other.requests);
+         responseTimeMean = (responseTimeMean * requests + other.responseTimeMean * other.requests) / (requests + other.requests);
+      }
+      requests += other.requests;
+      errors += other.errors;
+      responseTimeMax = Math.max(responseTimeMax, other.responseTimeMax);
+      if (other.counts != null) {
+         for (int i = 0; i < other.counts.length; ++i) {
+            if (other.counts[i] > 0) {
+               addToBucket(other.firstBucket + i, other.counts[i]);
+            }
+         }
+      }
+   }
+
+   @Override
+   public void record(Request request) {
+      record(request.duration());
+      if (!request.isSuccessful()) {
+         errors++;
+      }
+   }
+
+   @Override
+   public void record(Message message) {
+      if (message.isValid()) {
+         record(message.totalTime());
+      } else {
+         errors++;
+      }
+   }
+
+   @Override
+   public void record(RequestSet requestSet) {
+      record(requestSet.sumDurations());
+      if (!requestSet.isSuccessful()) {
+         errors++;
+      }
+   }
+
+   private void record(long duration) {
+      requests++;
+      responseTimeMax = Math.max(responseTimeMax, duration);
+      double delta = (double) duration - responseTimeMean;
+      responseTimeMean += delta / (double) requests;
+      responseTimeM2 += delta * ((double) duration - responseTimeMean);
+      addToBucket(bucket(duration), 1);
+   }
+
+   @SuppressWarnings("unchecked")
+   @Override
+   public <T> T getRepresentation(Class<T> clazz, Statistics ownerStatistics, Object... args) {
+      if (clazz == DefaultOutcome.class) {
+         return (T) new DefaultOutcome(requests, errors, responseTimeMean, responseTimeMax);
+      } else if (clazz == MeanAndDev.class) {
+         return (T) new MeanAndDev(responseTimeMean, getResponseTimeDev());
+      } else if (clazz == OperationThroughput.class) {
+         return (T) OperationThroughput.compute(requests, errors, ownerStatistics);
+      } else if (clazz == Percentile.class) {
+         return (T) getPercentile(Percentile.getPercentile(args));
+      } else if (clazz == Histogram.class) {
+         return (T) getHistogram(args);
+      } else {
+         return null;
+      }
+   }
+
+   private Percentile getPercentile(double percentile) {
+      int last = lastBucket(percentile);
+      if (last < 0) {
+         return null;
+      }
+      return new Percentile(Math.min(bucketUpperBound(firstBucket + last), responseTimeMax));
+   }
+
+   /**
+    * @return Index into counts of the bucket where the percentile is reached, or -1 if there's no histogram.
+    */
+   private int lastBucket(double percentile) {
+      if (counts == null) {
+         return -1;
+      }
+      long total = 0;
+      for (long count : counts) {
+         total += count;
+      }
+      if (total == 0) {
+         return -1;
+      }
+      long target = Math.max(1, (long) Math.ceil(percentile / 100d * total));
+      long accumulated = 0;
+      for (int i = 0; i < counts.length; ++i) {
+         accumulated += counts[i];
+         if (accumulated >= target) {
+            return i;
+         }
+      }
+      return counts.length - 1;
+   }
+
+   private Histogram getHistogram(Object[] args) {
+      int last = lastBucket(args.length == 0 ? 100d : Histogram.getPercentile(args));
+      if (last < 0) {
+         return null;
+      }
+      // merge adjacent buckets if the caller requests less of them
+      int perBucket = args.length == 0 ? 1 : (last + Histogram.getBuckets(args)) / Histogram.getBuckets(args);
+      int buckets = (last + perBucket) / perBucket;
+      long[] ranges = new long[buckets + 1];
+      long[] histogramCounts = new long[buckets];
+      ranges[0] = bucketLowerBound(firstBucket);
+      for (int i = 0; i < buckets; ++i) {
+         int end = Math.min((i + 1) * perBucket, last + 1);
+         for (int j = i * perBucket; j < end; ++j) {
+            histogramCounts[i] += counts[j];
+         }
+         ranges[i + 1] = bucketUpperBound(firstBucket + end - 1);
+      }
+      return new Histogram(ranges, histogramCounts);
+   }
+
+   @Override
+   public boolean isEmpty() {
+      return requests == 0;
+   }
+
+   @Override
+   public String toString() {
+      return requests == 0 ? "requests=0" : String.format("requests=%d, responseTimeMax=%d, responseTimeMean=%.2f, errors=%d",
+         requests, responseTimeMax, responseTimeMean, errors);
+   }
+}
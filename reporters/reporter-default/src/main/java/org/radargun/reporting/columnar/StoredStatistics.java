@@ -0,0 +1,173 @@
+package org.radargun.reporting.columnar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.radargun.Operation;
+import org.radargun.stats.IntervalStatistics;
+import org.radargun.stats.Message;
+import org.radargun.stats.OperationStats;
+import org.radargun.stats.Request;
+import org.radargun.stats.RequestSet;
+import org.radargun.stats.Statistics;
+
+/**
+ * Statistics of single slave loaded from the {@link ResultStore}, holding {@link StoredOperationStats}
+ * for each operation.
+ */
+public class StoredStatistics extends IntervalStatistics {
+   private Map<String, StoredOperationStats> operationStatsMap = new HashMap<>();
+   private Map<String, Set<Operation>> groupOperationsMap = new HashMap<>();
+   private Map<Operation, String> operationGroupMap = new HashMap<>();
+
+   public StoredStatistics() {
+   }
+
+   StoredStatistics(long begin, long end) {
+      setBegin(begin);
+      setEnd(end);
+   }
+
+   void addOperationStats(String operation, StoredOperationStats stats) {
+      StoredOperationStats existing = operationStatsMap.get(operation);
+      if (existing == null) {
+         operationStatsMap.put(operation, stats);
+      } else {
+         existing.merge(stats);
+      }
+   }
+
+   @Override
+   public void registerOperationsGroup(String name, Set<Operation> operations) {
+      if (groupOperationsMap.containsKey(name)) {
+         return;
+      }
+      for (Set<Operation> groupOperations : groupOperationsMap.values()) {
+         for (Operation operation : operations) {
+            if (groupOperations.contains(operation)) {
+               return;
+            }
+         }
+      }
+      Set<Operation> groupOperations = new HashSet<>();
+      for (Operation operation : operations) {
+         operation = Operation.getByName(operation.name);
+         groupOperations.add(operation);
+         operationGroupMap.put(operation, name);
+      }
+      groupOperationsMap.put(name, groupOperations);
+   }
+
+   @Override
+   public String getOperationsGroup(Operation operation) {
+      return operationGroupMap.get(operation);
+   }
+
+   @Override
+   public Map<String, Set<Operation>> getGroupOperationsMap() {
+      return groupOperationsMap;
+   }
+
+   @Override
+   public List<Map<String, OperationStats>> getOperationStatsForGroups() {
+      Map<String, OperationStats> result = new HashMap<>(groupOperationsMap.size());
+      for (Map.Entry<String, Set<Operation>> entry : groupOperationsMap.entrySet()) {
+         StoredOperationStats merged = new StoredOperationStats();
+         for (Operation operation : entry.getValue()) {
+            StoredOperationStats stats = operationStatsMap.get(operation.name);
+            if (stats != null) {
+               merged.merge(stats);
+            }
+         }
+         if (!merged.isEmpty()) {
+            result.put(entry.getKey(), merged);
+         }
+      }
+      List<Map<String, OperationStats>> list = new ArrayList<>();
+      list.add(result);
+      return list;
+   }
+
+   @Override
+   public List<Map<String, OperationStats>> getOperationsStats() {
+      List<Map<String, OperationStats>> list = new ArrayList<>();
+      list.add(new HashMap<>(operationStatsMap));
+      return list;
+   }
+
+   @Override
+   public void reset() {
+      operationStatsMap.clear();
+      begin();
+   }
+
+   @Override
+   public void record(Request request, Operation operation) {
+      operationStatsMap.computeIfAbsent(operation.name, name -> new StoredOperationStats()).record(request);
+   }
+
+   @Override
+   public void record(Message message, Operation operation) {
+      operationStatsMap.computeIfAbsent(operation.name, name -> new StoredOperationStats()).record(message);
+   }
+
+   @Override
+   public void record(RequestSet requestSet, Operation operation) {
+      operationStatsMap.computeIfAbsent(operation.name, name -> new StoredOperationStats()).record(requestSet);
+   }
+
+   @Override
+   public Statistics newInstance() {
+      return new StoredStatistics();
+   }
+
+   @Override
+   public Statistics copy() {
+      StoredStatistics copy = new StoredStatistics();
+      copy.merge(this);
+      copy.groupOperationsMap.putAll(groupOperationsMap);
+      copy.operationGroupMap.putAll(operationGroupMap);
+      return copy;
+   }
+
+   @Override
+   public void merge(Statistics otherStats) {
+      if (!(otherStats instanceof StoredStatistics))
+         throw new IllegalArgumentException(otherStats.getClass().getName());
+      super.merge(otherStats);
+      for (Map.Entry<String, StoredOperationStats> entry : ((StoredStatistics) otherStats).operationStatsMap.entrySet()) {
+         addOperationStats(entry.getKey(), entry.getValue().copy());
+      }
+   }
+
+   @Override
+   public Set<String> getOperations() {
+      return operationStatsMap.keySet();
+   }
+
+   @Override
+   public OperationStats getOperationStats(String operation) {
+      return operationStatsMap.get(operation);
+   }
+
+   @Override
+   public <T> T getRepresentation(String operation, Class<T> clazz, Object... args) {
+      OperationStats operationStats = operationStatsMap.get(operation);
+      if (operationStats == null) {
+         operationStats = getOperationStatsForGroups().get(0).get(operation);
+      }
+      if (operationStats == null) {
+         return null;
+      }
+      return operationStats.getRepresentation(clazz, this, args);
+   }
+
+   @Override
+   public String toString() {
+      return super.toString() + "{" + operationStatsMap + "}";
+   }
+}
@@ -1,6 +1,9 @@
 package org.radargun.reporting.commons;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.radargun.reporting.Report;
 import org.radargun.stats.Statistics;
@@ -14,6 +17,8 @@ import org.radargun.stats.representation.DefaultOutcome;
  * @since 2.0
  */
 public class Aggregation {
+   private static final Object NO_REPRESENTATION = new Object();
+
    public final List<Statistics> nodeStats;
    public final Statistics totalStats;
    public final List<Integer> nodeThreads;
@@ -21,6 +26,10 @@ public class Aggregation {
    public final Report report;
    public final Report.TestIteration iteration;
 
+   // the same representations are requested by several charts and tables of the report
+   private final ConcurrentMap<RepresentationKey, Object> representations = new ConcurrentHashMap<>();
+   private final ConcurrentMap<String, Boolean> suspects = new ConcurrentHashMap<>();
+
    public Aggregation(List<Statistics> nodeStats, List<Integer> nodeThreads, Statistics totalStats,
                       int totalThreads, Report report, Report.TestIteration iteration) {
       this.nodeStats = nodeStats;
@@ -31,22 +40,56 @@ public class Aggregation {
       this.iteration = iteration;
    }
 
-   public boolean anySuspect(String operation) {
-      for (int i = 0; i < nodeStats.size(); ++i) {
-         if (isSuspect(i, operation)) {
+   /**
+    * Retrieves representation of the operation from statistics that belong to this aggregation (total, node or thread
+    * statistics). Representations of total and node statistics are computed only once, subsequent requests with
+    * the same arguments are served from cache. Thread statistics are requested only once per report and there are
+    * too many of them to be kept in memory, therefore these are not cached.
+    */
+   public <T> T getRepresentation(Statistics statistics, String operation, Class<T> clazz, Object... args) {
+      if (statistics == null) {
+         return null;
+      }
+      if (!isCached(statistics)) {
+         return statistics.getRepresentation(operation, clazz, args);
+      }
+      Object representation = representations.computeIfAbsent(new RepresentationKey(statistics, operation, clazz, args), key -> {
+         T computed = statistics.getRepresentation(operation, clazz, args);
+         return computed == null ? NO_REPRESENTATION : computed;
+      });
+      return representation == NO_REPRESENTATION ? null : clazz.cast(representation);
+   }
+
+   private boolean isCached(Statistics statistics) {
+      if (statistics == totalStats) {
+         return true;
+      }
+      for (Statistics ns : nodeStats) {
+         if (ns == statistics) {
             return true;
          }
       }
       return false;
    }
 
+   public boolean anySuspect(String operation) {
+      return suspects.computeIfAbsent(operation, op -> {
+         for (int i = 0; i < nodeStats.size(); ++i) {
+            if (isSuspect(i, op)) {
+               return true;
+            }
+         }
+         return false;
+      });
+   }
+
    public boolean isSuspect(int node, String operation) {
       Statistics ns;
       if (node >= nodeStats.size() || (ns = nodeStats.get(node)) == null) {
          return false;
       }
-      DefaultOutcome ndo = ns.getRepresentation(operation, DefaultOutcome.class);
-      DefaultOutcome tdo = totalStats.getRepresentation(operation, DefaultOutcome.class);
+      DefaultOutcome ndo = getRepresentation(ns, operation, DefaultOutcome.class);
+      DefaultOutcome tdo = getRepresentation(totalStats, operation, DefaultOutcome.class);
       if (ndo == null) {
          return tdo != null;
       }
@@ -59,7 +102,7 @@ public class Aggregation {
       int slaveStatsCount = 0;
       for (Statistics ns : nodeStats) {
          if (ns == null) continue;
-         DefaultOutcome defaultOutcome = ns.getRepresentation(operation, DefaultOutcome.class);
+         DefaultOutcome defaultOutcome = getRepresentation(ns, operation, DefaultOutcome.class);
          if (defaultOutcome != null) {
             requests += defaultOutcome.requests;
             slaveStatsCount++;
@@ -67,4 +110,37 @@ public class Aggregation {
       }
       return slaveStatsCount > 0 ? requests / slaveStatsCount : 0;
    }
-}
\ No newline at end of file
+
+   private static class RepresentationKey {
+      private final Statistics statistics;
+      private final String operation;
+      private final Class<?> clazz;
+      private final Object[] args;
+
+      private RepresentationKey(Statistics statistics, String operation, Class<?> clazz, Object[] args) {
+         this.statistics = statistics;
+         this.operation = operation;
+         this.clazz = clazz;
+         this.args = args;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (this == o) return true;
+         if (o == null || getClass() != o.getClass()) return false;
+         RepresentationKey that = (RepresentationKey) o;
+         // statistics are mutable, compare them by identity
+         return statistics == that.statistics && operation.equals(that.operation) && clazz.equals(that.clazz)
+            && Arrays.equals(args, that.args);
+      }
+
+      @Override
+      public int hashCode() {
+         int result = System.identityHashCode(statistics);
+         result = 31 * result + operation.hashCode();
+         result = 31 * result + clazz.hashCode();
+         result = 31 * result + Arrays.hashCode(args);
+         return result;
+      }
+   }
+}
@@ -83,14 +83,15 @@ public class TestAggregations {
          .map(entry -> {
             int slaveIndex = entry.getKey();
             List<Statistics> list = entry.getValue();
-            totalThreads.addAndGet(list.size());
+            int threads = it.getThreadCount(slaveIndex);
+            totalThreads.addAndGet(threads);
             return list.stream().reduce(Statistics.MERGE).map(ns -> {
                while (nodeStats.size() <= slaveIndex) {
                   nodeStats.add(null);
                   nodeThreads.add(0);
                }
                nodeStats.set(slaveIndex, ns);
-               nodeThreads.set(slaveIndex, list.size());
+               nodeThreads.set(slaveIndex, threads);
                return ns;
             });
          })
@@ -116,9 +117,10 @@ public class TestAggregations {
             }
          }
 
-         iterations.add(new Aggregation(nodeStats, nodeThreads, totalStats.get(), totalThreads.get(), test.getReport(), it));
+         Aggregation aggregation = new Aggregation(nodeStats, nodeThreads, totalStats.get(), totalThreads.get(), test.getReport(), it);
+         iterations.add(aggregation);
          for (String operation : totalStats.get().getOperations()) {
-            DefaultOutcome defaultOutcome = totalStats.get().getRepresentation(operation, DefaultOutcome.class);
+            DefaultOutcome defaultOutcome = aggregation.getRepresentation(totalStats.get(), operation, DefaultOutcome.class);
             if (defaultOutcome == null || defaultOutcome.requests > 0) {
                operations.add(operation);
             }
@@ -1,8 +1,10 @@
 package org.radargun.reporting.csv;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -17,6 +19,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.radargun.config.Cluster;
@@ -48,6 +51,7 @@ public class CsvReporter extends AbstractReporter {
    protected static final String ITERATION = "Iteration";
    protected static final String PERIOD = "Period";
    protected static final String THREAD_COUNT = "ThreadCount";
+   protected static final String TOTAL = "TOTAL";
 
    @Property(doc = "Directory into which will be report files written.")
    private String targetDir = "results" + File.separator + "csv";
@@ -79,59 +83,79 @@ public class CsvReporter extends AbstractReporter {
    }
 
    private void reportTest(Report report, Report.Test test) {
-      FileWriter fileWriter = null;
-      try {
-         fileWriter = prepareOutputFile(report, test.name, "");
-         int it = 0;
-         Set<String> columns = new TreeSet<String>();
-         ArrayList<Map<String, String>> rows = new ArrayList<>();
-         for (Report.TestIteration iteration : test.getIterations()) {
-            Statistics aggregated = null;
-            for (Map.Entry<Integer, List<Statistics>> slaveStats : iteration.getStatistics()) {
-               if (ignore != null && ignore.contains(slaveStats.getKey())) {
-                  continue;
-               }
-               if (slaveStats.getValue().size() <= 0) {
-                  continue;
-               }
-               Statistics nodeSummary = processRow(it, columns, rows, slaveStats);
-               if (computeTotal) {
-                  if (aggregated == null)
-                     aggregated = nodeSummary.copy();
-                  else
-                     aggregated.merge(nodeSummary);
-               }
-            }
-            if (computeTotal && aggregated != null) {
-               Map<String, String> rowData = new HashMap<String, String>();
-               rows.add(rowData);
-               for (String operation : aggregated.getOperations()) {
-                  addRepresentations(aggregated, rowData, aggregated, operation);
-               }
-               columns.addAll(rowData.keySet());
-
-               rowData.put(SLAVE_INDEX, "TOTAL");
-               rowData.put(ITERATION, String.valueOf(it));
-               rowData.put(PERIOD, String.valueOf(aggregated.getEnd() - aggregated.getBegin()));
-               rowData.put(THREAD_COUNT, String.valueOf(iteration.getThreadCount()));
+      // Rows are not held in memory: the first pass finds the columns, rows are computed again when written.
+      Set<String> columns = new TreeSet<String>();
+      List<Map<String, String>> rows = new ArrayList<>();
+      for (Report.TestIteration iteration : test.getIterations()) {
+         Statistics aggregated = null;
+         for (Map.Entry<Integer, List<Statistics>> slaveStats : slaveStatistics(iteration)) {
+            Statistics nodeSummary = nodeSummary(slaveStats.getValue());
+            columns.addAll(representations(nodeSummary).keySet());
+            rows.add(rowKey(String.valueOf(slaveStats.getKey()), iteration.id));
+            if (computeTotal) {
+               if (aggregated == null)
+                  aggregated = nodeSummary.copy();
+               else
+                  aggregated.merge(nodeSummary);
             }
-            ++it;
          }
-         writeFile(fileWriter, columns, rows);
+         if (computeTotal && aggregated != null) {
+            columns.addAll(representations(aggregated).keySet());
+            rows.add(rowKey(TOTAL, iteration.id));
+         }
+      }
+      // sorts rows into correct order
+      rows.sort(new RowComparator(Arrays.asList(SLAVE_INDEX, ITERATION)));
+      try (Writer writer = prepareOutputFile(report, test.name, "")) {
+         writeFile(writer, columns, rows, rowKey -> computeRow(test, rowKey));
       } catch (IOException e) {
          log.error("Failed to create report for test " + test.name, e);
-      } finally {
-         if (fileWriter != null) {
-            try {
-               fileWriter.close();
-            } catch (IOException e) {
-               log.error("Failed to close", e);
-            }
+      }
+   }
+
+   private List<Map.Entry<Integer, List<Statistics>>> slaveStatistics(Report.TestIteration iteration) {
+      List<Map.Entry<Integer, List<Statistics>>> allSlaveStats = new ArrayList<>();
+      for (Map.Entry<Integer, List<Statistics>> slaveStats : iteration.getStatistics()) {
+         if (ignore != null && ignore.contains(slaveStats.getKey())) {
+            continue;
          }
+         if (slaveStats.getValue().size() <= 0) {
+            continue;
+         }
+         allSlaveStats.add(slaveStats);
       }
+      allSlaveStats.sort(Map.Entry.comparingByKey());
+      return allSlaveStats;
+   }
+
+   private static Map<String, String> rowKey(String slaveIndex, int iteration) {
+      Map<String, String> rowKey = new HashMap<>();
+      rowKey.put(SLAVE_INDEX, slaveIndex);
+      rowKey.put(ITERATION, String.valueOf(iteration));
+      return rowKey;
+   }
+
+   private Map<String, String> computeRow(Report.Test test, Map<String, String> rowKey) {
+      Report.TestIteration iteration = test.getIterations().get(Integer.parseInt(rowKey.get(ITERATION)));
+      Statistics summary;
+      int threadCount;
+      if (TOTAL.equals(rowKey.get(SLAVE_INDEX))) {
+         summary = slaveStatistics(iteration).stream().map(slaveStats -> nodeSummary(slaveStats.getValue()))
+            .reduce(null, Statistics.MERGE);
+         threadCount = iteration.getThreadCount();
+      } else {
+         List<Statistics> slaveStats = iteration.getStatistics(Integer.parseInt(rowKey.get(SLAVE_INDEX)));
+         summary = nodeSummary(slaveStats);
+         threadCount = slaveStats.size();
+      }
+      Map<String, String> rowData = representations(summary);
+      rowData.putAll(rowKey);
+      rowData.put(PERIOD, String.valueOf(summary.getEnd() - summary.getBegin()));
+      rowData.put(THREAD_COUNT, String.valueOf(threadCount));
+      return rowData;
    }
 
-   private FileWriter prepareOutputFile(Report report, String prefix, String suffix) throws IOException {
+   private Writer prepareOutputFile(Report report, String prefix, String suffix) throws IOException {
       File parentDir = new File(targetDir);
       if (!parentDir.exists()) {
          if (!parentDir.mkdirs()) {
@@ -149,26 +173,21 @@ public class CsvReporter extends AbstractReporter {
       }
       fileName.append(suffix).append(".csv");
       File outputFile = Utils.createOrReplaceFile(parentDir, fileName.toString());
-      return new FileWriter(outputFile);
+      return new BufferedWriter(new FileWriter(outputFile));
    }
 
-   private Statistics processRow(int it, Set<String> columns, List<Map<String, String>> rows,
-         Map.Entry<Integer, List<Statistics>> slaveStats) {
+   private Statistics nodeSummary(List<Statistics> slaveStats) {
       // this reporter is merging statistics from all threads on each node
-      Statistics summary = slaveStats.getValue().stream().filter(o -> o != null).reduce(Statistics.MERGE)
+      return slaveStats.stream().filter(o -> o != null).reduce(Statistics.MERGE)
          .orElseThrow(() -> new IllegalStateException("No statistics!"));
+   }
+
+   private Map<String, String> representations(Statistics summary) {
       Map<String, String> rowData = new HashMap<String, String>();
-      rows.add(rowData);
       for (String operation : summary.getOperations()) {
          addRepresentations(summary, rowData, summary, operation);
       }
-      columns.addAll(rowData.keySet());
-
-      rowData.put(SLAVE_INDEX, String.valueOf(slaveStats.getKey()));
-      rowData.put(ITERATION, String.valueOf(it));
-      rowData.put(PERIOD, String.valueOf(summary.getEnd() - summary.getBegin()));
-      rowData.put(THREAD_COUNT, String.valueOf(slaveStats.getValue().size()));
-      return summary;
+      return rowData;
    }
 
    private void addRepresentations(Statistics summary, Map<String, String> rowData, Statistics statistics,
@@ -208,8 +227,8 @@ public class CsvReporter extends AbstractReporter {
       }
    }
 
-   private void writeFile(FileWriter fileWriter, Set<String> columns, List<Map<String, String>> rows)
-         throws IOException {
+   private void writeFile(Writer writer, Set<String> columns, List<Map<String, String>> rows,
+         Function<Map<String, String>, Map<String, String>> rowData) throws IOException {
 
       List<String> indexColumns = Arrays.asList(ITERATION, SLAVE_INDEX, PERIOD, THREAD_COUNT);
 
@@ -222,23 +241,21 @@ public class CsvReporter extends AbstractReporter {
       // sorts columns into correct order
       orderedColumns.sort(new ColumnComparator(columnOrderList));
 
-      // sorts rows into correct order
-      rows.sort(new RowComparator(Arrays.asList(SLAVE_INDEX, ITERATION, PERIOD, THREAD_COUNT)));
-
       for (String column : orderedColumns) {
-         fileWriter.write(column);
-         fileWriter.write(separator);
+         writer.write(column);
+         writer.write(separator);
       }
 
-      fileWriter.write("\n");
-      for (Map<String, String> row : rows) {
+      writer.write("\n");
+      for (Map<String, String> rowKey : rows) {
+         Map<String, String> row = rowData.apply(rowKey);
          for (String column : orderedColumns) {
             String value = row.get(column);
             if (value != null)
-               fileWriter.write(value);
-            fileWriter.write(separator);
+               writer.write(value);
+            writer.write(separator);
          }
-         fileWriter.write("\n");
+         writer.write("\n");
       }
    }
 
@@ -266,7 +283,7 @@ public class CsvReporter extends AbstractReporter {
          maxSlaveIndex = Math.max(maxSlaveIndex, t.slaveIndex);
       }
       for (Timeline.Category valueCategory : allCategories) {
-         FileWriter writer = null;
+         Writer writer = null;
          try {
             writer = prepareOutputFile(report, "timeline", "_" + valueCategory.getName());
             writer.write("Timestamp");
@@ -326,70 +343,70 @@ public class CsvReporter extends AbstractReporter {
    }
 
    /**
-    * Comparator for sorting rows based on column value
+    * Comparator for sorting columns by matching regex
     * 
     * @author zhostasa
     *
     */
-   private class RowComparator implements Comparator<Map<String, String>> {
+   private class ColumnComparator implements Comparator<String> {
 
-      private List<String> comparePriority;
+      private List<String> compareRegex;
 
       /**
        * Instantiates comparator
        * 
-       * @param comparePriority
-       *           List of columns names to sort by, priority is defined by
-       *           order in list
+       * @param compareRegex
+       *           List of regular expressions to sort by, priority is
+       *           determined by order in list
        */
-      public RowComparator(List<String> comparePriority) {
-         this.comparePriority = comparePriority;
+      public ColumnComparator(List<String> compareRegex) {
+         this.compareRegex = compareRegex;
       }
 
-      public int compare(Map<String, String> o1, Map<String, String> o2) {
-         for (String compareColumn : comparePriority) {
-            int comp = o1.get(compareColumn).compareTo(o2.get(compareColumn));
-            if (comp != 0)
-               return comp;
+      public int compare(String o1, String o2) {
+
+         for (String regex : compareRegex) {
+            boolean o1Matches = o1.matches(regex);
+            boolean o2Matches = o2.matches(regex);
+            if (o1Matches && !o2Matches)
+               return -1;
+            if (!o1Matches && o2Matches)
+               return 1;
          }
          return 0;
       }
-
    }
 
    /**
-    * Comparator for sorting columns by matching regex
+    * Comparator for sorting rows based on column value
     * 
     * @author zhostasa
     *
     */
-   private class ColumnComparator implements Comparator<String> {
+   private class RowComparator implements Comparator<Map<String, String>> {
 
-      private List<String> compareRegex;
+      private List<String> comparePriority;
 
       /**
        * Instantiates comparator
        * 
-       * @param compareRegex
-       *           List of regular expressions to sort by, priority is
-       *           determined by order in list
+       * @param comparePriority
+       *           List of columns names to sort by, priority is defined by
+       *           order in list
        */
-      public ColumnComparator(List<String> compareRegex) {
-         this.compareRegex = compareRegex;
+      public RowComparator(List<String> comparePriority) {
+         this.comparePriority = comparePriority;
       }
 
-      public int compare(String o1, String o2) {
-
-         for (String regex : compareRegex) {
-            boolean o1Matches = o1.matches(regex);
-            boolean o2Matches = o2.matches(regex);
-            if (o1Matches && !o2Matches)
-               return -1;
-            if (!o1Matches && o2Matches)
-               return 1;
+      public int compare(Map<String, String> o1, Map<String, String> o2) {
+         for (String compareColumn : comparePriority) {
+            int comp = o1.get(compareColumn).compareTo(o2.get(compareColumn));
+            if (comp != 0)
+               return comp;
          }
          return 0;
       }
+
    }
 
    /**
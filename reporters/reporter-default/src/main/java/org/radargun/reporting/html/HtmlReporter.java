@@ -15,8 +15,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import freemarker.cache.ClassTemplateLoader;
 import freemarker.template.DefaultObjectWrapper;
@@ -50,6 +52,12 @@ public class HtmlReporter extends AbstractReporter {
    @Property(doc = "Directory to put the reports. Default is results/html.")
    private String targetDir = "results" + File.separator + "html";
 
+   @Property(doc = "Number of test reports generated in parallel. Aggregated statistics (including node and thread "
+      + "statistics and their histograms) are held in memory for each test that is currently being reported, "
+      + "so higher values need proportionally more heap. Default is 1, test reports are not rendered in parallel "
+      + "unless this is set.")
+   private int parallelism = 1;
+
    @PropertyDelegate(prefix = "testReport.")
    private ReportDocument.Configuration testReportConfig = new ReportDocument.Configuration();
 
@@ -168,23 +176,44 @@ public class HtmlReporter extends AbstractReporter {
    }
 
    private void writeTestReportDocuments(Set<String> combinedTests, Map<String, List<Report.Test>> testsByName) {
-      for (Map.Entry<String, List<Report.Test>> entry : testsByName.entrySet()) {
-         if (combinedTests.contains(entry.getKey())) {
-            // do not write TestReportDocument for combined test
-            continue;
+      // tests are independent, each task aggregates its statistics and releases them when the document is written
+      ExecutorService testExecutor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+      try {
+         List<Future<?>> futures = new ArrayList<>();
+         for (Map.Entry<String, List<Report.Test>> entry : testsByName.entrySet()) {
+            if (combinedTests.contains(entry.getKey())) {
+               // do not write TestReportDocument for combined test
+               continue;
+            }
+            futures.add(testExecutor.submit(() -> writeTestReportDocument(entry.getKey(), entry.getValue())));
          }
-         TestAggregations ta = new TestAggregations(entry.getKey(), entry.getValue());
-         TestReportDocument testReport = new TestReportDocument(ta, targetDir, testReportConfig);
+         for (Future<?> future : futures) {
+            try {
+               future.get();
+            } catch (ExecutionException e) {
+               log.error("Failed to create test report", e.getCause());
+            }
+         }
+      } catch (InterruptedException e) {
+         log.error("Interrupted while creating test reports", e);
+         Thread.currentThread().interrupt();
+      } finally {
+         testExecutor.shutdownNow();
+      }
+   }
 
-         testReport.createReportDirectory();
-         testReport.createTestCharts();
+   private void writeTestReportDocument(String testName, List<Report.Test> tests) {
+      TestAggregations ta = new TestAggregations(testName, tests);
+      TestReportDocument testReport = new TestReportDocument(ta, targetDir, testReportConfig);
 
-         Map root = new HashMap();
-         root.put("testReport", testReport);
-         root.put("enums", DefaultObjectWrapper.getDefaultInstance().getEnumModels());
+      testReport.createReportDirectory();
+      testReport.createTestCharts();
 
-         processTemplate(root, targetDir, "test_" + testReport.testName + ".html", "testReport.ftl");
-      }
+      Map root = new HashMap();
+      root.put("testReport", testReport);
+      root.put("enums", DefaultObjectWrapper.getDefaultInstance().getEnumModels());
+
+      processTemplate(root, targetDir, "test_" + testReport.testName + ".html", "testReport.ftl");
    }
 
    private void writeTimelineDocuments(Collection<Report> reports, Timeline.Category.Type categoryType) {
@@ -83,7 +83,7 @@ public abstract class ReportDocument extends HtmlDocument {
                } else {
                   statistics = aggregation.totalStats;
                }
-               Histogram histogram = statistics.getRepresentation(operation, Histogram.class);
+               Histogram histogram = aggregation.getRepresentation(statistics, operation, Histogram.class);
                if (histogram != null) {
                   collector.accept(aggregation.report.getConfiguration().getName(), histogram);
                }
@@ -168,7 +168,7 @@ public abstract class ReportDocument extends HtmlDocument {
                }
                switch (chartType) {
                   case MEAN_AND_DEV: {
-                     MeanAndDev meanAndDev = aggregation.totalStats.getRepresentation(target, MeanAndDev.class);
+                     MeanAndDev meanAndDev = aggregation.getRepresentation(aggregation.totalStats, target, MeanAndDev.class);
                      if (meanAndDev == null) return false;
                      if (!Double.isNaN(meanAndDev.mean) && !Double.isNaN(meanAndDev.dev)) {
                         chart.addValue(toMillis(meanAndDev.mean), toMillis(meanAndDev.dev), categoryName, subCategoryNumeric,
@@ -177,7 +177,7 @@ public abstract class ReportDocument extends HtmlDocument {
                      break;
                   }
                   case OPERATION_THROUGHPUT_NET: {
-                     OperationThroughput throughput = aggregation.totalStats.getRepresentation(target, OperationThroughput.class);
+                     OperationThroughput throughput = aggregation.getRepresentation(aggregation.totalStats, target, OperationThroughput.class);
                      if (throughput == null) return false;
                      if (throughput.net > 0) {
                         chart.addValue(throughput.net, 0, categoryName, subCategoryNumeric, subCategoryValue);
@@ -185,7 +185,7 @@ public abstract class ReportDocument extends HtmlDocument {
                      break;
                   }
                   case DATA_THROUGHPUT: {
-                     DataThroughput dataThroughput = aggregation.totalStats.getRepresentation(target, DataThroughput.class);
+                     DataThroughput dataThroughput = aggregation.getRepresentation(aggregation.totalStats, target, DataThroughput.class);
                      if (dataThroughput == null) return false;
                      if (dataThroughput.meanThroughput > 0) {
                         chart.addValue(dataThroughput.meanThroughput / (1024.0 * 1024.0), dataThroughput.deviation
@@ -194,7 +194,7 @@ public abstract class ReportDocument extends HtmlDocument {
                      break;
                   }
                   case MEAN_AND_DEV_SERIES: {
-                     MeanAndDev.Series series = aggregation.totalStats.getRepresentation(target, MeanAndDev.Series.class);
+                     MeanAndDev.Series series = aggregation.getRepresentation(aggregation.totalStats, target, MeanAndDev.Series.class);
                      if (series == null) return false;
                      int sample = 0;
                      for (MeanAndDev meanAndDev : series.samples) {
@@ -206,7 +206,7 @@ public abstract class ReportDocument extends HtmlDocument {
                      break;
                   }
                   case REQUESTS_SERIES: {
-                     DefaultOutcome.Series series = aggregation.totalStats.getRepresentation(target, DefaultOutcome.Series.class);
+                     DefaultOutcome.Series series = aggregation.getRepresentation(aggregation.totalStats, target, DefaultOutcome.Series.class);
                      if (series == null) return false;
                      int sample = 0;
                      for (DefaultOutcome defaultOutcome : series.samples) {
@@ -218,7 +218,7 @@ public abstract class ReportDocument extends HtmlDocument {
                      break;
                   }
                   case OPERATION_THROUGHPUT_GROSS_SERIES: {
-                     OperationThroughput.Series series = aggregation.totalStats.getRepresentation(target, OperationThroughput.Series.class);
+                     OperationThroughput.Series series = aggregation.getRepresentation(aggregation.totalStats, target, OperationThroughput.Series.class);
                      if (series == null) return false;
                      int sample = 0;
                      for (OperationThroughput defaultOutcome : series.samples) {
@@ -230,7 +230,7 @@ public abstract class ReportDocument extends HtmlDocument {
                      break;
                   }
                   case OPERATION_THROUGHPUT_NET_SERIES: {
-                     OperationThroughput.Series series = aggregation.totalStats.getRepresentation(target, OperationThroughput.Series.class);
+                     OperationThroughput.Series series = aggregation.getRepresentation(aggregation.totalStats, target, OperationThroughput.Series.class);
                      if (series == null) return false;
                      int sample = 0;
                      for (OperationThroughput defaultOutcome : series.samples) {
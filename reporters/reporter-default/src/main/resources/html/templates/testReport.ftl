@@ -509,8 +509,8 @@
     <#local period = testReport.period(statistics)!0 />
   </#if>
 
-  <#local defaultOutcome = statistics.getRepresentation(operation, testReport.defaultOutcomeClass())! />
-  <#local meanAndDev = statistics.getRepresentation(operation, testReport.meanAndDevClass())! />
+  <#local defaultOutcome = aggregation.getRepresentation(statistics, operation, testReport.defaultOutcomeClass())! />
+  <#local meanAndDev = aggregation.getRepresentation(statistics, operation, testReport.meanAndDevClass())! />
   <#local rowClass = testReport.rowClass(aggregation.anySuspect(operation)) />
 
   <#if rowClass=="highlight">
@@ -554,7 +554,7 @@
   </#if>
 
   <#if operationData.getPresentedStatistics()?seq_contains(StatisticType.OPERATION_THROUGHPUT)>
-    <#local operationThroughput = statistics.getRepresentation(operation, testReport.operationThroughputClass(), period)! />
+    <#local operationThroughput = aggregation.getRepresentation(statistics, operation, testReport.operationThroughputClass(), period)! />
 
     <#if operationThroughput?has_content>
       <td class="${rowClass} rowStyle" title="${tooltip}">
@@ -570,7 +570,7 @@
   </#if>
 
   <#if operationData.getPresentedStatistics()?seq_contains(StatisticType.DATA_THROUGHPUT)>
-    <#local dataThroughput = statistics.getRepresentation(operation, testReport.dataThroughputClass())! />
+    <#local dataThroughput = aggregation.getRepresentation(statistics, operation, testReport.dataThroughputClass())! />
     <#if dataThroughput?has_content>
       <td class="${rowClass} rowStyle" title="${tooltip}">
         ${testReport.formatDataThroughput(dataThroughput.minThroughput)} - min
@@ -594,7 +594,7 @@
 
   <#if operationData.getPresentedStatistics()?seq_contains(StatisticType.PERCENTILES)>
     <#list testReport.configuration.percentiles as percentile >
-      <#local p = (statistics.getRepresentation(operation, testReport.percentileClass(), percentile?double))! />
+      <#local p = (aggregation.getRepresentation(statistics, operation, testReport.percentileClass(), percentile?double))! />
 
       <#if p?has_content>
         <td class="${rowClass} rowStyle" title="${tooltip}">
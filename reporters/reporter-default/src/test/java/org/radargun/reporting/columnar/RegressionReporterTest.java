@@ -0,0 +1,137 @@
+package org.radargun.reporting.columnar;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.radargun.Operation;
+import org.radargun.config.Cluster;
+import org.radargun.config.Configuration;
+import org.radargun.reporting.Report;
+import org.radargun.stats.AllRecordingOperationStats;
+import org.radargun.stats.BasicStatistics;
+import org.radargun.stats.Request;
+import org.radargun.stats.Statistics;
+import org.radargun.stats.representation.Histogram;
+import org.radargun.utils.TimeService;
+import org.radargun.utils.Utils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Runs {@link RegressionReporter} on reports with the same and worse performance.
+ */
+public class RegressionReporterTest {
+   private static final Operation GET = Operation.register("RegressionReporterTest.Get");
+
+   @Test
+   public void testRegression() throws Exception {
+      File dir = Files.createTempDirectory("radargun_regression").toFile();
+      try {
+         RegressionReporter reporter = new RegressionReporter();
+         reporter.historyDir = new File(dir, "history").getPath();
+         reporter.targetDir = new File(dir, "regression").getPath();
+         reporter.bootstrapSamples = 1000;
+
+         // no baseline yet
+         reporter.run(null, Collections.singletonList(createReport(1000, 100_000L)));
+         Assert.assertEquals(new File(reporter.historyDir).list().length, 1);
+         // the same performance
+         reporter.run(null, Collections.singletonList(createReport(1000, 100_000L)));
+         // runs finished within the same second do not overwrite each other
+         Assert.assertEquals(new File(reporter.historyDir).list().length, 2);
+         try {
+            reporter.run(null, Collections.singletonList(createReport(500, 200_000L)));
+            Assert.fail("Regression was not detected");
+         } catch (IllegalStateException e) {
+            // expected
+         }
+         // regressed run does not become part of the baseline
+         Assert.assertEquals(new File(reporter.historyDir).list().length, 2);
+         // better performance is not a regression
+         reporter.run(null, Collections.singletonList(createReport(2000, 50_000L)));
+      } finally {
+         Utils.deleteDirectory(dir);
+      }
+   }
+
+   @Test
+   public void testBaselineIsMostRecentRun() throws Exception {
+      File dir = Files.createTempDirectory("radargun_regression").toFile();
+      try {
+         RegressionReporter reporter = new RegressionReporter();
+         reporter.historyDir = new File(dir, "history").getPath();
+         reporter.targetDir = new File(dir, "regression").getPath();
+         reporter.bootstrapSamples = 1000;
+         reporter.baselineRuns = 1;
+         File history = new File(reporter.historyDir);
+         history.mkdirs();
+         // older and faster run with name sorting after the newer one
+         new ResultStoreWriter().write(createReport(2000, 50_000L), new File(history, "config-3-1-20200101-000000-000" + ResultStore.FILE_SUFFIX));
+         new ResultStoreWriter().write(createReport(1000, 100_000L), new File(history, "config-3-0-20200102-000000-000" + ResultStore.FILE_SUFFIX));
+
+         // fails if compared against the older run
+         reporter.run(null, Collections.singletonList(createReport(1000, 100_000L)));
+      } finally {
+         Utils.deleteDirectory(dir);
+      }
+   }
+
+   @Test
+   public void testCompareRunTime() {
+      List<File> files = new ArrayList<>();
+      for (String name : new String[] {"config-3-1-20200101-120000-001-10", "c-3-0-20200101-120000-001-2", "c-3-0-20200101-120000-001",
+         "config-3-1-20200101-120000", "config-3-0-20200101-120000-999", "c-3-0-20200101-120001-000"}) {
+         files.add(new File(name + ResultStore.FILE_SUFFIX));
+      }
+      List<File> sorted = new ArrayList<>(files);
+      Collections.shuffle(sorted, new Random(0));
+      sorted.sort(ColumnarReporter::compareRunTime);
+      Assert.assertEquals(sorted, Arrays.asList(files.get(3), files.get(2), files.get(1), files.get(0), files.get(4), files.get(5)));
+   }
+
+   @Test
+   public void testMannWhitney() {
+      StoredOperationStats first = new StoredOperationStats();
+      StoredOperationStats second = new StoredOperationStats();
+      StoredOperationStats shifted = new StoredOperationStats();
+      for (int i = 1; i <= 1000; ++i) {
+         first.addHistogram(new Histogram(new long[] {0, i * 1000}, new long[] {1}));
+         second.addHistogram(new Histogram(new long[] {0, i * 1000}, new long[] {1}));
+         shifted.addHistogram(new Histogram(new long[] {0, i * 1500}, new long[] {1}));
+      }
+      SignificanceTests.MannWhitney same = SignificanceTests.mannWhitney(first, second);
+      Assert.assertEquals(same.z, 0d, 1e-9);
+      Assert.assertEquals(same.effect, 0.5, 1e-9);
+      SignificanceTests.MannWhitney slower = SignificanceTests.mannWhitney(first, shifted);
+      Assert.assertTrue(slower.pValue() < 0.001, String.valueOf(slower.pValue()));
+      Assert.assertTrue(slower.effect > 0.6, String.valueOf(slower.effect));
+      Assert.assertEquals(SignificanceTests.normalTail(1.96), 0.025, 1e-4);
+   }
+
+   private Report createReport(int requests, long responseTime) {
+      Cluster cluster = new Cluster();
+      cluster.setSize(3);
+      Report report = new Report(new Configuration("config"), cluster);
+      Report.Test test = report.createTest("test", null, false);
+      for (int slave = 0; slave < 3; ++slave) {
+         BasicStatistics statistics = new BasicStatistics(new AllRecordingOperationStats());
+         // slightly different throughput on each slave
+         int slaveRequests = requests + slave * requests / 100;
+         for (int i = 0; i < slaveRequests; ++i) {
+            Request request = new Request(statistics, TimeService.nanoTime() - responseTime - i % 10 * responseTime / 10);
+            request.succeeded(GET);
+         }
+         statistics.setBegin(0);
+         statistics.setEnd(1000);
+         List<Statistics> threads = new ArrayList<>();
+         threads.add(statistics);
+         test.addStatistics(0, slave, threads);
+      }
+      return report;
+   }
+}
@@ -0,0 +1,124 @@
+package org.radargun.reporting.columnar;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.radargun.Operation;
+import org.radargun.config.Cluster;
+import org.radargun.config.Configuration;
+import org.radargun.reporting.Report;
+import org.radargun.reporting.Timeline;
+import org.radargun.stats.AllRecordingOperationStats;
+import org.radargun.stats.BasicStatistics;
+import org.radargun.stats.Request;
+import org.radargun.stats.Statistics;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.stats.representation.Percentile;
+import org.radargun.utils.TimeService;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Writes a report into {@link ResultStore} and checks that it is read back.
+ */
+public class ResultStoreTest {
+   private static final Operation GET = Operation.register("ResultStoreTest.Get");
+   private static final Operation PUT = Operation.register("ResultStoreTest.Put");
+
+   @Test
+   public void testRoundTrip() throws Exception {
+      Cluster cluster = new Cluster();
+      cluster.addGroup(Cluster.DEFAULT_GROUP, 2);
+      Report report = new Report(new Configuration("config"), cluster);
+      Report.Test test = report.createTest("test", "threads", false);
+      for (int iteration = 0; iteration < 2; ++iteration) {
+         test.setIterationValue(iteration, String.valueOf(iteration + 1));
+         for (int slave = 1; slave >= 0; --slave) {
+            List<Statistics> threads = new ArrayList<>();
+            for (int thread = 0; thread <= iteration; ++thread) {
+               BasicStatistics statistics = new BasicStatistics(new AllRecordingOperationStats());
+               statistics.begin();
+               for (int i = 1; i <= 100; ++i) {
+                  fakeRequest(statistics, i * 100_000L, GET, true);
+               }
+               fakeRequest(statistics, 5_000_000L, PUT, false);
+               statistics.end();
+               threads.add(statistics);
+            }
+            test.addStatistics(iteration, slave, threads);
+         }
+      }
+      Timeline timeline = new Timeline(0);
+      timeline.addValue(Timeline.Category.sysCategory("CPU usage"), new Timeline.Value(1000, 0.5));
+      timeline.addValue(Timeline.Category.sysCategory("CPU usage"), new Timeline.Value(2000, 0.75));
+      report.addTimelines(Collections.singletonList(timeline));
+
+      File file = File.createTempFile("radargun_result_store", ResultStore.FILE_SUFFIX);
+      try {
+         new ResultStoreWriter().write(report, file);
+         try (ResultStore store = ResultStore.open(file)) {
+            Assert.assertEquals(store.getConfigurationName(), "config");
+            Assert.assertEquals(store.getCluster().getSize(), 2);
+            Assert.assertEquals(store.getTestNames(), Collections.singletonList("test"));
+            Assert.assertEquals(store.getIterationValue(0, 1), "2");
+            // two iterations, two slaves and two operations
+            Assert.assertEquals(store.getRows(), 8);
+            Assert.assertEquals(store.getSeries(), 1);
+            // rows of single iteration are ordered by slave index
+            Assert.assertEquals(store.ints(ResultStore.SLAVE).get(0), 0);
+            Assert.assertEquals(store.ints(ResultStore.THREADS).get(0), 1);
+            Assert.assertEquals(store.ints(ResultStore.THREADS).get(7), 2);
+
+            Report loaded = store.toReport();
+            Report.Test loadedTest = loaded.getTest("test");
+            Assert.assertEquals(loadedTest.getIterations().size(), 2);
+            Report.TestIteration iteration = loadedTest.getIterations().get(1);
+            Assert.assertEquals(iteration.getValue(), "2");
+            // statistics are merged but the number of threads is kept
+            Assert.assertEquals(iteration.getStatistics(0).size(), 1);
+            Assert.assertEquals(iteration.getThreadCount(0), 2);
+            Assert.assertEquals(iteration.getThreadCount(), 4);
+            Assert.assertEquals(loadedTest.getIterations().get(0).getThreadCount(), 2);
+            Statistics merged = null;
+            for (Map.Entry<Integer, List<Statistics>> entry : iteration.getStatistics()) {
+               for (Statistics statistics : entry.getValue()) {
+                  merged = merged == null ? statistics.copy() : Statistics.MERGE.apply(merged, statistics);
+               }
+            }
+            Assert.assertNotNull(merged);
+
+            DefaultOutcome get = merged.getRepresentation(GET.name, DefaultOutcome.class);
+            Assert.assertEquals(get.requests, 400);
+            Assert.assertEquals(get.errors, 0);
+            Assert.assertEquals(get.responseTimeMean, 5_050_000d, 5_050_000d * 0.05);
+            DefaultOutcome put = merged.getRepresentation(PUT.name, DefaultOutcome.class);
+            Assert.assertEquals(put.requests, 4);
+            Assert.assertEquals(put.errors, 4);
+
+            // percentiles are computed from logarithmic buckets, precise to about 10%
+            Percentile percentile = merged.getRepresentation(GET.name, Percentile.class, 90d);
+            Assert.assertEquals(percentile.responseTimeMax, 9_000_000d, 9_000_000d * 0.1);
+
+            Timeline loadedTimeline = loaded.getTimelines().stream().filter(t -> t.slaveIndex == 0).findFirst().get();
+            List<Timeline.Value> values = loadedTimeline.getValues(Timeline.Category.sysCategory("CPU usage"));
+            Assert.assertEquals(values.size(), 2);
+            Assert.assertEquals(values.get(1).timestamp, 2000);
+            Assert.assertEquals(values.get(1).value.doubleValue(), 0.75);
+         }
+      } finally {
+         file.delete();
+      }
+   }
+
+   private void fakeRequest(Statistics statistics, long duration, Operation operation, boolean successful) {
+      Request request = new Request(statistics, TimeService.nanoTime() - duration);
+      if (successful) {
+         request.succeeded(operation);
+      } else {
+         request.failed(operation);
+      }
+   }
+}
@@ -0,0 +1,96 @@
+package org.radargun.reporting.commons;
+
+import java.util.Arrays;
+
+import org.radargun.Operation;
+import org.radargun.stats.BasicStatistics;
+import org.radargun.stats.Request;
+import org.radargun.stats.representation.DefaultOutcome;
+import org.radargun.stats.representation.OperationThroughput;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+@Test
+public class AggregationTest {
+   private static final Operation OPERATION = Operation.register(AggregationTest.class.getSimpleName());
+
+   public void testRepresentationIsComputedOnce() {
+      CountingStatistics node = statistics();
+      CountingStatistics total = statistics();
+      Aggregation aggregation = new Aggregation(Arrays.asList(node), Arrays.asList(1), total, 1, null, null);
+
+      DefaultOutcome outcome = aggregation.getRepresentation(total, OPERATION.name, DefaultOutcome.class);
+      assertNotNull(outcome);
+      assertSame(aggregation.getRepresentation(total, OPERATION.name, DefaultOutcome.class), outcome);
+      assertEquals(total.calls, 1);
+
+      // node statistics are cached separately
+      DefaultOutcome nodeOutcome = aggregation.getRepresentation(node, OPERATION.name, DefaultOutcome.class);
+      assertNotSame(nodeOutcome, outcome);
+      assertSame(aggregation.getRepresentation(node, OPERATION.name, DefaultOutcome.class), nodeOutcome);
+      assertEquals(node.calls, 1);
+   }
+
+   public void testArgumentsAreComparedByValue() {
+      CountingStatistics total = statistics();
+      Aggregation aggregation = new Aggregation(Arrays.asList(), Arrays.asList(), total, 1, null, null);
+
+      // each call creates new varargs array and boxes the argument again
+      OperationThroughput throughput = aggregation.getRepresentation(total, OPERATION.name, OperationThroughput.class, 1000L);
+      assertSame(aggregation.getRepresentation(total, OPERATION.name, OperationThroughput.class, new Long(1000)), throughput);
+      assertEquals(total.calls, 1);
+
+      OperationThroughput other = aggregation.getRepresentation(total, OPERATION.name, OperationThroughput.class, 2000L);
+      assertNotSame(other, throughput);
+      aggregation.getRepresentation(total, OPERATION.name, OperationThroughput.class);
+      aggregation.getRepresentation(total, OPERATION.name, OperationThroughput.class, 1000L, 1);
+      assertEquals(total.calls, 4);
+      // the operation and the representation class are part of the key, too
+      aggregation.getRepresentation(total, "other", OperationThroughput.class, 1000L);
+      aggregation.getRepresentation(total, OPERATION.name, DefaultOutcome.class, 1000L);
+      assertEquals(total.calls, 6);
+   }
+
+   public void testMissingRepresentationIsCached() {
+      CountingStatistics total = statistics();
+      Aggregation aggregation = new Aggregation(Arrays.asList(), Arrays.asList(), total, 1, null, null);
+      assertNull(aggregation.getRepresentation(total, OPERATION.name, String.class));
+      assertNull(aggregation.getRepresentation(total, OPERATION.name, String.class));
+      assertEquals(total.calls, 1);
+      assertNull(aggregation.getRepresentation(null, OPERATION.name, DefaultOutcome.class));
+   }
+
+   public void testThreadStatisticsAreNotCached() {
+      CountingStatistics thread = statistics();
+      CountingStatistics total = statistics();
+      Aggregation aggregation = new Aggregation(Arrays.asList(), Arrays.asList(), total, 1, null, null);
+      assertNotNull(aggregation.getRepresentation(thread, OPERATION.name, DefaultOutcome.class));
+      assertNotNull(aggregation.getRepresentation(thread, OPERATION.name, DefaultOutcome.class));
+      assertEquals(thread.calls, 2);
+   }
+
+   private static CountingStatistics statistics() {
+      CountingStatistics statistics = new CountingStatistics();
+      statistics.begin();
+      Request request = statistics.startRequest();
+      request.succeeded(OPERATION);
+      statistics.setBegin(0);
+      statistics.setEnd(1000);
+      return statistics;
+   }
+
+   private static class CountingStatistics extends BasicStatistics {
+      private int calls;
+
+      @Override
+      public <T> T getRepresentation(String operationName, Class<T> clazz, Object... args) {
+         calls++;
+         return super.getRepresentation(operationName, clazz, args);
+      }
+   }
+}